@@ -0,0 +1,120 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.core;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.FrozenRowMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * The per-row work every sorting, grouping and joining step does on its keys: compare, hash and clone rows.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class RowMetaBenchmark {
+
+  private static final int NR_ROWS = 1024;
+  private static final long SEED = 42L;
+
+  @Param( { "mutable", "frozen" } )
+  public String rowMetaType;
+
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private int[] keys;
+
+  @Setup
+  public void setUp() {
+    RowMetaInterface meta = new RowMeta();
+    meta.addValueMeta( new ValueMetaString( "name" ) );
+    meta.addValueMeta( new ValueMetaInteger( "id" ) );
+    meta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    meta.addValueMeta( new ValueMetaDate( "created" ) );
+    rowMeta = "frozen".equals( rowMetaType ) ? new FrozenRowMeta( meta ) : meta;
+    keys = new int[] { 0, 1 };
+
+    Random random = new Random( SEED );
+    rows = new Object[NR_ROWS][];
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      rows[i] = new Object[] {
+        "customer-" + random.nextInt( 100 ),
+        (long) random.nextInt( 1000 ),
+        random.nextDouble() * 10000,
+        new Date( 1500000000000L + random.nextInt( Integer.MAX_VALUE ) ), };
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public int compare() throws KettleValueException {
+    int result = 0;
+    for ( int i = 1; i < NR_ROWS; i++ ) {
+      result += rowMeta.compare( rows[i - 1], rows[i], keys );
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public int hashCodes() throws KettleValueException {
+    int result = 0;
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      result += rowMeta.hashCode( rows[i] );
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public void cloneRow( Blackhole blackhole ) throws KettleValueException {
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      blackhole.consume( rowMeta.cloneRow( rows[i] ) );
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.AdaptiveBlockingRowSet;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RingBufferRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+/**
+ * Throughput of the row sets of a hop: one producer thread putting rows and one consumer thread getting them, row by
+ * row and in blocks.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class RowSetBenchmark {
+
+  private static final int BLOCK_SIZE = 100;
+
+  @State( Scope.Group )
+  public static class Hop {
+
+    @Param( { "blocking", "ringbuffer", "adaptive" } )
+    public String rowSetType;
+
+    @Param( { "10000" } )
+    public int capacity;
+
+    RowSet rowSet;
+    RowMetaInterface rowMeta;
+    Object[] row;
+    Object[][] block;
+
+    @Setup( Level.Iteration )
+    public void setUp() {
+      switch ( rowSetType ) {
+        case "ringbuffer":
+          rowSet = new RingBufferRowSet( capacity );
+          break;
+        case "adaptive":
+          rowSet = new AdaptiveBlockingRowSet( capacity );
+          break;
+        default:
+          rowSet = new BlockingRowSet( capacity );
+          break;
+      }
+      rowMeta = new RowMeta();
+      rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+      row = new Object[] { 1L };
+      block = new Object[BLOCK_SIZE][];
+      for ( int i = 0; i < BLOCK_SIZE; i++ ) {
+        block[i] = new Object[] { (long) i };
+      }
+    }
+  }
+
+  @Benchmark
+  @Group( "rowByRow" )
+  public boolean put( Hop hop ) {
+    return hop.rowSet.putRow( hop.rowMeta, hop.row );
+  }
+
+  @Benchmark
+  @Group( "rowByRow" )
+  public Object[] get( Hop hop ) {
+    return hop.rowSet.getRow();
+  }
+
+  @Benchmark
+  @Group( "blocks" )
+  public int putRows( Hop hop ) {
+    return hop.rowSet.putRows( hop.rowMeta, hop.block, 0, BLOCK_SIZE );
+  }
+
+  @Benchmark
+  @Group( "blocks" )
+  public void getRows( Hop hop, Blackhole blackhole ) {
+    blackhole.consume( hop.rowSet.getRows( BLOCK_SIZE ) );
+  }
+
+  /**
+   * The single threaded row set used for steps running in the same thread, no contention.
+   */
+  @State( Scope.Thread )
+  public static class SingleThreaded {
+    QueueRowSet rowSet;
+    RowMetaInterface rowMeta;
+    Object[] row;
+
+    @Setup( Level.Iteration )
+    public void setUp() {
+      rowSet = new QueueRowSet();
+      rowMeta = new RowMeta();
+      rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+      row = new Object[] { 1L };
+    }
+  }
+
+  @Benchmark
+  public Object[] queuePutGet( SingleThreaded state ) {
+    state.rowSet.putRow( state.rowMeta, state.row );
+    return state.rowSet.getRow();
+  }
+}
@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.core;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * The data conversions the input and output steps do on every field: text to numbers, integers and dates and back.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class ValueMetaConversionBenchmark {
+
+  private static final int NR_VALUES = 1024;
+  private static final long SEED = 42L;
+
+  private ValueMetaInterface stringNumberMeta;
+  private ValueMetaInterface stringIntegerMeta;
+  private ValueMetaInterface stringDateMeta;
+  private ValueMetaInterface numberMeta;
+  private ValueMetaInterface integerMeta;
+  private ValueMetaInterface dateMeta;
+
+  private String[] numberStrings;
+  private String[] integerStrings;
+  private String[] dateStrings;
+  private Double[] numbers;
+  private Long[] integers;
+  private Date[] dates;
+
+  @Setup
+  public void setUp() throws KettleValueException {
+    stringNumberMeta = new ValueMetaString( "number" );
+    stringNumberMeta.setConversionMask( "0.00" );
+    stringIntegerMeta = new ValueMetaString( "integer" );
+    stringIntegerMeta.setConversionMask( "0" );
+    stringDateMeta = new ValueMetaString( "date" );
+    stringDateMeta.setConversionMask( "yyyy/MM/dd HH:mm:ss" );
+
+    numberMeta = new ValueMetaNumber( "number" );
+    numberMeta.setConversionMask( "0.00" );
+    integerMeta = new ValueMetaInteger( "integer" );
+    integerMeta.setConversionMask( "0" );
+    dateMeta = new ValueMetaDate( "date" );
+    dateMeta.setConversionMask( "yyyy/MM/dd HH:mm:ss" );
+
+    Random random = new Random( SEED );
+    numbers = new Double[NR_VALUES];
+    integers = new Long[NR_VALUES];
+    dates = new Date[NR_VALUES];
+    numberStrings = new String[NR_VALUES];
+    integerStrings = new String[NR_VALUES];
+    dateStrings = new String[NR_VALUES];
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      numbers[i] = Math.round( random.nextDouble() * 1000000 ) / 100.0;
+      integers[i] = random.nextLong() % 1000000000L;
+      dates[i] = new Date( ( 1500000000L + random.nextInt( 100000000 ) ) * 1000L );
+      numberStrings[i] = numberMeta.getString( numbers[i] );
+      integerStrings[i] = integerMeta.getString( integers[i] );
+      dateStrings[i] = dateMeta.getString( dates[i] );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_VALUES )
+  public void stringToNumber( Blackhole blackhole ) throws KettleValueException {
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      blackhole.consume( numberMeta.convertData( stringNumberMeta, numberStrings[i] ) );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_VALUES )
+  public void numberToString( Blackhole blackhole ) throws KettleValueException {
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      blackhole.consume( stringNumberMeta.convertData( numberMeta, numbers[i] ) );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_VALUES )
+  public void stringToInteger( Blackhole blackhole ) throws KettleValueException {
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      blackhole.consume( integerMeta.convertData( stringIntegerMeta, integerStrings[i] ) );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_VALUES )
+  public void integerToString( Blackhole blackhole ) throws KettleValueException {
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      blackhole.consume( stringIntegerMeta.convertData( integerMeta, integers[i] ) );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_VALUES )
+  public void stringToDate( Blackhole blackhole ) throws KettleValueException {
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      blackhole.consume( dateMeta.convertData( stringDateMeta, dateStrings[i] ) );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_VALUES )
+  public void dateToString( Blackhole blackhole ) throws KettleValueException {
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      blackhole.consume( stringDateMeta.convertData( dateMeta, dates[i] ) );
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.trans;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.csvinput.CsvInputMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputField;
+
+/**
+ * CSV Input reading a generated file of integers, numbers, dates and strings, with and without lazy conversion.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class CsvInputBenchmark {
+
+  @Param( { "500000" } )
+  public int nrRows;
+
+  @Param( { "true", "false" } )
+  public boolean lazyConversion;
+
+  private File file;
+  private TransMeta transMeta;
+
+  @Setup
+  public void setUp() throws KettleException, IOException {
+    TransBenchmarkSupport.init();
+
+    file = File.createTempFile( "csv-input-benchmark", ".csv" );
+    Random random = new Random( TransBenchmarkSupport.SEED );
+    try ( BufferedWriter writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 ) ) {
+      writer.write( "id;amount;created;name\n" );
+      for ( int i = 0; i < nrRows; i++ ) {
+        writer.write( Integer.toString( i ) );
+        writer.write( ';' );
+        writer.write( String.format( Locale.ROOT, "%.2f", random.nextDouble() * 10000 ) );
+        writer.write( ';' );
+        writer.write( String.format( Locale.ROOT, "2024/%02d/%02d", 1 + random.nextInt( 12 ), 1 + random.nextInt( 28 ) ) );
+        writer.write( ";name-" );
+        writer.write( Integer.toString( random.nextInt( 100000 ) ) );
+        writer.write( '\n' );
+      }
+    }
+
+    CsvInputMeta meta = new CsvInputMeta();
+    meta.setDefault();
+    meta.setFilename( file.getAbsolutePath() );
+    meta.setDelimiter( ";" );
+    meta.setEncoding( "UTF-8" );
+    meta.setHeaderPresent( true );
+    meta.setLazyConversionActive( lazyConversion );
+    meta.setFileFormat( "Unix" );
+    meta.setInputFields( new TextFileInputField[] {
+      field( "id", ValueMetaInterface.TYPE_INTEGER, "#" ),
+      field( "amount", ValueMetaInterface.TYPE_NUMBER, "#.##" ),
+      field( "created", ValueMetaInterface.TYPE_DATE, "yyyy/MM/dd" ),
+      field( "name", ValueMetaInterface.TYPE_STRING, null ), } );
+
+    transMeta = new TransMeta();
+    transMeta.setName( "csv input benchmark" );
+    StepMeta csvInput = TransBenchmarkSupport.stepMeta( "csv input", meta );
+    StepMeta dummy = TransBenchmarkSupport.stepMeta( TransBenchmarkSupport.DUMMY_STEPNAME, new DummyTransMeta() );
+    transMeta.addStep( csvInput );
+    transMeta.addStep( dummy );
+    transMeta.addTransHop( new TransHopMeta( csvInput, dummy ) );
+  }
+
+  private static TextFileInputField field( String name, int type, String format ) {
+    TextFileInputField field = new TextFileInputField( name, -1, -1 );
+    field.setType( type );
+    field.setFormat( format );
+    field.setDecimalSymbol( "." );
+    field.setTrimType( ValueMetaInterface.TRIM_TYPE_NONE );
+    return field;
+  }
+
+  @TearDown
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Benchmark
+  public long read() throws KettleException {
+    return TransBenchmarkSupport.run( transMeta, Collections.emptyMap(), Collections.emptyMap() );
+  }
+}
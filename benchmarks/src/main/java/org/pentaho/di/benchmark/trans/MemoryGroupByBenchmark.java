@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.trans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+
+/**
+ * Memory Group By computing a sum, a count and a maximum per group, for a few and for many distinct groups.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class MemoryGroupByBenchmark {
+
+  @Param( { "500000" } )
+  public int nrRows;
+
+  @Param( { "100", "100000" } )
+  public int nrGroups;
+
+  private TransMeta transMeta;
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+
+  @Setup
+  public void setUp() throws KettleException {
+    TransBenchmarkSupport.init();
+
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, 3 );
+    meta.setGroupField( new String[] { "customer" } );
+    meta.setAggregateField( new String[] { "total", "nr", "largest" } );
+    meta.setSubjectField( new String[] { "amount", "amount", "quantity" } );
+    meta.setAggregateType( new int[] {
+      MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, MemoryGroupByMeta.TYPE_GROUP_MAX, } );
+    meta.setValueField( new String[] { null, null, null } );
+    transMeta = TransBenchmarkSupport.transMeta( "group by", meta );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "customer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "quantity" ) );
+
+    Random random = new Random( TransBenchmarkSupport.SEED );
+    rows = new ArrayList<>( nrRows );
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.add( new Object[] {
+        "customer-" + random.nextInt( nrGroups ), random.nextDouble() * 1000, (long) random.nextInt( 100 ), } );
+    }
+  }
+
+  @Benchmark
+  public long groupBy() throws KettleException {
+    return TransBenchmarkSupport.run( transMeta, rowMeta, rows );
+  }
+}
@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.trans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.steps.sort.SortRowsMeta;
+
+/**
+ * Sort Rows on a string and an integer key, either fully in memory or spilling sorted runs to disk.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class SortRowsBenchmark {
+
+  @Param( { "200000" } )
+  public int nrRows;
+
+  /**
+   * The number of rows kept in memory: all of them, or a tenth forcing the step to spill.
+   */
+  @Param( { "1000000", "20000" } )
+  public String sortSize;
+
+  private TransMeta transMeta;
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+
+  @Setup
+  public void setUp() throws KettleException {
+    TransBenchmarkSupport.init();
+
+    SortRowsMeta meta = new SortRowsMeta();
+    meta.setDefault();
+    meta.allocate( 2 );
+    meta.setFieldName( new String[] { "name", "id" } );
+    meta.setAscending( new boolean[] { true, false } );
+    meta.setCaseSensitive( new boolean[] { true, true } );
+    meta.setCollatorEnabled( new boolean[] { false, false } );
+    meta.setCollatorStrength( new int[] { 0, 0 } );
+    meta.setPreSortedField( new boolean[] { false, false } );
+    meta.setDirectory( System.getProperty( "java.io.tmpdir" ) );
+    meta.setSortSize( sortSize );
+    transMeta = TransBenchmarkSupport.transMeta( "sort", meta );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    Random random = new Random( TransBenchmarkSupport.SEED );
+    rows = new ArrayList<>( nrRows );
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.add( new Object[] { "name-" + random.nextInt( 10000 ), random.nextLong() } );
+    }
+  }
+
+  @Benchmark
+  public long sort() throws KettleException {
+    return TransBenchmarkSupport.run( transMeta, rowMeta, rows );
+  }
+}
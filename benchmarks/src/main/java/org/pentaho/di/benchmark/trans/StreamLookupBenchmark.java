@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.trans;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
+
+/**
+ * Stream Lookup of an integer key: the lookup rows are read into memory first, then every main row is looked up.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class StreamLookupBenchmark {
+
+  private static final String LOOKUP_INJECTOR_STEPNAME = "lookup injector";
+
+  @Param( { "500000" } )
+  public int nrRows;
+
+  @Param( { "100000" } )
+  public int nrLookupRows;
+
+  /**
+   * Keep the lookup rows serialized in memory or not.
+   */
+  @Param( { "true", "false" } )
+  public boolean memoryPreservation;
+
+  private TransMeta transMeta;
+  private Map<String, List<Object[]>> input;
+  private Map<String, RowMetaInterface> rowMeta;
+
+  @Setup
+  public void setUp() throws KettleException {
+    TransBenchmarkSupport.init();
+
+    StreamLookupMeta meta = new StreamLookupMeta();
+    meta.setDefault();
+    meta.allocate( 1, 1 );
+    meta.setKeystream( new String[] { "id" } );
+    meta.setKeylookup( new String[] { "lookup_id" } );
+    meta.setValue( new String[] { "description" } );
+    meta.setValueName( new String[] { "description" } );
+    meta.setValueDefault( new String[] { null } );
+    meta.setValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    meta.setMemoryPreservationActive( memoryPreservation );
+
+    transMeta = new TransMeta();
+    transMeta.setName( "stream lookup benchmark" );
+    StepMeta injector = TransBenchmarkSupport.stepMeta( TransBenchmarkSupport.INJECTOR_STEPNAME, new InjectorMeta() );
+    StepMeta lookupInjector = TransBenchmarkSupport.stepMeta( LOOKUP_INJECTOR_STEPNAME, new InjectorMeta() );
+    StepMeta lookup = TransBenchmarkSupport.stepMeta( "stream lookup", meta );
+    StepMeta dummy = TransBenchmarkSupport.stepMeta( TransBenchmarkSupport.DUMMY_STEPNAME, new DummyTransMeta() );
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( lookupInjector );
+    transMeta.addStep( injector );
+    transMeta.addStep( lookupInjector );
+    transMeta.addStep( lookup );
+    transMeta.addStep( dummy );
+    transMeta.addTransHop( new TransHopMeta( injector, lookup ) );
+    transMeta.addTransHop( new TransHopMeta( lookupInjector, lookup ) );
+    transMeta.addTransHop( new TransHopMeta( lookup, dummy ) );
+
+    RowMetaInterface mainRowMeta = new RowMeta();
+    mainRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowMetaInterface lookupRowMeta = new RowMeta();
+    lookupRowMeta.addValueMeta( new ValueMetaInteger( "lookup_id" ) );
+    lookupRowMeta.addValueMeta( new ValueMetaString( "description" ) );
+
+    Random random = new Random( TransBenchmarkSupport.SEED );
+    List<Object[]> lookupRows = new ArrayList<>( nrLookupRows );
+    for ( long i = 0; i < nrLookupRows; i++ ) {
+      lookupRows.add( new Object[] { i, "description-" + i } );
+    }
+    List<Object[]> mainRows = new ArrayList<>( nrRows );
+    for ( int i = 0; i < nrRows; i++ ) {
+      // About one in ten keys is not found
+      mainRows.add( new Object[] { (long) random.nextInt( nrLookupRows + nrLookupRows / 10 ) } );
+    }
+
+    // The step reads all the lookup rows before the first main row, inject them first
+    input = new LinkedHashMap<>();
+    input.put( LOOKUP_INJECTOR_STEPNAME, lookupRows );
+    input.put( TransBenchmarkSupport.INJECTOR_STEPNAME, mainRows );
+    rowMeta = new LinkedHashMap<>();
+    rowMeta.put( LOOKUP_INJECTOR_STEPNAME, lookupRowMeta );
+    rowMeta.put( TransBenchmarkSupport.INJECTOR_STEPNAME, mainRowMeta );
+  }
+
+  @Benchmark
+  public long lookup() throws KettleException {
+    return TransBenchmarkSupport.run( transMeta, input, rowMeta );
+  }
+}
@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.trans;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.steps.textfileoutput.TextFileField;
+import org.pentaho.di.trans.steps.textfileoutput.TextFileOutputMeta;
+
+/**
+ * Text File Output formatting integers, numbers, dates and strings into a file, with and without fast data dump.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" } )
+public class TextFileOutputBenchmark {
+
+  @Param( { "500000" } )
+  public int nrRows;
+
+  @Param( { "false", "true" } )
+  public boolean fastDump;
+
+  private File directory;
+  private TransMeta transMeta;
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+
+  @Setup
+  public void setUp() throws KettleException, IOException {
+    TransBenchmarkSupport.init();
+
+    directory = File.createTempFile( "text-file-output-benchmark", "" );
+    directory.delete();
+    directory.mkdirs();
+
+    TextFileOutputMeta meta = new TextFileOutputMeta();
+    meta.setDefault();
+    meta.setFilename( new File( directory, "output" ).getAbsolutePath() );
+    meta.setExtension( "csv" );
+    meta.setSeparator( ";" );
+    meta.setAddToResultFiles( false );
+    meta.setFastDump( fastDump );
+    meta.setOutputFields( new TextFileField[] {
+      new TextFileField( "id", ValueMetaInterface.TYPE_INTEGER, "0", -1, -1, null, ".", null, null ),
+      new TextFileField( "amount", ValueMetaInterface.TYPE_NUMBER, "0.00", -1, 2, null, ".", null, null ),
+      new TextFileField( "created", ValueMetaInterface.TYPE_DATE, "yyyy/MM/dd", -1, -1, null, null, null, null ),
+      new TextFileField( "name", ValueMetaInterface.TYPE_STRING, null, -1, -1, null, null, null, null ), } );
+    transMeta = TransBenchmarkSupport.transMeta( "text file output", meta );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "created" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    Random random = new Random( TransBenchmarkSupport.SEED );
+    rows = new ArrayList<>( nrRows );
+    for ( long i = 0; i < nrRows; i++ ) {
+      rows.add( new Object[] {
+        i, random.nextDouble() * 10000, new Date( ( 1500000000L + random.nextInt( 100000000 ) ) * 1000L ),
+        "name-" + random.nextInt( 100000 ), } );
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    File[] files = directory.listFiles();
+    if ( files != null ) {
+      for ( File file : files ) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  @Benchmark
+  public long write() throws KettleException {
+    return TransBenchmarkSupport.run( transMeta, rowMeta, rows );
+  }
+}
@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark.trans;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.logging.LoggingRegistry;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+
+/**
+ * Builds and runs the transformations the step benchmarks measure: rows are injected with a {@link RowProducer} into
+ * an Injector step, go through the step under test and end up in a Dummy step.
+ */
+public final class TransBenchmarkSupport {
+
+  public static final String INJECTOR_STEPNAME = "injector";
+  public static final String DUMMY_STEPNAME = "dummy";
+
+  /**
+   * The seed of all the generated data, the same on every run so that results can be compared between commits.
+   */
+  public static final long SEED = 20240101L;
+
+  private TransBenchmarkSupport() {
+  }
+
+  /**
+   * Initialize the Kettle environment once per benchmark JVM.
+   */
+  public static synchronized void init() throws KettleException {
+    if ( !KettleEnvironment.isInitialized() ) {
+      KettleEnvironment.init( false );
+    }
+  }
+
+  /**
+   * @return a step with the given metadata, the plugin id is looked up in the registry
+   */
+  public static StepMeta stepMeta( String stepname, StepMetaInterface meta ) {
+    String pluginId = PluginRegistry.getInstance().getPluginId( StepPluginType.class, meta );
+    return new StepMeta( pluginId, stepname, meta );
+  }
+
+  /**
+   * Create a transformation injector - step - dummy.
+   *
+   * @param stepname
+   *          the name of the step under test
+   * @param meta
+   *          the metadata of the step under test
+   * @return the transformation
+   */
+  public static TransMeta transMeta( String stepname, StepMetaInterface meta ) {
+    TransMeta transMeta = new TransMeta();
+    transMeta.setName( stepname + " benchmark" );
+
+    StepMeta injector = stepMeta( INJECTOR_STEPNAME, new InjectorMeta() );
+    StepMeta step = stepMeta( stepname, meta );
+    StepMeta dummy = stepMeta( DUMMY_STEPNAME, new DummyTransMeta() );
+    transMeta.addStep( injector );
+    transMeta.addStep( step );
+    transMeta.addStep( dummy );
+    transMeta.addTransHop( new TransHopMeta( injector, step ) );
+    transMeta.addTransHop( new TransHopMeta( step, dummy ) );
+    return transMeta;
+  }
+
+  /**
+   * Run a transformation to completion.
+   *
+   * @param transMeta
+   *          the transformation to run
+   * @param input
+   *          for every injector step name, the rows to inject, in order of the map
+   * @param rowMeta
+   *          the layout of the injected rows, per injector step name
+   * @return the number of rows that reached the dummy step
+   * @throws KettleException
+   *           if the transformation can't be run or finished with errors
+   */
+  public static long run( TransMeta transMeta, Map<String, List<Object[]>> input,
+                          Map<String, RowMetaInterface> rowMeta ) throws KettleException {
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.ERROR );
+    try {
+      trans.prepareExecution( null );
+      RowProducer[] producers = new RowProducer[input.size()];
+      int i = 0;
+      for ( String injectorName : input.keySet() ) {
+        producers[i++] = trans.addRowProducer( injectorName, 0 );
+      }
+      trans.startThreads();
+
+      i = 0;
+      for ( Map.Entry<String, List<Object[]>> entry : input.entrySet() ) {
+        RowProducer producer = producers[i++];
+        RowMetaInterface injectedRowMeta = rowMeta.get( entry.getKey() );
+        for ( Object[] row : entry.getValue() ) {
+          // The steps may change the rows, inject copies
+          producer.putRow( injectedRowMeta, row.clone() );
+        }
+        producer.finished();
+      }
+      trans.waitUntilFinished();
+
+      if ( trans.getErrors() > 0 ) {
+        throw new KettleException( "The benchmark transformation '" + transMeta.getName() + "' finished with errors" );
+      }
+      return trans.getStepInterface( DUMMY_STEPNAME, 0 ).getLinesWritten();
+    } finally {
+      KettleLogStore.discardLines( trans.getLogChannelId(), false );
+      LoggingRegistry.getInstance().removeIncludingChildren( trans.getLogChannelId() );
+    }
+  }
+
+  /**
+   * Run a transformation injector - step - dummy to completion.
+   */
+  public static long run( TransMeta transMeta, RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleException {
+    return run( transMeta, Collections.singletonMap( INJECTOR_STEPNAME, rows ),
+      Collections.singletonMap( INJECTOR_STEPNAME, rowMeta ) );
+  }
+}
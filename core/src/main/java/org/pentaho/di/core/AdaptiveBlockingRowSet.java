@@ -0,0 +1,366 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.RowSizeEstimator;
+
+/**
+ * A blocking row set whose capacity can be changed while rows flow through it. Next to the rows it keeps track of how
+ * long the producer waited for room, how long the consumer waited for rows and roughly how large the rows are, so that
+ * its capacity can be tuned to the actual traffic on the hop.
+ *
+ * @see BlockingRowSet
+ */
+public class AdaptiveBlockingRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  /**
+   * The size of one row in every so many is estimated.
+   */
+  private static final int SAMPLE_INTERVAL = 64;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final ArrayDeque<Object[]> queue;
+
+  private volatile int capacity;
+
+  // Statistics, only modified while holding the lock
+  //
+  private long rowsPut;
+  private long putWaitNanos;
+  private long getWaitNanos;
+  private long sampledRows;
+  private long sampledBytes;
+
+  private final int timeoutPut;
+  private final int timeoutGet;
+
+  /**
+   * Create a new row set with an initial capacity.
+   *
+   * @param capacity
+   *          the number of rows this row set can hold until it's resized
+   */
+  public AdaptiveBlockingRowSet( int capacity ) {
+    super();
+
+    this.capacity = Math.max( 1, capacity );
+    queue = new ArrayDeque<Object[]>( Math.min( this.capacity, 1024 ) );
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( rowData == null ) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+    lock.lock();
+    try {
+      if ( queue.size() >= capacity && !awaitRoom( tu.toNanos( time ) ) ) {
+        return false;
+      }
+      add( rowData );
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for room for the first row, then adds as many of the rows as fit with a single lock acquisition.
+   */
+  @Override
+  public int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int count ) {
+    if ( count <= 0 ) {
+      return 0;
+    }
+    this.rowMeta = rowMeta;
+    lock.lock();
+    try {
+      if ( queue.size() >= capacity && !awaitRoom( TimeUnit.MILLISECONDS.toNanos( timeoutPut ) ) ) {
+        return 0;
+      }
+      int nr = 0;
+      while ( nr < count && queue.size() < capacity && rows[offset + nr] != null ) {
+        add( rows[offset + nr] );
+        nr++;
+      }
+      if ( nr > 0 ) {
+        notEmpty.signal();
+      }
+      return nr;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void add( Object[] rowData ) {
+    queue.add( rowData );
+    if ( rowsPut++ % SAMPLE_INTERVAL == 0 ) {
+      sampledRows++;
+      sampledBytes += RowSizeEstimator.estimate( rowData );
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return getRowWait( 0, TimeUnit.NANOSECONDS );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    lock.lock();
+    try {
+      if ( queue.isEmpty() && !awaitRows( tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+      Object[] row = queue.poll();
+      notFull.signal();
+      return row;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object[][] getRows( int max ) {
+    return getRowsWait( max, TimeUnit.MILLISECONDS.toNanos( timeoutGet ) );
+  }
+
+  @Override
+  public Object[][] getRowsImmediate( int max ) {
+    return getRowsWait( max, 0 );
+  }
+
+  private Object[][] getRowsWait( int max, long nanos ) {
+    if ( max <= 0 ) {
+      return null;
+    }
+    lock.lock();
+    try {
+      if ( queue.isEmpty() && !awaitRows( nanos ) ) {
+        return null;
+      }
+      Object[][] rows = new Object[Math.min( max, queue.size() )][];
+      for ( int i = 0; i < rows.length; i++ ) {
+        rows[i] = queue.poll();
+      }
+      notFull.signalAll();
+      return rows;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wait, while holding the lock, until there is room for another row.
+   *
+   * @return true if there is room, false if we timed out.
+   */
+  private boolean awaitRoom( long nanos ) {
+    long start = System.nanoTime();
+    try {
+      while ( queue.size() >= capacity ) {
+        if ( nanos <= 0 ) {
+          return false;
+        }
+        nanos = notFull.awaitNanos( nanos );
+      }
+      return true;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      putWaitNanos += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * Wait, while holding the lock, until there is a row or the row set is done.
+   *
+   * @return true if there is a row, false if we timed out or the row set is done.
+   */
+  private boolean awaitRows( long nanos ) {
+    long start = System.nanoTime();
+    try {
+      while ( queue.isEmpty() ) {
+        if ( nanos <= 0 || done.get() ) {
+          return false;
+        }
+        nanos = notEmpty.awaitNanos( nanos );
+      }
+      return true;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      getWaitNanos += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void setDone() {
+    super.setDone();
+    lock.lock();
+    try {
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      queue.clear();
+      done.set( false );
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the maximum number of rows this row set currently holds
+   */
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Change the maximum number of rows this row set holds. Rows that are already buffered beyond a reduced capacity stay
+   * in the buffer, the producer simply waits until the consumer brings the size back under the new capacity.
+   *
+   * @param capacity
+   *          the new capacity, at least 1
+   */
+  public void setCapacity( int capacity ) {
+    lock.lock();
+    try {
+      this.capacity = Math.max( 1, capacity );
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the statistics gathered since this row set was created
+   */
+  public Statistics getStatistics() {
+    lock.lock();
+    try {
+      long averageRowBytes = sampledRows == 0 ? 0L : sampledBytes / sampledRows;
+      return new Statistics( rowsPut, putWaitNanos, getWaitNanos, averageRowBytes, queue.size() );
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The traffic on a row set since its creation.
+   */
+  public static final class Statistics {
+    private final long rowsPut;
+    private final long putWaitNanos;
+    private final long getWaitNanos;
+    private final long averageRowBytes;
+    private final int size;
+
+    public Statistics( long rowsPut, long putWaitNanos, long getWaitNanos, long averageRowBytes, int size ) {
+      this.rowsPut = rowsPut;
+      this.putWaitNanos = putWaitNanos;
+      this.getWaitNanos = getWaitNanos;
+      this.averageRowBytes = averageRowBytes;
+      this.size = size;
+    }
+
+    /**
+     * @return the number of rows put in the row set
+     */
+    public long getRowsPut() {
+      return rowsPut;
+    }
+
+    /**
+     * @return the total time the producer(s) waited for room in the row set
+     */
+    public long getPutWaitNanos() {
+      return putWaitNanos;
+    }
+
+    /**
+     * @return the total time the consumer waited for rows to arrive in the row set
+     */
+    public long getGetWaitNanos() {
+      return getWaitNanos;
+    }
+
+    /**
+     * @return the estimated average size of a row in bytes, 0 if no rows passed yet
+     */
+    public long getAverageRowBytes() {
+      return averageRowBytes;
+    }
+
+    /**
+     * @return the number of rows that were buffered in the row set when these statistics were taken
+     */
+    public int getSize() {
+      return size;
+    }
+  }
+}
@@ -22,6 +22,7 @@
 
 package org.pentaho.di.core;
 
+import java.util.Arrays;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -161,6 +162,29 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
     return row;
   }
 
+  /**
+   * Hands out the rest of the current output buffer in one go, the queues are only touched to fetch the next buffer.
+   */
+  @Override
+  public Object[][] getRows( int max ) {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    Object[][] rows = new Object[Math.max( 1, Math.min( max, size ) )][];
+    rows[0] = row;
+    int nr = 1;
+    while ( nr < rows.length && outputBuffer != null && outputBuffer[getIndex] != null ) {
+      rows[nr++] = getRowWait( 0, TimeUnit.MILLISECONDS );
+    }
+    return nr == rows.length ? rows : Arrays.copyOf( rows, nr );
+  }
+
+  @Override
+  public Object[][] getRowsImmediate( int max ) {
+    return getRows( max );
+  }
+
   @Override
   public int size() {
     // does BlockingQueue.size() grab a lock? If so, frequent call to this method
@@ -22,6 +22,8 @@
 
 package org.pentaho.di.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -125,11 +127,41 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
     }
   }
 
+  /**
+   * Waits for a first row, then drains the rows that are available after it with a single lock acquisition.
+   */
+  @Override
+  public Object[][] getRows( int max ) {
+    return drainRows( getRow(), max );
+  }
+
+  @Override
+  public Object[][] getRowsImmediate( int max ) {
+    return drainRows( getRowImmediate(), max );
+  }
+
+  private Object[][] drainRows( Object[] first, int max ) {
+    if ( first == null ) {
+      return null;
+    }
+    List<Object[]> rows = new ArrayList<Object[]>( Math.max( 1, Math.min( max, queArray.size() + 1 ) ) );
+    rows.add( first );
+    if ( max > 1 ) {
+      queArray.drainTo( rows, max - 1 );
+    }
+    return rows.toArray( new Object[rows.size()][] );
+  }
+
   @Override
   public int size() {
     return queArray.size();
   }
 
+  @Override
+  public int getCapacity() {
+    return queArray.size() + queArray.remainingCapacity();
+  }
+
   @Override
   public void clear() {
     queArray.clear();
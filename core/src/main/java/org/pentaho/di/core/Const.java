@@ -1045,6 +1045,134 @@ public class Const {
    */
   public static final String KETTLE_BATCHING_ROWSET = "KETTLE_BATCHING_ROWSET";
 
+  /**
+   * Set this variable to N to use the blocking row set instead of the lock-free ring buffer row set on hops between
+   * two single copy steps. (default = Y)
+   */
+  public static final String KETTLE_LOCK_FREE_ROWSET = "KETTLE_LOCK_FREE_ROWSET";
+
+  /**
+   * Set this variable to Y to run the step threads of transformations on virtual threads, on a Java runtime that
+   * supports them. (default = N)
+   */
+  public static final String KETTLE_VIRTUAL_THREADS = "KETTLE_VIRTUAL_THREADS";
+
+  /**
+   * Set this variable to N to stop steps like Filter Rows, Calculator and Group By from processing blocks of rows in
+   * columnar form, and process them row by row instead. (default = Y)
+   */
+  public static final String KETTLE_VECTORIZED_STEPS = "KETTLE_VECTORIZED_STEPS";
+
+  /**
+   * Set this variable to Y to have the capacity of each hop's row set tuned to the traffic on the hop, within the
+   * memory budget set by {@link #KETTLE_ROWSET_MEMORY_BUDGET}. (default = N)
+   */
+  public static final String KETTLE_ADAPTIVE_ROWSET_SIZE = "KETTLE_ADAPTIVE_ROWSET_SIZE";
+
+  /**
+   * The maximum amount of memory in MB that the rows buffered on the hops of a transformation may take when row sets
+   * are sized adaptively. (default = a quarter of the maximum heap size)
+   */
+  public static final String KETTLE_ROWSET_MEMORY_BUDGET = "KETTLE_ROWSET_MEMORY_BUDGET";
+
+  /**
+   * Set this variable to N to have the Sort Rows step compare the rows field by field while sorting, instead of sorting
+   * them on normalized binary keys. (default = Y)
+   */
+  public static final String KETTLE_SORT_NORMALIZED_KEYS = "KETTLE_SORT_NORMALIZED_KEYS";
+
+  /**
+   * The name of the compression provider the Sort Rows step compresses its temporary files with, when compressing them
+   * is enabled. (default = Snappy)
+   */
+  public static final String KETTLE_SORT_SPILL_COMPRESSION = "KETTLE_SORT_SPILL_COMPRESSION";
+
+  /**
+   * The maximum number of temporary files the Sort Rows step merges at once. When it wrote more files than this, the
+   * oldest ones are merged into larger files first. (default = 128)
+   */
+  public static final String KETTLE_SORT_MAX_MERGE_FILES = "KETTLE_SORT_MAX_MERGE_FILES";
+
+  /**
+   * The maximum amount of memory in MB the groups of a Memory Group By step copy may take. Once they take more, the
+   * rows of new groups are written to temporary files and aggregated after the others. Set it to 0 to keep all groups
+   * in memory. (default = a quarter of the maximum heap size)
+   */
+  public static final String KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET = "KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET";
+
+  /**
+   * The number of temporary files the Memory Group By step spreads the rows of the groups that don't fit in memory
+   * over. (default = 16)
+   */
+  public static final String KETTLE_MEMORY_GROUP_BY_SPILL_PARTITIONS = "KETTLE_MEMORY_GROUP_BY_SPILL_PARTITIONS";
+
+  /**
+   * Which Database Lookup steps share their cache of looked up rows: STEP to share it between the copies of a step,
+   * TABLE to share it between all the steps looking up the same fields in the same table with the same connection, NONE
+   * to give every step copy a cache of its own. (default = STEP)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_SHARING = "KETTLE_DATABASE_LOOKUP_CACHE_SHARING";
+
+  /**
+   * The maximum amount of memory in MB the cached rows of a Database Lookup step may take, on top of the maximum number
+   * of rows set in the step. Set it to 0 to only limit the number of rows. (default = 0)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_MAX_MEMORY = "KETTLE_DATABASE_LOOKUP_CACHE_MAX_MEMORY";
+
+  /**
+   * The number of seconds a row stays in the cache of a Database Lookup step before it's looked up again. Set it to 0
+   * to keep rows until they're evicted. (default = 0)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_TTL = "KETTLE_DATABASE_LOOKUP_CACHE_TTL";
+
+  /**
+   * The number of input rows a Database Lookup step looks up with a single query when all its conditions are equal.
+   * Set it to 1 to look up rows one by one. (default = 1)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_BATCH_SIZE = "KETTLE_DATABASE_LOOKUP_BATCH_SIZE";
+
+  /**
+   * The number of input rows a Database Join step joins with a single query. Set it to 1 to join rows one by one.
+   * (default = 1)
+   */
+  public static final String KETTLE_DATABASE_JOIN_BATCH_SIZE = "KETTLE_DATABASE_JOIN_BATCH_SIZE";
+
+  /**
+   * The number of new dimension entries a Combination Lookup/Update step inserts with a single JDBC batch. Above 1 the
+   * step loads the natural keys of the whole table into memory and takes technical keys from the table maximum counter
+   * in blocks of this size. Only keys that are whole numbers are inserted in batches. Set it to 1 to look up and insert
+   * rows one by one. (default = 1)
+   */
+  public static final String KETTLE_COMBINATION_LOOKUP_BATCH_SIZE = "KETTLE_COMBINATION_LOOKUP_BATCH_SIZE";
+
+  /**
+   * The number of inserts and updates a Dimension Lookup/Update step sends with a single JDBC batch. Above 1 the step
+   * loads the natural keys of the table into memory so it doesn't look up new entries and takes technical keys from
+   * the table maximum counter in blocks of this size. Only natural keys that are whole numbers are updated in batches.
+   * Set it to 1 to update the dimension row by row. (default = 1)
+   */
+  public static final String KETTLE_DIMENSION_LOOKUP_BATCH_SIZE = "KETTLE_DIMENSION_LOOKUP_BATCH_SIZE";
+
+  /**
+   * The number of threads a CSV File Input step copy parses a local file with. Above 1 the step maps the file in
+   * memory, splits it in chunks of whole records and tokenizes and converts the chunks in parallel. Files are parsed on
+   * a single thread when the step copies already read them in parallel, when new lines are possible in unenclosed
+   * fields or with a double byte encoding. (default = 1)
+   */
+  public static final String KETTLE_CSV_INPUT_PARSE_THREADS = "KETTLE_CSV_INPUT_PARSE_THREADS";
+
+  /**
+   * The size in KB of the chunks a CSV File Input step splits a file in when it parses the file on several threads. A
+   * chunk ends at the first record end after this size. (default = 4096)
+   */
+  public static final String KETTLE_CSV_INPUT_PARSE_CHUNK_SIZE = "KETTLE_CSV_INPUT_PARSE_CHUNK_SIZE";
+
+  /**
+   * Set this variable to N to let a CSV File Input step that parses a file on several threads pass on the rows of a
+   * chunk as soon as it's parsed, rather than in file order. (default = Y)
+   */
+  public static final String KETTLE_CSV_INPUT_PARSE_ORDERED = "KETTLE_CSV_INPUT_PARSE_ORDERED";
+
   /**
    * Set this variable to limit max number of files the Text File Output step can have open at one time.
    */
@@ -1055,6 +1183,43 @@ public class Const {
    */
   public static final String KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE = "KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE";
 
+  /**
+   * The size in KB of the buffers the Text File Output step formats rows in before a background thread compresses and
+   * writes them to a file. It isn't used when KETTLE_FILE_OUTPUT_WRITE_BUFFERS is 0. (default = 64)
+   */
+  public static final String KETTLE_FILE_OUTPUT_BUFFER_SIZE = "KETTLE_FILE_OUTPUT_BUFFER_SIZE";
+
+  /**
+   * The number of full buffers of a file that can wait for a background thread to compress and write them in the Text
+   * File Output step. Set this variable to 0 to compress and write the rows on the step thread, through a small buffer
+   * per file. (default = 2)
+   */
+  public static final String KETTLE_FILE_OUTPUT_WRITE_BUFFERS = "KETTLE_FILE_OUTPUT_WRITE_BUFFERS";
+
+  /**
+   * The number of threads the Zstd and LZ4 compression providers compress an output stream with. Above 1 the data is
+   * compressed in blocks on several threads. (default = 1)
+   */
+  public static final String KETTLE_COMPRESSION_THREADS = "KETTLE_COMPRESSION_THREADS";
+
+  /**
+   * The compression level of the Zstd compression provider, from 1 (fastest) to 19. (default = 3)
+   */
+  public static final String KETTLE_ZSTD_COMPRESSION_LEVEL = "KETTLE_ZSTD_COMPRESSION_LEVEL";
+
+  /**
+   * The distance in MB of uncompressed data between the access points of the index the parallel Gzip CSV Input step
+   * builds to split a gzip file between its step copies. Set this variable to 0 to only split block gzip (BGZF) files.
+   * (default = 16)
+   */
+  public static final String KETTLE_GZIP_INDEX_SPAN = "KETTLE_GZIP_INDEX_SPAN";
+
+  /**
+   * Set this variable to N to stop the Gzip CSV Input step from saving the index of a gzip file next to that file and
+   * reading it back on the next run. (default = Y)
+   */
+  public static final String KETTLE_GZIP_INDEX_CACHE = "KETTLE_GZIP_INDEX_CACHE";
+
   /**
    * Set this variable to Y to disable standard Kettle logging to the console. (stdout)
    */
@@ -1150,6 +1315,20 @@ public class Const {
   public static final String KETTLE_AGGREGATION_MIN_NULL_IS_VALUED = "KETTLE_AGGREGATION_MIN_NULL_IS_VALUED";
   public static final String KETTLE_AGGREGATION_ALL_NULLS_ARE_ZERO = "KETTLE_AGGREGATION_ALL_NULLS_ARE_ZERO";
 
+  /**
+   * The number of hash bits (4-18) that index the registers of an approximate count of distinct values: the relative
+   * error is about 1.04 / sqrt(2^bits), each group takes up to 2^bits bytes (default = 14)
+   */
+  public static final String KETTLE_AGGREGATION_DISTINCT_APPROX_PRECISION =
+    "KETTLE_AGGREGATION_DISTINCT_APPROX_PRECISION";
+
+  /**
+   * The compression of approximate medians and percentiles: higher values are more accurate and take up more memory
+   * per group (default = 100)
+   */
+  public static final String KETTLE_AGGREGATION_PERCENTILE_APPROX_COMPRESSION =
+    "KETTLE_AGGREGATION_PERCENTILE_APPROX_COMPRESSION";
+
   /**
    * The name of the variable containing an alternative default timestamp format
    */
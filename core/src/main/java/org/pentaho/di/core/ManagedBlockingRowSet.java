@@ -0,0 +1,140 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A blocking row set for steps that run as tasks on a {@link ForkJoinPool} instead of on a thread of their own.
+ * <p>
+ * A step that waits for room or for rows in this row set from a pool worker thread does so through
+ * {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}, which lets the pool activate a spare worker while
+ * this one is blocked. That way the steps that need to run to free up the wait always get a thread, even with a pool
+ * much smaller than the number of steps. Outside of a pool this row set behaves exactly like a {@link BlockingRowSet}.
+ */
+public class ManagedBlockingRowSet extends BlockingRowSet {
+
+  /**
+   * Create new blocking row set with maxSize capacity.
+   *
+   * @param maxSize
+   *          the maximum number of rows this row set can hold
+   */
+  public ManagedBlockingRowSet( int maxSize ) {
+    super( maxSize );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( time <= 0 || !isPoolWorker() ) {
+      return super.putRowWait( rowMeta, rowData, time, tu );
+    }
+    PutRowBlocker blocker = new PutRowBlocker( rowMeta, rowData, time, tu );
+    try {
+      ForkJoinPool.managedBlock( blocker );
+    } catch ( InterruptedException e ) {
+      return false;
+    }
+    return blocker.added;
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    if ( timeout <= 0 || !isPoolWorker() ) {
+      return super.getRowWait( timeout, tu );
+    }
+    GetRowBlocker blocker = new GetRowBlocker( timeout, tu );
+    try {
+      ForkJoinPool.managedBlock( blocker );
+    } catch ( InterruptedException e ) {
+      return null;
+    }
+    return blocker.row;
+  }
+
+  private static boolean isPoolWorker() {
+    return Thread.currentThread() instanceof ForkJoinWorkerThread;
+  }
+
+  private class PutRowBlocker implements ForkJoinPool.ManagedBlocker {
+    private final RowMetaInterface rowMeta;
+    private final Object[] rowData;
+    private final long time;
+    private final TimeUnit tu;
+    private boolean added;
+    private boolean waited;
+
+    PutRowBlocker( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+      this.rowMeta = rowMeta;
+      this.rowData = rowData;
+      this.time = time;
+      this.tu = tu;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      if ( !added && !waited ) {
+        added = ManagedBlockingRowSet.super.putRowWait( rowMeta, rowData, 0, tu );
+      }
+      return added || waited;
+    }
+
+    @Override
+    public boolean block() {
+      added = ManagedBlockingRowSet.super.putRowWait( rowMeta, rowData, time, tu );
+      waited = true;
+      return true;
+    }
+  }
+
+  private class GetRowBlocker implements ForkJoinPool.ManagedBlocker {
+    private final long timeout;
+    private final TimeUnit tu;
+    private Object[] row;
+    private boolean waited;
+
+    GetRowBlocker( long timeout, TimeUnit tu ) {
+      this.timeout = timeout;
+      this.tu = tu;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      if ( row == null && !waited ) {
+        row = getRowImmediate();
+      }
+      return row != null || waited;
+    }
+
+    @Override
+    public boolean block() {
+      row = ManagedBlockingRowSet.super.getRowWait( timeout, tu );
+      waited = true;
+      return true;
+    }
+  }
+}
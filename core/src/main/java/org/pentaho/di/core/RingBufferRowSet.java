@@ -0,0 +1,398 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lock-free bounded row buffer for hops with exactly one producing thread and one consuming thread (a 1:1 hop
+ * between two single copy steps).
+ * <p>
+ * Rows are kept in a ring buffer indexed by two ever increasing sequences: the producer only ever writes the tail, the
+ * consumer only ever writes the head. Both sequences are padded to sit on their own cache line so the two threads don't
+ * invalidate each other's caches on every row. When the buffer is full (or empty) the waiting side spins for a short
+ * while and then parks until the other side signals progress or the timeout expires.
+ * <p>
+ * This row set is NOT safe to use with more than one producer or more than one consumer thread.
+ *
+ * @see BlockingRowSet
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  /**
+   * The number of busy spins before a waiting thread starts to yield and park.
+   */
+  private static final int SPIN_TRIES = 100;
+
+  /**
+   * The number of yields before a waiting thread starts to park.
+   */
+  private static final int YIELD_TRIES = 10;
+
+  /**
+   * The longest period a waiting thread parks before re-checking the buffer.
+   */
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+  private final Object[][] buffer;
+  private final int mask;
+  private final int capacity;
+
+  /** The sequence of the next row to read, written by the consumer only. */
+  private final Sequence head = new Sequence();
+
+  /** The sequence of the next row to write, written by the producer only. */
+  private final Sequence tail = new Sequence();
+
+  /** Producer-local copy of the head, saves a volatile read of the consumer's cache line on most puts. */
+  private long cachedHead;
+
+  /** Consumer-local copy of the tail, saves a volatile read of the producer's cache line on most gets. */
+  private long cachedTail;
+
+  private volatile Thread waitingProducer;
+  private volatile Thread waitingConsumer;
+
+  private final int timeoutPut;
+  private final int timeoutGet;
+
+  /**
+   * Create a new lock-free row set with maxSize capacity.
+   *
+   * @param maxSize
+   *          the maximum number of rows this row set can hold
+   */
+  public RingBufferRowSet( int maxSize ) {
+    super();
+
+    capacity = Math.max( 1, maxSize );
+    int length = Integer.highestOneBit( capacity );
+    if ( length < capacity ) {
+      length <<= 1;
+    }
+    buffer = new Object[length][];
+    mask = length - 1;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( rowData == null ) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+
+    long t = tail.get();
+    if ( t - cachedHead >= capacity ) {
+      cachedHead = head.get();
+      if ( t - cachedHead >= capacity && !awaitRoom( t, tu.toNanos( time ) ) ) {
+        return false;
+      }
+    }
+
+    buffer[(int) t & mask] = rowData;
+    tail.set( t + 1 );
+
+    Thread consumer = waitingConsumer;
+    if ( consumer != null ) {
+      LockSupport.unpark( consumer );
+    }
+    return true;
+  }
+
+  /**
+   * Adds as many of the rows as fit in the buffer and publishes them all at once to the consumer.
+   */
+  @Override
+  public int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int count ) {
+    if ( count <= 0 ) {
+      return 0;
+    }
+    this.rowMeta = rowMeta;
+
+    long t = tail.get();
+    if ( t - cachedHead >= capacity ) {
+      cachedHead = head.get();
+      if ( t - cachedHead >= capacity && !awaitRoom( t, TimeUnit.MILLISECONDS.toNanos( timeoutPut ) ) ) {
+        return 0;
+      }
+    }
+    if ( t - cachedHead + count > capacity ) {
+      cachedHead = head.get();
+    }
+    int nr = (int) Math.min( count, capacity - ( t - cachedHead ) );
+    for ( int i = 0; i < nr; i++ ) {
+      Object[] row = rows[offset + i];
+      if ( row == null ) {
+        nr = i;
+        break;
+      }
+      buffer[(int) ( t + i ) & mask] = row;
+    }
+    if ( nr > 0 ) {
+      tail.set( t + nr );
+
+      Thread consumer = waitingConsumer;
+      if ( consumer != null ) {
+        LockSupport.unpark( consumer );
+      }
+    }
+    return nr;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return getRowWait( 0, TimeUnit.NANOSECONDS );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long h = head.get();
+    if ( h >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( h >= cachedTail && !awaitRows( h, tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+    }
+
+    int index = (int) h & mask;
+    Object[] row = buffer[index];
+    buffer[index] = null; // prevent any hold-up to GC
+    head.set( h + 1 );
+
+    Thread producer = waitingProducer;
+    if ( producer != null ) {
+      LockSupport.unpark( producer );
+    }
+    return row;
+  }
+
+  @Override
+  public Object[][] getRows( int max ) {
+    return getRowsWait( max, TimeUnit.MILLISECONDS.toNanos( timeoutGet ) );
+  }
+
+  @Override
+  public Object[][] getRowsImmediate( int max ) {
+    return getRowsWait( max, 0 );
+  }
+
+  /**
+   * Takes all the available rows (up to max) out of the buffer and hands the room back to the producer at once.
+   */
+  private Object[][] getRowsWait( int max, long nanos ) {
+    if ( max <= 0 ) {
+      return null;
+    }
+    long h = head.get();
+    if ( h >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( h >= cachedTail && !awaitRows( h, nanos ) ) {
+        return null;
+      }
+    }
+
+    int nr = (int) Math.min( max, cachedTail - h );
+    Object[][] rows = new Object[nr][];
+    for ( int i = 0; i < nr; i++ ) {
+      int index = (int) ( h + i ) & mask;
+      rows[i] = buffer[index];
+      buffer[index] = null; // prevent any hold-up to GC
+    }
+    head.set( h + nr );
+
+    Thread producer = waitingProducer;
+    if ( producer != null ) {
+      LockSupport.unpark( producer );
+    }
+    return rows;
+  }
+
+  /**
+   * Wait until the consumer frees up a slot in the buffer.
+   *
+   * @return true if there is room to put the row at sequence t, false if we timed out.
+   */
+  private boolean awaitRoom( long t, long nanos ) {
+    if ( nanos <= 0 ) {
+      return false;
+    }
+    final long deadline = System.nanoTime() + nanos;
+    int tries = 0;
+    try {
+      while ( true ) {
+        if ( tries < SPIN_TRIES ) {
+          Thread.onSpinWait();
+        } else if ( tries < SPIN_TRIES + YIELD_TRIES ) {
+          Thread.yield();
+        } else {
+          // Publish that we're about to park before the final re-check, the consumer reads this after moving the head.
+          waitingProducer = Thread.currentThread();
+        }
+        cachedHead = head.get();
+        if ( t - cachedHead < capacity ) {
+          return true;
+        }
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 || Thread.currentThread().isInterrupted() ) {
+          return false;
+        }
+        if ( tries >= SPIN_TRIES + YIELD_TRIES ) {
+          LockSupport.parkNanos( this, Math.min( remaining, MAX_PARK_NANOS ) );
+        }
+        tries++;
+      }
+    } finally {
+      waitingProducer = null;
+    }
+  }
+
+  /**
+   * Wait until the producer adds a row to the buffer or signals that it's done.
+   *
+   * @return true if a row is available at sequence h, false if we timed out or the row set is done.
+   */
+  private boolean awaitRows( long h, long nanos ) {
+    if ( nanos <= 0 ) {
+      return false;
+    }
+    final long deadline = System.nanoTime() + nanos;
+    int tries = 0;
+    try {
+      while ( true ) {
+        if ( tries < SPIN_TRIES ) {
+          Thread.onSpinWait();
+        } else if ( tries < SPIN_TRIES + YIELD_TRIES ) {
+          Thread.yield();
+        } else {
+          waitingConsumer = Thread.currentThread();
+        }
+        // Read the done flag before the tail: the producer sets done after its last put.
+        boolean isDone = done.get();
+        cachedTail = tail.get();
+        if ( h < cachedTail ) {
+          return true;
+        }
+        if ( isDone ) {
+          return false;
+        }
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 || Thread.currentThread().isInterrupted() ) {
+          return false;
+        }
+        if ( tries >= SPIN_TRIES + YIELD_TRIES ) {
+          LockSupport.parkNanos( this, Math.min( remaining, MAX_PARK_NANOS ) );
+        }
+        tries++;
+      }
+    } finally {
+      waitingConsumer = null;
+    }
+  }
+
+  @Override
+  public void setDone() {
+    super.setDone();
+    Thread consumer = waitingConsumer;
+    if ( consumer != null ) {
+      LockSupport.unpark( consumer );
+    }
+  }
+
+  @Override
+  public int size() {
+    // Read the head first so that a concurrent get can never make the result negative
+    long h = head.get();
+    long t = tail.get();
+    return (int) ( t - h );
+  }
+
+  /**
+   * @return the maximum number of rows this row set can hold
+   */
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public void clear() {
+    long h = head.get();
+    long t = tail.get();
+    for ( long i = h; i < t; i++ ) {
+      buffer[(int) i & mask] = null;
+    }
+    head.set( t );
+    cachedHead = t;
+    cachedTail = t;
+    done.set( false );
+  }
+
+  /**
+   * Left-hand side padding, keeps the sequence value off the cache line of the fields that precede it.
+   */
+  static class LhsPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+  }
+
+  static class SequenceValue extends LhsPadding {
+    protected volatile long value;
+  }
+
+  /**
+   * A volatile long padded on both sides to occupy a cache line of its own.
+   */
+  static final class Sequence extends SequenceValue {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+
+    long get() {
+      return value;
+    }
+
+    void set( long newValue ) {
+      value = newValue;
+    }
+
+    /**
+     * Prevents the padding from being optimized away.
+     */
+    long sumPaddingToPreventOptimisation() {
+      return p1 + p2 + p3 + p4 + p5 + p6 + p7 + value + p9 + p10 + p11 + p12 + p13 + p14 + p15;
+    }
+  }
+}
@@ -22,6 +22,7 @@
 
 package org.pentaho.di.core;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -56,6 +57,32 @@ public interface RowSet {
    */
   boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu );
 
+  /**
+   * Offer a block of rows to this rowset, all described by the same metadata. If the buffer is full, wait (block) for
+   * a small period of time for room to store the first row. After that as many of the remaining rows as will fit are
+   * added without waiting.
+   *
+   * @param rowMeta
+   *          The description of the row data
+   * @param rows
+   *          the rows of data
+   * @param offset
+   *          the index of the first row to add
+   * @param count
+   *          the number of rows to add, starting at offset
+   * @return the number of rows that were added to the rowset, 0 if this buffer was full.
+   */
+  default int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int count ) {
+    if ( count <= 0 || !putRow( rowMeta, rows[offset] ) ) {
+      return 0;
+    }
+    int added = 1;
+    while ( added < count && putRowWait( rowMeta, rows[offset + added], 0, TimeUnit.MILLISECONDS ) ) {
+      added++;
+    }
+    return added;
+  }
+
   /**
    * Get a row from the input buffer, it blocks for a short period until a new row becomes available. Otherwise, it
    * returns null.
@@ -78,6 +105,51 @@ public interface RowSet {
    */
   Object[] getRowWait( long timeout, TimeUnit tu );
 
+  /**
+   * Get a block of up to max rows from the input buffer. It blocks for a short period until a first row becomes
+   * available, the rows that are available after that are returned without waiting.
+   *
+   * @param max
+   *          the maximum number of rows to return
+   * @return the rows of data or null if no row is available.
+   */
+  default Object[][] getRows( int max ) {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    return collectRows( row, max );
+  }
+
+  /**
+   * Get a block of up to max rows from the input buffer immediately.
+   *
+   * @param max
+   *          the maximum number of rows to return
+   * @return the rows of data or null if no row is available.
+   */
+  default Object[][] getRowsImmediate( int max ) {
+    Object[] row = getRowImmediate();
+    if ( row == null ) {
+      return null;
+    }
+    return collectRows( row, max );
+  }
+
+  /**
+   * Adds the rows that are immediately available to an already retrieved first row.
+   */
+  private Object[][] collectRows( Object[] first, int max ) {
+    Object[][] rows = new Object[Math.max( 1, Math.min( max, size() + 1 ) )][];
+    rows[0] = first;
+    int nr = 1;
+    Object[] row;
+    while ( nr < rows.length && ( row = getRowImmediate() ) != null ) {
+      rows[nr++] = row;
+    }
+    return nr == rows.length ? rows : Arrays.copyOf( rows, nr );
+  }
+
   /**
    * @return Set indication that there is no more input
    */
@@ -116,6 +188,13 @@ public interface RowSet {
    */
   int size();
 
+  /**
+   * @return the maximum number of rows this row set can hold, or -1 if it is unbounded or doesn't know
+   */
+  default int getCapacity() {
+    return -1;
+  }
+
   /**
    * This method is used only in Trans.java when created RowSet at line 333. Don't need any synchronization on this
    * method
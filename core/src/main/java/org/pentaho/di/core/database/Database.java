@@ -3167,6 +3167,36 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     }
   }
 
+  /**
+   * Run a query with parameters on a prepared statement and read all the rows it returns. Unlike
+   * {@link #openQuery(PreparedStatement, RowMetaInterface, Object[])} this leaves the metadata of
+   * {@link #getReturnRowMeta()} alone, so it can be used in between calls to {@link #getLookup()}.
+   *
+   * @param ps     the prepared query
+   * @param params the metadata of the parameters
+   * @param data   the parameters
+   * @param rows   receives the returned rows
+   * @return the metadata of the returned rows
+   */
+  public RowMetaInterface getLookupRows( PreparedStatement ps, RowMetaInterface params, Object[] data,
+                                         List<Object[]> rows ) throws KettleDatabaseException {
+    log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_START, databaseMeta.getName() );
+    try {
+      setValues( params, data, ps );
+      try ( ResultSet res = ps.executeQuery() ) {
+        RowMetaInterface returnMeta = getRowInfo( res.getMetaData(), databaseMeta.isMySQLVariant(), false );
+        for ( Object[] row = getRow( res, null, returnMeta ); row != null; row = getRow( res, null, returnMeta ) ) {
+          rows.add( row );
+        }
+        return returnMeta;
+      }
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error looking up rows in database", ex );
+    } finally {
+      log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_STOP, databaseMeta.getName() );
+    }
+  }
+
   public DatabaseMetaData getDatabaseMetaData() throws KettleDatabaseException {
     if ( dbmd == null ) {
       try {
@@ -3721,6 +3751,18 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
   public synchronized Long getNextValue( Hashtable<String, Counter> counters, String schemaName, String tableName,
                                          String valKey ) throws KettleDatabaseException {
+    if ( counters == null ) {
+      return getNextCounterValue( null, schemaName, tableName, valKey );
+    }
+    // The counters are shared with the other steps and step copies, each of which has a database of its own
+    //
+    synchronized ( counters ) {
+      return getNextCounterValue( counters, schemaName, tableName, valKey );
+    }
+  }
+
+  private Long getNextCounterValue( Hashtable<String, Counter> counters, String schemaName, String tableName,
+                                    String valKey ) throws KettleDatabaseException {
     Long nextValue = null;
 
     String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
@@ -3767,6 +3809,36 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     return nextValue;
   }
 
+  /**
+   * Reserve a block of consecutive values of the counter {@link #getNextValue(Hashtable, String, String, String)}
+   * hands out values of, so that a step can number rows without going through the counter for every row.
+   *
+   * @param counters   the counters of the transformation
+   * @param schemaName the schema of the table
+   * @param tableName  the table
+   * @param valKey     the technical key field
+   * @param size       the number of values to reserve
+   * @return the first value of the block, the values up to it plus size - 1 are reserved
+   * @throws KettleDatabaseException
+   */
+  public synchronized Long getNextValueBlock( Hashtable<String, Counter> counters, String schemaName,
+                                              String tableName, String valKey, int size )
+    throws KettleDatabaseException {
+    if ( counters == null ) {
+      throw new KettleDatabaseException( "Unable to reserve values for " + valKey + " without counters" );
+    }
+    // Same locks as getNextValue()
+    //
+    synchronized ( counters ) {
+      Long first = getNextCounterValue( counters, schemaName, tableName, valKey );
+      String lookup =
+        databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName ) + "." + databaseMeta.quoteField( valKey );
+      Counter counter = counters.get( lookup );
+      counter.setCounter( first + (long) size * counter.getIncrement() );
+      return first;
+    }
+  }
+
   @Override
   public String toString() {
     if ( databaseMeta != null ) {
@@ -0,0 +1,138 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleDatabaseException;
+
+/**
+ * Collects the rows of one or more prepared statements of a connection in JDBC batches and sends them to the database
+ * together. A step that writes with several statements (an insert and a few updates) uses one batch for all of them,
+ * so that they are all sent at the same time. Like {@link Database#insertRow(PreparedStatement)} does row by row, the
+ * rows are committed once the commit size of rows was sent, at the end of the batch that reaches it.
+ * <p>
+ * The statements are sent in the order they were first added. A step that uses a batch needs to make sure that the
+ * rows it keeps in a batch don't depend on each other, or send the batch before adding a row that does.
+ */
+public class StatementBatch {
+
+  private final Database db;
+  private final int batchSize;
+  private final int commitSize;
+
+  /** Per statement the number of rows added since the batch was last sent */
+  private final Map<PreparedStatement, Integer> counts = new LinkedHashMap<>();
+  private int size;
+
+  /** The number of rows sent since the last commit */
+  private int written;
+
+  /**
+   * @param db
+   *          the database of the statements
+   * @param batchSize
+   *          the number of rows after which {@link #add(PreparedStatement)} sends the batch
+   * @param commitSize
+   *          the number of sent rows after which {@link #add(PreparedStatement)} commits, 0 or less to leave all
+   *          commits to the caller
+   */
+  public StatementBatch( Database db, int batchSize, int commitSize ) {
+    this.db = db;
+    this.batchSize = batchSize;
+    this.commitSize = commitSize;
+  }
+
+  /**
+   * Add a row to the batch of a statement that has all its values set. Once the batch holds the batch size of rows,
+   * it's sent to the database, and committed when the rows sent since the last commit reach the commit size.
+   *
+   * @return true if the batch was sent
+   */
+  public boolean add( PreparedStatement ps ) throws KettleDatabaseException {
+    try {
+      ps.addBatch();
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Unable to add a row to the batch", ex );
+    }
+    Integer count = counts.get( ps );
+    counts.put( ps, count == null ? 1 : count + 1 );
+    size++;
+
+    if ( size >= batchSize ) {
+      execute( commitSize > 0 && written + size >= commitSize );
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the number of rows in the batch that weren't sent yet
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Send the rows of all the statements to the database.
+   *
+   * @param commit
+   *          true to commit afterwards, unless the connection commits by itself
+   */
+  public void execute( boolean commit ) throws KettleDatabaseException {
+    try {
+      for ( Map.Entry<PreparedStatement, Integer> entry : counts.entrySet() ) {
+        // Some drivers fail on executing an empty batch
+        if ( entry.getValue() > 0 ) {
+          entry.getKey().executeBatch();
+          entry.getKey().clearBatch();
+          entry.setValue( 0 );
+        }
+      }
+      written += size;
+      size = 0;
+    } catch ( SQLException ex ) {
+      throw Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+    }
+    if ( commit && !db.isAutoCommit() ) {
+      db.commit();
+      written = 0;
+    }
+  }
+
+  /**
+   * Throw away the rows that weren't sent yet, for example before a rollback.
+   */
+  public void clear() throws KettleDatabaseException {
+    for ( Map.Entry<PreparedStatement, Integer> entry : counts.entrySet() ) {
+      if ( entry.getValue() > 0 ) {
+        db.clearBatch( entry.getKey() );
+        entry.setValue( 0 );
+      }
+    }
+    size = 0;
+  }
+}
@@ -0,0 +1,591 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A hash index from key rows to value rows that keeps its entries in a handful of large arrays instead of a few
+ * objects per entry.
+ * <p>
+ * The keys and values are serialized back to back into byte pages, the index itself is an open addressing table of
+ * page addresses (linear probing). A single Integer key is kept in the table itself and a single String key is hashed
+ * and compared without serializing it first. An entry takes the size of its serialized key and value plus about 20
+ * bytes, where a {@link java.util.HashMap} of row objects easily takes several hundred.
+ * <p>
+ * Keys are equal if their values compare as equal, the same as for {@link org.pentaho.di.core.RowMetaAndData}. Only
+ * key types for which that comes down to equal serialized values are supported, see {@link #isSupported}. Putting a
+ * key that is already present replaces its value, the space of the old value is not reclaimed.
+ */
+public class CompactRowHashIndex {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final float LOAD_FACTOR = 0.7f;
+
+  private static final int FIRST_PAGE_SIZE = 4096;
+  private static final int MAX_PAGE_SIZE = 1 << 20;
+
+  private static final byte NULL_VALUE = 0;
+  private static final byte NOT_NULL_VALUE = 1;
+
+  private final RowMetaInterface keyMeta;
+  private final RowMetaInterface valueMeta;
+
+  /** A single Integer key: the key is kept in {@link #longKeys} */
+  private final boolean integerKey;
+
+  /** A single String key: the key is stored as UTF-8 */
+  private final boolean stringKey;
+
+  /** Per slot the address of the entry plus 1, 0 marks a free slot */
+  private long[] addresses;
+
+  /** Per slot the hash of the key, not used for integer keys */
+  private int[] hashes;
+
+  /** Per slot the key, for integer keys only */
+  private long[] longKeys;
+
+  private int mask;
+  private int size;
+  private int resizeThreshold;
+
+  /** The address of the entry with a null key plus 1, for single integer and string keys */
+  private long nullKeyAddress;
+
+  private byte[][] pages;
+  private int nrPages;
+  private int pageOffset;
+
+  /** Scratch space to serialize keys and values in */
+  private byte[] keyBuffer = new byte[64];
+  private int keyLength;
+  private final ExposedByteArrayOutputStream valueBuffer = new ExposedByteArrayOutputStream();
+  private final DataOutputStream valueOutput = new DataOutputStream( valueBuffer );
+
+  public CompactRowHashIndex( RowMetaInterface keyMeta, RowMetaInterface valueMeta ) {
+    this.keyMeta = keyMeta;
+    this.valueMeta = valueMeta;
+    this.integerKey = keyMeta.size() == 1 && keyMeta.getValueMeta( 0 ).getType() == ValueMetaInterface.TYPE_INTEGER;
+    this.stringKey = keyMeta.size() == 1 && keyMeta.getValueMeta( 0 ).getType() == ValueMetaInterface.TYPE_STRING;
+
+    addresses = new long[INITIAL_CAPACITY];
+    if ( integerKey ) {
+      longKeys = new long[INITIAL_CAPACITY];
+    } else {
+      hashes = new int[INITIAL_CAPACITY];
+    }
+    mask = INITIAL_CAPACITY - 1;
+    resizeThreshold = (int) ( INITIAL_CAPACITY * LOAD_FACTOR );
+    pages = new byte[16][];
+  }
+
+  /**
+   * @return true if keys of the given types can be indexed: keys that compare as equal need to serialize to the same
+   *         bytes. Strings compared with a collator, case insensitive or ignoring white space are not supported, and
+   *         neither are types other than Integer, Number, String, Date, BigNumber, Boolean and Binary.
+   */
+  public static boolean isSupported( RowMetaInterface keyMeta ) {
+    for ( ValueMetaInterface meta : keyMeta.getValueMetaList() ) {
+      switch ( meta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          if ( !meta.isCollatorDisabled() || meta.isCaseInsensitive() || meta.isIgnoreWhitespace() ) {
+            return false;
+          }
+          break;
+        case ValueMetaInterface.TYPE_INTEGER:
+        case ValueMetaInterface.TYPE_NUMBER:
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+        case ValueMetaInterface.TYPE_BOOLEAN:
+        case ValueMetaInterface.TYPE_BINARY:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Indexes that look up database keys only hold the keys that are in the table, so the keys need to be equal in Java
+   * exactly when they are equal in the database. That holds for whole numbers, not for strings that the database pads
+   * or compares with a case or accent insensitive collation, or for dates and fractions it rounds.
+   *
+   * @param rowMeta the fields of the key
+   * @param first   the index of the first key field
+   * @return true if the fields from the given one on are all whole numbers
+   */
+  public static boolean isWholeNumberKey( RowMetaInterface rowMeta, int first ) {
+    for ( int i = first; i < rowMeta.size(); i++ ) {
+      ValueMetaInterface meta = rowMeta.getValueMeta( i );
+      if ( meta.getType() != ValueMetaInterface.TYPE_INTEGER && !( meta.isNumeric() && meta.getPrecision() == 0 ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of distinct keys in the index
+   */
+  public int size() {
+    return size + ( nullKeyAddress != 0 ? 1 : 0 );
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @return the number of bytes taken up by the table and the pages
+   */
+  public long getSizeInBytes() {
+    long bytes = 12L * addresses.length;
+    for ( int i = 0; i < nrPages; i++ ) {
+      bytes += pages[i].length;
+    }
+    return bytes;
+  }
+
+  /**
+   * Add an entry to the index, replacing the value of the key if it's already present.
+   *
+   * @param keyData
+   *          the key row, in normal storage
+   * @param valueData
+   *          the value row, in the storage of the value metadata
+   */
+  public void put( Object[] keyData, Object[] valueData ) throws KettleValueException {
+    if ( size >= resizeThreshold ) {
+      resize();
+    }
+    if ( integerKey ) {
+      putInteger( keyMeta.getValueMeta( 0 ).getInteger( keyData[0] ), valueData );
+    } else if ( stringKey ) {
+      putString( keyMeta.getValueMeta( 0 ), keyData[0], valueData );
+    } else {
+      serializeKey( keyData );
+      putSerialized( hash( keyBuffer, 0, keyLength ), valueData );
+    }
+  }
+
+  /**
+   * @param keyData
+   *          the key row, in normal storage and of the types of the key metadata
+   * @return the value row stored for the key or null if the key is not present
+   */
+  public Object[] get( Object[] keyData ) throws KettleValueException {
+    if ( integerKey ) {
+      return getInteger( keyMeta.getValueMeta( 0 ).getInteger( keyData[0] ) );
+    } else if ( stringKey ) {
+      return getString( keyMeta.getValueMeta( 0 ), keyData[0] );
+    } else {
+      serializeKey( keyData );
+      return getSerialized( hash( keyBuffer, 0, keyLength ) );
+    }
+  }
+
+  private void putInteger( Long key, Object[] valueData ) throws KettleValueException {
+    long address = appendEntry( null, 0, valueData );
+    if ( key == null ) {
+      nullKeyAddress = address + 1;
+      return;
+    }
+    long k = key;
+    int slot = hash( k ) & mask;
+    while ( addresses[slot] != 0L ) {
+      if ( longKeys[slot] == k ) {
+        addresses[slot] = address + 1;
+        return;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    longKeys[slot] = k;
+    addresses[slot] = address + 1;
+    size++;
+  }
+
+  private Object[] getInteger( Long key ) throws KettleValueException {
+    if ( key == null ) {
+      return nullKeyAddress == 0L ? null : readValue( nullKeyAddress - 1, false );
+    }
+    long k = key;
+    int slot = hash( k ) & mask;
+    while ( addresses[slot] != 0L ) {
+      if ( longKeys[slot] == k ) {
+        return readValue( addresses[slot] - 1, false );
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return null;
+  }
+
+  private void putString( ValueMetaInterface meta, Object key, Object[] valueData ) throws KettleValueException {
+    if ( meta.isNull( key ) ) {
+      nullKeyAddress = appendEntry( null, 0, valueData ) + 1;
+      return;
+    }
+    byte[] bytes = meta.getString( key ).getBytes( StandardCharsets.UTF_8 );
+    keyBuffer = bytes;
+    keyLength = bytes.length;
+    putSerialized( hash( bytes, 0, bytes.length ), valueData );
+  }
+
+  private Object[] getString( ValueMetaInterface meta, Object key ) throws KettleValueException {
+    if ( meta.isNull( key ) ) {
+      return nullKeyAddress == 0L ? null : readValue( nullKeyAddress - 1, false );
+    }
+    String string = meta.getString( key );
+
+    // ASCII strings are hashed and compared char by char, their UTF-8 bytes are the same as their chars
+    //
+    int hash = 0x811C9DC5;
+    for ( int i = 0; i < string.length(); i++ ) {
+      char c = string.charAt( i );
+      if ( c >= 0x80 ) {
+        byte[] bytes = string.getBytes( StandardCharsets.UTF_8 );
+        keyBuffer = bytes;
+        keyLength = bytes.length;
+        return getSerialized( hash( bytes, 0, bytes.length ) );
+      }
+      hash = ( hash ^ c ) * 0x01000193;
+    }
+    hash = finish( hash );
+
+    int slot = hash & mask;
+    while ( addresses[slot] != 0L ) {
+      if ( hashes[slot] == hash && keyEquals( addresses[slot] - 1, string ) ) {
+        return readValue( addresses[slot] - 1, true );
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Add the serialized key in the key buffer with the given value.
+   */
+  private void putSerialized( int hash, Object[] valueData ) throws KettleValueException {
+    int slot = hash & mask;
+    while ( addresses[slot] != 0L ) {
+      if ( hashes[slot] == hash && keyEquals( addresses[slot] - 1, keyBuffer, keyLength ) ) {
+        addresses[slot] = appendEntry( keyBuffer, keyLength, valueData ) + 1;
+        return;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    hashes[slot] = hash;
+    addresses[slot] = appendEntry( keyBuffer, keyLength, valueData ) + 1;
+    size++;
+  }
+
+  /**
+   * Look up the serialized key in the key buffer.
+   */
+  private Object[] getSerialized( int hash ) throws KettleValueException {
+    int slot = hash & mask;
+    while ( addresses[slot] != 0L ) {
+      if ( hashes[slot] == hash && keyEquals( addresses[slot] - 1, keyBuffer, keyLength ) ) {
+        return readValue( addresses[slot] - 1, true );
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return null;
+  }
+
+  private void resize() {
+    long[] oldAddresses = addresses;
+    int[] oldHashes = hashes;
+    long[] oldLongKeys = longKeys;
+
+    int capacity = oldAddresses.length * 2;
+    addresses = new long[capacity];
+    if ( integerKey ) {
+      longKeys = new long[capacity];
+    } else {
+      hashes = new int[capacity];
+    }
+    mask = capacity - 1;
+    resizeThreshold = (int) ( capacity * LOAD_FACTOR );
+
+    for ( int i = 0; i < oldAddresses.length; i++ ) {
+      if ( oldAddresses[i] == 0L ) {
+        continue;
+      }
+      int slot = ( integerKey ? hash( oldLongKeys[i] ) : oldHashes[i] ) & mask;
+      while ( addresses[slot] != 0L ) {
+        slot = ( slot + 1 ) & mask;
+      }
+      addresses[slot] = oldAddresses[i];
+      if ( integerKey ) {
+        longKeys[slot] = oldLongKeys[i];
+      } else {
+        hashes[slot] = oldHashes[i];
+      }
+    }
+  }
+
+  /**
+   * Serialize the key row into the key buffer: per value a null flag followed by the value in a form that is equal for
+   * values that compare as equal.
+   */
+  private void serializeKey( Object[] keyData ) throws KettleValueException {
+    keyLength = 0;
+    for ( int i = 0; i < keyMeta.size(); i++ ) {
+      ValueMetaInterface meta = keyMeta.getValueMeta( i );
+      Object value = keyData[i];
+      if ( meta.isNull( value ) ) {
+        writeKeyByte( NULL_VALUE );
+        continue;
+      }
+      writeKeyByte( NOT_NULL_VALUE );
+      switch ( meta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          writeKeyLong( meta.getInteger( value ) );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          writeKeyLong( Double.doubleToLongBits( meta.getNumber( value ) ) );
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+          writeKeyLong( meta.getDate( value ).getTime() );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          writeKeyByte( meta.getBoolean( value ) ? (byte) 1 : (byte) 0 );
+          break;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          // 1.0 and 1.00 are equal
+          BigDecimal number = meta.getBigNumber( value );
+          writeKeyBytes( ( number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros() ).toString()
+            .getBytes( StandardCharsets.UTF_8 ) );
+          break;
+        case ValueMetaInterface.TYPE_STRING:
+          writeKeyBytes( meta.getString( value ).getBytes( StandardCharsets.UTF_8 ) );
+          break;
+        case ValueMetaInterface.TYPE_BINARY:
+          writeKeyBytes( meta.getBinary( value ) );
+          break;
+        default:
+          throw new KettleValueException( meta.toStringMeta() + " : can't be used as a key of a compact hash index" );
+      }
+    }
+  }
+
+  private void writeKeyByte( byte b ) {
+    ensureKeyCapacity( 1 );
+    keyBuffer[keyLength++] = b;
+  }
+
+  private void writeKeyLong( long value ) {
+    ensureKeyCapacity( 8 );
+    for ( int shift = 56; shift >= 0; shift -= 8 ) {
+      keyBuffer[keyLength++] = (byte) ( value >>> shift );
+    }
+  }
+
+  private void writeKeyBytes( byte[] bytes ) {
+    ensureKeyCapacity( 5 + bytes.length );
+    keyLength = writeVarInt( keyBuffer, keyLength, bytes.length );
+    System.arraycopy( bytes, 0, keyBuffer, keyLength, bytes.length );
+    keyLength += bytes.length;
+  }
+
+  private void ensureKeyCapacity( int extra ) {
+    if ( keyLength + extra > keyBuffer.length ) {
+      keyBuffer = Arrays.copyOf( keyBuffer, Math.max( keyBuffer.length * 2, keyLength + extra ) );
+    }
+  }
+
+  /**
+   * Append an entry to the pages: the length and bytes of the key (if any) followed by the length and bytes of the
+   * serialized value row.
+   *
+   * @return the address of the entry
+   */
+  private long appendEntry( byte[] key, int length, Object[] valueData ) throws KettleValueException {
+    valueBuffer.reset();
+    try {
+      valueMeta.writeData( valueOutput, valueData );
+      valueOutput.flush();
+    } catch ( Exception e ) {
+      throw new KettleValueException( "Unable to serialize a value row", e );
+    }
+    int valueLength = valueBuffer.size();
+
+    int entryLength = varIntSize( valueLength ) + valueLength;
+    if ( key != null ) {
+      entryLength += varIntSize( length ) + length;
+    }
+    long address = allocate( entryLength );
+    byte[] page = pages[(int) ( address >>> 32 )];
+    int offset = (int) address;
+    if ( key != null ) {
+      offset = writeVarInt( page, offset, length );
+      System.arraycopy( key, 0, page, offset, length );
+      offset += length;
+    }
+    offset = writeVarInt( page, offset, valueLength );
+    System.arraycopy( valueBuffer.getBuffer(), 0, page, offset, valueLength );
+    return address;
+  }
+
+  /**
+   * @return the address (the page number in the high 32 bits, the offset in the low 32 bits) of length free bytes
+   */
+  private long allocate( int length ) {
+    if ( nrPages == 0 || pageOffset + length > pages[nrPages - 1].length ) {
+      int pageSize = nrPages == 0 ? FIRST_PAGE_SIZE : Math.min( MAX_PAGE_SIZE, pages[nrPages - 1].length * 2 );
+      if ( nrPages == pages.length ) {
+        pages = Arrays.copyOf( pages, pages.length * 2 );
+      }
+      pages[nrPages++] = new byte[Math.max( pageSize, length )];
+      pageOffset = 0;
+    }
+    long address = ( (long) ( nrPages - 1 ) << 32 ) | pageOffset;
+    pageOffset += length;
+    return address;
+  }
+
+  private boolean keyEquals( long address, byte[] key, int length ) {
+    byte[] page = pages[(int) ( address >>> 32 )];
+    int offset = (int) address;
+    if ( readVarInt( page, offset ) != length ) {
+      return false;
+    }
+    offset += varIntSize( length );
+    for ( int i = 0; i < length; i++ ) {
+      if ( page[offset + i] != key[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean keyEquals( long address, String asciiKey ) {
+    byte[] page = pages[(int) ( address >>> 32 )];
+    int offset = (int) address;
+    int length = asciiKey.length();
+    if ( readVarInt( page, offset ) != length ) {
+      return false;
+    }
+    offset += varIntSize( length );
+    for ( int i = 0; i < length; i++ ) {
+      if ( page[offset + i] != asciiKey.charAt( i ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Object[] readValue( long address, boolean skipKey ) throws KettleValueException {
+    byte[] page = pages[(int) ( address >>> 32 )];
+    int offset = (int) address;
+    if ( skipKey ) {
+      int length = readVarInt( page, offset );
+      offset += varIntSize( length ) + length;
+    }
+    int length = readVarInt( page, offset );
+    offset += varIntSize( length );
+    try {
+      return valueMeta.readData( new DataInputStream( new ByteArrayInputStream( page, offset, length ) ) );
+    } catch ( Exception e ) {
+      throw new KettleValueException( "Unable to read a value row", e );
+    }
+  }
+
+  private static int writeVarInt( byte[] buffer, int offset, int value ) {
+    while ( ( value & ~0x7F ) != 0 ) {
+      buffer[offset++] = (byte) ( ( value & 0x7F ) | 0x80 );
+      value >>>= 7;
+    }
+    buffer[offset++] = (byte) value;
+    return offset;
+  }
+
+  private static int readVarInt( byte[] buffer, int offset ) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer[offset++];
+      value |= ( b & 0x7F ) << shift;
+      shift += 7;
+    } while ( b < 0 );
+    return value;
+  }
+
+  private static int varIntSize( int value ) {
+    int size = 1;
+    while ( ( value & ~0x7F ) != 0 ) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * FNV-1a over the bytes, ASCII strings are hashed the same way over their chars.
+   */
+  private static int hash( byte[] bytes, int offset, int length ) {
+    int hash = 0x811C9DC5;
+    for ( int i = offset; i < offset + length; i++ ) {
+      hash = ( hash ^ ( bytes[i] & 0xFF ) ) * 0x01000193;
+    }
+    return finish( hash );
+  }
+
+  private static int hash( long key ) {
+    key = ( key ^ ( key >>> 33 ) ) * 0xFF51AFD7ED558CCDL;
+    key = ( key ^ ( key >>> 33 ) ) * 0xC4CEB9FE1A85EC53L;
+    return (int) ( key ^ ( key >>> 33 ) );
+  }
+
+  /**
+   * Spread the bits so that the low bits used to pick a slot depend on the whole key.
+   */
+  private static int finish( int hash ) {
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    return hash;
+  }
+
+  /**
+   * Gives access to the buffer without copying it.
+   */
+  private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+}
@@ -133,6 +133,12 @@ public class Metrics implements MetricsInterface {
     MetricsSnapshotType.START, "METRIC_STEP_INIT", "Initialize a step" );
   public static Metrics METRIC_STEP_INIT_STOP = new Metrics(
     MetricsSnapshotType.STOP, "METRIC_STEP_INIT", "Initialize a step" );
+  public static Metrics METRIC_STEP_CACHE_HIT_COUNT = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_HIT_COUNT", "Lookups found in the step cache" );
+  public static Metrics METRIC_STEP_CACHE_MISS_COUNT = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_MISS_COUNT", "Lookups not found in the step cache" );
+  public static Metrics METRIC_STEP_CACHE_EVICTION_COUNT = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_EVICTION_COUNT", "Rows evicted from the step cache" );
 
   // Logging back-end
   //
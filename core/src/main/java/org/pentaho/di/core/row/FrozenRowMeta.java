@@ -0,0 +1,392 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.util.Utils;
+
+/**
+ * Row metadata that is read without any locking: the value metadata is kept in a plain array next to a precomputed
+ * name to index map. This is the row metadata that travels along with the rows over the hops of a running
+ * transformation, where it's read for every single row by every step.
+ * <p>
+ * The snapshot is taken once and never changes by itself. If it's modified anyway (a step changing its input row
+ * metadata in place), it thaws: from then on it behaves exactly like (and with the locking of) a regular
+ * {@link RowMeta}. Note that the value metadata objects themselves are shared with the source, not copied.
+ */
+public class FrozenRowMeta extends RowMeta {
+
+  private final ValueMetaInterface[] valueMetas;
+  private final Map<String, Integer> indexes;
+  private volatile int[] realCloneIndexes;
+  private volatile boolean frozen = true;
+
+  /**
+   * Take a snapshot of the row metadata.
+   *
+   * @param rowMeta the row metadata to freeze, the value metadata objects in it are used as is
+   */
+  public FrozenRowMeta( RowMetaInterface rowMeta ) {
+    super();
+    List<ValueMetaInterface> valueMetaList = new ArrayList<>( rowMeta.getValueMetaList() );
+    super.setValueMetaList( valueMetaList );
+
+    valueMetas = valueMetaList.toArray( new ValueMetaInterface[valueMetaList.size()] );
+    indexes = new HashMap<>();
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      String name = valueMetas[i].getName();
+      if ( !Utils.isEmpty( name ) ) {
+        indexes.put( name.toLowerCase(), i );
+      }
+    }
+  }
+
+  /**
+   * @return true if the row metadata wasn't modified since the snapshot was taken
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void thaw() {
+    frozen = false;
+  }
+
+  @Override
+  public int size() {
+    return frozen ? valueMetas.length : super.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return frozen ? valueMetas.length == 0 : super.isEmpty();
+  }
+
+  @Override
+  public ValueMetaInterface getValueMeta( int index ) {
+    if ( !frozen ) {
+      return super.getValueMeta( index );
+    }
+    if ( ( index >= 0 ) && ( index < valueMetas.length ) ) {
+      return valueMetas[index];
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public List<ValueMetaInterface> getValueMetaList() {
+    if ( !frozen ) {
+      return super.getValueMetaList();
+    }
+    return Collections.unmodifiableList( Arrays.asList( valueMetas ) );
+  }
+
+  @Override
+  public int indexOfValue( String valueName ) {
+    if ( !frozen ) {
+      return super.indexOfValue( valueName );
+    }
+    if ( valueName == null ) {
+      return -1;
+    }
+    Integer index = indexes.get( valueName.toLowerCase() );
+    if ( index != null && valueName.equalsIgnoreCase( valueMetas[index].getName() ) ) {
+      return index;
+    }
+    // The value metadata can still be renamed in place, look for the name the hard way
+    //
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      if ( valueName.equalsIgnoreCase( valueMetas[i].getName() ) ) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public ValueMetaInterface searchValueMeta( String valueName ) {
+    if ( !frozen ) {
+      return super.searchValueMeta( valueName );
+    }
+    int index = indexOfValue( valueName );
+    return index < 0 ? null : valueMetas[index];
+  }
+
+  @Override
+  public String[] getFieldNames() {
+    if ( !frozen ) {
+      return super.getFieldNames();
+    }
+    String[] retval = new String[valueMetas.length];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      String valueName = valueMetas[i].getName();
+      retval[i] = valueName == null ? "" : valueName;
+    }
+    return retval;
+  }
+
+  @Override
+  public Object[] cloneRow( Object[] objects, Object[] newObjects ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.cloneRow( objects, newObjects );
+    }
+    int[] cloneIndexes = realCloneIndexes;
+    if ( cloneIndexes == null ) {
+      List<Integer> list = new ArrayList<>();
+      for ( int i = 0; i < valueMetas.length; i++ ) {
+        if ( valueMetas[i].requiresRealClone() ) {
+          list.add( i );
+        }
+      }
+      cloneIndexes = new int[list.size()];
+      for ( int i = 0; i < cloneIndexes.length; i++ ) {
+        cloneIndexes[i] = list.get( i );
+      }
+      realCloneIndexes = cloneIndexes;
+    }
+    for ( int i : cloneIndexes ) {
+      newObjects[i] = valueMetas[i].cloneValueData( objects[i] );
+    }
+    return newObjects;
+  }
+
+  @Override
+  public void writeData( DataOutputStream outputStream, Object[] data ) throws KettleFileException {
+    if ( !frozen ) {
+      super.writeData( outputStream, data );
+      return;
+    }
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      valueMetas[i].writeData( outputStream, data[i] );
+    }
+    if ( valueMetas.length == 0 ) {
+      try {
+        outputStream.writeBoolean( true );
+      } catch ( IOException e ) {
+        throw new KettleFileException( "Error writing marker flag", e );
+      }
+    }
+  }
+
+  @Override
+  public Object[] readData( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    if ( !frozen ) {
+      return super.readData( inputStream );
+    }
+    Object[] data = new Object[valueMetas.length];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      data[i] = valueMetas[i].readData( inputStream );
+    }
+    if ( valueMetas.length == 0 ) {
+      try {
+        inputStream.readBoolean();
+      } catch ( EOFException e ) {
+        throw new KettleEOFException( e );
+      } catch ( SocketTimeoutException e ) {
+        throw e;
+      } catch ( IOException e ) {
+        throw new KettleFileException( toString() + " : Unable to read the marker flag data from input stream", e );
+      }
+    }
+    return data;
+  }
+
+  @Override
+  public String getString( Object[] row ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.getString( row );
+    }
+    StringBuilder buffer = new StringBuilder();
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      if ( i > 0 ) {
+        buffer.append( ", " );
+      }
+      buffer.append( "[" );
+      buffer.append( getString( row, i ) );
+      buffer.append( "]" );
+    }
+    return buffer.toString();
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.compare( rowData1, rowData2, fieldnrs );
+    }
+    for ( int fieldnr : fieldnrs ) {
+      int cmp = valueMetas[fieldnr].compare( rowData1[fieldnr], rowData2[fieldnr] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean equals( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.equals( rowData1, rowData2, fieldnrs );
+    }
+    for ( int fieldnr : fieldnrs ) {
+      if ( valueMetas[fieldnr].compare( rowData1[fieldnr], rowData2[fieldnr] ) != 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs1, int[] fieldnrs2 )
+    throws KettleValueException {
+    if ( !frozen ) {
+      return super.compare( rowData1, rowData2, fieldnrs1, fieldnrs2 );
+    }
+    int len = ( fieldnrs1.length < fieldnrs2.length ) ? fieldnrs1.length : fieldnrs2.length;
+    for ( int i = 0; i < len; i++ ) {
+      int cmp = valueMetas[fieldnrs1[i]].compare( rowData1[fieldnrs1[i]], rowData2[fieldnrs2[i]] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, RowMetaInterface rowMeta2, Object[] rowData2, int[] fieldnrs1,
+                      int[] fieldnrs2 ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.compare( rowData1, rowMeta2, rowData2, fieldnrs1, fieldnrs2 );
+    }
+    int len = ( fieldnrs1.length < fieldnrs2.length ) ? fieldnrs1.length : fieldnrs2.length;
+    for ( int i = 0; i < len; i++ ) {
+      ValueMetaInterface valueMeta2 = rowMeta2.getValueMeta( fieldnrs2[i] );
+      int cmp = valueMetas[fieldnrs1[i]].compare( rowData1[fieldnrs1[i]], valueMeta2, rowData2[fieldnrs2[i]] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2 ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.compare( rowData1, rowData2 );
+    }
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      int cmp = valueMetas[i].compare( rowData1[i], rowData2[i] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  @Deprecated
+  public int oldXORHashCode( Object[] rowData ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.oldXORHashCode( rowData );
+    }
+    int hash = 0;
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      hash ^= valueMetas[i].hashCode( rowData[i] );
+    }
+    return hash;
+  }
+
+  @Override
+  public int convertedValuesHashCode( Object[] rowData ) throws KettleValueException {
+    if ( !frozen ) {
+      return super.convertedValuesHashCode( rowData );
+    }
+    if ( rowData == null ) {
+      return 0;
+    }
+    int result = 1;
+    for ( int i = 0; i < rowData.length; i++ ) {
+      result = 31 * result + getValueMeta( i ).hashCode();
+    }
+    return result;
+  }
+
+  // Any modification thaws the snapshot, after which the locking implementation takes over.
+  //
+
+  @Override
+  public void setValueMetaList( List<ValueMetaInterface> valueMetaList ) {
+    thaw();
+    super.setValueMetaList( valueMetaList );
+  }
+
+  @Override
+  public void addValueMeta( ValueMetaInterface meta ) {
+    thaw();
+    super.addValueMeta( meta );
+  }
+
+  @Override
+  public void addValueMeta( int index, ValueMetaInterface meta ) {
+    thaw();
+    super.addValueMeta( index, meta );
+  }
+
+  @Override
+  public void setValueMeta( int index, ValueMetaInterface valueMeta ) {
+    thaw();
+    super.setValueMeta( index, valueMeta );
+  }
+
+  @Override
+  public void clear() {
+    thaw();
+    super.clear();
+  }
+
+  @Override
+  public void removeValueMeta( String valueName ) throws KettleValueException {
+    thaw();
+    super.removeValueMeta( valueName );
+  }
+
+  @Override
+  public void removeValueMeta( int index ) {
+    thaw();
+    super.removeValueMeta( index );
+  }
+}
@@ -0,0 +1,100 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+/**
+ * Gives a rough estimate of the number of bytes a row of data takes on the heap. The estimate is meant for memory
+ * budgets (buffers, caches), not for exact accounting: it's cheap to compute and errs on the high side.
+ */
+public final class RowSizeEstimator {
+
+  /** Object header plus array length */
+  private static final int ARRAY_OVERHEAD = 16;
+
+  /** Size of a reference, assuming uncompressed pointers */
+  private static final int REFERENCE_SIZE = 8;
+
+  /** Header plus the value of a boxed primitive */
+  private static final int BOXED_SIZE = 16;
+
+  /** The String object itself, its byte array header and hash */
+  private static final int STRING_OVERHEAD = 40;
+
+  private RowSizeEstimator() {
+  }
+
+  /**
+   * @param row
+   *          the row of data
+   * @return the estimated number of bytes the row and the values it references take on the heap
+   */
+  public static long estimate( Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = ARRAY_OVERHEAD + (long) REFERENCE_SIZE * row.length;
+    for ( Object value : row ) {
+      size += estimateValue( value );
+    }
+    return size;
+  }
+
+  /**
+   * @param value
+   *          a value of a row
+   * @return the estimated number of bytes the value takes on the heap
+   */
+  public static long estimateValue( Object value ) {
+    if ( value == null ) {
+      return 0L;
+    }
+    if ( value instanceof String ) {
+      // Assume 2 bytes per character, latin-1 compacted strings only take half of that
+      return STRING_OVERHEAD + 2L * ( (String) value ).length();
+    }
+    if ( value instanceof byte[] ) {
+      return ARRAY_OVERHEAD + ( (byte[]) value ).length;
+    }
+    if ( value instanceof Long || value instanceof Double || value instanceof Boolean || value instanceof Integer ) {
+      return BOXED_SIZE;
+    }
+    if ( value instanceof Date ) {
+      // Timestamps carry their nanoseconds as well
+      return 2 * BOXED_SIZE;
+    }
+    if ( value instanceof BigDecimal ) {
+      return 2 * BOXED_SIZE + ARRAY_OVERHEAD + ( (BigDecimal) value ).precision() / 2;
+    }
+    if ( value instanceof BigInteger ) {
+      return BOXED_SIZE + ( ( (BigInteger) value ).bitLength() >> 3 ) + ARRAY_OVERHEAD;
+    }
+    if ( value instanceof Object[] ) {
+      return estimate( (Object[]) value );
+    }
+    return 2 * BOXED_SIZE;
+  }
+}
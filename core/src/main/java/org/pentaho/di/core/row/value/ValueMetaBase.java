@@ -4708,6 +4708,13 @@ public class ValueMetaBase implements ValueMetaInterface {
     dateFormatChanged = true;
   }
 
+  /**
+   * @return the comparator compare() uses instead of the comparison for the data type, or null if there is none
+   */
+  public Comparator<Object> getComparator() {
+    return comparator;
+  }
+
   @Override
   public boolean isIgnoreWhitespace() {
     return ignoreWhitespace;
@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * One column of a block of rows in columnar form: the values of a single field for all the rows of the block, next to
+ * a bitmap of the null values. Values are always held in normal storage, regardless of the storage type of the field
+ * in the rows they were taken from.
+ *
+ * @see RowBatch
+ */
+public abstract class ColumnVector {
+
+  protected final int size;
+  private final long[] nulls;
+  private int nullCount;
+
+  protected ColumnVector( int size ) {
+    this.size = size;
+    this.nulls = new long[ ( size + 63 ) >>> 6 ];
+  }
+
+  /**
+   * @return the number of values in this vector
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isNull( int index ) {
+    return ( nulls[ index >>> 6 ] & ( 1L << index ) ) != 0;
+  }
+
+  public void setNull( int index ) {
+    if ( !isNull( index ) ) {
+      nulls[ index >>> 6 ] |= 1L << index;
+      nullCount++;
+    }
+  }
+
+  /**
+   * @return the number of null values in this vector
+   */
+  public int getNullCount() {
+    return nullCount;
+  }
+
+  /**
+   * Marks a value null wherever it is null in this vector or in the other one, the way arithmetic on two vectors
+   * propagates nulls.
+   */
+  protected void setNulls( ColumnVector one, ColumnVector two ) {
+    if ( one.nullCount == 0 && two.nullCount == 0 ) {
+      return;
+    }
+    for ( int i = 0; i < nulls.length; i++ ) {
+      nulls[ i ] = one.nulls[ i ] | two.nulls[ i ];
+      nullCount += Long.bitCount( nulls[ i ] );
+    }
+  }
+
+  /**
+   * @return the value at the given index as the object it would be in a row, null for a null value
+   */
+  public abstract Object getObject( int index );
+
+  /**
+   * Take the values of a field out of a block of rows.
+   *
+   * @param valueMeta the metadata of the field
+   * @param rows      the rows
+   * @param from      the index of the first row to take the value from
+   * @param to        the index after the last row to take the value from
+   * @param fieldnr   the index of the field in the rows
+   * @return a vector of the type best suited for the field: primitive for integers, numbers and dates, dictionary
+   * encoded for strings
+   * @throws KettleValueException in case a value can't be converted to normal storage
+   */
+  public static ColumnVector of( ValueMetaInterface valueMeta, Object[][] rows, int from, int to, int fieldnr )
+    throws KettleValueException {
+    int size = to - from;
+    boolean normal = valueMeta.isStorageNormal();
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER: {
+        LongColumnVector vector = new LongColumnVector( size );
+        for ( int i = 0; i < size; i++ ) {
+          Object value = rows[ from + i ][ fieldnr ];
+          if ( !normal ) {
+            value = valueMeta.convertToNormalStorageType( value );
+          }
+          if ( value == null ) {
+            vector.setNull( i );
+          } else {
+            vector.set( i, (Long) value );
+          }
+        }
+        return vector;
+      }
+      case ValueMetaInterface.TYPE_NUMBER: {
+        DoubleColumnVector vector = new DoubleColumnVector( size );
+        for ( int i = 0; i < size; i++ ) {
+          Object value = rows[ from + i ][ fieldnr ];
+          if ( !normal ) {
+            value = valueMeta.convertToNormalStorageType( value );
+          }
+          if ( value == null ) {
+            vector.setNull( i );
+          } else {
+            vector.set( i, (Double) value );
+          }
+        }
+        return vector;
+      }
+      case ValueMetaInterface.TYPE_DATE: {
+        DateColumnVector vector = new DateColumnVector( size );
+        for ( int i = 0; i < size; i++ ) {
+          Object value = rows[ from + i ][ fieldnr ];
+          if ( !normal ) {
+            value = valueMeta.convertToNormalStorageType( value );
+          }
+          if ( value == null ) {
+            vector.setNull( i );
+          } else {
+            vector.set( i, ( (java.util.Date) value ).getTime() );
+          }
+        }
+        return vector;
+      }
+      case ValueMetaInterface.TYPE_STRING: {
+        StringColumnVector vector = new StringColumnVector( size );
+        for ( int i = 0; i < size; i++ ) {
+          Object value = rows[ from + i ][ fieldnr ];
+          if ( !normal ) {
+            value = valueMeta.convertToNormalStorageType( value );
+          }
+          if ( value == null ) {
+            vector.setNull( i );
+          } else {
+            vector.set( i, (String) value );
+          }
+        }
+        return vector;
+      }
+      default: {
+        ObjectColumnVector vector = new ObjectColumnVector( size );
+        for ( int i = 0; i < size; i++ ) {
+          Object value = rows[ from + i ][ fieldnr ];
+          if ( !normal ) {
+            value = valueMeta.convertToNormalStorageType( value );
+          }
+          if ( value == null ) {
+            vector.setNull( i );
+          } else {
+            vector.set( i, value );
+          }
+        }
+        return vector;
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+import java.util.Date;
+
+/**
+ * A column of date values, kept as milliseconds since the epoch in a primitive array.
+ */
+public class DateColumnVector extends LongColumnVector {
+
+  public DateColumnVector( int size ) {
+    super( size );
+  }
+
+  @Override
+  public Object getObject( int index ) {
+    return isNull( index ) ? null : new Date( values[ index ] );
+  }
+}
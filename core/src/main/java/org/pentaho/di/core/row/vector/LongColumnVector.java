@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+/**
+ * A column of integer values, kept in a primitive array.
+ */
+public class LongColumnVector extends ColumnVector {
+
+  protected final long[] values;
+
+  public LongColumnVector( int size ) {
+    super( size );
+    this.values = new long[ size ];
+  }
+
+  public long get( int index ) {
+    return values[ index ];
+  }
+
+  public void set( int index, long value ) {
+    values[ index ] = value;
+  }
+
+  /**
+   * @return the values, the value at the index of a null is undefined
+   */
+  public long[] getValues() {
+    return values;
+  }
+
+  @Override
+  public Object getObject( int index ) {
+    return isNull( index ) ? null : Long.valueOf( values[ index ] );
+  }
+
+  /**
+   * @return this + other for every index, null where either of the two is null
+   */
+  public LongColumnVector add( LongColumnVector other ) {
+    LongColumnVector result = new LongColumnVector( size );
+    result.setNulls( this, other );
+    for ( int i = 0; i < size; i++ ) {
+      result.values[ i ] = values[ i ] + other.values[ i ];
+    }
+    return result;
+  }
+
+  /**
+   * @return this - other for every index, null where either of the two is null
+   */
+  public LongColumnVector subtract( LongColumnVector other ) {
+    LongColumnVector result = new LongColumnVector( size );
+    result.setNulls( this, other );
+    for ( int i = 0; i < size; i++ ) {
+      result.values[ i ] = values[ i ] - other.values[ i ];
+    }
+    return result;
+  }
+
+  /**
+   * @return this * other for every index, null where either of the two is null
+   */
+  public LongColumnVector multiply( LongColumnVector other ) {
+    LongColumnVector result = new LongColumnVector( size );
+    result.setNulls( this, other );
+    for ( int i = 0; i < size; i++ ) {
+      result.values[ i ] = values[ i ] * other.values[ i ];
+    }
+    return result;
+  }
+
+  /**
+   * @return this / other for every index, null where either of the two is null
+   * @throws ArithmeticException when dividing a value by zero
+   */
+  public LongColumnVector divide( LongColumnVector other ) {
+    LongColumnVector result = new LongColumnVector( size );
+    result.setNulls( this, other );
+    boolean hasNulls = result.getNullCount() > 0;
+    for ( int i = 0; i < size; i++ ) {
+      if ( !hasNulls || !result.isNull( i ) ) {
+        result.values[ i ] = values[ i ] / other.values[ i ];
+      }
+    }
+    return result;
+  }
+}
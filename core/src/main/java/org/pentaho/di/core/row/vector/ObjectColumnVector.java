@@ -0,0 +1,45 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+/**
+ * A column of values of a type without a dedicated vector (boolean, big number, binary, ...), kept as is.
+ */
+public class ObjectColumnVector extends ColumnVector {
+
+  private final Object[] values;
+
+  public ObjectColumnVector( int size ) {
+    super( size );
+    this.values = new Object[ size ];
+  }
+
+  public void set( int index, Object value ) {
+    values[ index ] = value;
+  }
+
+  @Override
+  public Object getObject( int index ) {
+    return values[ index ];
+  }
+}
@@ -0,0 +1,93 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A columnar view on a block of rows. The rows stay the primary representation (they are what travels over the hops),
+ * the columns are taken out of them the first time they are asked for. Columns that are calculated on the batch are
+ * written back into the rows.
+ */
+public class RowBatch {
+
+  private final RowMetaInterface rowMeta;
+  private final Object[][] rows;
+  private final int size;
+  private final ColumnVector[] columns;
+
+  /**
+   * @param rowMeta the metadata of the rows
+   * @param rows    the rows, each at least as large as the row metadata
+   * @param size    the number of rows in the batch
+   */
+  public RowBatch( RowMetaInterface rowMeta, Object[][] rows, int size ) {
+    this.rowMeta = rowMeta;
+    this.rows = rows;
+    this.size = size;
+    this.columns = new ColumnVector[ rowMeta.size() ];
+  }
+
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  public Object[][] getRows() {
+    return rows;
+  }
+
+  /**
+   * @return the number of rows in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param fieldnr the index of the field
+   * @return the values of the field for all rows of the batch
+   * @throws KettleValueException in case a value can't be converted to normal storage
+   */
+  public ColumnVector getColumn( int fieldnr ) throws KettleValueException {
+    ColumnVector column = columns[ fieldnr ];
+    if ( column == null ) {
+      column = ColumnVector.of( rowMeta.getValueMeta( fieldnr ), rows, 0, size, fieldnr );
+      columns[ fieldnr ] = column;
+    }
+    return column;
+  }
+
+  /**
+   * Set the values of a field for all the rows of the batch, the values are stored in the rows as well.
+   *
+   * @param fieldnr the index of the field
+   * @param column  the values, in normal storage
+   */
+  public void setColumn( int fieldnr, ColumnVector column ) {
+    columns[ fieldnr ] = column;
+    for ( int i = 0; i < size; i++ ) {
+      rows[ i ][ fieldnr ] = column.getObject( i );
+    }
+  }
+}
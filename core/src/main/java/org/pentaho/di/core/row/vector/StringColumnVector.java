@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column of string values, dictionary encoded: every distinct string is kept once and the column holds the code of
+ * the string for every index. Work that only depends on the value of a string can be done once per dictionary entry
+ * instead of once per row.
+ */
+public class StringColumnVector extends ColumnVector {
+
+  private final int[] codes;
+  private final List<String> dictionary = new ArrayList<>();
+  private final Map<String, Integer> lookup = new HashMap<>();
+
+  public StringColumnVector( int size ) {
+    super( size );
+    this.codes = new int[ size ];
+  }
+
+  public void set( int index, String value ) {
+    Integer code = lookup.get( value );
+    if ( code == null ) {
+      code = dictionary.size();
+      dictionary.add( value );
+      lookup.put( value, code );
+    }
+    codes[ index ] = code;
+  }
+
+  /**
+   * @return the dictionary code of the string at the index, undefined for a null
+   */
+  public int getCode( int index ) {
+    return codes[ index ];
+  }
+
+  /**
+   * @return the distinct strings of this column, the position of a string in the list is its code
+   */
+  public List<String> getDictionary() {
+    return dictionary;
+  }
+
+  public String getString( int index ) {
+    return isNull( index ) ? null : dictionary.get( codes[ index ] );
+  }
+
+  @Override
+  public Object getObject( int index ) {
+    return getString( index );
+  }
+}
@@ -0,0 +1,224 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.util.Utils;
+
+/**
+ * Evaluates a {@link Condition} for all the rows of a batch at once, with the same outcome as
+ * {@link Condition#evaluate(RowMetaInterface, Object[])} row by row:
+ * <ul>
+ * <li>An integer or number field compared to a constant of the same type is evaluated on the primitive column.</li>
+ * <li>Any other function of a string field and a constant is evaluated once per distinct string of the batch.</li>
+ * <li>Everything else is evaluated row by row.</li>
+ * </ul>
+ */
+public class VectorizedCondition {
+
+  private VectorizedCondition() {
+  }
+
+  /**
+   * @param condition the condition to evaluate
+   * @param batch     the rows to evaluate it for
+   * @return for every row of the batch, whether the condition holds
+   * @throws KettleValueException in case a value can't be read from the rows
+   */
+  public static boolean[] evaluate( Condition condition, RowBatch batch ) throws KettleValueException {
+    if ( condition.isAtomic() ) {
+      return evaluateAtomic( condition, batch );
+    }
+
+    List<Condition> children = condition.getChildren();
+    boolean[] result = evaluate( children.get( 0 ), batch );
+    for ( int c = 1; c < children.size(); c++ ) {
+      Condition child = children.get( c );
+      boolean[] other = evaluate( child, batch );
+      for ( int i = 0; i < result.length; i++ ) {
+        switch ( child.getOperator() ) {
+          case Condition.OPERATOR_OR:
+            result[ i ] = result[ i ] || other[ i ];
+            break;
+          case Condition.OPERATOR_AND:
+            result[ i ] = result[ i ] && other[ i ];
+            break;
+          case Condition.OPERATOR_OR_NOT:
+            result[ i ] = result[ i ] || !other[ i ];
+            break;
+          case Condition.OPERATOR_AND_NOT:
+            result[ i ] = result[ i ] && !other[ i ];
+            break;
+          case Condition.OPERATOR_XOR:
+            result[ i ] = result[ i ] ^ other[ i ];
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    if ( condition.isNegated() ) {
+      negate( result );
+    }
+    return result;
+  }
+
+  private static boolean[] evaluateAtomic( Condition condition, RowBatch batch ) throws KettleValueException {
+    boolean[] result = new boolean[ batch.size() ];
+    if ( condition.getFunction() == Condition.FUNC_TRUE ) {
+      Arrays.fill( result, !condition.isNegated() );
+      return result;
+    }
+
+    RowMetaInterface rowMeta = batch.getRowMeta();
+    String leftValuename = condition.getLeftValuename();
+    int fieldnr = Utils.isEmpty( leftValuename ) ? -1 : rowMeta.indexOfValue( leftValuename );
+    if ( fieldnr >= 0 && Utils.isEmpty( condition.getRightValuename() ) ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( fieldnr );
+      ValueMetaAndData exact = condition.getRightExact();
+      if ( isPrimitiveComparison( condition.getFunction(), valueMeta, exact ) ) {
+        compare( condition.getFunction(), batch.getColumn( fieldnr ), exact.getValueData(), result );
+        if ( condition.isNegated() ) {
+          negate( result );
+        }
+        return result;
+      }
+      if ( valueMeta.isString() ) {
+        evaluatePerString( condition, batch, fieldnr, result );
+        return result;
+      }
+    }
+
+    Object[][] rows = batch.getRows();
+    for ( int i = 0; i < result.length; i++ ) {
+      result[ i ] = condition.evaluate( rowMeta, rows[ i ] );
+    }
+    return result;
+  }
+
+  /**
+   * Only plain integers and numbers in normal storage, compared to a constant of the same type, are compared on the
+   * primitive values: anything else involves conversions, custom comparators or a descending sort order.
+   */
+  private static boolean isPrimitiveComparison( int function, ValueMetaInterface valueMeta, ValueMetaAndData exact ) {
+    if ( function < Condition.FUNC_EQUAL || function > Condition.FUNC_LARGER_EQUAL ) {
+      return false;
+    }
+    if ( valueMeta.getClass() != ValueMetaInteger.class && valueMeta.getClass() != ValueMetaNumber.class ) {
+      return false;
+    }
+    if ( !valueMeta.isStorageNormal() || valueMeta.isSortedDescending() ) {
+      return false;
+    }
+    return exact != null && exact.getValueData() != null && exact.getValueMeta() != null
+      && exact.getValueMeta().getType() == valueMeta.getType() && exact.getValueMeta().isStorageNormal();
+  }
+
+  private static void compare( int function, ColumnVector column, Object constant, boolean[] result ) {
+    boolean nullsAreNotSmaller =
+      "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO, "N" ) );
+
+    for ( int i = 0; i < result.length; i++ ) {
+      int cmp;
+      if ( column.isNull( i ) ) {
+        if ( nullsAreNotSmaller
+          && ( function == Condition.FUNC_SMALLER || function == Condition.FUNC_SMALLER_EQUAL ) ) {
+          result[ i ] = false;
+          continue;
+        }
+        cmp = -1; // null is smaller than any value
+      } else if ( column instanceof LongColumnVector ) {
+        cmp = Long.compare( ( (LongColumnVector) column ).get( i ), (Long) constant );
+      } else {
+        cmp = Double.compare( ( (DoubleColumnVector) column ).get( i ), (Double) constant );
+      }
+
+      switch ( function ) {
+        case Condition.FUNC_EQUAL:
+          result[ i ] = cmp == 0;
+          break;
+        case Condition.FUNC_NOT_EQUAL:
+          result[ i ] = cmp != 0;
+          break;
+        case Condition.FUNC_SMALLER:
+          result[ i ] = cmp < 0;
+          break;
+        case Condition.FUNC_SMALLER_EQUAL:
+          result[ i ] = cmp <= 0;
+          break;
+        case Condition.FUNC_LARGER:
+          result[ i ] = cmp > 0;
+          break;
+        case Condition.FUNC_LARGER_EQUAL:
+          result[ i ] = cmp >= 0;
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * The outcome of a condition that compares a string field to a constant only depends on the string, so it's
+   * evaluated once for the first row with each distinct string (and once for the first null).
+   */
+  private static void evaluatePerString( Condition condition, RowBatch batch, int fieldnr, boolean[] result )
+    throws KettleValueException {
+    StringColumnVector column = (StringColumnVector) batch.getColumn( fieldnr );
+    Object[][] rows = batch.getRows();
+
+    // 0 = not evaluated yet, 1 = true, 2 = false
+    byte[] outcomes = new byte[ column.getDictionary().size() ];
+    byte nullOutcome = 0;
+    for ( int i = 0; i < result.length; i++ ) {
+      if ( column.isNull( i ) ) {
+        if ( nullOutcome == 0 ) {
+          nullOutcome = condition.evaluate( batch.getRowMeta(), rows[ i ] ) ? (byte) 1 : (byte) 2;
+        }
+        result[ i ] = nullOutcome == 1;
+      } else {
+        int code = column.getCode( i );
+        if ( outcomes[ code ] == 0 ) {
+          outcomes[ code ] = condition.evaluate( batch.getRowMeta(), rows[ i ] ) ? (byte) 1 : (byte) 2;
+        }
+        result[ i ] = outcomes[ code ] == 1;
+      }
+    }
+  }
+
+  private static void negate( boolean[] result ) {
+    for ( int i = 0; i < result.length; i++ ) {
+      result[ i ] = !result[ i ];
+    }
+  }
+}
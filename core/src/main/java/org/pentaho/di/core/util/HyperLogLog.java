@@ -0,0 +1,270 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Estimates the number of distinct values in a stream in a fixed amount of memory (HyperLogLog).
+ * <p>
+ * With a precision of p bits the values are spread over 2^p registers of one byte each, the relative standard error of
+ * the estimate is about 1.04 / sqrt(2^p): 0.8% for the default precision of 14 bits. As long as there are few
+ * distinct values their 64-bit hashes are kept as-is instead, which keeps small sets small and their count exact
+ * (save for hash collisions).
+ * <p>
+ * Sketches of the same precision can be merged, the result is the sketch of all the values added to either one.
+ */
+public class HyperLogLog {
+
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+  public static final int DEFAULT_PRECISION = 14;
+
+  private static final int INITIAL_SPARSE_CAPACITY = 8;
+
+  private final int precision;
+
+  /** The distinct hashes while there are few of them, 0 marks a free slot. Null once the registers are used. */
+  private long[] hashes;
+  private int nrHashes;
+
+  /** Per register the highest rank (position of the first 1 bit after the index bits) seen so far. */
+  private byte[] registers;
+
+  /**
+   * @param precision
+   *          the number of hash bits that index the registers, between {@link #MIN_PRECISION} and
+   *          {@link #MAX_PRECISION}
+   */
+  public HyperLogLog( int precision ) {
+    if ( precision < MIN_PRECISION || precision > MAX_PRECISION ) {
+      throw new IllegalArgumentException( "The precision needs to be between " + MIN_PRECISION + " and "
+        + MAX_PRECISION + ": " + precision );
+    }
+    this.precision = precision;
+    this.hashes = new long[INITIAL_SPARSE_CAPACITY];
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Add a value, null values are ignored.
+   */
+  public void add( Object value ) {
+    if ( value != null ) {
+      addHash( hash( value ) );
+    }
+  }
+
+  /**
+   * Add a value by its 64-bit hash.
+   */
+  public void addHash( long hash ) {
+    if ( hash == 0L ) {
+      hash = 0x9E3779B97F4A7C15L; // 0 marks the free slots
+    }
+    if ( registers != null ) {
+      addToRegisters( hash );
+      return;
+    }
+    int mask = hashes.length - 1;
+    int slot = (int) mix( hash ) & mask;
+    while ( hashes[slot] != 0L ) {
+      if ( hashes[slot] == hash ) {
+        return;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    hashes[slot] = hash;
+    nrHashes++;
+
+    // The hashes use as much memory as the registers would once there are 2^p / 8 of them, keep them at most half full
+    //
+    if ( nrHashes * 2 > hashes.length ) {
+      if ( hashes.length * 8L >= ( 1L << precision ) ) {
+        toRegisters();
+      } else {
+        rehash( hashes.length * 2 );
+      }
+    }
+  }
+
+  /**
+   * Add the values of another sketch of the same precision to this one.
+   */
+  public void merge( HyperLogLog other ) {
+    if ( other.precision != precision ) {
+      throw new IllegalArgumentException( "Can't merge sketches of precision " + precision + " and "
+        + other.precision );
+    }
+    if ( other.registers == null ) {
+      for ( long hash : other.hashes ) {
+        if ( hash != 0L ) {
+          addHash( hash );
+        }
+      }
+      return;
+    }
+    if ( registers == null ) {
+      toRegisters();
+    }
+    for ( int i = 0; i < registers.length; i++ ) {
+      if ( other.registers[i] > registers[i] ) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added
+   */
+  public long cardinality() {
+    if ( registers == null ) {
+      return nrHashes;
+    }
+    int m = registers.length;
+    double sum = 0.0;
+    int zeros = 0;
+    for ( byte register : registers ) {
+      sum += 1.0 / ( 1L << register );
+      if ( register == 0 ) {
+        zeros++;
+      }
+    }
+    double estimate = alpha( m ) * m * m / sum;
+    if ( estimate <= 2.5 * m && zeros > 0 ) {
+      // Small range correction: linear counting on the empty registers is more accurate
+      estimate = m * Math.log( (double) m / zeros );
+    }
+    return Math.round( estimate );
+  }
+
+  /**
+   * @return the estimated number of bytes this sketch takes up in memory
+   */
+  public long getSizeInBytes() {
+    return 32L + ( registers == null ? 16L + 8L * hashes.length : 16L + registers.length );
+  }
+
+  private void addToRegisters( long hash ) {
+    int index = (int) ( hash >>> ( 64 - precision ) );
+    // The rank of the remaining bits, a stop bit makes sure it never exceeds 64 - p + 1
+    long rest = ( hash << precision ) | ( 1L << ( precision - 1 ) );
+    byte rank = (byte) ( Long.numberOfLeadingZeros( rest ) + 1 );
+    if ( rank > registers[index] ) {
+      registers[index] = rank;
+    }
+  }
+
+  private void toRegisters() {
+    registers = new byte[1 << precision];
+    for ( long hash : hashes ) {
+      if ( hash != 0L ) {
+        addToRegisters( hash );
+      }
+    }
+    hashes = null;
+    nrHashes = 0;
+  }
+
+  private void rehash( int capacity ) {
+    long[] old = hashes;
+    hashes = new long[capacity];
+    nrHashes = 0;
+    for ( long hash : old ) {
+      if ( hash != 0L ) {
+        addHash( hash );
+      }
+    }
+  }
+
+  private static double alpha( int m ) {
+    switch ( m ) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / ( 1.0 + 1.079 / m );
+    }
+  }
+
+  /**
+   * A 64-bit hash of a value. Values that are equal as aggregation keys hash the same, numbers of a different scale
+   * (1.0 and 1.00) for example.
+   */
+  public static long hash( Object value ) {
+    if ( value instanceof Long ) {
+      return mix( (Long) value );
+    }
+    if ( value instanceof Double ) {
+      double d = (Double) value;
+      return mix( Double.doubleToLongBits( d == 0.0 ? 0.0 : d ) ); // -0.0 == 0.0
+    }
+    if ( value instanceof String ) {
+      return hash( (String) value );
+    }
+    if ( value instanceof byte[] ) {
+      return hash( (byte[]) value );
+    }
+    if ( value instanceof BigDecimal ) {
+      BigDecimal decimal = (BigDecimal) value;
+      return decimal.signum() == 0 ? mix( 0L ) : hash( decimal.stripTrailingZeros().toString() );
+    }
+    if ( value instanceof Timestamp ) {
+      return mix( ( (Timestamp) value ).getTime() * 1000003L + ( (Timestamp) value ).getNanos() );
+    }
+    if ( value instanceof Date ) {
+      return mix( ( (Date) value ).getTime() );
+    }
+    return mix( value.hashCode() );
+  }
+
+  private static long hash( String value ) {
+    long h = 0xCBF29CE484222325L;
+    for ( int i = 0; i < value.length(); i++ ) {
+      h = ( h ^ value.charAt( i ) ) * 0x100000001B3L;
+    }
+    return mix( h ^ value.length() );
+  }
+
+  private static long hash( byte[] value ) {
+    return hash( new String( value, StandardCharsets.ISO_8859_1 ) );
+  }
+
+  /**
+   * The finalizer of SplitMix64: spreads the bits of a value over the whole hash.
+   */
+  private static long mix( long z ) {
+    z = ( z ^ ( z >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+    z = ( z ^ ( z >>> 27 ) ) * 0x94D049BB133111EBL;
+    return z ^ ( z >>> 31 );
+  }
+}
@@ -0,0 +1,83 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lets threads block until a lifecycle state (started, paused, resumed, stopped, ...) changes instead of polling it
+ * with sleeps. Whoever changes the state calls {@link #signalAll()}, waiting threads then re-evaluate their condition.
+ * <p>
+ * Waiters also re-check their condition every {@link #MAX_WAIT_MILLIS} ms, so a state change that doesn't signal
+ * (state shared or replaced from the outside) still gets noticed.
+ */
+public class LifecycleSignal {
+
+  /**
+   * The longest a waiting thread blocks before it re-checks its condition without having been signalled.
+   */
+  public static final long MAX_WAIT_MILLIS = 100L;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition stateChanged = lock.newCondition();
+
+  /**
+   * Wake up all the threads waiting on this signal, to be called after changing the state they wait on.
+   */
+  public void signalAll() {
+    lock.lock();
+    try {
+      stateChanged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Block until the condition is met.
+   *
+   * @param condition
+   *          the state to wait for
+   * @throws InterruptedException
+   *           in case the waiting thread is interrupted
+   */
+  public void awaitUntil( BooleanSupplier condition ) throws InterruptedException {
+    if ( condition.getAsBoolean() ) {
+      return;
+    }
+    lock.lock();
+    try {
+      // The state is changed outside of the lock, but signalled under it: re-checking while holding the lock before
+      // waiting means we can't miss a signal.
+      //
+      while ( !condition.getAsBoolean() ) {
+        stateChanged.await( MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS );
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}
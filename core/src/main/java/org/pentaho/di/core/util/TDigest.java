@@ -0,0 +1,259 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Estimates quantiles (median, percentiles) of a stream of numbers in a bounded amount of memory (a merging t-digest).
+ * <p>
+ * The values are summarized by centroids: a mean and the number of values it stands for. Centroids near the tails
+ * represent few values and those in the middle many, so extreme quantiles stay accurate. The compression bounds the
+ * number of centroids to about 1.6 times its value, 100 gives an error well below 1% of the rank for most quantiles.
+ * A digest of a few dozen values keeps every value as a centroid of its own.
+ * <p>
+ * Digests of the same compression can be merged, the result summarizes all the values added to either one.
+ */
+public class TDigest {
+
+  public static final double MIN_COMPRESSION = 10.0;
+  public static final double DEFAULT_COMPRESSION = 100.0;
+
+  private static final int INITIAL_BUFFER_SIZE = 16;
+
+  private final double compression;
+  private final int maxBufferSize;
+
+  /** The centroids sorted by mean */
+  private double[] means;
+  private double[] weights;
+  private int nrCentroids;
+
+  /** The values added since the last compression */
+  private double[] buffer;
+  private int nrBuffered;
+
+  private double totalWeight;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /**
+   * @param compression
+   *          the accuracy of the digest, at least {@link #MIN_COMPRESSION}
+   */
+  public TDigest( double compression ) {
+    if ( !( compression >= MIN_COMPRESSION ) ) {
+      throw new IllegalArgumentException( "The compression needs to be at least " + MIN_COMPRESSION + ": "
+        + compression );
+    }
+    this.compression = compression;
+    this.maxBufferSize = (int) Math.ceil( 5 * compression );
+    this.means = new double[0];
+    this.weights = new double[0];
+    this.buffer = new double[INITIAL_BUFFER_SIZE];
+  }
+
+  public double getCompression() {
+    return compression;
+  }
+
+  /**
+   * @return the number of values added
+   */
+  public long size() {
+    return (long) ( totalWeight + nrBuffered );
+  }
+
+  /**
+   * Add a value, NaN is ignored.
+   */
+  public void add( double value ) {
+    if ( Double.isNaN( value ) ) {
+      return;
+    }
+    if ( nrBuffered == buffer.length ) {
+      if ( buffer.length < maxBufferSize ) {
+        buffer = Arrays.copyOf( buffer, Math.min( maxBufferSize, buffer.length * 2 ) );
+      } else {
+        compress();
+      }
+    }
+    buffer[nrBuffered++] = value;
+    if ( value < min ) {
+      min = value;
+    }
+    if ( value > max ) {
+      max = value;
+    }
+  }
+
+  /**
+   * Add the values summarized by another digest to this one, the other digest is compressed but otherwise left as-is.
+   */
+  public void merge( TDigest other ) {
+    if ( other.size() == 0 ) {
+      return;
+    }
+    compress();
+    other.compress();
+
+    // Merge the two sorted lists of centroids, then compress the result
+    //
+    int n = nrCentroids + other.nrCentroids;
+    double[] mergedMeans = new double[n];
+    double[] mergedWeights = new double[n];
+    int i = 0;
+    int j = 0;
+    for ( int k = 0; k < n; k++ ) {
+      if ( j >= other.nrCentroids || ( i < nrCentroids && means[i] <= other.means[j] ) ) {
+        mergedMeans[k] = means[i];
+        mergedWeights[k] = weights[i++];
+      } else {
+        mergedMeans[k] = other.means[j];
+        mergedWeights[k] = other.weights[j++];
+      }
+    }
+    totalWeight += other.totalWeight;
+    min = Math.min( min, other.min );
+    max = Math.max( max, other.max );
+    mergeCentroids( mergedMeans, mergedWeights, n );
+  }
+
+  /**
+   * @param q
+   *          the quantile, between 0 and 1
+   * @return the estimated value at quantile q, NaN if no values were added
+   */
+  public double quantile( double q ) {
+    if ( q < 0.0 || q > 1.0 ) {
+      throw new IllegalArgumentException( "The quantile needs to be between 0 and 1: " + q );
+    }
+    compress();
+    if ( nrCentroids == 0 ) {
+      return Double.NaN;
+    }
+    if ( nrCentroids == 1 ) {
+      return means[0];
+    }
+
+    // The values of a centroid are spread around its mean: interpolate between the centers of the centroids, and
+    // between the minimum (maximum) and the center of the first (last) one.
+    //
+    double index = q * totalWeight;
+    double center = weights[0] / 2;
+    if ( index <= center ) {
+      return interpolate( index, 0.0, min, center, means[0] );
+    }
+    double weightSoFar = 0.0;
+    for ( int i = 0; i < nrCentroids - 1; i++ ) {
+      double nextCenter = weightSoFar + weights[i] + weights[i + 1] / 2;
+      if ( index <= nextCenter ) {
+        return interpolate( index, center, means[i], nextCenter, means[i + 1] );
+      }
+      weightSoFar += weights[i];
+      center = nextCenter;
+    }
+    return interpolate( index, center, means[nrCentroids - 1], totalWeight, max );
+  }
+
+  /**
+   * @return the estimated number of bytes this digest takes up in memory
+   */
+  public long getSizeInBytes() {
+    return 80L + 8L * ( means.length + weights.length + buffer.length );
+  }
+
+  private static double interpolate( double x, double x0, double y0, double x1, double y1 ) {
+    if ( x1 <= x0 ) {
+      return y0;
+    }
+    return y0 + ( y1 - y0 ) * ( x - x0 ) / ( x1 - x0 );
+  }
+
+  /**
+   * Merge the buffered values into the centroids.
+   */
+  private void compress() {
+    if ( nrBuffered == 0 ) {
+      return;
+    }
+    Arrays.sort( buffer, 0, nrBuffered );
+
+    int n = nrCentroids + nrBuffered;
+    double[] mergedMeans = new double[n];
+    double[] mergedWeights = new double[n];
+    int i = 0;
+    int j = 0;
+    for ( int k = 0; k < n; k++ ) {
+      if ( j >= nrBuffered || ( i < nrCentroids && means[i] <= buffer[j] ) ) {
+        mergedMeans[k] = means[i];
+        mergedWeights[k] = weights[i++];
+      } else {
+        mergedMeans[k] = buffer[j++];
+        mergedWeights[k] = 1.0;
+      }
+    }
+    totalWeight += nrBuffered;
+    nrBuffered = 0;
+    mergeCentroids( mergedMeans, mergedWeights, n );
+  }
+
+  /**
+   * Walk over the sorted centroids and merge neighbours as long as the merged centroid stays within the size the scale
+   * function allows at its quantile.
+   */
+  private void mergeCentroids( double[] sortedMeans, double[] sortedWeights, int n ) {
+    int count = 0;
+    double weightSoFar = 0.0;
+    double weightLimit = totalWeight * limit( 0.0 );
+    for ( int k = 1; k < n; k++ ) {
+      double proposed = sortedWeights[count] + sortedWeights[k];
+      if ( weightSoFar + proposed <= weightLimit ) {
+        sortedWeights[count] = proposed;
+        sortedMeans[count] += ( sortedMeans[k] - sortedMeans[count] ) * sortedWeights[k] / proposed;
+      } else {
+        weightSoFar += sortedWeights[count];
+        weightLimit = totalWeight * limit( weightSoFar / totalWeight );
+        count++;
+        sortedMeans[count] = sortedMeans[k];
+        sortedWeights[count] = sortedWeights[k];
+      }
+    }
+    nrCentroids = n == 0 ? 0 : count + 1;
+    means = Arrays.copyOf( sortedMeans, nrCentroids );
+    weights = Arrays.copyOf( sortedWeights, nrCentroids );
+  }
+
+  /**
+   * @return the highest quantile a centroid starting at quantile q may reach: the scale function k(q) = compression /
+   *         (2 pi) * asin(2q - 1) may grow by 1 at most within a centroid.
+   */
+  private double limit( double q ) {
+    double k = compression / ( 2 * Math.PI ) * Math.asin( 2 * Math.min( 1.0, q ) - 1 );
+    double nextK = k + 1;
+    if ( nextK >= compression / 4 ) {
+      return 1.0;
+    }
+    return ( Math.sin( nextK * 2 * Math.PI / compression ) + 1 ) / 2;
+  }
+}
@@ -0,0 +1,73 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads on Java runtimes that support them (Java 21 and up), without requiring such a runtime to
+ * compile or run Kettle. On older runtimes a regular platform thread is created instead.
+ */
+public class VirtualThreadUtil {
+
+  private static final Method OF_VIRTUAL = findMethod( Thread.class, "ofVirtual" );
+  private static final Method UNSTARTED = OF_VIRTUAL == null ? null : findMethod( OF_VIRTUAL.getReturnType(),
+    "unstarted", Runnable.class );
+
+  private VirtualThreadUtil() {
+  }
+
+  /**
+   * @return true if the running JVM can create virtual threads
+   */
+  public static boolean isSupported() {
+    return UNSTARTED != null;
+  }
+
+  /**
+   * Create a new, not yet started, virtual thread for the runnable. Falls back to a platform thread if the running JVM
+   * doesn't support virtual threads.
+   *
+   * @param runnable
+   *          the code to run in the thread
+   * @return the new unstarted thread
+   */
+  public static Thread newThread( Runnable runnable ) {
+    if ( isSupported() ) {
+      try {
+        return (Thread) UNSTARTED.invoke( OF_VIRTUAL.invoke( null ), runnable );
+      } catch ( ReflectiveOperationException e ) {
+        // Not expected once the methods were found, fall back to a platform thread
+      }
+    }
+    return new Thread( runnable );
+  }
+
+  private static Method findMethod( Class<?> clazz, String name, Class<?>... parameterTypes ) {
+    try {
+      return clazz.getMethod( name, parameterTypes );
+    } catch ( NoSuchMethodException | SecurityException e ) {
+      return null;
+    }
+  }
+}
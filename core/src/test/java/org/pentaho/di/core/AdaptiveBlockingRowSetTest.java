@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveBlockingRowSetTest {
+  Object[] row;
+  AdaptiveBlockingRowSet rowSet;
+
+  @Before
+  public void setup() {
+    rowSet = new AdaptiveBlockingRowSet( 3 );
+    row = new Object[] { "value", 1L };
+  }
+
+  @Test
+  public void testPutRowAndGetRow() throws Exception {
+    assertTrue( rowSet.putRow( new RowMeta(), row ) );
+    assertEquals( 1, rowSet.size() );
+    assertSame( row, rowSet.getRow() );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test
+  public void testCapacity() throws Exception {
+    assertEquals( 3, rowSet.getCapacity() );
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+    }
+    assertFalse( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+
+    rowSet.setCapacity( 4 );
+    assertEquals( 4, rowSet.getCapacity() );
+    assertTrue( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+
+    // Shrinking keeps the buffered rows, the producer waits until the consumer catches up
+    rowSet.setCapacity( 2 );
+    assertEquals( 4, rowSet.size() );
+    assertFalse( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+    rowSet.getRows( 3 );
+    assertTrue( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testPutRowsAndGetRows() throws Exception {
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L }, { 4L } };
+    assertEquals( 3, rowSet.putRows( new RowMeta(), rows, 0, 4 ) );
+
+    Object[][] block = rowSet.getRows( 2 );
+    assertEquals( 2, block.length );
+    assertSame( rows[0], block[0] );
+    assertSame( rows[1], block[1] );
+
+    assertEquals( 1, rowSet.putRows( new RowMeta(), rows, 3, 1 ) );
+    block = rowSet.getRowsImmediate( 10 );
+    assertEquals( 2, block.length );
+    assertSame( rows[2], block[0] );
+    assertSame( rows[3], block[1] );
+    assertNull( rowSet.getRowsImmediate( 10 ) );
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    AdaptiveBlockingRowSet.Statistics statistics = rowSet.getStatistics();
+    assertEquals( 0L, statistics.getRowsPut() );
+    assertEquals( 0L, statistics.getAverageRowBytes() );
+
+    for ( int i = 0; i < 3; i++ ) {
+      rowSet.putRow( new RowMeta(), row );
+    }
+    assertFalse( rowSet.putRowWait( new RowMeta(), row, 20, TimeUnit.MILLISECONDS ) );
+    rowSet.clear();
+    assertNull( rowSet.getRowWait( 20, TimeUnit.MILLISECONDS ) );
+
+    statistics = rowSet.getStatistics();
+    assertEquals( 3L, statistics.getRowsPut() );
+    assertTrue( statistics.getAverageRowBytes() > 0L );
+    assertTrue( statistics.getPutWaitNanos() >= TimeUnit.MILLISECONDS.toNanos( 20 ) );
+    assertTrue( statistics.getGetWaitNanos() >= TimeUnit.MILLISECONDS.toNanos( 20 ) );
+  }
+
+  @Test
+  public void testDoneWakesUpWaitingConsumer() throws Exception {
+    Thread producer = new Thread( () -> {
+      try {
+        Thread.sleep( 50 );
+      } catch ( InterruptedException e ) {
+        // ignore
+      }
+      rowSet.setDone();
+    } );
+    producer.start();
+    long start = System.nanoTime();
+    assertNull( rowSet.getRowWait( 10, TimeUnit.SECONDS ) );
+    assertTrue( TimeUnit.NANOSECONDS.toSeconds( System.nanoTime() - start ) < 5 );
+    producer.join();
+  }
+}
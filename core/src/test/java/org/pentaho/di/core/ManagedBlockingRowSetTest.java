@@ -0,0 +1,83 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+public class ManagedBlockingRowSetTest {
+
+  @Test
+  public void behavesLikeBlockingRowSetOutsideOfAPool() throws Exception {
+    ManagedBlockingRowSet rowSet = new ManagedBlockingRowSet( 1 );
+    Object[] row = new Object[] { 1L };
+    assertTrue( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+    assertTrue( !rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+    assertSame( row, rowSet.getRowWait( 10, TimeUnit.MILLISECONDS ) );
+    assertNull( rowSet.getRowWait( 10, TimeUnit.MILLISECONDS ) );
+  }
+
+  /**
+   * With a single worker thread a producer blocking on a full row set would never let the consumer run, unless the
+   * pool compensates for the blocked worker.
+   */
+  @Test
+  public void blockedWorkerDoesNotStarveThePool() throws Exception {
+    final int nrRows = 1000;
+    final ManagedBlockingRowSet rowSet = new ManagedBlockingRowSet( 1 );
+    ForkJoinPool pool = new ForkJoinPool( 1 );
+    try {
+      Future<?> producer = pool.submit( () -> {
+        for ( long i = 0; i < nrRows; i++ ) {
+          while ( !rowSet.putRowWait( new RowMeta(), new Object[] { i }, 100, TimeUnit.MILLISECONDS ) ) {
+            // retry until the consumer made room
+          }
+        }
+        rowSet.setDone();
+      } );
+      Future<Long> consumer = pool.submit( () -> {
+        long count = 0;
+        while ( !rowSet.isDone() || rowSet.size() > 0 ) {
+          Object[] row = rowSet.getRowWait( 100, TimeUnit.MILLISECONDS );
+          if ( row != null ) {
+            assertEquals( count++, row[0] );
+          }
+        }
+        return count;
+      } );
+      producer.get( 30, TimeUnit.SECONDS );
+      assertEquals( nrRows, consumer.get( 30, TimeUnit.SECONDS ).longValue() );
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RingBufferRowSetTest {
+  Object[] row;
+  RingBufferRowSet rowSet;
+
+  @Before
+  public void setup() {
+    rowSet = new RingBufferRowSet( 3 );
+    row = new Object[]{};
+  }
+
+  @Test
+  public void testPutRow() throws Exception {
+    assertTrue( rowSet.putRow( new RowMeta(), row ) );
+    assertSame( row, rowSet.getRow() );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test
+  public void testPutRowWait() throws Exception {
+    rowSet.putRowWait( new RowMeta(), row, 1, TimeUnit.SECONDS );
+    assertSame( row, rowSet.getRowWait( 1, TimeUnit.SECONDS ) );
+  }
+
+  @Test
+  public void testCapacityIsNotRoundedUp() throws Exception {
+    assertEquals( 3, rowSet.getCapacity() );
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+    }
+    assertFalse( rowSet.putRowWait( new RowMeta(), row, 10, TimeUnit.MILLISECONDS ) );
+    assertEquals( 3, rowSet.size() );
+  }
+
+  @Test
+  public void testPutRowsAndGetRows() throws Exception {
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L }, { 4L } };
+    assertEquals( 3, rowSet.putRows( new RowMeta(), rows, 0, 4 ) );
+    assertEquals( 0, rowSet.putRows( new RowMeta(), rows, 3, 1 ) );
+
+    Object[][] block = rowSet.getRows( 2 );
+    assertEquals( 2, block.length );
+    assertSame( rows[0], block[0] );
+    assertSame( rows[1], block[1] );
+
+    assertEquals( 1, rowSet.putRows( new RowMeta(), rows, 3, 1 ) );
+    block = rowSet.getRowsImmediate( 10 );
+    assertEquals( 2, block.length );
+    assertSame( rows[2], block[0] );
+    assertSame( rows[3], block[1] );
+    assertNull( rowSet.getRowsImmediate( 10 ) );
+  }
+
+  @Test
+  public void testSizeAndClear() throws Exception {
+    assertEquals( 0, rowSet.size() );
+    rowSet.putRow( new RowMeta(), row );
+    assertEquals( 1, rowSet.size() );
+    rowSet.putRow( new RowMeta(), row );
+    assertEquals( 2, rowSet.size() );
+    rowSet.setDone();
+    rowSet.clear();
+    assertEquals( 0, rowSet.size() );
+    assertFalse( rowSet.isDone() );
+  }
+
+  @Test
+  public void testDoneWakesUpWaitingConsumer() throws Exception {
+    Thread producer = new Thread( () -> {
+      try {
+        Thread.sleep( 50 );
+      } catch ( InterruptedException e ) {
+        // ignore
+      }
+      rowSet.setDone();
+    } );
+    producer.start();
+    long start = System.nanoTime();
+    assertNull( rowSet.getRowWait( 10, TimeUnit.SECONDS ) );
+    assertTrue( TimeUnit.NANOSECONDS.toSeconds( System.nanoTime() - start ) < 5 );
+    producer.join();
+  }
+
+  @Test
+  public void testRowsArriveInOrderAcrossThreads() throws Exception {
+    final int nrRows = 100000;
+    final RowMeta rowMeta = new RowMeta();
+
+    Thread producer = new Thread( () -> {
+      for ( long i = 0; i < nrRows; i++ ) {
+        Object[] r = new Object[] { i };
+        while ( !rowSet.putRow( rowMeta, r ) ) {
+          // keep trying until the consumer catches up
+        }
+      }
+      rowSet.setDone();
+    } );
+    producer.start();
+
+    long expected = 0;
+    Object[] r = rowSet.getRow();
+    while ( r != null || !rowSet.isDone() || rowSet.size() > 0 ) {
+      if ( r != null ) {
+        assertEquals( expected++, r[0] );
+      }
+      r = rowSet.getRow();
+    }
+    producer.join();
+    assertEquals( nrRows, expected );
+  }
+}
@@ -31,7 +31,9 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.junit.rules.RestorePDIEnvironment;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -67,6 +69,31 @@ public class RowSetTest {
     assertEquals( 0, set.size() );
   }
 
+  /**
+   * Block-oriented put and get.
+   */
+  @Test
+  public void testPutRowsAndGetRows() {
+    RowSet set = new BlockingRowSet( 3 );
+
+    RowMetaInterface rm = createRowMetaInterface();
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L }, { 4L } };
+
+    assertEquals( 3, set.putRows( rm, rows, 0, 4 ) );
+    assertEquals( 3, set.size() );
+
+    Object[][] block = set.getRows( 2 );
+    assertEquals( 2, block.length );
+    assertArrayEquals( rows[0], block[0] );
+    assertArrayEquals( rows[1], block[1] );
+
+    assertEquals( 1, set.putRows( rm, rows, 3, 1 ) );
+    block = set.getRowsImmediate( 10 );
+    assertEquals( 2, block.length );
+    assertArrayEquals( rows[3], block[1] );
+    assertNull( set.getRowsImmediate( 10 ) );
+  }
+
   /**
    * Functionality test.
    */
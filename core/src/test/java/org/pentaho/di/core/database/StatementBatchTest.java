@@ -0,0 +1,124 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.pentaho.di.core.exception.KettleDatabaseBatchException;
+
+public class StatementBatchTest {
+
+  private Database db;
+  private PreparedStatement insert;
+  private PreparedStatement update;
+
+  @Before
+  public void setUp() {
+    db = mock( Database.class );
+    insert = mock( PreparedStatement.class );
+    update = mock( PreparedStatement.class );
+  }
+
+  @Test
+  public void testSendsFullBatch() throws Exception {
+    StatementBatch batch = new StatementBatch( db, 3, 0 );
+    assertFalse( batch.add( insert ) );
+    assertFalse( batch.add( update ) );
+    assertEquals( 2, batch.size() );
+    assertTrue( batch.add( insert ) );
+    assertEquals( 0, batch.size() );
+
+    verify( insert, times( 2 ) ).addBatch();
+    InOrder inOrder = inOrder( insert, update );
+    inOrder.verify( insert ).executeBatch();
+    inOrder.verify( update ).executeBatch();
+    verify( db, never() ).commit();
+
+    // Only the statements with rows are sent
+    batch.add( update );
+    batch.execute( false );
+    verify( insert, times( 1 ) ).executeBatch();
+    verify( update, times( 2 ) ).executeBatch();
+    verify( db, never() ).commit();
+  }
+
+  @Test
+  public void testCommitsAfterCommitSize() throws Exception {
+    StatementBatch batch = new StatementBatch( db, 2, 5 );
+    for ( int i = 0; i < 4; i++ ) {
+      batch.add( insert );
+    }
+    verify( insert, times( 2 ) ).executeBatch();
+    verify( db, never() ).commit();
+
+    // The batch that reaches the commit size is committed
+    batch.add( insert );
+    batch.add( update );
+    InOrder inOrder = inOrder( insert, update, db );
+    inOrder.verify( insert, times( 3 ) ).executeBatch();
+    inOrder.verify( update ).executeBatch();
+    inOrder.verify( db ).commit();
+
+    for ( int i = 0; i < 4; i++ ) {
+      batch.add( insert );
+    }
+    verify( db, times( 1 ) ).commit();
+    batch.add( insert );
+    batch.add( insert );
+    verify( db, times( 2 ) ).commit();
+  }
+
+  @Test
+  public void testClear() throws Exception {
+    StatementBatch batch = new StatementBatch( db, 10, 0 );
+    batch.add( insert );
+    batch.clear();
+    assertEquals( 0, batch.size() );
+    verify( db ).clearBatch( insert );
+
+    batch.execute( true );
+    verify( insert, never() ).executeBatch();
+  }
+
+  @Test( expected = KettleDatabaseBatchException.class )
+  public void testBatchFailure() throws Exception {
+    when( insert.executeBatch() ).thenThrow( new BatchUpdateException() );
+    StatementBatch batch = new StatementBatch( db, 10, 0 );
+    batch.add( insert );
+    batch.execute( true );
+  }
+}
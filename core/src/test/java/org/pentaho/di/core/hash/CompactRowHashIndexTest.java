@@ -0,0 +1,140 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaInternetAddress;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class CompactRowHashIndexTest {
+
+  private static RowMetaInterface rowMeta( ValueMetaInterface... metas ) {
+    RowMeta rowMeta = new RowMeta();
+    for ( ValueMetaInterface meta : metas ) {
+      rowMeta.addValueMeta( meta );
+    }
+    return rowMeta;
+  }
+
+  @Test
+  public void testIntegerKeys() throws KettleValueException {
+    CompactRowHashIndex index =
+      new CompactRowHashIndex( rowMeta( new ValueMetaInteger( "id" ) ), rowMeta( new ValueMetaString( "name" ) ) );
+    for ( long i = 0; i < 10000; i++ ) {
+      index.put( new Object[] { i * 7 }, new Object[] { "name" + i } );
+    }
+    assertEquals( 10000, index.size() );
+    for ( long i = 0; i < 10000; i++ ) {
+      assertArrayEquals( new Object[] { "name" + i }, index.get( new Object[] { i * 7 } ) );
+    }
+    assertNull( index.get( new Object[] { 1L } ) );
+    assertNull( index.get( new Object[] { null } ) );
+
+    index.put( new Object[] { 14L }, new Object[] { "replaced" } );
+    index.put( new Object[] { null }, new Object[] { null } );
+    assertEquals( 10001, index.size() );
+    assertArrayEquals( new Object[] { "replaced" }, index.get( new Object[] { 14L } ) );
+    assertArrayEquals( new Object[] { null }, index.get( new Object[] { null } ) );
+  }
+
+  @Test
+  public void testStringKeys() throws KettleValueException {
+    CompactRowHashIndex index =
+      new CompactRowHashIndex( rowMeta( new ValueMetaString( "code" ) ), rowMeta( new ValueMetaInteger( "id" ) ) );
+    for ( long i = 0; i < 5000; i++ ) {
+      index.put( new Object[] { "code" + i }, new Object[] { i } );
+    }
+    index.put( new Object[] { "\u00dcn\u00efc\u00f8d\u00e9" }, new Object[] { -1L } );
+
+    assertEquals( 5001, index.size() );
+    for ( long i = 0; i < 5000; i++ ) {
+      assertArrayEquals( new Object[] { i }, index.get( new Object[] { "code" + i } ) );
+    }
+    assertArrayEquals( new Object[] { -1L }, index.get( new Object[] { "\u00dcn\u00efc\u00f8d\u00e9" } ) );
+    assertNull( index.get( new Object[] { "code5000" } ) );
+    assertNull( index.get( new Object[] { "Unicode" } ) );
+    assertNull( index.get( new Object[] { null } ) );
+  }
+
+  @Test
+  public void testMultiColumnKeys() throws KettleValueException {
+    CompactRowHashIndex index =
+      new CompactRowHashIndex( rowMeta( new ValueMetaString( "code" ), new ValueMetaBigNumber( "amount" ),
+        new ValueMetaDate( "date" ) ), rowMeta( new ValueMetaString( "name" ), new ValueMetaInteger( "id" ) ) );
+
+    index.put( new Object[] { "A", new BigDecimal( "1.0" ), new Date( 1000L ) }, new Object[] { "one", 1L } );
+    index.put( new Object[] { "A", null, new Date( 1000L ) }, new Object[] { "null", 2L } );
+    index.put( new Object[] { "B", BigDecimal.ZERO, new Date( 1000L ) }, new Object[] { "zero", 3L } );
+
+    assertEquals( 3, index.size() );
+    // Numbers of a different scale are equal
+    assertArrayEquals( new Object[] { "one", 1L },
+      index.get( new Object[] { "A", new BigDecimal( "1.00" ), new Date( 1000L ) } ) );
+    assertArrayEquals( new Object[] { "null", 2L }, index.get( new Object[] { "A", null, new Date( 1000L ) } ) );
+    assertArrayEquals( new Object[] { "zero", 3L },
+      index.get( new Object[] { "B", new BigDecimal( "0.000" ), new Date( 1000L ) } ) );
+    assertNull( index.get( new Object[] { "A", new BigDecimal( "1.0" ), new Date( 1001L ) } ) );
+    assertNull( index.get( new Object[] { "B", null, new Date( 1000L ) } ) );
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertTrue( CompactRowHashIndex.isSupported( rowMeta( new ValueMetaString( "code" ),
+      new ValueMetaInteger( "id" ) ) ) );
+
+    ValueMetaString caseInsensitive = new ValueMetaString( "code" );
+    caseInsensitive.setCaseInsensitive( true );
+    assertFalse( CompactRowHashIndex.isSupported( rowMeta( caseInsensitive ) ) );
+    assertFalse( CompactRowHashIndex.isSupported( rowMeta( new ValueMetaInternetAddress( "ip" ) ) ) );
+  }
+
+  @Test
+  public void testIsWholeNumberKey() {
+    ValueMetaBigNumber whole = new ValueMetaBigNumber( "whole" );
+    whole.setPrecision( 0 );
+    ValueMetaBigNumber fraction = new ValueMetaBigNumber( "fraction" );
+    fraction.setPrecision( 2 );
+
+    assertTrue( CompactRowHashIndex.isWholeNumberKey( rowMeta( new ValueMetaInteger( "id" ), whole ), 0 ) );
+    assertFalse( CompactRowHashIndex.isWholeNumberKey( rowMeta( new ValueMetaInteger( "id" ), fraction ), 0 ) );
+    assertFalse( CompactRowHashIndex.isWholeNumberKey( rowMeta( new ValueMetaString( "code" ) ), 0 ) );
+    // The fields before the first one are left out
+    assertTrue( CompactRowHashIndex.isWholeNumberKey( rowMeta( new ValueMetaString( "code" ), whole ), 1 ) );
+  }
+}
@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class FrozenRowMetaTest {
+
+  RowMetaInterface source;
+  FrozenRowMeta rowMeta;
+
+  @Before
+  public void setUp() throws Exception {
+    source = new RowMeta();
+    source.addValueMeta( new ValueMetaString( "name" ) );
+    source.addValueMeta( new ValueMetaInteger( "id" ) );
+    source.addValueMeta( new ValueMetaString( "City" ) );
+    rowMeta = new FrozenRowMeta( source );
+  }
+
+  @Test
+  public void testLookups() {
+    assertTrue( rowMeta.isFrozen() );
+    assertEquals( 3, rowMeta.size() );
+    assertFalse( rowMeta.isEmpty() );
+    assertSame( source.getValueMeta( 1 ), rowMeta.getValueMeta( 1 ) );
+    assertNull( rowMeta.getValueMeta( 3 ) );
+    assertEquals( 2, rowMeta.indexOfValue( "city" ) );
+    assertEquals( -1, rowMeta.indexOfValue( "country" ) );
+    assertEquals( -1, rowMeta.indexOfValue( null ) );
+    assertSame( source.getValueMeta( 0 ), rowMeta.searchValueMeta( "NAME" ) );
+    assertArrayEquals( new String[] { "name", "id", "City" }, rowMeta.getFieldNames() );
+  }
+
+  @Test
+  public void testSnapshotIsNotAffectedBySource() {
+    source.addValueMeta( new ValueMetaString( "country" ) );
+    assertEquals( 3, rowMeta.size() );
+    assertEquals( -1, rowMeta.indexOfValue( "country" ) );
+  }
+
+  @Test
+  public void testInPlaceRenameIsFound() {
+    rowMeta.getValueMeta( 0 ).setName( "firstname" );
+    assertTrue( rowMeta.isFrozen() );
+    assertEquals( 0, rowMeta.indexOfValue( "firstname" ) );
+    assertEquals( -1, rowMeta.indexOfValue( "name" ) );
+  }
+
+  @Test
+  public void testModificationThaws() throws Exception {
+    rowMeta.addValueMeta( new ValueMetaString( "country" ) );
+    assertFalse( rowMeta.isFrozen() );
+    assertEquals( 4, rowMeta.size() );
+    assertEquals( 3, rowMeta.indexOfValue( "country" ) );
+
+    rowMeta.removeValueMeta( "name" );
+    assertEquals( 3, rowMeta.size() );
+    assertEquals( 0, rowMeta.indexOfValue( "id" ) );
+    assertEquals( 3, rowMeta.getValueMetaList().size() );
+  }
+
+  @Test
+  public void testCloneIsMutable() {
+    RowMetaInterface clone = rowMeta.clone();
+    assertFalse( clone instanceof FrozenRowMeta );
+    clone.addValueMeta( new ValueMetaString( "country" ) );
+    assertEquals( 4, clone.size() );
+    assertEquals( 3, rowMeta.size() );
+    assertTrue( rowMeta.isFrozen() );
+  }
+
+  @Test
+  public void testRowOperations() throws Exception {
+    Object[] row1 = new Object[] { "a", 1L, "x" };
+    Object[] row2 = new Object[] { "a", 2L, "x" };
+
+    assertEquals( source.compare( row1, row2 ), rowMeta.compare( row1, row2 ) );
+    assertEquals( 0, rowMeta.compare( row1, row2, new int[] { 0, 2 } ) );
+    assertTrue( rowMeta.equals( row1, row2, new int[] { 0, 2 } ) );
+    assertFalse( rowMeta.equals( row1, row2, new int[] { 1 } ) );
+    assertEquals( source.oldXORHashCode( row1 ), rowMeta.oldXORHashCode( row1 ) );
+    assertEquals( source.getString( row1 ), rowMeta.getString( row1 ) );
+
+    Object[] clone = rowMeta.cloneRow( row1 );
+    assertNotSame( row1, clone );
+    assertArrayEquals( row1, clone );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    rowMeta.writeData( new DataOutputStream( out ), row1 );
+    Object[] read = source.readData( new DataInputStream( new ByteArrayInputStream( out.toByteArray() ) ) );
+    assertArrayEquals( row1, read );
+  }
+}
@@ -0,0 +1,134 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class RowBatchTest {
+
+  RowMetaInterface rowMeta;
+  Object[][] rows;
+  RowBatch batch;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "a" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "b" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "c" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "d" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "e" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "f" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "result" ) );
+
+    rows = new Object[][] {
+      { 1L, 2L, 1.5, "x", new Date( 1000L ), true, null },
+      { 10L, null, null, "y", null, null, null },
+      { -3L, 4L, 0.25, "x", new Date( 2000L ), false, null },
+    };
+    batch = new RowBatch( rowMeta, rows, rows.length );
+  }
+
+  @Test
+  public void testColumnTypes() throws Exception {
+    assertTrue( batch.getColumn( 0 ) instanceof LongColumnVector );
+    assertTrue( batch.getColumn( 2 ) instanceof DoubleColumnVector );
+    assertTrue( batch.getColumn( 3 ) instanceof StringColumnVector );
+    assertTrue( batch.getColumn( 4 ) instanceof DateColumnVector );
+    assertTrue( batch.getColumn( 5 ) instanceof ObjectColumnVector );
+    assertSame( batch.getColumn( 0 ), batch.getColumn( 0 ) );
+  }
+
+  @Test
+  public void testNulls() throws Exception {
+    ColumnVector column = batch.getColumn( 1 );
+    assertEquals( 1, column.getNullCount() );
+    assertFalse( column.isNull( 0 ) );
+    assertTrue( column.isNull( 1 ) );
+    assertNull( column.getObject( 1 ) );
+    assertEquals( 4L, column.getObject( 2 ) );
+    assertNull( batch.getColumn( 4 ).getObject( 1 ) );
+    assertEquals( new Date( 2000L ), batch.getColumn( 4 ).getObject( 2 ) );
+  }
+
+  @Test
+  public void testDictionary() throws Exception {
+    StringColumnVector column = (StringColumnVector) batch.getColumn( 3 );
+    assertEquals( 2, column.getDictionary().size() );
+    assertEquals( column.getCode( 0 ), column.getCode( 2 ) );
+    assertEquals( "y", column.getString( 1 ) );
+  }
+
+  @Test
+  public void testArithmetic() throws Exception {
+    LongColumnVector a = (LongColumnVector) batch.getColumn( 0 );
+    LongColumnVector b = (LongColumnVector) batch.getColumn( 1 );
+
+    LongColumnVector sum = a.add( b );
+    assertEquals( 3L, sum.getObject( 0 ) );
+    assertNull( sum.getObject( 1 ) );
+    assertEquals( 1L, sum.getObject( 2 ) );
+    assertEquals( -12L, a.multiply( b ).getObject( 2 ) );
+    assertEquals( -1L, a.subtract( b ).getObject( 0 ) );
+    assertEquals( 0L, a.divide( b ).getObject( 2 ) ); // the null in b must not be divided by
+
+    DoubleColumnVector c = (DoubleColumnVector) batch.getColumn( 2 );
+    DoubleColumnVector quotient = c.divide( c );
+    assertEquals( 1.0, quotient.getObject( 0 ) );
+    assertNull( quotient.getObject( 1 ) );
+  }
+
+  @Test
+  public void testSetColumn() throws Exception {
+    LongColumnVector a = (LongColumnVector) batch.getColumn( 0 );
+    batch.setColumn( 6, a.add( a ) );
+    assertEquals( 2L, rows[ 0 ][ 6 ] );
+    assertEquals( 20L, rows[ 1 ][ 6 ] );
+    assertEquals( -6L, rows[ 2 ][ 6 ] );
+    assertEquals( -6L, ( (LongColumnVector) batch.getColumn( 6 ) ).get( 2 ) );
+  }
+
+  @Test
+  public void testRange() throws Exception {
+    ColumnVector column = ColumnVector.of( rowMeta.getValueMeta( 1 ), rows, 1, 3, 1 );
+    assertEquals( 2, column.size() );
+    assertTrue( column.isNull( 0 ) );
+    assertEquals( 4L, column.getObject( 1 ) );
+  }
+}
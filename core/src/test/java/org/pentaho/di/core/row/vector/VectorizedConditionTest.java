@@ -0,0 +1,118 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.vector;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaPluginType;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class VectorizedConditionTest {
+
+  RowMetaInterface rowMeta;
+  Object[][] rows;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    ValueMetaPluginType.getInstance().searchPlugins();
+  }
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+
+    rows = new Object[ 100 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] {
+        i % 10 == 0 ? null : Long.valueOf( i ),
+        i % 7 == 0 ? null : Double.valueOf( i / 4.0 ),
+        i % 9 == 0 ? null : "name" + ( i % 5 ),
+        i % 2 == 0,
+      };
+    }
+  }
+
+  @Test
+  public void testComparisons() throws Exception {
+    for ( int function = Condition.FUNC_EQUAL; function <= Condition.FUNC_LARGER_EQUAL; function++ ) {
+      assertSameAsRowByRow( new Condition( "id", function, null,
+        new ValueMetaAndData( new ValueMetaInteger( "c" ), 42L ) ) );
+      assertSameAsRowByRow( new Condition( "amount", function, null,
+        new ValueMetaAndData( new ValueMetaNumber( "c" ), 12.5 ) ) );
+      assertSameAsRowByRow( new Condition( "name", function, null,
+        new ValueMetaAndData( new ValueMetaString( "c" ), "name3" ) ) );
+    }
+  }
+
+  @Test
+  public void testNegatedAndOtherFunctions() throws Exception {
+    Condition condition = new Condition( true, "id", Condition.FUNC_LARGER, null,
+      new ValueMetaAndData( new ValueMetaInteger( "c" ), 42L ) );
+    assertSameAsRowByRow( condition );
+
+    assertSameAsRowByRow( new Condition( "name", Condition.FUNC_STARTS_WITH, null,
+      new ValueMetaAndData( new ValueMetaString( "c" ), "name1" ) ) );
+    assertSameAsRowByRow( new Condition( "name", Condition.FUNC_NULL, null, null ) );
+    assertSameAsRowByRow( new Condition( "id", Condition.FUNC_NOT_NULL, null, null ) );
+    assertSameAsRowByRow( new Condition( "id", Condition.FUNC_SMALLER, "amount", null ) );
+    assertSameAsRowByRow( new Condition( "flag", Condition.FUNC_EQUAL, null,
+      new ValueMetaAndData( new ValueMetaBoolean( "c" ), true ) ) );
+  }
+
+  @Test
+  public void testComposite() throws Exception {
+    Condition condition = new Condition();
+    condition.addCondition( new Condition( "id", Condition.FUNC_LARGER, null,
+      new ValueMetaAndData( new ValueMetaInteger( "c" ), 20L ) ) );
+    condition.addCondition( new Condition( Condition.OPERATOR_AND, "name", Condition.FUNC_NOT_EQUAL, null,
+      new ValueMetaAndData( new ValueMetaString( "c" ), "name2" ) ) );
+    condition.addCondition( new Condition( Condition.OPERATOR_OR, "amount", Condition.FUNC_SMALLER_EQUAL, null,
+      new ValueMetaAndData( new ValueMetaNumber( "c" ), 3.0 ) ) );
+    assertSameAsRowByRow( condition );
+
+    condition.negate();
+    assertSameAsRowByRow( condition );
+  }
+
+  private void assertSameAsRowByRow( Condition condition ) throws Exception {
+    boolean[] result = VectorizedCondition.evaluate( condition, new RowBatch( rowMeta, rows, rows.length ) );
+    for ( int i = 0; i < rows.length; i++ ) {
+      assertEquals( condition + " row " + i, condition.evaluate( rowMeta, rows[ i ] ), result[ i ] );
+    }
+  }
+}
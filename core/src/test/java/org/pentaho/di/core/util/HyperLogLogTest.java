@@ -0,0 +1,92 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core.util;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HyperLogLogTest {
+
+  @Test
+  public void testSmallSetsAreCountedExactly() {
+    HyperLogLog hll = new HyperLogLog( HyperLogLog.DEFAULT_PRECISION );
+    assertEquals( 0L, hll.cardinality() );
+    for ( int i = 0; i < 3; i++ ) {
+      for ( long v = 0; v < 500; v++ ) {
+        hll.add( v );
+        hll.add( "value " + v );
+      }
+    }
+    hll.add( null );
+    assertEquals( 1000L, hll.cardinality() );
+  }
+
+  @Test
+  public void testLargeSetsAreEstimatedWithinTheError() {
+    for ( int precision : new int[] { 10, 14 } ) {
+      HyperLogLog hll = new HyperLogLog( precision );
+      int n = 500000;
+      for ( long v = 0; v < n; v++ ) {
+        hll.add( v * 31 );
+        hll.add( v * 31 );
+      }
+      double error = 1.04 / Math.sqrt( 1 << precision );
+      assertEquals( n, hll.cardinality(), n * 4 * error );
+      assertTrue( hll.getSizeInBytes() < ( 1 << precision ) + 64 );
+    }
+  }
+
+  @Test
+  public void testMergeEqualsAddingAll() {
+    Random random = new Random( 42 );
+    for ( int split : new int[] { 10, 1000, 100000 } ) {
+      HyperLogLog all = new HyperLogLog( 12 );
+      HyperLogLog left = new HyperLogLog( 12 );
+      HyperLogLog right = new HyperLogLog( 12 );
+      for ( int i = 0; i < 200000; i++ ) {
+        long v = random.nextInt( 150000 );
+        all.add( v );
+        ( i < split ? left : right ).add( v );
+      }
+      left.merge( right );
+      assertEquals( all.cardinality(), left.cardinality() );
+    }
+  }
+
+  @Test
+  public void testEqualNumbersHashTheSame() {
+    assertEquals( HyperLogLog.hash( new BigDecimal( "1.0" ) ), HyperLogLog.hash( new BigDecimal( "1.00" ) ) );
+    assertEquals( HyperLogLog.hash( 0.0 ), HyperLogLog.hash( -0.0 ) );
+    assertNotEquals( HyperLogLog.hash( 1L ), HyperLogLog.hash( 2L ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testMergeOfDifferentPrecisionsFails() {
+    new HyperLogLog( 10 ).merge( new HyperLogLog( 12 ) );
+  }
+}
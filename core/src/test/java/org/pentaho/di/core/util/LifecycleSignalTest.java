@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class LifecycleSignalTest {
+
+  @Test
+  public void testAwaitReturnsImmediatelyWhenConditionHolds() throws Exception {
+    LifecycleSignal signal = new LifecycleSignal();
+    signal.awaitUntil( () -> true );
+  }
+
+  @Test
+  public void testSignalWakesUpWaitingThread() throws Exception {
+    LifecycleSignal signal = new LifecycleSignal();
+    AtomicBoolean running = new AtomicBoolean( false );
+    CountDownLatch started = new CountDownLatch( 1 );
+    CountDownLatch done = new CountDownLatch( 1 );
+
+    Thread waiter = new Thread( () -> {
+      started.countDown();
+      try {
+        signal.awaitUntil( running::get );
+        done.countDown();
+      } catch ( InterruptedException e ) {
+        // leave the latch alone, the test fails
+      }
+    } );
+    waiter.start();
+    started.await();
+
+    assertFalse( done.await( 20, TimeUnit.MILLISECONDS ) );
+    running.set( true );
+    signal.signalAll();
+    assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+    waiter.join();
+  }
+
+  @Test
+  public void testUnsignalledChangeIsNoticed() throws Exception {
+    LifecycleSignal signal = new LifecycleSignal();
+    AtomicBoolean running = new AtomicBoolean( false );
+    Thread changer = new Thread( () -> {
+      try {
+        Thread.sleep( 10 );
+      } catch ( InterruptedException e ) {
+        // ignore
+      }
+      running.set( true );
+    } );
+    changer.start();
+    signal.awaitUntil( running::get );
+    assertTrue( running.get() );
+    changer.join();
+  }
+
+  @Test( expected = InterruptedException.class )
+  public void testInterruptStopsWaiting() throws Exception {
+    LifecycleSignal signal = new LifecycleSignal();
+    Thread.currentThread().interrupt();
+    signal.awaitUntil( () -> false );
+  }
+}
@@ -0,0 +1,95 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TDigestTest {
+
+  @Test
+  public void testSmallDigestsInterpolateBetweenTheValues() {
+    TDigest digest = new TDigest( TDigest.DEFAULT_COMPRESSION );
+    assertTrue( Double.isNaN( digest.quantile( 0.5 ) ) );
+    digest.add( 7.0 );
+    assertEquals( 7.0, digest.quantile( 0.5 ), 0.0 );
+    for ( double v : new double[] { 3.0, 1.0, Double.NaN, 5.0 } ) {
+      digest.add( v );
+    }
+    assertEquals( 4L, digest.size() );
+    assertEquals( 4.0, digest.quantile( 0.5 ), 1e-9 );
+    assertEquals( 1.0, digest.quantile( 0.0 ), 0.0 );
+    assertEquals( 7.0, digest.quantile( 1.0 ), 0.0 );
+  }
+
+  @Test
+  public void testQuantilesOfLargeStreams() {
+    Random random = new Random( 7 );
+    int n = 1000000;
+    double[] values = new double[n];
+    TDigest digest = new TDigest( TDigest.DEFAULT_COMPRESSION );
+    for ( int i = 0; i < n; i++ ) {
+      values[i] = random.nextGaussian() * 10 + Math.exp( random.nextDouble() * 3 );
+      digest.add( values[i] );
+    }
+    Arrays.sort( values );
+    for ( double q : new double[] { 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999 } ) {
+      assertEquals( q, rank( values, digest.quantile( q ) ), 0.005 );
+    }
+    assertEquals( values[0], digest.quantile( 0.0 ), 0.0 );
+    assertEquals( values[n - 1], digest.quantile( 1.0 ), 0.0 );
+    assertTrue( digest.getSizeInBytes() < 16 * 1024 );
+  }
+
+  @Test
+  public void testMergedDigestsSummarizeAllValues() {
+    Random random = new Random( 3 );
+    int n = 200000;
+    double[] values = new double[n];
+    TDigest[] digests = new TDigest[4];
+    for ( int d = 0; d < digests.length; d++ ) {
+      digests[d] = new TDigest( 50 );
+    }
+    for ( int i = 0; i < n; i++ ) {
+      values[i] = random.nextDouble() * ( i % 4 + 1 );
+      digests[i % 4].add( values[i] );
+    }
+    for ( int d = 1; d < digests.length; d++ ) {
+      digests[0].merge( digests[d] );
+    }
+    Arrays.sort( values );
+    assertEquals( n, digests[0].size() );
+    for ( double q : new double[] { 0.05, 0.5, 0.95 } ) {
+      assertEquals( q, rank( values, digests[0].quantile( q ) ), 0.01 );
+    }
+  }
+
+  private static double rank( double[] sorted, double value ) {
+    int index = Arrays.binarySearch( sorted, value );
+    return ( index < 0 ? -index - 1 : index ) / (double) sorted.length;
+  }
+}
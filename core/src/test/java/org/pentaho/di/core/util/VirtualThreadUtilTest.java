@@ -0,0 +1,62 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class VirtualThreadUtilTest {
+
+  @Test
+  public void newThreadIsNotStarted() {
+    Thread thread = VirtualThreadUtil.newThread( () -> { } );
+    assertFalse( thread.isAlive() );
+    assertTrue( thread.getState() == Thread.State.NEW );
+  }
+
+  @Test
+  public void newThreadRunsTheRunnable() throws Exception {
+    AtomicBoolean ran = new AtomicBoolean();
+    Thread thread = VirtualThreadUtil.newThread( () -> ran.set( true ) );
+    thread.setName( "virtual thread test" );
+    thread.start();
+    thread.join();
+    assertTrue( ran.get() );
+  }
+
+  @Test
+  public void supportFollowsTheRuntime() {
+    boolean hasVirtualThreads;
+    try {
+      Thread.class.getMethod( "ofVirtual" );
+      hasVirtualThreads = true;
+    } catch ( NoSuchMethodException e ) {
+      hasVirtualThreads = false;
+    }
+    assertTrue( hasVirtualThreads == VirtualThreadUtil.isSupported() );
+  }
+}
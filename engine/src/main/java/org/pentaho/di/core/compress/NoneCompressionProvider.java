@@ -79,6 +79,11 @@ public class NoneCompressionProvider implements CompressionProvider {
       super( in, provider );
     }
 
+    @Override
+    public long skip( long n ) throws IOException {
+      return delegate.skip( n );
+    }
+
   }
 
   public static class NoneCompressionOutputStream extends CompressionOutputStream {
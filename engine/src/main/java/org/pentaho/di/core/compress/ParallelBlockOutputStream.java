@@ -0,0 +1,208 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.util.ExecutorUtil;
+
+/**
+ * An output stream that cuts the data in blocks and compresses the blocks on several threads. The compressed blocks
+ * are written in order, so a format that consists of independently compressed blocks comes out the same as when it's
+ * written on a single thread.
+ */
+public abstract class ParallelBlockOutputStream extends OutputStream {
+
+  private static class Block {
+    private final byte[] data;
+    private final Future<byte[]> compressed;
+
+    private Block( byte[] data, Future<byte[]> compressed ) {
+      this.data = data;
+      this.compressed = compressed;
+    }
+  }
+
+  protected final OutputStream out;
+  private final int blockSize;
+  private final int threads;
+  private final ExecutorService executor;
+
+  private final Deque<Block> blocks = new ArrayDeque<>();
+  private final Deque<byte[]> free = new ArrayDeque<>();
+  private byte[] buffer;
+  private int count;
+  private boolean headerWritten;
+  private boolean closed;
+
+  /**
+   * @param out       the stream the compressed blocks are written to
+   * @param blockSize the maximum number of bytes compressed in one block
+   * @param threads   the number of blocks that are compressed at the same time
+   */
+  protected ParallelBlockOutputStream( OutputStream out, int blockSize, int threads ) {
+    this.out = out;
+    this.blockSize = blockSize;
+    this.threads = Math.max( threads, 1 );
+    this.executor = ExecutorUtil.getExecutor();
+  }
+
+  /**
+   * Writes whatever precedes the first block.
+   */
+  protected void writeHeader() throws IOException {
+    // Default no-op behavior
+  }
+
+  /**
+   * Compresses a block. This is called on a background thread, for several blocks at the same time.
+   *
+   * @return the block as it's written to the stream
+   */
+  protected abstract byte[] compressBlock( byte[] data, int length ) throws IOException;
+
+  /**
+   * Writes whatever follows the last block.
+   */
+  protected void writeTrailer() throws IOException {
+    // Default no-op behavior
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    if ( buffer == null ) {
+      buffer = acquire();
+    }
+    buffer[count++] = (byte) b;
+    if ( count == blockSize ) {
+      submit();
+    }
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    while ( len > 0 ) {
+      if ( buffer == null ) {
+        buffer = acquire();
+      }
+      int n = Math.min( len, blockSize - count );
+      System.arraycopy( b, off, buffer, count, n );
+      count += n;
+      off += n;
+      len -= n;
+      if ( count == blockSize ) {
+        submit();
+      }
+    }
+  }
+
+  /**
+   * Compresses the buffered data as a block of its own and writes all blocks to the stream.
+   */
+  @Override
+  public void flush() throws IOException {
+    submit();
+    while ( !blocks.isEmpty() ) {
+      writeBlock();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    try {
+      submit();
+      while ( !blocks.isEmpty() ) {
+        writeBlock();
+      }
+      if ( !headerWritten ) {
+        headerWritten = true;
+        writeHeader();
+      }
+      writeTrailer();
+    } finally {
+      for ( Block block : blocks ) {
+        block.compressed.cancel( true );
+      }
+      blocks.clear();
+      out.close();
+    }
+  }
+
+  private byte[] acquire() throws IOException {
+    if ( closed ) {
+      throw new IOException( "Stream closed" );
+    }
+    return free.isEmpty() ? new byte[blockSize] : free.pop();
+  }
+
+  private void submit() throws IOException {
+    if ( buffer == null || count == 0 ) {
+      return;
+    }
+    final byte[] data = buffer;
+    final int length = count;
+    buffer = null;
+    count = 0;
+
+    blocks.add( new Block( data, executor.submit( () -> compressBlock( data, length ) ) ) );
+    while ( blocks.size() > threads ) {
+      writeBlock();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    Block block = blocks.peek();
+    byte[] compressed;
+    try {
+      compressed = block.compressed.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while compressing a block" );
+    } catch ( ExecutionException e ) {
+      Throwable cause = e.getCause();
+      if ( cause instanceof IOException ) {
+        throw (IOException) cause;
+      }
+      throw new IOException( "Error compressing a block : " + cause.toString(), cause );
+    }
+    blocks.poll();
+    if ( !headerWritten ) {
+      headerWritten = true;
+      writeHeader();
+    }
+    out.write( compressed );
+    free.push( block.data );
+  }
+}
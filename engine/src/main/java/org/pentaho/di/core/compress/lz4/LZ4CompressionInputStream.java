@@ -0,0 +1,58 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.lz4;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+public class LZ4CompressionInputStream extends CompressionInputStream {
+
+  public LZ4CompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( getDelegate( in ), provider );
+  }
+
+  protected static LZ4FrameInputStream getDelegate( InputStream in ) throws IOException {
+    LZ4FrameInputStream delegate;
+    if ( in instanceof LZ4FrameInputStream ) {
+      delegate = (LZ4FrameInputStream) in;
+    } else {
+      delegate = new LZ4FrameInputStream( in );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ( (LZ4FrameInputStream) delegate ).close();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return ( (LZ4FrameInputStream) delegate ).read();
+  }
+}
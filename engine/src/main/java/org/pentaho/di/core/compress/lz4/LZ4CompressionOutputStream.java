@@ -0,0 +1,58 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.lz4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+public class LZ4CompressionOutputStream extends CompressionOutputStream {
+
+  public LZ4CompressionOutputStream( OutputStream out, CompressionProvider provider ) throws IOException {
+    this( out, provider, 1 );
+  }
+
+  /**
+   * @param threads above 1 the blocks of the frame are compressed on this number of threads
+   */
+  public LZ4CompressionOutputStream( OutputStream out, CompressionProvider provider, int threads )
+    throws IOException {
+    super( getDelegate( out, threads ), provider );
+  }
+
+  protected static OutputStream getDelegate( OutputStream out, int threads ) throws IOException {
+    OutputStream delegate;
+    if ( out instanceof LZ4FrameOutputStream || out instanceof LZ4ParallelFrameOutputStream ) {
+      delegate = out;
+    } else if ( threads > 1 ) {
+      delegate = new LZ4ParallelFrameOutputStream( out, threads );
+    } else {
+      delegate = new LZ4FrameOutputStream( out );
+    }
+    return delegate;
+  }
+}
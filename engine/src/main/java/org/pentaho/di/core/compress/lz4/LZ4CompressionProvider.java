@@ -0,0 +1,73 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.lz4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.util.EnvUtil;
+
+public class LZ4CompressionProvider implements CompressionProvider {
+
+  @Override
+  public LZ4CompressionInputStream createInputStream( InputStream in ) throws IOException {
+    return new LZ4CompressionInputStream( in, this );
+  }
+
+  @Override
+  public boolean supportsInput() {
+    return true;
+  }
+
+  /**
+   * Creates a stream that compresses on the number of threads of KETTLE_COMPRESSION_THREADS.
+   */
+  @Override
+  public LZ4CompressionOutputStream createOutputStream( OutputStream out ) throws IOException {
+    int threads = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_COMPRESSION_THREADS ), 1 );
+    return new LZ4CompressionOutputStream( out, this, threads );
+  }
+
+  @Override
+  public boolean supportsOutput() {
+    return true;
+  }
+
+  @Override
+  public String getDescription() {
+    return "LZ4 frame compression";
+  }
+
+  @Override
+  public String getName() {
+    return "LZ4";
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return "lz4";
+  }
+}
@@ -0,0 +1,95 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.lz4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.pentaho.di.core.compress.ParallelBlockOutputStream;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
+
+/**
+ * Writes an LZ4 frame of independent 4 MB blocks, the same layout as the default LZ4FrameOutputStream, and compresses
+ * the blocks on several threads.
+ */
+public class LZ4ParallelFrameOutputStream extends ParallelBlockOutputStream {
+
+  static final int MAGIC = 0x184D2204;
+  static final int BLOCK_SIZE = 4 * 1024 * 1024;
+
+  /** Version 01 and independent blocks */
+  private static final byte FLG = 0x60;
+  /** A maximum block size of 4 MB */
+  private static final byte BD = 0x70;
+  /** The high bit of a block size that marks an uncompressed block */
+  private static final int UNCOMPRESSED = 0x80000000;
+
+  private static final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+  public LZ4ParallelFrameOutputStream( OutputStream out, int threads ) {
+    super( out, BLOCK_SIZE, threads );
+  }
+
+  @Override
+  protected void writeHeader() throws IOException {
+    byte[] header = new byte[7];
+    writeIntLE( header, 0, MAGIC );
+    header[4] = FLG;
+    header[5] = BD;
+    header[6] = (byte) ( ( XXHashFactory.fastestInstance().hash32().hash( header, 4, 2, 0 ) >> 8 ) & 0xFF );
+    out.write( header );
+  }
+
+  @Override
+  protected byte[] compressBlock( byte[] data, int length ) {
+    int maxLength = compressor.maxCompressedLength( length );
+    byte[] block = new byte[4 + maxLength];
+    int size = compressor.compress( data, 0, length, block, 4, maxLength );
+    if ( size >= length ) {
+      // Incompressible data is stored as it is
+      block = new byte[4 + length];
+      writeIntLE( block, 0, length | UNCOMPRESSED );
+      System.arraycopy( data, 0, block, 4, length );
+      return block;
+    }
+    writeIntLE( block, 0, size );
+    return Arrays.copyOf( block, 4 + size );
+  }
+
+  @Override
+  protected void writeTrailer() throws IOException {
+    // The end mark, a block of size 0
+    out.write( new byte[4] );
+  }
+
+  private static void writeIntLE( byte[] buffer, int offset, int value ) {
+    buffer[offset] = (byte) value;
+    buffer[offset + 1] = (byte) ( value >>> 8 );
+    buffer[offset + 2] = (byte) ( value >>> 16 );
+    buffer[offset + 3] = (byte) ( value >>> 24 );
+  }
+}
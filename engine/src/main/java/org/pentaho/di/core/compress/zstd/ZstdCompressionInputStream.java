@@ -0,0 +1,58 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+public class ZstdCompressionInputStream extends CompressionInputStream {
+
+  public ZstdCompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( getDelegate( in ), provider );
+  }
+
+  protected static ZstdInputStream getDelegate( InputStream in ) throws IOException {
+    ZstdInputStream delegate;
+    if ( in instanceof ZstdInputStream ) {
+      delegate = (ZstdInputStream) in;
+    } else {
+      delegate = new ZstdInputStream( in );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ( (ZstdInputStream) delegate ).close();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return ( (ZstdInputStream) delegate ).read();
+  }
+}
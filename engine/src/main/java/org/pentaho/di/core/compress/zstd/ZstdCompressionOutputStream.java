@@ -0,0 +1,65 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+public class ZstdCompressionOutputStream extends CompressionOutputStream {
+
+  public ZstdCompressionOutputStream( OutputStream out, CompressionProvider provider ) throws IOException {
+    this( out, provider, ZstdCompressionProvider.DEFAULT_LEVEL, 1 );
+  }
+
+  /**
+   * @param threads above 1 the native library compresses the stream on this number of worker threads
+   */
+  public ZstdCompressionOutputStream( OutputStream out, CompressionProvider provider, int level, int threads )
+    throws IOException {
+    super( getDelegate( out, level, threads ), provider );
+  }
+
+  protected static ZstdOutputStream getDelegate( OutputStream out, int level, int threads ) throws IOException {
+    ZstdOutputStream delegate;
+    if ( out instanceof ZstdOutputStream ) {
+      delegate = (ZstdOutputStream) out;
+    } else {
+      delegate = new ZstdOutputStream( out, level );
+      if ( threads > 1 ) {
+        delegate.setWorkers( threads );
+      }
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ZstdOutputStream zos = (ZstdOutputStream) delegate;
+    zos.close();
+  }
+}
@@ -0,0 +1,77 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.util.EnvUtil;
+
+public class ZstdCompressionProvider implements CompressionProvider {
+
+  public static final int DEFAULT_LEVEL = 3;
+
+  @Override
+  public ZstdCompressionInputStream createInputStream( InputStream in ) throws IOException {
+    return new ZstdCompressionInputStream( in, this );
+  }
+
+  @Override
+  public boolean supportsInput() {
+    return true;
+  }
+
+  /**
+   * Creates a stream that compresses at the level of KETTLE_ZSTD_COMPRESSION_LEVEL, on the number of threads of
+   * KETTLE_COMPRESSION_THREADS.
+   */
+  @Override
+  public ZstdCompressionOutputStream createOutputStream( OutputStream out ) throws IOException {
+    int level = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_ZSTD_COMPRESSION_LEVEL ), DEFAULT_LEVEL );
+    int threads = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_COMPRESSION_THREADS ), 1 );
+    return new ZstdCompressionOutputStream( out, this, level, threads );
+  }
+
+  @Override
+  public boolean supportsOutput() {
+    return true;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Zstandard compression";
+  }
+
+  @Override
+  public String getName() {
+    return "Zstd";
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return "zst";
+  }
+}
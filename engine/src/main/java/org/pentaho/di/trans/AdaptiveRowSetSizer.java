@@ -0,0 +1,224 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.AdaptiveBlockingRowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+/**
+ * Tunes the capacity of the row sets of a transformation to the traffic on each hop, while keeping the memory the
+ * buffered rows can take under a budget.
+ * <p>
+ * Every time {@link #resize(long)} is called the waits on each row set since the previous call and its current
+ * occupancy are inspected:
+ * <ul>
+ * <li>if both the producer waited for room and the consumer waited for rows, the traffic is bursty and the buffer is
+ * too small to smooth it out: the capacity is doubled;</li>
+ * <li>if only the producer waited and the buffer is full, the consumer is the bottleneck and the buffered rows only
+ * hold on to memory: the capacity is halved. This is also the case when the producer stayed blocked and no row at all
+ * got through;</li>
+ * <li>otherwise the capacity is fine as it is.</li>
+ * </ul>
+ * If the capacities times the average row sizes add up to more than the budget, all capacities are scaled down
+ * proportionally, to no less than {@link #MIN_CAPACITY}. If the row sets still take more than the budget, the hops
+ * with the largest rows are shrunk further, down to a single row. New row sets start out with no more than the
+ * budget that is left.
+ */
+public class AdaptiveRowSetSizer {
+
+  /**
+   * A side of a hop is considered to be waiting if it spent more than this fraction of the interval doing so.
+   */
+  static final double WAIT_THRESHOLD = 0.05;
+
+  /**
+   * How far a row set can grow beyond the row set size of the transformation.
+   */
+  static final int MAX_GROWTH = 16;
+
+  /**
+   * The smallest capacity a row set is shrunk to, a block of rows still fits in it.
+   */
+  static final int MIN_CAPACITY = 100;
+
+  private final LogChannelInterface log;
+  private final long memoryBudget;
+  private final int minCapacity;
+  private final int maxCapacity;
+  private final int initialCapacity;
+
+  private final List<AdaptiveBlockingRowSet> rowSets = new ArrayList<>();
+  private final Map<AdaptiveBlockingRowSet, AdaptiveBlockingRowSet.Statistics> previous = new IdentityHashMap<>();
+
+  private boolean overBudgetLogged;
+
+  /**
+   * @param log
+   *          the log channel of the transformation
+   * @param initialCapacity
+   *          the capacity row sets start out with, the row set size of the transformation
+   * @param memoryBudget
+   *          the maximum number of bytes all the buffered rows together may take
+   */
+  public AdaptiveRowSetSizer( LogChannelInterface log, int initialCapacity, long memoryBudget ) {
+    this.log = log;
+    this.initialCapacity = Math.max( 1, initialCapacity );
+    this.memoryBudget = memoryBudget;
+    this.minCapacity = Math.min( MIN_CAPACITY, this.initialCapacity );
+    this.maxCapacity = this.initialCapacity * MAX_GROWTH;
+  }
+
+  /**
+   * Create a new row set for a hop and start tuning it.
+   *
+   * @return the new row set
+   */
+  public synchronized AdaptiveBlockingRowSet newRowSet() {
+    // The rows of the new hop aren't known yet, assume they are as large as the largest ones so far
+    //
+    long usedBytes = 0L;
+    long maxRowBytes = 0L;
+    for ( AdaptiveBlockingRowSet rowSet : rowSets ) {
+      long rowBytes = rowSet.getStatistics().getAverageRowBytes();
+      usedBytes += rowSet.getCapacity() * rowBytes;
+      maxRowBytes = Math.max( maxRowBytes, rowBytes );
+    }
+    int capacity = initialCapacity;
+    if ( maxRowBytes > 0 ) {
+      long available = Math.max( 0L, memoryBudget - usedBytes ) / maxRowBytes;
+      capacity = (int) Math.max( minCapacity, Math.min( capacity, available ) );
+    }
+
+    AdaptiveBlockingRowSet rowSet = new AdaptiveBlockingRowSet( capacity );
+    rowSets.add( rowSet );
+    return rowSet;
+  }
+
+  /**
+   * @return the row sets that are being tuned
+   */
+  public synchronized List<AdaptiveBlockingRowSet> getRowSets() {
+    return new ArrayList<>( rowSets );
+  }
+
+  /**
+   * @return the maximum number of bytes all the buffered rows together may take
+   */
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * Change the capacity of the row sets based on the waits since the previous call.
+   *
+   * @param intervalNanos
+   *          the time since the previous call
+   */
+  public synchronized void resize( long intervalNanos ) {
+    int nr = rowSets.size();
+    int[] capacities = new int[nr];
+    long[] rowBytes = new long[nr];
+    long threshold = (long) ( intervalNanos * WAIT_THRESHOLD );
+
+    long totalBytes = 0L;
+    for ( int i = 0; i < nr; i++ ) {
+      AdaptiveBlockingRowSet rowSet = rowSets.get( i );
+      AdaptiveBlockingRowSet.Statistics statistics = rowSet.getStatistics();
+      AdaptiveBlockingRowSet.Statistics last = previous.put( rowSet, statistics );
+
+      int capacity = rowSet.getCapacity();
+      if ( last != null ) {
+        boolean producerWaited = statistics.getPutWaitNanos() - last.getPutWaitNanos() > threshold;
+        boolean consumerWaited = statistics.getGetWaitNanos() - last.getGetWaitNanos() > threshold;
+        if ( producerWaited && consumerWaited ) {
+          capacity = Math.min( maxCapacity, capacity * 2 );
+        } else if ( producerWaited && statistics.getSize() >= capacity ) {
+          capacity = Math.max( minCapacity, capacity / 2 );
+        }
+      }
+      capacities[i] = capacity;
+      rowBytes[i] = statistics.getAverageRowBytes();
+      totalBytes += capacity * rowBytes[i];
+    }
+
+    if ( totalBytes > memoryBudget ) {
+      double factor = (double) memoryBudget / totalBytes;
+      totalBytes = 0L;
+      for ( int i = 0; i < nr; i++ ) {
+        capacities[i] = Math.max( minCapacity, (int) ( capacities[i] * factor ) );
+        totalBytes += capacities[i] * rowBytes[i];
+      }
+      if ( totalBytes > memoryBudget ) {
+        totalBytes = shrinkLargestRows( capacities, rowBytes, totalBytes );
+      }
+    }
+
+    for ( int i = 0; i < nr; i++ ) {
+      AdaptiveBlockingRowSet rowSet = rowSets.get( i );
+      if ( rowSet.getCapacity() != capacities[i] ) {
+        if ( log.isDebug() ) {
+          log.logDebug( "Resizing row set " + rowSet + " from " + rowSet.getCapacity() + " to " + capacities[i]
+            + " rows (about " + rowBytes[i] + " bytes per row)" );
+        }
+        rowSet.setCapacity( capacities[i] );
+      }
+    }
+  }
+
+  /**
+   * The row sets don't fit in the budget at the minimum capacity: shrink the hops with the largest rows below it,
+   * down to a single row, until they do.
+   *
+   * @return the number of bytes the row sets take with the new capacities
+   */
+  private long shrinkLargestRows( int[] capacities, long[] rowBytes, long totalBytes ) {
+    Integer[] bySize = new Integer[capacities.length];
+    for ( int i = 0; i < bySize.length; i++ ) {
+      bySize[i] = i;
+    }
+    Arrays.sort( bySize, ( a, b ) -> Long.compare( rowBytes[b], rowBytes[a] ) );
+
+    for ( int i : bySize ) {
+      if ( totalBytes <= memoryBudget || rowBytes[i] == 0 ) {
+        break;
+      }
+      long excessRows = ( totalBytes - memoryBudget + rowBytes[i] - 1 ) / rowBytes[i];
+      int shrink = (int) Math.min( capacities[i] - 1, excessRows );
+      capacities[i] -= shrink;
+      totalBytes -= shrink * rowBytes[i];
+    }
+
+    if ( totalBytes > memoryBudget && !overBudgetLogged ) {
+      overBudgetLogged = true;
+      log.logBasic( "The row sets take " + totalBytes + " bytes with a single row each, more than the memory budget of "
+        + memoryBudget + " bytes" );
+    }
+    return totalBytes;
+  }
+}
@@ -68,9 +68,11 @@ import org.pentaho.di.core.Counter;
 import org.pentaho.di.core.ExecutorInterface;
 import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.ManagedBlockingRowSet;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.SingleRowRowSet;
@@ -113,6 +115,8 @@ import org.pentaho.di.core.parameters.UnknownParamException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.LifecycleSignal;
+import org.pentaho.di.core.util.VirtualThreadUtil;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -133,6 +137,7 @@ import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
 import org.pentaho.di.trans.step.RunThread;
 import org.pentaho.di.trans.step.StepAdapter;
+import org.pentaho.di.trans.step.StepCounters;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInitThread;
 import org.pentaho.di.trans.step.StepInterface;
@@ -328,6 +333,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   public static final int TYPE_DISP_N_M = 5;
 
+  /**
+   * The number of milliseconds between two adjustments of adaptively sized row sets.
+   */
+  private static final long ROWSET_RESIZE_INTERVAL_MILLIS = 1000L;
+
   /**
    * Constant indicating a transformation status of Finished.
    */
@@ -404,6 +414,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private AtomicInteger status;
 
+  /**
+   * Signals the step threads waiting for the transformation to start, resume or stop.
+   */
+  private final LifecycleSignal lifecycleSignal = new LifecycleSignal();
+
   /**
    * <p>This enum stores bit masks which are used to manipulate with
    * statuses over field {@link Trans#status}
@@ -446,6 +461,16 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private Timer stepPerformanceSnapShotTimer;
 
+  /**
+   * Tunes the capacity of the row sets to the traffic on the hops, null unless adaptive row set sizing is enabled.
+   */
+  private AdaptiveRowSetSizer rowSetSizer;
+
+  /**
+   * The timer that periodically resizes the row sets.
+   */
+  private Timer rowSetSizerTimer;
+
   /**
    * A list of listeners attached to the transformation.
    */
@@ -873,6 +898,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     //
     steps = new ArrayList<>();
     rowsets = new ArrayList<>();
+    rowSetSizer = createRowSetSizer();
 
     List<StepMeta> hopsteps = transMeta.getTransHopSteps( false );
 
@@ -966,6 +992,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
                 if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
+                } else if ( rowSetSizer != null ) {
+                  rowSet = rowSetSizer.newRowSet();
+                } else if ( dispatchType == TYPE_DISP_1_1 && isLockFreeRowSetEnabled() ) {
+                  // Exactly one producer and one consumer thread on this hop: no need for any locking.
+                  //
+                  rowSet = new RingBufferRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
                 }
@@ -979,6 +1011,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 rowSet = new QueueRowSet();
                 break;
 
+              case WorkStealing:
+                rowSet = new ManagedBlockingRowSet( transMeta.getSizeRowset() );
+                break;
+
               default:
                 throw new KettleException( "Unhandled transformation type: " + transMeta.getTransformationType() );
             }
@@ -1013,7 +1049,8 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // distribution...
           for ( int s = 0; s < thisCopies; s++ ) {
             for ( int t = 0; t < nextCopies; t++ ) {
-              BlockingRowSet rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              RowSet rowSet =
+                rowSetSizer != null ? rowSetSizer.newRowSet() : new BlockingRowSet( transMeta.getSizeRowset() );
               rowSet.setThreadNameFromToCopy( thisStep.getName(), s, nextStep.getName(), t );
               rowsets.add( rowSet );
               if ( log.isDetailed() ) {
@@ -1450,6 +1487,21 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       stepPerformanceSnapShotTimer.schedule( timerTask, 100, transMeta.getStepPerformanceCapturingDelay() );
     }
 
+    if ( rowSetSizer != null ) {
+      rowSetSizerTimer = new Timer( "adaptive row set Timer: " + transMeta.getName(), true );
+      TimerTask timerTask = new TimerTask() {
+        private long last = System.nanoTime();
+
+        @Override
+        public void run() {
+          long now = System.nanoTime();
+          rowSetSizer.resize( now - last );
+          last = now;
+        }
+      };
+      rowSetSizerTimer.schedule( timerTask, ROWSET_RESIZE_INTERVAL_MILLIS, ROWSET_RESIZE_INTERVAL_MILLIS );
+    }
+
     // Now start a thread to monitor the running transformation...
     //
     setFinished( false );
@@ -1482,6 +1534,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         if ( transMeta.isCapturingStepPerformanceSnapShots() && stepPerformanceSnapShotTimer != null ) {
           stepPerformanceSnapShotTimer.cancel();
         }
+        if ( rowSetSizerTimer != null ) {
+          rowSetSizerTimer.cancel();
+        }
 
         transMeta.disposeEmbeddedMetastoreProvider();
 
@@ -1524,33 +1579,30 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     switch ( transMeta.getTransformationType() ) {
       case Normal:
 
+        boolean virtualThreads = isVirtualThreadsEnabled();
+
         // Now start all the threads...
         //
         for ( int i = 0; i < steps.size(); i++ ) {
           final StepMetaDataCombi combi = steps.get( i );
           RunThread runThread = new RunThread( combi );
-          Thread thread = new Thread( runThread );
+          Thread thread = virtualThreads ? VirtualThreadUtil.newThread( runThread ) : new Thread( runThread );
           thread.setName( getName() + " - " + combi.stepname );
-          ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
-          // Call an extension point at the end of the step
-          //
-          combi.step.addStepListener( new StepAdapter() {
-
-            @Override
-            public void stepFinished( Trans trans, StepMeta stepMeta, StepInterface step ) {
-              try {
-                ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepFinished.id, combi );
-              } catch ( KettleException e ) {
-                throw new RuntimeException( "Unexpected error in calling extension point upon step finish", e );
-              }
-            }
-
-          } );
+          callStepExtensionPoints( combi );
 
           thread.start();
         }
         break;
 
+      case WorkStealing:
+        // The steps run as tasks on a pool of worker threads...
+        //
+        for ( StepMetaDataCombi combi : steps ) {
+          callStepExtensionPoints( combi );
+        }
+        new WorkStealingTransExecutor( this ).start();
+        break;
+
       case SerialSingleThreaded:
         new Thread( new Runnable() {
           @Override
@@ -1633,6 +1685,30 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     }
   }
 
+  /**
+   * Calls the extension point before the step starts and makes sure the one at the end of the step gets called.
+   *
+   * @param combi the step to start
+   * @throws KettleException if any errors occur in the extension point
+   */
+  private void callStepExtensionPoints( final StepMetaDataCombi combi ) throws KettleException {
+    ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
+    // Call an extension point at the end of the step
+    //
+    combi.step.addStepListener( new StepAdapter() {
+
+      @Override
+      public void stepFinished( Trans trans, StepMeta stepMeta, StepInterface step ) {
+        try {
+          ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepFinished.id, combi );
+        } catch ( KettleException e ) {
+          throw new RuntimeException( "Unexpected error in calling extension point upon step finish", e );
+        }
+      }
+
+    } );
+  }
+
   /**
    * Make attempt to fire all registered listeners if possible.
    *
@@ -1701,8 +1777,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
         StepPerformanceSnapShot snapShot =
           new StepPerformanceSnapShot( seqNr, getBatchId(), new Date(), getName(), stepMeta.getName(), step.getCopy(),
-            step.getLinesRead(), step.getLinesWritten(), step.getLinesInput(), step.getLinesOutput(), step
-            .getLinesUpdated(), step.getLinesRejected(), step.getErrors() );
+            StepCounters.snapshotOf( step ) );
 
         synchronized ( stepPerformanceSnapShots ) {
           List<StepPerformanceSnapShot> snapShotList = stepPerformanceSnapShots.get( step.toString() );
@@ -1717,6 +1792,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // Make the difference...
           //
           snapShot.diff( previous, step.rowsetInputSize(), step.rowsetOutputSize() );
+          if ( step instanceof BaseStep ) {
+            snapShot.setInputBufferCapacity( ( (BaseStep) step ).rowsetInputCapacity() );
+            snapShot.setOutputBufferCapacity( ( (BaseStep) step ).rowsetOutputCapacity() );
+            snapShot.setBytesSpilled( ( (BaseStep) step ).getBytesSpilled() );
+            snapShot.setPartitionsSpilled( ( (BaseStep) step ).getPartitionsSpilled() );
+          }
           snapShotList.add( snapShot );
 
           if ( stepPerformanceSnapshotSizeLimit > 0 && snapShotList.size() > stepPerformanceSnapshotSizeLimit ) {
@@ -1758,10 +1839,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    * @param si the step interface
    */
   public void logSummary( StepInterface si ) {
-    log.logBasic( si.getStepname(), BaseMessages.getString( PKG, "Trans.Log.FinishedProcessing", String.valueOf( si
-      .getLinesInput() ), String.valueOf( si.getLinesOutput() ), String.valueOf( si.getLinesRead() ) ) + BaseMessages
-      .getString( PKG, "Trans.Log.FinishedProcessing2", String.valueOf( si.getLinesWritten() ), String.valueOf( si
-        .getLinesUpdated() ), String.valueOf( si.getErrors() ) ) );
+    StepCounters.Snapshot counters = StepCounters.snapshotOf( si );
+    log.logBasic( si.getStepname(), BaseMessages.getString( PKG, "Trans.Log.FinishedProcessing", String.valueOf(
+      counters.getLinesInput() ), String.valueOf( counters.getLinesOutput() ), String.valueOf( counters
+      .getLinesRead() ) ) + BaseMessages.getString( PKG, "Trans.Log.FinishedProcessing2", String.valueOf( counters
+      .getLinesWritten() ), String.valueOf( counters.getLinesUpdated() ), String.valueOf( counters.getErrors() ) ) );
   }
 
   /**
@@ -1851,6 +1933,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
   protected void setFinished( boolean finished ) {
     status.updateAndGet( v -> finished ? v | FINISHED.mask : ( BIT_STATUS_SUM ^ FINISHED.mask ) & v );
+    lifecycleSignal.signalAll();
   }
 
   public boolean isFinishedOrStopped() {
@@ -2052,6 +2135,62 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     notifyStoppedListeners();
   }
 
+  /**
+   * The lock-free row set is used on 1:1 hops unless KETTLE_LOCK_FREE_ROWSET is set to N.
+   *
+   * @return true if 1:1 hops should use a {@link RingBufferRowSet}
+   */
+  private boolean isLockFreeRowSetEnabled() {
+    Boolean lockFreeRowSet =
+      ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_LOCK_FREE_ROWSET, "Y" ) );
+    return lockFreeRowSet == null || lockFreeRowSet.booleanValue();
+  }
+
+  /**
+   * Row sets are sized adaptively, within a memory budget, on normal transformations with KETTLE_ADAPTIVE_ROWSET_SIZE
+   * set to Y.
+   *
+   * @return the sizer to create the row sets of the hops with, or null to use row sets of a fixed size
+   */
+  private AdaptiveRowSetSizer createRowSetSizer() {
+    if ( transMeta.getTransformationType() != TransMeta.TransformationType.Normal ) {
+      return null;
+    }
+    Boolean adaptive = ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_ADAPTIVE_ROWSET_SIZE, "N" ) );
+    if ( adaptive == null || !adaptive.booleanValue() ) {
+      return null;
+    }
+    long budget = Runtime.getRuntime().maxMemory() / 4;
+    String budgetMb = getVariable( Const.KETTLE_ROWSET_MEMORY_BUDGET );
+    if ( !Utils.isEmpty( budgetMb ) ) {
+      budget = Const.toLong( budgetMb, budget / ( 1024 * 1024 ) ) * 1024 * 1024;
+    }
+    return new AdaptiveRowSetSizer( log, transMeta.getSizeRowset(), budget );
+  }
+
+  /**
+   * @return the sizer that tunes the row sets of this transformation, null unless adaptive row set sizing is enabled
+   */
+  public AdaptiveRowSetSizer getRowSetSizer() {
+    return rowSetSizer;
+  }
+
+  /**
+   * @return true if the step threads should run as virtual threads, see {@link Const#KETTLE_VIRTUAL_THREADS}
+   */
+  private boolean isVirtualThreadsEnabled() {
+    Boolean virtualThreads =
+      ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_VIRTUAL_THREADS, "N" ) );
+    if ( virtualThreads == null || !virtualThreads.booleanValue() ) {
+      return false;
+    }
+    if ( !VirtualThreadUtil.isSupported() ) {
+      log.logBasic( BaseMessages.getString( PKG, "Trans.Log.VirtualThreadsNotSupported" ) );
+      return false;
+    }
+    return true;
+  }
+
   private boolean isInputStep( StepMetaDataCombi combi ) {
     checkNotNull( combi );
     return transMeta.findPreviousSteps( combi.stepMeta, true ).size() == 0;
@@ -2765,8 +2904,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     for ( int i = 0; i < steps.size(); i++ ) {
       StepMetaDataCombi sid = steps.get( i );
       StepInterface step = sid.step;
+      StepCounters.Snapshot counters = StepCounters.snapshotOf( step );
 
-      result.setNrErrors( result.getNrErrors() + sid.step.getErrors() );
+      result.setNrErrors( result.getNrErrors() + counters.getErrors() );
       result.getResultFiles().putAll( step.getResultFiles() );
 
       if ( step.isSafeStopped() ) {
@@ -2774,22 +2914,22 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       }
 
       if ( step.getStepname().equals( transLogTable.getSubjectString( TransLogTable.ID.LINES_READ ) ) ) {
-        result.setNrLinesRead( result.getNrLinesRead() + step.getLinesRead() );
+        result.setNrLinesRead( result.getNrLinesRead() + counters.getLinesRead() );
       }
       if ( step.getStepname().equals( transLogTable.getSubjectString( TransLogTable.ID.LINES_INPUT ) ) ) {
-        result.setNrLinesInput( result.getNrLinesInput() + step.getLinesInput() );
+        result.setNrLinesInput( result.getNrLinesInput() + counters.getLinesInput() );
       }
       if ( step.getStepname().equals( transLogTable.getSubjectString( TransLogTable.ID.LINES_WRITTEN ) ) ) {
-        result.setNrLinesWritten( result.getNrLinesWritten() + step.getLinesWritten() );
+        result.setNrLinesWritten( result.getNrLinesWritten() + counters.getLinesWritten() );
       }
       if ( step.getStepname().equals( transLogTable.getSubjectString( TransLogTable.ID.LINES_OUTPUT ) ) ) {
-        result.setNrLinesOutput( result.getNrLinesOutput() + step.getLinesOutput() );
+        result.setNrLinesOutput( result.getNrLinesOutput() + counters.getLinesOutput() );
       }
       if ( step.getStepname().equals( transLogTable.getSubjectString( TransLogTable.ID.LINES_UPDATED ) ) ) {
-        result.setNrLinesUpdated( result.getNrLinesUpdated() + step.getLinesUpdated() );
+        result.setNrLinesUpdated( result.getNrLinesUpdated() + counters.getLinesUpdated() );
       }
       if ( step.getStepname().equals( transLogTable.getSubjectString( TransLogTable.ID.LINES_REJECTED ) ) ) {
-        result.setNrLinesRejected( result.getNrLinesRejected() + step.getLinesRejected() );
+        result.setNrLinesRejected( result.getNrLinesRejected() + counters.getLinesRejected() );
       }
     }
 
@@ -3445,6 +3585,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       case SingleThreaded:
         rowSet = new QueueRowSet();
         break;
+      case WorkStealing:
+        rowSet = new ManagedBlockingRowSet( transMeta.getSizeRowset() );
+        break;
       default:
         throw new KettleException( "Unhandled transformation type: " + transMeta.getTransformationType() );
     }
@@ -3704,6 +3847,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   public void setRunning( boolean running ) {
     status.updateAndGet( v -> running ? v | RUNNING.mask : ( BIT_STATUS_SUM ^ RUNNING.mask ) & v );
+    lifecycleSignal.signalAll();
   }
 
   /**
@@ -4811,6 +4955,17 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
   public void setPaused( boolean paused ) {
     status.updateAndGet( v -> paused ? v | PAUSED.mask : ( BIT_STATUS_SUM ^ PAUSED.mask ) & v );
+    lifecycleSignal.signalAll();
+  }
+
+  /**
+   * Gets the signal that is raised every time the transformation starts or stops running, is paused or resumed. Step
+   * threads can block on it rather than poll these states.
+   *
+   * @return the lifecycle signal of this transformation
+   */
+  public LifecycleSignal getLifecycleSignal() {
+    return lifecycleSignal;
   }
 
   /**
@@ -4825,6 +4980,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
   public void setStopped( boolean stopped ) {
     status.updateAndGet( v -> stopped ? v | STOPPED.mask : ( BIT_STATUS_SUM ^ STOPPED.mask ) & v );
+    lifecycleSignal.signalAll();
   }
 
   /**
@@ -306,7 +306,7 @@ public class TransMeta extends AbstractMeta
 
   /**
    * The TransformationType enum describes the various types of transformations in terms of execution, including Normal,
-   * Serial Single-Threaded, and Single-Threaded.
+   * Serial Single-Threaded, Single-Threaded and Work Stealing.
    */
   public enum TransformationType {
 
@@ -319,7 +319,10 @@ public class TransMeta extends AbstractMeta
 
       /** A single-threaded transformation. */
       SingleThreaded( "SingleThreaded", BaseMessages
-        .getString( PKG, "TransMeta.TransformationType.SingleThreaded" ) );
+        .getString( PKG, "TransMeta.TransformationType.SingleThreaded" ) ),
+
+      /** A transformation where the steps are scheduled as tasks on a work-stealing pool sized to the cores. */
+      WorkStealing( "WorkStealing", BaseMessages.getString( PKG, "TransMeta.TransformationType.WorkStealing" ) );
 
     /** The code corresponding to the transformation type. */
     private final String code;
@@ -0,0 +1,224 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+import org.pentaho.di.trans.step.StepTask;
+
+/**
+ * Runs the steps of a transformation as tasks on a work-stealing {@link ForkJoinPool} sized to the number of cores,
+ * instead of giving every step copy a thread of its own.
+ * <p>
+ * A step is scheduled whenever it's runnable: it has rows waiting in its input and room in its output row sets (see
+ * {@link StepTask#isRunnable()}). It then processes rows for a slice and gets back in line. After every slice the steps
+ * on the other side of its row sets are scheduled as well, since they are the ones that can make progress now. A
+ * monitor thread periodically sweeps all the steps to pick up changes coming from outside of the pool (row producers,
+ * stopping the transformation, ...) and shuts down the pool once all steps are done.
+ */
+public class WorkStealingTransExecutor {
+
+  /**
+   * The maximum number of processRow() calls in one slice, before a step gives other steps a chance to run.
+   */
+  public static final int SLICE_ITERATIONS = 256;
+
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+  private static final int IDLE = 0;
+  private static final int SCHEDULED = 1;
+  private static final int DONE = 2;
+
+  private final Trans trans;
+  private final List<ScheduledStep> scheduledSteps;
+  private final AtomicInteger nrRunning;
+  private final int parallelism;
+
+  private ForkJoinPool pool;
+  private Thread monitor;
+
+  public WorkStealingTransExecutor( final Trans trans ) {
+    this( trans, Runtime.getRuntime().availableProcessors() );
+  }
+
+  public WorkStealingTransExecutor( final Trans trans, int parallelism ) {
+    this.trans = trans;
+    this.parallelism = Math.max( 1, parallelism );
+
+    int rowSetSize = trans.getTransMeta().getSizeRowset();
+    scheduledSteps = new ArrayList<>();
+    for ( StepMetaDataCombi combi : trans.getSteps() ) {
+      // Thread priority management sleeps on nearly empty or full row sets, only slowing down the pool
+      //
+      combi.step.setUsingThreadPriorityManagment( false );
+      scheduledSteps.add( new ScheduledStep( new StepTask( combi, rowSetSize ) ) );
+    }
+    nrRunning = new AtomicInteger( scheduledSteps.size() );
+  }
+
+  /**
+   * Link every step to the steps on the other end of its row sets, create the pool and schedule all the steps.
+   */
+  public void start() {
+    Map<RowSet, ScheduledStep> consumers = new IdentityHashMap<>();
+    Map<RowSet, ScheduledStep> producers = new IdentityHashMap<>();
+    for ( ScheduledStep scheduledStep : scheduledSteps ) {
+      for ( RowSet rowSet : scheduledStep.task.getStep().getInputRowSets() ) {
+        consumers.put( rowSet, scheduledStep );
+      }
+      for ( RowSet rowSet : scheduledStep.task.getStep().getOutputRowSets() ) {
+        producers.put( rowSet, scheduledStep );
+      }
+    }
+    for ( ScheduledStep scheduledStep : scheduledSteps ) {
+      Set<ScheduledStep> neighbours = new LinkedHashSet<>();
+      for ( RowSet rowSet : scheduledStep.task.getStep().getOutputRowSets() ) {
+        addNeighbour( neighbours, consumers.get( rowSet ), scheduledStep );
+      }
+      for ( RowSet rowSet : scheduledStep.task.getStep().getInputRowSets() ) {
+        addNeighbour( neighbours, producers.get( rowSet ), scheduledStep );
+      }
+      scheduledStep.neighbours = neighbours.toArray( new ScheduledStep[neighbours.size()] );
+    }
+
+    final String name = trans.getName();
+    final AtomicInteger threadNr = new AtomicInteger( 1 );
+    pool = new ForkJoinPool( parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread( ForkJoinPool forkJoinPool ) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( forkJoinPool );
+        thread.setName( name + " - worker " + threadNr.getAndIncrement() );
+        return thread;
+      }
+    }, null, true );
+
+    monitor = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        monitor();
+      }
+    } );
+    monitor.setName( name + " - scheduler" );
+    monitor.setDaemon( true );
+    monitor.start();
+
+    for ( ScheduledStep scheduledStep : scheduledSteps ) {
+      scheduledStep.scheduleIfRunnable();
+    }
+  }
+
+  private static void addNeighbour( Set<ScheduledStep> neighbours, ScheduledStep neighbour, ScheduledStep self ) {
+    if ( neighbour != null && neighbour != self ) {
+      neighbours.add( neighbour );
+    }
+  }
+
+  /**
+   * Sweep the steps until they're all done, then shut down the pool.
+   */
+  private void monitor() {
+    while ( nrRunning.get() > 0 ) {
+      LockSupport.parkNanos( this, SWEEP_INTERVAL_NANOS );
+      for ( ScheduledStep scheduledStep : scheduledSteps ) {
+        scheduledStep.scheduleIfRunnable();
+      }
+    }
+    pool.shutdown();
+  }
+
+  /**
+   * @return the number of steps that didn't finish yet
+   */
+  public int getNrRunning() {
+    return nrRunning.get();
+  }
+
+  /**
+   * @return the number of worker threads the steps are scheduled on
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * A step task and its scheduling state: a step is either idle, scheduled to run (or running) or done. Only the
+   * transition from idle to scheduled puts the step in the pool so a step never runs in two threads at once.
+   */
+  private class ScheduledStep implements Runnable {
+    private final StepTask task;
+    private final AtomicInteger state = new AtomicInteger( IDLE );
+    private ScheduledStep[] neighbours = new ScheduledStep[0];
+
+    ScheduledStep( StepTask task ) {
+      this.task = task;
+    }
+
+    void scheduleIfRunnable() {
+      if ( state.get() == IDLE && task.isRunnable() && state.compareAndSet( IDLE, SCHEDULED ) ) {
+        if ( ForkJoinTask.getPool() == pool ) {
+          // Keep the work on this worker's own queue, idle workers will steal it when needed
+          //
+          ForkJoinTask.adapt( this ).fork();
+        } else {
+          pool.execute( this );
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        task.runSlice( SLICE_ITERATIONS );
+      } finally {
+        if ( task.isDone() ) {
+          state.set( DONE );
+          if ( nrRunning.decrementAndGet() == 0 ) {
+            LockSupport.unpark( monitor );
+          }
+        } else {
+          // Go idle before checking whether we can run again, a neighbour finishing its slice in the meantime then
+          // either sees us idle or we see its progress.
+          //
+          state.set( IDLE );
+          scheduleIfRunnable();
+        }
+        for ( ScheduledStep neighbour : neighbours ) {
+          neighbour.scheduleIfRunnable();
+        }
+      }
+    }
+  }
+}
@@ -24,6 +24,8 @@ package org.pentaho.di.trans.performance;
 
 import java.util.Date;
 
+import org.pentaho.di.trans.step.StepCounters;
+
 public class StepPerformanceSnapShot {
 
   private long batchId;
@@ -51,6 +53,10 @@ public class StepPerformanceSnapShot {
 
   private long inputBufferSize;
   private long outputBufferSize;
+  private long inputBufferCapacity;
+  private long outputBufferCapacity;
+  private long bytesSpilled;
+  private long partitionsSpilled;
 
   /**
    * @param date
@@ -82,6 +88,20 @@ public class StepPerformanceSnapShot {
     this.totalErrors = totalErrors;
   }
 
+  /**
+   * @param date
+   * @param stepName
+   * @param stepCopy
+   * @param counters
+   *          the row counters and errors of the step copy, taken at the same time
+   */
+  public StepPerformanceSnapShot( int seqNr, long batchId, Date date, String transName, String stepName,
+    int stepCopy, StepCounters.Snapshot counters ) {
+    this( seqNr, batchId, date, transName, stepName, stepCopy, counters.getLinesRead(), counters.getLinesWritten(),
+      counters.getLinesInput(), counters.getLinesOutput(), counters.getLinesUpdated(), counters.getLinesRejected(),
+      counters.getErrors() );
+  }
+
   public void diff( StepPerformanceSnapShot previous, long inputBufferSize, long outputBufferSize ) {
     this.inputBufferSize = inputBufferSize;
     this.outputBufferSize = outputBufferSize;
@@ -452,4 +472,63 @@ public class StepPerformanceSnapShot {
     this.transName = transName;
   }
 
+  /**
+   * @return the capacity of all the input row sets of the step copy added up, not the capacity of a single hop
+   */
+  public long getInputBufferCapacity() {
+    return inputBufferCapacity;
+  }
+
+  /**
+   * @param inputBufferCapacity
+   *          the capacity of all the input row sets of the step copy added up, not the capacity of a single hop
+   */
+  public void setInputBufferCapacity( long inputBufferCapacity ) {
+    this.inputBufferCapacity = inputBufferCapacity;
+  }
+
+  /**
+   * @return the capacity of all the output row sets of the step copy added up, not the capacity of a single hop
+   */
+  public long getOutputBufferCapacity() {
+    return outputBufferCapacity;
+  }
+
+  /**
+   * @param outputBufferCapacity
+   *          the capacity of all the output row sets of the step copy added up, not the capacity of a single hop
+   */
+  public void setOutputBufferCapacity( long outputBufferCapacity ) {
+    this.outputBufferCapacity = outputBufferCapacity;
+  }
+
+  /**
+   * @return the total number of bytes the step copy wrote to temporary files because they didn't fit in memory
+   */
+  public long getBytesSpilled() {
+    return bytesSpilled;
+  }
+
+  /**
+   * @param bytesSpilled
+   *          the total number of bytes the step copy wrote to temporary files because they didn't fit in memory
+   */
+  public void setBytesSpilled( long bytesSpilled ) {
+    this.bytesSpilled = bytesSpilled;
+  }
+
+  /**
+   * @return the total number of partitions the step copy wrote to temporary files
+   */
+  public long getPartitionsSpilled() {
+    return partitionsSpilled;
+  }
+
+  /**
+   * @param partitionsSpilled
+   *          the total number of partitions the step copy wrote to temporary files
+   */
+  public void setPartitionsSpilled( long partitionsSpilled ) {
+    this.partitionsSpilled = partitionsSpilled;
+  }
 }
@@ -39,6 +39,7 @@ import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -48,6 +49,7 @@ import com.google.common.base.Preconditions;
 import org.apache.commons.lang.StringUtils;
 import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.LifecycleSignal;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.ResultFile;
@@ -62,6 +64,7 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingObjectType;
+import org.pentaho.di.core.row.FrozenRowMeta;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -167,7 +170,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
-  private final Object statusCountersLock = new Object();
+  /**
+   * nr of lines read, written, input, output, updated, rejected and skipped
+   */
+  private final StepCounters counters = new StepCounters();
+
+  // The public fields below only hold a copy of the counters, taken whenever this step updates them.
+  // Writing to them doesn't change the counters.
 
   /**
    * nr of lines read from previous step(s)
@@ -225,6 +234,12 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Deprecated
   public long linesRejected;
 
+  /**
+   * nr of bytes and partitions written to temporary files because the data of the step didn't fit in memory
+   */
+  private final AtomicLong bytesSpilled = new AtomicLong();
+  private final AtomicLong partitionsSpilled = new AtomicLong();
+
   private boolean distributed;
 
   private String rowDistributionCode;
@@ -276,6 +291,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private AtomicBoolean paused;
 
+  /**
+   * Raised when this step (or its transformation) is paused, resumed, started or stopped.
+   */
+  private final LifecycleSignal lifecycleSignal;
+
   private boolean init;
 
   /**
@@ -375,6 +395,12 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private static int NR_OF_ROWS_IN_BLOCK = 500;
 
+  /**
+   * The number of rows steps that use {@link #getRows(int)} and {@link #putRows(RowMetaInterface, Object[][], int)}
+   * move in one block.
+   */
+  protected static final int ROW_BATCH_SIZE = 100;
+
   private int blockPointer;
 
   /**
@@ -426,6 +452,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   private boolean allowEmptyFieldNamesAndTypes = false;
 
+  /** The last row meta snapshot that passed the field names and types check. */
+  private FrozenRowMeta verifiedRowMeta;
+
   /**
    * Keeps track of the number of rows read for input deadlock verification.
    */
@@ -469,6 +498,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     this.trans = trans;
     this.stepname = stepMeta.getName();
     this.socketRepository = trans.getSocketRepository();
+    this.lifecycleSignal = trans.getLifecycleSignal() != null ? trans.getLifecycleSignal() : new LifecycleSignal();
 
     // Set the name of the thread
     if ( stepMeta.getName() == null ) {
@@ -488,16 +518,6 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     init = false;
 
-    synchronized ( statusCountersLock ) {
-      linesRead = 0L; // new AtomicLong(0L); // Keep some statistics!
-      linesWritten = 0L; // new AtomicLong(0L);
-      linesUpdated = 0L; // new AtomicLong(0L);
-      linesSkipped = 0L; // new AtomicLong(0L);
-      linesRejected = 0L; // new AtomicLong(0L);
-      linesInput = 0L; // new AtomicLong(0L);
-      linesOutput = 0L; // new AtomicLong(0L);
-    }
-
     inputRowSets = null;
     outputRowSets = null;
     nextSteps = null;
@@ -917,9 +937,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return linesRead;
-    }
+    return counters.linesRead().sum();
   }
 
   /**
@@ -928,9 +946,18 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRead;
-    }
+    linesRead = StepCounters.add( counters.linesRead(), 1 );
+    return linesRead;
+  }
+
+  /**
+   * Increments the number of lines read from previous steps by nrLines
+   *
+   * @return Returns the new value
+   */
+  public long incrementLinesRead( long nrLines ) {
+    linesRead = StepCounters.add( counters.linesRead(), nrLines );
+    return linesRead;
   }
 
   /**
@@ -939,18 +966,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return --linesRead;
-    }
+    linesRead = StepCounters.add( counters.linesRead(), -1 );
+    return linesRead;
   }
 
   /**
    * @param newLinesReadValue the new number of lines read from previous steps
    */
   public void setLinesRead( long newLinesReadValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRead = newLinesReadValue;
-    }
+    StepCounters.set( counters.linesRead(), newLinesReadValue );
+    linesRead = newLinesReadValue;
   }
 
   /**
@@ -958,9 +983,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return linesInput;
-    }
+    return counters.linesInput().sum();
   }
 
   /**
@@ -969,18 +992,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesInput;
-    }
+    linesInput = StepCounters.add( counters.linesInput(), 1 );
+    return linesInput;
   }
 
   /**
    * @param newLinesInputValue the new number of lines read from an input source: database, file, socket, etc.
    */
   public void setLinesInput( long newLinesInputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesInput = newLinesInputValue;
-    }
+    StepCounters.set( counters.linesInput(), newLinesInputValue );
+    linesInput = newLinesInputValue;
   }
 
   /**
@@ -988,9 +1009,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return linesOutput;
-    }
+    return counters.linesOutput().sum();
   }
 
   /**
@@ -999,18 +1018,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesOutput;
-    }
+    linesOutput = StepCounters.add( counters.linesOutput(), 1 );
+    return linesOutput;
   }
 
   /**
    * @param newLinesOutputValue the new number of lines written to an output target: database, file, socket, etc.
    */
   public void setLinesOutput( long newLinesOutputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesOutput = newLinesOutputValue;
-    }
+    StepCounters.set( counters.linesOutput(), newLinesOutputValue );
+    linesOutput = newLinesOutputValue;
   }
 
   /**
@@ -1018,9 +1035,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return linesWritten;
-    }
+    return counters.linesWritten().sum();
   }
 
   /**
@@ -1029,9 +1044,18 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return ++linesWritten;
-    }
+    linesWritten = StepCounters.add( counters.linesWritten(), 1 );
+    return linesWritten;
+  }
+
+  /**
+   * Increments the number of lines written to next steps by nrLines
+   *
+   * @return Returns the new value
+   */
+  public long incrementLinesWritten( long nrLines ) {
+    linesWritten = StepCounters.add( counters.linesWritten(), nrLines );
+    return linesWritten;
   }
 
   /**
@@ -1040,18 +1064,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return --linesWritten;
-    }
+    linesWritten = StepCounters.add( counters.linesWritten(), -1 );
+    return linesWritten;
   }
 
   /**
    * @param newLinesWrittenValue the new number of lines written to next steps
    */
   public void setLinesWritten( long newLinesWrittenValue ) {
-    synchronized ( statusCountersLock ) {
-      linesWritten = newLinesWrittenValue;
-    }
+    StepCounters.set( counters.linesWritten(), newLinesWrittenValue );
+    linesWritten = newLinesWrittenValue;
   }
 
   /**
@@ -1059,9 +1081,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return linesUpdated;
-    }
+    return counters.linesUpdated().sum();
   }
 
   /**
@@ -1070,18 +1090,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return ++linesUpdated;
-    }
+    linesUpdated = StepCounters.add( counters.linesUpdated(), 1 );
+    return linesUpdated;
   }
 
   /**
    * @param newLinesUpdatedValue the new number of lines updated in an output target: database, file, socket, etc.
    */
   public void setLinesUpdated( long newLinesUpdatedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesUpdated = newLinesUpdatedValue;
-    }
+    StepCounters.set( counters.linesUpdated(), newLinesUpdatedValue );
+    linesUpdated = newLinesUpdatedValue;
   }
 
   /**
@@ -1089,9 +1107,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return linesRejected;
-    }
+    return counters.linesRejected().sum();
   }
 
   /**
@@ -1100,9 +1116,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRejected;
-    }
+    linesRejected = StepCounters.add( counters.linesRejected(), 1 );
+    return linesRejected;
   }
 
   /**
@@ -1110,18 +1125,22 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void setLinesRejected( long newLinesRejectedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRejected = newLinesRejectedValue;
-    }
+    StepCounters.set( counters.linesRejected(), newLinesRejectedValue );
+    linesRejected = newLinesRejectedValue;
+  }
+
+  /**
+   * @return a consistent snapshot of all the row counters and the number of errors of this step
+   */
+  public StepCounters.Snapshot getCountersSnapshot() {
+    return counters.snapshot( getErrors() );
   }
 
   /**
    * @return the number of lines skipped
    */
   public long getLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return linesSkipped;
-    }
+    return counters.linesSkipped().sum();
   }
 
   /**
@@ -1130,18 +1149,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return ++linesSkipped;
-    }
+    linesSkipped = StepCounters.add( counters.linesSkipped(), 1 );
+    return linesSkipped;
   }
 
   /**
    * @param newLinesSkippedValue lines number of lines skipped
    */
   public void setLinesSkipped( long newLinesSkippedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesSkipped = newLinesSkippedValue;
-    }
+    StepCounters.set( counters.linesSkipped(), newLinesSkippedValue );
+    linesSkipped = newLinesSkippedValue;
   }
 
   /*
@@ -1257,7 +1274,32 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void putRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    verifyFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+  }
+
+  /**
+   * putRows is the block-oriented version of {@link #putRow(RowMetaInterface, Object[])}: the first count rows of the
+   * block are passed on to the destination rowset(s). When there is a single, non-partitioned destination the whole
+   * block is added to the rowset at once, otherwise the rows are handled one by one.
+   *
+   * @param rowMeta The row meta-data of all the rows in the block.
+   * @param rows    The rows to put to the destination rowset(s).
+   * @param count   The number of rows in the block to put.
+   * @throws KettleStepException
+   */
+  public void putRows( RowMetaInterface rowMeta, Object[][] rows, int count ) throws KettleStepException {
+    verifyFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRows( rowMeta, rows, count );
+  }
+
+  private void verifyFieldNamesAndTypes( RowMetaInterface rowMeta ) throws KettleStepException {
     if ( rowMeta != null ) {
+      // A row meta snapshot that passed the check before can't have changed since
+      //
+      if ( rowMeta == verifiedRowMeta && verifiedRowMeta.isFrozen() ) {
+        return;
+      }
       if ( !allowEmptyFieldNamesAndTypes ) {
         // check row meta for empty field name (BACKLOG-18004)
         for ( ValueMetaInterface vmi : rowMeta.getValueMetaList() ) {
@@ -1269,21 +1311,40 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
           }
         }
       }
+      if ( rowMeta instanceof FrozenRowMeta ) {
+        verifiedRowMeta = (FrozenRowMeta) rowMeta;
+      }
     }
-    getRowHandler().putRow( rowMeta, row );
   }
 
-  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
-    // Are we pausing the step? If so, stall forever...
+  private void handlePutRows( RowMetaInterface rowMeta, Object[][] rows, int count ) throws KettleStepException {
+    // Only the plain case is moved as a block: a single, non-partitioned target without listeners or terminator rows.
+    // Everything else keeps the exact row by row semantics of putRow().
     //
-    while ( paused.get() && !stopped.get() ) {
+    if ( count > 1 && checkTransRunning && !paused.get() && !stopped.get() && rowListeners.isEmpty()
+      && !terminator && repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE && rowDistribution == null ) {
+      outputRowSetsLock.readLock().lock();
       try {
-        Thread.sleep( 1 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
+        if ( outputRowSets.size() == 1 ) {
+          putRowsToRowSet( outputRowSets.get( 0 ), rowMeta, rows, count );
+          incrementLinesWritten( count );
+          return;
+        }
+      } finally {
+        outputRowSetsLock.readLock().unlock();
       }
     }
 
+    for ( int i = 0; i < count; i++ ) {
+      putRow( rowMeta, rows[ i ] );
+    }
+  }
+
+  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    // Are we pausing the step? If so, stall forever...
+    //
+    waitWhilePaused();
+
     // Right after the pause loop we have to check if this thread is stopped or
     // not.
     //
@@ -1299,16 +1360,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     // Are we running yet? If not, wait a bit until all threads have been
     // started.
     //
-    if ( this.checkTransRunning == false ) {
-      while ( !trans.isRunning() && !stopped.get() ) {
-        try {
-          Thread.sleep( 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore
-        }
-      }
-      this.checkTransRunning = true;
-    }
+    waitUntilTransformationIsStarted();
 
     // call all row listeners...
     //
@@ -1596,7 +1648,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     RowMetaInterface metaFromRs = rs.getRowMeta();
     if ( metaFromRs == null ) {
       // RowSet is not initialised so far
-      toBeSent = rowMeta.clone();
+      toBeSent = freezeRowMeta( rowMeta );
     } else {
       // use the existing
       toBeSent = metaFromRs;
@@ -1609,6 +1661,28 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * The row metadata of the rows on a hop is fixed once the first row is sent: every output row set gets its own lock
+   * free snapshot of it, so that the next step doesn't pay for the locking of {@link RowMeta} on every row.
+   */
+  private static RowMetaInterface freezeRowMeta( RowMetaInterface rowMeta ) {
+    return new FrozenRowMeta( rowMeta.clone() );
+  }
+
+  private void putRowsToRowSet( RowSet rs, RowMetaInterface rowMeta, Object[][] rows, int count ) {
+    RowMetaInterface metaFromRs = rs.getRowMeta();
+    RowMetaInterface toBeSent = metaFromRs == null ? freezeRowMeta( rowMeta ) : metaFromRs;
+
+    int offset = 0;
+    while ( offset < count ) {
+      int added = rs.putRows( toBeSent, rows, offset, count - offset );
+      if ( added == 0 && isStopped() && !safeStopped.get() ) {
+        return;
+      }
+      offset += added;
+    }
+  }
+
   /**
    * putRowTo is used to put a row in a certain specific RowSet.
    *
@@ -1625,13 +1699,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 1 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     // call all row listeners...
     //
@@ -1800,6 +1868,21 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * Blocks while the step is paused, until it is either resumed or stopped.
+   */
+  private void waitWhilePaused() throws KettleStepException {
+    // Called for every row: don't build the wait condition when the step isn't paused
+    if ( !paused.get() || stopped.get() ) {
+      return;
+    }
+    try {
+      lifecycleSignal.awaitUntil( () -> !paused.get() || stopped.get() );
+    } catch ( InterruptedException e ) {
+      throw new KettleStepException( e );
+    }
+  }
+
   /**
    * Wait until the transformation is completely running and all threads have been started.
    */
@@ -1811,9 +1894,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     if ( this.checkTransRunning == false ) {
       while ( !trans.isRunning() && !stopped.get() ) {
         try {
-          Thread.sleep( 1 );
+          lifecycleSignal.awaitUntil( () -> trans.isRunning() || stopped.get() );
         } catch ( InterruptedException e ) {
-          // Ignore sleep interruption exception
+          // Ignore interruption exception
         }
       }
       this.checkTransRunning = true;
@@ -1831,17 +1914,76 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   }
 
 
-  private Object[] handleGetRow() throws KettleException {
+  /**
+   * getRows is the block-oriented version of {@link #getRow()}. It returns the next row plus, when reading from a
+   * single input rowset, the rows that are immediately available after it, up to max rows in total.
+   *
+   * @param max the maximum number of rows to return
+   * @return the rows or null if there are no more rows
+   * @throws KettleException
+   */
+  public Object[][] getRows( int max ) throws KettleException {
+    return getRowHandler().getRows( max );
+  }
 
-    // Are we pausing the step? If so, stall forever...
-    //
-    while ( paused.get() && !stopped.get() ) {
+  /**
+   * Steps that can process a block of rows in columnar form (see {@link org.pentaho.di.core.row.vector.RowBatch}) only
+   * do so if this is enabled with the KETTLE_VECTORIZED_STEPS variable, which is the default.
+   *
+   * @return true if the step may process the rows of a block in columnar form
+   */
+  protected boolean isVectorizedExecution() {
+    String value = getVariable( Const.KETTLE_VECTORIZED_STEPS );
+    return Utils.isEmpty( value ) || ValueMetaString.convertStringToBoolean( value );
+  }
+
+  private Object[][] handleGetRows( int max ) throws KettleException {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+
+    Object[][] nextRows = null;
+    if ( max > 1 ) {
+      inputRowSetsLock.readLock().lock();
       try {
-        Thread.sleep( 100 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
+        // With more than one input the row metadata can change from row set to row set: stay with one row
+        //
+        if ( inputRowSets.size() == 1 ) {
+          nextRows = inputRowSets.get( 0 ).getRowsImmediate( max - 1 );
+        }
+      } finally {
+        inputRowSetsLock.readLock().unlock();
       }
     }
+    if ( nextRows == null || nextRows.length == 0 ) {
+      return new Object[][] { row };
+    }
+
+    // Every row of the block is counted and checked just like handleGetRow() does for a single row
+    //
+    for ( Object[] nextRow : nextRows ) {
+      incrementLinesRead();
+      if ( trans.isSafeModeEnabled() ) {
+        transMeta.checkRowMixingStatically( stepMeta, null );
+      }
+      for ( RowListener listener : rowListeners ) {
+        listener.rowReadEvent( inputRowMeta, nextRow );
+      }
+      verifyRejectionRates();
+    }
+
+    Object[][] rows = new Object[ nextRows.length + 1 ][];
+    rows[ 0 ] = row;
+    System.arraycopy( nextRows, 0, rows, 1, nextRows.length );
+    return rows;
+  }
+
+  private Object[] handleGetRow() throws KettleException {
+
+    // Are we pausing the step? If so, stall forever...
+    //
+    waitWhilePaused();
 
     if ( stopped.get() ) {
       if ( log.isDebug() ) {
@@ -2033,7 +2175,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @throws KettleStepException
    */
   protected void openRemoteInputStepSocketsOnce() throws KettleStepException {
-    if ( !remoteInputSteps.isEmpty() ) {
+    // A step that wasn't initialised has no remote input steps to open
+    //
+    if ( remoteInputSteps != null && !remoteInputSteps.isEmpty() ) {
       if ( !remoteInputStepsInitialized ) {
         // Loop over the remote steps and open client sockets to them
         // Just be careful in case we're dealing with a partitioned clustered step.
@@ -2221,27 +2365,12 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   public Object[] handleGetRowFrom( RowSet rowSet ) throws KettleStepException {
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 10 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     // Have all threads started?
     // Are we running yet? If not, wait a bit until all threads have been
     // started.
-    if ( this.checkTransRunning == false ) {
-      while ( !trans.isRunning() && !stopped.get() ) {
-        try {
-          Thread.sleep( 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore sleep interruption exception
-        }
-      }
-      this.checkTransRunning = true;
-    }
+    waitUntilTransformationIsStarted();
     Object[] rowData = null;
 
     // To reduce stress on the locking system we are going to allow
@@ -3010,6 +3139,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Override
   public void stopAll() {
     stopped.set( true );
+    lifecycleSignal.signalAll();
     trans.stopAll();
   }
 
@@ -3051,6 +3181,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Override
   public void setStopped( boolean stopped ) {
     this.stopped.set( stopped );
+    lifecycleSignal.signalAll();
   }
 
   @Override
@@ -3100,6 +3231,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   public void setPaused( boolean paused ) {
     this.paused.set( paused );
+    lifecycleSignal.signalAll();
   }
 
   /**
@@ -3109,6 +3241,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   public void setPaused( AtomicBoolean paused ) {
     this.paused = paused;
+    lifecycleSignal.signalAll();
   }
 
   /**
@@ -3363,6 +3496,69 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     return size;
   }
 
+  /**
+   * @return the capacity of all the output row sets added up, the ones with an unbounded or unknown capacity not
+   *         included. With several hops this is not the capacity of any one of them, see {@link RowSet#getCapacity()}
+   *         for that.
+   */
+  public int rowsetOutputCapacity() {
+    outputRowSetsLock.readLock().lock();
+    try {
+      return totalCapacity( outputRowSets );
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the capacity of all the input row sets added up, the ones with an unbounded or unknown capacity not
+   *         included. With several hops this is not the capacity of any one of them, see {@link RowSet#getCapacity()}
+   *         for that.
+   */
+  public int rowsetInputCapacity() {
+    inputRowSetsLock.readLock().lock();
+    try {
+      return totalCapacity( inputRowSets );
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+  }
+
+  private static int totalCapacity( List<RowSet> rowSets ) {
+    int capacity = 0;
+    for ( RowSet rowSet : rowSets ) {
+      capacity += Math.max( 0, rowSet.getCapacity() );
+    }
+    return capacity;
+  }
+
+  /**
+   * Register data the step wrote to temporary files because it didn't fit in memory.
+   *
+   * @param nrBytes
+   *          the number of bytes written
+   * @param nrPartitions
+   *          the number of partitions (files) the bytes were written to
+   */
+  public void addSpilled( long nrBytes, long nrPartitions ) {
+    bytesSpilled.addAndGet( nrBytes );
+    partitionsSpilled.addAndGet( nrPartitions );
+  }
+
+  /**
+   * @return the number of bytes the step wrote to temporary files because they didn't fit in memory
+   */
+  public long getBytesSpilled() {
+    return bytesSpilled.get();
+  }
+
+  /**
+   * @return the number of partitions (files) the step wrote to temporary files because they didn't fit in memory
+   */
+  public long getPartitionsSpilled() {
+    return partitionsSpilled.get();
+  }
+
   /**
    * Perform actions to stop a running step. This can be stopping running SQL queries (cancel), etc. Default it doesn't
    * do anything.
@@ -3389,22 +3585,22 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * Log summary.
    */
   public void logSummary() {
-    synchronized ( statusCountersLock ) {
-      long li = getLinesInput();
-      long lo = getLinesOutput();
-      long lr = getLinesRead();
-      long lw = getLinesWritten();
-      long lu = getLinesUpdated();
-      long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      } else {
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      }
+    StepCounters.Snapshot snapshot = getCountersSnapshot();
+    long li = snapshot.getLinesInput();
+    long lo = snapshot.getLinesOutput();
+    long lr = snapshot.getLinesRead();
+    long lw = snapshot.getLinesWritten();
+    long lu = snapshot.getLinesUpdated();
+    long lj = snapshot.getLinesRejected();
+    long le = snapshot.getErrors();
+    if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || le > 0 ) {
+      logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
+    } else {
+      logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
     }
   }
 
@@ -3739,6 +3935,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * The block-oriented version of {@link #checkFeedback(long)}: checks if feedback is due for any of the lines
+   * processed since previousLines.
+   */
+  protected boolean checkFeedback( long previousLines, long lines ) {
+    return getTransMeta().isFeedbackShown()
+      && ( lines > 0 ) && ( getTransMeta().getFeedbackSize() > 0 )
+      && ( lines / getTransMeta().getFeedbackSize() ) > ( previousLines / getTransMeta().getFeedbackSize() );
+  }
+
   /**
    * @return the rowMeta
    */
@@ -4416,6 +4622,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       handlePutRow( rowMeta, row );
     }
 
+    @Override public Object[][] getRows( int max ) throws KettleException {
+      return handleGetRows( max );
+    }
+
+    @Override public void putRows( RowMetaInterface rowMeta, Object[][] rows, int count ) throws KettleStepException {
+      handlePutRows( rowMeta, rows, count );
+    }
+
     @Override public void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                                     String fieldNames, String errorCodes ) throws KettleStepException {
       handlePutError( rowMeta, row, nrErrors, errorDescriptions, fieldNames, errorCodes );
@@ -52,6 +52,25 @@ public interface RowHandler {
   void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                  String fieldNames, String errorCodes ) throws KettleStepException;
 
+  /**
+   * Puts the first count rows of a block. By default the rows are passed on one at a time.
+   */
+  default void putRows( RowMetaInterface rowMeta, Object[][] rows, int count ) throws KettleStepException {
+    for ( int i = 0; i < count; i++ ) {
+      putRow( rowMeta, rows[i] );
+    }
+  }
+
+  /**
+   * Gets a block of up to max rows. By default a single row is returned per block.
+   *
+   * @return the rows or null if there are no more rows
+   */
+  default Object[][] getRows( int max ) throws KettleException {
+    Object[] row = getRow();
+    return row == null ? null : new Object[][] { row };
+  }
+
   default void putRowTo( RowMetaInterface rowMeta, Object[] row, RowSet rowSet )
     throws KettleStepException {
     throw new UnsupportedOperationException(
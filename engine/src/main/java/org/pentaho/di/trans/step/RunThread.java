@@ -25,6 +25,7 @@ package org.pentaho.di.trans.step;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
@@ -37,10 +38,10 @@ public class RunThread implements Runnable {
   /** for i18n purposes, needed byTranslator2!! */
   private static Class<?> PKG = BaseStep.class;
 
-  private StepInterface step;
-  private StepMetaInterface meta;
-  private StepDataInterface data;
-  private LogChannelInterface log;
+  protected StepInterface step;
+  protected StepMetaInterface meta;
+  protected StepDataInterface data;
+  protected LogChannelInterface log;
 
   public RunThread( StepMetaDataCombi combi ) {
     this.step = combi.step;
@@ -51,13 +52,7 @@ public class RunThread implements Runnable {
 
   public void run() {
     try {
-      step.setRunning( true );
-      step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_START );
-
-      step.beforeStartProcessing( meta, data );
-      if ( log.isDetailed() ) {
-        log.logDetailed( BaseMessages.getString( "System.Log.StartingToRun" ) );
-      }
+      startProcessing();
 
       // Wait
       while ( step.processRow( meta, data ) ) {
@@ -66,35 +61,64 @@ public class RunThread implements Runnable {
         }
       }
     } catch ( Throwable t ) {
-      try {
-        // check for OOME
-        if ( t instanceof OutOfMemoryError ) {
-          // Handle this different with as less overhead as possible to get an error message in the log.
-          // Otherwise it crashes likely with another OOME in Me$$ages.getString() and does not log
-          // nor call the setErrors() and stopAll() below.
-          log.logError( "UnexpectedError: ", t );
-        } else {
-          t.printStackTrace();
-          log.logError( BaseMessages.getString( "System.Log.UnexpectedError" ), t );
-        }
+      handleFailure( t );
+    } finally {
+      finishProcessing();
+    }
+  }
 
-        String logChannelId = log.getLogChannelId();
-        LoggingObjectInterface loggingObject = LoggingRegistry.getInstance().getLoggingObject( logChannelId );
-        String parentLogChannelId = loggingObject.getParent().getLogChannelId();
-        List<String> logChannelChildren = LoggingRegistry.getInstance().getLogChannelChildren( parentLogChannelId );
-        int childIndex = Const.indexOfString( log.getLogChannelId(), logChannelChildren );
-        if ( log.isDebug() ) {
-          log.logDebug( "child index = " + childIndex + ", logging object : " + loggingObject.toString() + " parent=" + parentLogChannelId );
-        }
-        KettleLogStore.getAppender().getBuffer( "2bcc6b3f-c660-4a8b-8b17-89e8cbd5b29b", false );
-        // baseStep.logError(Const.getStackTracker(t));
-      } catch ( OutOfMemoryError e ) {
-        e.printStackTrace();
-      } finally {
-        step.setErrors( 1 );
-        step.stopAll();
+  /**
+   * Marks the step as running and lets it do its work before the first row is processed.
+   */
+  protected void startProcessing() throws KettleException {
+    step.setRunning( true );
+    step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_START );
+
+    step.beforeStartProcessing( meta, data );
+    if ( log.isDetailed() ) {
+      log.logDetailed( BaseMessages.getString( "System.Log.StartingToRun" ) );
+    }
+  }
+
+  /**
+   * Logs an unexpected error thrown while processing rows and stops the transformation.
+   */
+  protected void handleFailure( Throwable t ) {
+    try {
+      // check for OOME
+      if ( t instanceof OutOfMemoryError ) {
+        // Handle this different with as less overhead as possible to get an error message in the log.
+        // Otherwise it crashes likely with another OOME in Me$$ages.getString() and does not log
+        // nor call the setErrors() and stopAll() below.
+        log.logError( "UnexpectedError: ", t );
+      } else {
+        t.printStackTrace();
+        log.logError( BaseMessages.getString( "System.Log.UnexpectedError" ), t );
+      }
+
+      String logChannelId = log.getLogChannelId();
+      LoggingObjectInterface loggingObject = LoggingRegistry.getInstance().getLoggingObject( logChannelId );
+      String parentLogChannelId = loggingObject.getParent().getLogChannelId();
+      List<String> logChannelChildren = LoggingRegistry.getInstance().getLogChannelChildren( parentLogChannelId );
+      int childIndex = Const.indexOfString( log.getLogChannelId(), logChannelChildren );
+      if ( log.isDebug() ) {
+        log.logDebug( "child index = " + childIndex + ", logging object : " + loggingObject.toString() + " parent=" + parentLogChannelId );
       }
+      KettleLogStore.getAppender().getBuffer( "2bcc6b3f-c660-4a8b-8b17-89e8cbd5b29b", false );
+      // baseStep.logError(Const.getStackTracker(t));
+    } catch ( OutOfMemoryError e ) {
+      e.printStackTrace();
     } finally {
+      step.setErrors( 1 );
+      step.stopAll();
+    }
+  }
+
+  /**
+   * Cleans up after the last row was processed, logs the step summary and marks the step as stopped.
+   */
+  protected void finishProcessing() {
+    try {
       step.afterFinishProcessing( meta, data );
       step.dispose( meta, data );
       step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_STOP );
@@ -120,9 +144,9 @@ public class RunThread implements Runnable {
         // it's likely an OOME, so we don't want to introduce overhead by using BaseMessages.getString(), see above
         //
         log.logError( "UnexpectedError: " + Const.getStackTracker( t ) );
-      } finally {
-        step.markStop();
       }
+    } finally {
+      step.markStop();
     }
   }
 }
@@ -0,0 +1,211 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The row counters of a step: lines read, written, input, output, updated, rejected and skipped.
+ * <p>
+ * The counters are striped ({@link LongAdder}) so that the step threads updating them never block on each other, nor
+ * on the threads polling them for status (Spoon, Carte, the performance monitor). A consistent view of all the counters
+ * at once is obtained through {@link #snapshot(long)}.
+ */
+public class StepCounters {
+
+  private final LongAdder linesRead = new LongAdder();
+  private final LongAdder linesWritten = new LongAdder();
+  private final LongAdder linesInput = new LongAdder();
+  private final LongAdder linesOutput = new LongAdder();
+  private final LongAdder linesUpdated = new LongAdder();
+  private final LongAdder linesRejected = new LongAdder();
+  private final LongAdder linesSkipped = new LongAdder();
+
+  LongAdder linesRead() {
+    return linesRead;
+  }
+
+  LongAdder linesWritten() {
+    return linesWritten;
+  }
+
+  LongAdder linesInput() {
+    return linesInput;
+  }
+
+  LongAdder linesOutput() {
+    return linesOutput;
+  }
+
+  LongAdder linesUpdated() {
+    return linesUpdated;
+  }
+
+  LongAdder linesRejected() {
+    return linesRejected;
+  }
+
+  LongAdder linesSkipped() {
+    return linesSkipped;
+  }
+
+  /**
+   * Add a number of lines to a counter.
+   *
+   * @param counter
+   *          one of the counters of this object
+   * @param nrLines
+   *          the number of lines to add, negative to subtract
+   * @return the new value of the counter
+   */
+  static long add( LongAdder counter, long nrLines ) {
+    counter.add( nrLines );
+    return counter.sum();
+  }
+
+  /**
+   * Set a counter to a new value. This is only exact if nothing else is updating the counter at the same time, which
+   * is the case for the places that set counters: initialization and resetting a step.
+   *
+   * @param counter
+   *          one of the counters of this object
+   * @param value
+   *          the new value of the counter
+   */
+  static void set( LongAdder counter, long value ) {
+    counter.add( value - counter.sum() );
+  }
+
+  /**
+   * Reset all the counters to 0.
+   */
+  public void reset() {
+    linesRead.reset();
+    linesWritten.reset();
+    linesInput.reset();
+    linesOutput.reset();
+    linesUpdated.reset();
+    linesRejected.reset();
+    linesSkipped.reset();
+  }
+
+  /**
+   * @param errors
+   *          the number of errors of the step, included as-is in the snapshot
+   * @return a snapshot of all the counters
+   */
+  public Snapshot snapshot( long errors ) {
+    // Rows are counted on the way in before they are counted on the way out: reading the outgoing counters first
+    // means a snapshot never shows more lines leaving a step than entering it.
+    //
+    long rejected = linesRejected.sum();
+    long skipped = linesSkipped.sum();
+    long updated = linesUpdated.sum();
+    long output = linesOutput.sum();
+    long written = linesWritten.sum();
+    long input = linesInput.sum();
+    long read = linesRead.sum();
+    return new Snapshot( read, written, input, output, updated, rejected, skipped, errors );
+  }
+
+  /**
+   * Get all the row counters and the number of errors of a step at once, use this rather than the individual getters
+   * when the numbers are reported together.
+   *
+   * @param step
+   *          the step to take the snapshot of
+   * @return a snapshot of the counters of the step
+   */
+  public static Snapshot snapshotOf( StepInterface step ) {
+    if ( step instanceof BaseStep ) {
+      return ( (BaseStep) step ).getCountersSnapshot();
+    }
+    // Same order as in snapshot(long)
+    //
+    long rejected = step.getLinesRejected();
+    long updated = step.getLinesUpdated();
+    long output = step.getLinesOutput();
+    long written = step.getLinesWritten();
+    long input = step.getLinesInput();
+    long read = step.getLinesRead();
+    return new Snapshot( read, written, input, output, updated, rejected, 0L, step.getErrors() );
+  }
+
+  /**
+   * An immutable copy of the counters of a step, taken at one point in time.
+   */
+  public static final class Snapshot {
+    private final long linesRead;
+    private final long linesWritten;
+    private final long linesInput;
+    private final long linesOutput;
+    private final long linesUpdated;
+    private final long linesRejected;
+    private final long linesSkipped;
+    private final long errors;
+
+    public Snapshot( long linesRead, long linesWritten, long linesInput, long linesOutput, long linesUpdated,
+      long linesRejected, long linesSkipped, long errors ) {
+      this.linesRead = linesRead;
+      this.linesWritten = linesWritten;
+      this.linesInput = linesInput;
+      this.linesOutput = linesOutput;
+      this.linesUpdated = linesUpdated;
+      this.linesRejected = linesRejected;
+      this.linesSkipped = linesSkipped;
+      this.errors = errors;
+    }
+
+    public long getLinesRead() {
+      return linesRead;
+    }
+
+    public long getLinesWritten() {
+      return linesWritten;
+    }
+
+    public long getLinesInput() {
+      return linesInput;
+    }
+
+    public long getLinesOutput() {
+      return linesOutput;
+    }
+
+    public long getLinesUpdated() {
+      return linesUpdated;
+    }
+
+    public long getLinesRejected() {
+      return linesRejected;
+    }
+
+    public long getLinesSkipped() {
+      return linesSkipped;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+  }
+}
@@ -58,6 +58,10 @@ public class StepStatus {
   private double seconds;
   private String speed;
   private String priority;
+  private int inputBufferCapacity;
+  private int outputBufferCapacity;
+  private long bytesSpilled;
+  private long partitionsSpilled;
   private boolean stopped;
   private boolean paused;
   private long accumlatedRuntime;
@@ -79,13 +83,14 @@ public class StepStatus {
 
     this.stepname = baseStep.getStepname();
     this.copy = baseStep.getCopy();
-    this.linesRead = linesRead + baseStep.getLinesRead();
-    this.linesWritten = linesWritten + baseStep.getLinesWritten();
-    this.linesInput = linesInput + baseStep.getLinesInput();
-    this.linesOutput = linesOutput + baseStep.getLinesOutput();
-    this.linesUpdated = linesUpdated + baseStep.getLinesUpdated();
-    this.linesRejected = linesRejected + baseStep.getLinesRejected();
-    this.errors = errors + baseStep.getErrors();
+    StepCounters.Snapshot counters = StepCounters.snapshotOf( baseStep );
+    this.linesRead = linesRead + counters.getLinesRead();
+    this.linesWritten = linesWritten + counters.getLinesWritten();
+    this.linesInput = linesInput + counters.getLinesInput();
+    this.linesOutput = linesOutput + counters.getLinesOutput();
+    this.linesUpdated = linesUpdated + counters.getLinesUpdated();
+    this.linesRejected = linesRejected + counters.getLinesRejected();
+    this.errors = errors + counters.getErrors();
     this.accumlatedRuntime = accumlatedRuntime + baseStep.getRuntime();
     this.statusDescription = baseStep.getStatus().getDescription();
 
@@ -107,6 +112,12 @@ public class StepStatus {
     this.speed = lapsed == 0 ? "-" : " " + speedDf.format( speedNumber );
     this.priority =
       baseStep.isRunning() ? "   " + baseStep.rowsetInputSize() + "/" + baseStep.rowsetOutputSize() : "-";
+    if ( baseStep instanceof BaseStep ) {
+      this.inputBufferCapacity = ( (BaseStep) baseStep ).rowsetInputCapacity();
+      this.outputBufferCapacity = ( (BaseStep) baseStep ).rowsetOutputCapacity();
+      this.bytesSpilled = ( (BaseStep) baseStep ).getBytesSpilled();
+      this.partitionsSpilled = ( (BaseStep) baseStep ).getPartitionsSpilled();
+    }
     this.stopped = baseStep.isStopped();
     this.paused = baseStep.isPaused();
   }
@@ -139,6 +150,10 @@ public class StepStatus {
       xml.append( XMLHandler.addTagValue( "seconds", seconds, false ) );
       xml.append( XMLHandler.addTagValue( "speed", speed, false ) );
       xml.append( XMLHandler.addTagValue( "priority", priority, false ) );
+      xml.append( XMLHandler.addTagValue( "inputBufferCapacity", inputBufferCapacity, false ) );
+      xml.append( XMLHandler.addTagValue( "outputBufferCapacity", outputBufferCapacity, false ) );
+      xml.append( XMLHandler.addTagValue( "bytesSpilled", bytesSpilled, false ) );
+      xml.append( XMLHandler.addTagValue( "partitionsSpilled", partitionsSpilled, false ) );
       xml.append( XMLHandler.addTagValue( "stopped", stopped, false ) );
       xml.append( XMLHandler.addTagValue( "paused", paused, false ) );
 
@@ -180,6 +195,10 @@ public class StepStatus {
     seconds = Double.parseDouble( XMLHandler.getTagValue( node, "seconds" ) );
     speed = XMLHandler.getTagValue( node, "speed" );
     priority = XMLHandler.getTagValue( node, "priority" );
+    inputBufferCapacity = Const.toInt( XMLHandler.getTagValue( node, "inputBufferCapacity" ), 0 );
+    outputBufferCapacity = Const.toInt( XMLHandler.getTagValue( node, "outputBufferCapacity" ), 0 );
+    bytesSpilled = Const.toLong( XMLHandler.getTagValue( node, "bytesSpilled" ), 0L );
+    partitionsSpilled = Const.toLong( XMLHandler.getTagValue( node, "partitionsSpilled" ), 0L );
     stopped = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "stopped" ) );
     paused = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "paused" ) );
 
@@ -492,6 +511,66 @@ public class StepStatus {
     this.paused = paused;
   }
 
+  /**
+   * @return the capacity of all the input row sets of the step added up, not the capacity of a single hop
+   */
+  public int getInputBufferCapacity() {
+    return inputBufferCapacity;
+  }
+
+  /**
+   * @param inputBufferCapacity
+   *          the capacity of all the input row sets of the step added up, not the capacity of a single hop
+   */
+  public void setInputBufferCapacity( int inputBufferCapacity ) {
+    this.inputBufferCapacity = inputBufferCapacity;
+  }
+
+  /**
+   * @return the capacity of all the output row sets of the step added up, not the capacity of a single hop
+   */
+  public int getOutputBufferCapacity() {
+    return outputBufferCapacity;
+  }
+
+  /**
+   * @param outputBufferCapacity
+   *          the capacity of all the output row sets of the step added up, not the capacity of a single hop
+   */
+  public void setOutputBufferCapacity( int outputBufferCapacity ) {
+    this.outputBufferCapacity = outputBufferCapacity;
+  }
+
+  /**
+   * @return the number of bytes the step wrote to temporary files because they didn't fit in memory
+   */
+  public long getBytesSpilled() {
+    return bytesSpilled;
+  }
+
+  /**
+   * @param bytesSpilled
+   *          the number of bytes the step wrote to temporary files because they didn't fit in memory
+   */
+  public void setBytesSpilled( long bytesSpilled ) {
+    this.bytesSpilled = bytesSpilled;
+  }
+
+  /**
+   * @return the number of partitions the step wrote to temporary files because they didn't fit in memory
+   */
+  public long getPartitionsSpilled() {
+    return partitionsSpilled;
+  }
+
+  /**
+   * @param partitionsSpilled
+   *          the number of partitions the step wrote to temporary files because they didn't fit in memory
+   */
+  public void setPartitionsSpilled( long partitionsSpilled ) {
+    this.partitionsSpilled = partitionsSpilled;
+  }
+
   public RowMetaInterface getSampleRowMeta() {
     return sampleRowMeta;
   }
@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import org.pentaho.di.core.RowSet;
+
+/**
+ * Runs a step copy in slices rather than in a thread of its own: every call to {@link #runSlice(int)} processes rows
+ * for as long as the step has input available and room in its output row sets, then hands control back to the
+ * scheduler. The step is started in the first slice and finished (disposed, marked as stopped) in the last one, just
+ * like {@link RunThread} does.
+ * <p>
+ * A step task must never run in more than one thread at the same time.
+ */
+public class StepTask extends RunThread {
+
+  private final int rowSetSize;
+
+  private volatile boolean started;
+  private volatile boolean done;
+
+  /**
+   * @param combi
+   *          the step copy to run
+   * @param rowSetSize
+   *          the capacity of the row sets between the steps, a step with an output row set holding this many rows has
+   *          to wait for its consumer
+   */
+  public StepTask( StepMetaDataCombi combi, int rowSetSize ) {
+    super( combi );
+    this.rowSetSize = rowSetSize;
+  }
+
+  /**
+   * Process rows until the step runs out of input, fills up one of its output row sets or processed maxIterations
+   * times.
+   *
+   * @param maxIterations
+   *          the maximum number of times to call processRow()
+   * @return true if the step is done processing rows
+   */
+  public boolean runSlice( int maxIterations ) {
+    if ( done ) {
+      return true;
+    }
+    boolean finished = false;
+    try {
+      if ( !started ) {
+        started = true;
+        startProcessing();
+      }
+      for ( int i = 0; i < maxIterations; i++ ) {
+        if ( step.isStopped() ) {
+          finished = true;
+          break;
+        }
+        if ( !hasInput() || !hasOutputRoom() ) {
+          break;
+        }
+        if ( !step.processRow( meta, data ) ) {
+          finished = true;
+          break;
+        }
+      }
+    } catch ( Throwable t ) {
+      finished = true;
+      handleFailure( t );
+    } finally {
+      if ( finished ) {
+        done = true;
+        finishProcessing();
+      }
+    }
+    return finished;
+  }
+
+  /**
+   * @return true if the next slice can make progress: the step still needs starting or stopping, or it has input
+   *         available and room to write its output.
+   */
+  public boolean isRunnable() {
+    if ( done ) {
+      return false;
+    }
+    return !started || step.isStopped() || ( hasInput() && hasOutputRoom() );
+  }
+
+  /**
+   * @return true if the step finished processing rows
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * @return the step this task is running
+   */
+  public StepInterface getStep() {
+    return step;
+  }
+
+  /**
+   * A step without input row sets generates its own rows (or has read them all). Otherwise we need a row to read, or
+   * all the input row sets need to be done so that the step gets to see the end of its input.
+   */
+  private boolean hasInput() {
+    boolean allDone = true;
+    for ( RowSet rowSet : step.getInputRowSets() ) {
+      if ( rowSet.size() > 0 ) {
+        return true;
+      }
+      if ( !rowSet.isDone() ) {
+        allDone = false;
+      }
+    }
+    return allDone;
+  }
+
+  private boolean hasOutputRoom() {
+    for ( RowSet rowSet : step.getOutputRowSets() ) {
+      if ( rowSet.size() >= rowSetSize ) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
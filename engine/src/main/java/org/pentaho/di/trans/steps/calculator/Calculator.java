@@ -33,6 +33,10 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.vector.ColumnVector;
+import org.pentaho.di.core.row.vector.DoubleColumnVector;
+import org.pentaho.di.core.row.vector.LongColumnVector;
+import org.pentaho.di.core.row.vector.RowBatch;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -72,8 +76,9 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    Object[] r = getRow(); // get row, set busy!
-    if ( r == null ) { // no more input to be expected...
+    long previousLinesRead = getLinesRead();
+    Object[][] rows = getRows( ROW_BATCH_SIZE ); // get a block of rows, set busy!
+    if ( rows == null ) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -153,8 +158,29 @@ public class Calculator extends BaseStep implements StepInterface {
       for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
         data.getTempIndexes()[i] = tempIndexes.get( i );
       }
+
+      data.setVectorized( isVectorizedExecution() && isVectorizable() );
+    }
+
+    if ( data.isVectorized() ) {
+      calcAndPutRows( rows );
+      if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+        }
+      }
+      return true;
+    }
+
+    for ( Object[] r : rows ) {
+      if ( !calcAndPutRow( r ) ) {
+        return false;
+      }
     }
+    return true;
+  }
 
+  private boolean calcAndPutRow( Object[] r ) throws KettleException {
     if ( log.isRowLevel() ) {
       logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
         + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
@@ -185,6 +211,155 @@ public class Calculator extends BaseStep implements StepInterface {
     return true;
   }
 
+  private void calcAndPutRows( Object[][] rows ) throws KettleException {
+    if ( log.isRowLevel() ) {
+      for ( Object[] r : rows ) {
+        logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+          + " : " + getInputRowMeta().getString( r ) );
+      }
+    }
+
+    try {
+      Object[][] result = calcFields( getInputRowMeta(), rows );
+      putRows( data.getOutputRowMeta(), result, result.length ); // copy rows to possible alternate rowset(s).
+
+      if ( log.isRowLevel() ) {
+        for ( Object[] r : result ) {
+          logRowlevel( "Wrote row : " + data.getOutputRowMeta().getString( r ) );
+        }
+      }
+    } catch ( KettleException e ) {
+      logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
+      throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
+    }
+  }
+
+  /**
+   * The calculations are done on whole columns of a block of rows when they are all a copy of a field in normal storage
+   * or basic arithmetic on two integer or two number fields, without any conversion of the result.
+   *
+   * @return true if all calculations can be done on the block of rows at once
+   */
+  private boolean isVectorizable() {
+    RowMetaInterface calcRowMeta = data.getCalcRowMeta();
+    for ( int i = 0, index = getInputRowMeta().size(); i < meta.getCalculation().length; i++, index++ ) {
+      CalculatorMetaFunction fn = meta.getCalculation()[i];
+      if ( Utils.isEmpty( fn.getFieldName() ) ) {
+        continue;
+      }
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      ValueMetaInterface targetMeta = calcRowMeta.getValueMeta( index );
+      if ( targetMeta == null || indexes.indexA < 0 ) {
+        return false;
+      }
+
+      switch ( fn.getCalcType() ) {
+        case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+          // A field in binary or indexed storage is copied row by row, so the copy has the same storage either way
+          //
+          ValueMetaInterface metaA = calcRowMeta.getValueMeta( indexes.indexA );
+          if ( targetMeta.getType() == ValueMetaInterface.TYPE_NONE || metaA.getType() != targetMeta.getType()
+            || !metaA.isStorageNormal() ) {
+            return false;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_ADD:
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+        case CalculatorMetaFunction.CALC_MULTIPLY:
+        case CalculatorMetaFunction.CALC_DIVIDE:
+          if ( indexes.indexB < 0 ) {
+            return false;
+          }
+          int type = calcRowMeta.getValueMeta( indexes.indexA ).getType();
+          if ( type != ValueMetaInterface.TYPE_INTEGER && type != ValueMetaInterface.TYPE_NUMBER ) {
+            return false;
+          }
+          if ( calcRowMeta.getValueMeta( indexes.indexB ).getType() != type || targetMeta.getType() != type ) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The vectorized version of {@link #calcFields(RowMetaInterface, Object[])}, only to be used when
+   * {@link #isVectorizable()}.
+   *
+   * @param inputRowMeta
+   *          the input row metadata
+   * @param rows
+   *          the input rows (data)
+   * @return The rows including the calculations, excluding the temporary values
+   * @throws KettleValueException
+   *           in case there is a calculation error.
+   */
+  private Object[][] calcFields( RowMetaInterface inputRowMeta, Object[][] rows ) throws KettleValueException {
+    // First make room for the calculated values in the rows...
+    for ( int r = 0; r < rows.length; r++ ) {
+      rows[r] = RowDataUtil.resizeArray( rows[r], data.getCalcRowMeta().size() );
+    }
+    RowBatch batch = new RowBatch( data.getCalcRowMeta(), rows, rows.length );
+
+    for ( int i = 0, index = inputRowMeta.size(); i < meta.getCalculation().length; i++, index++ ) {
+      CalculatorMetaFunction fn = meta.getCalculation()[i];
+      if ( Utils.isEmpty( fn.getFieldName() ) ) {
+        continue;
+      }
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      ColumnVector columnA = batch.getColumn( indexes.indexA );
+
+      if ( fn.getCalcType() == CalculatorMetaFunction.CALC_COPY_OF_FIELD ) {
+        batch.setColumn( index, columnA );
+      } else {
+        ColumnVector columnB = batch.getColumn( indexes.indexB );
+        if ( columnA instanceof LongColumnVector ) {
+          batch.setColumn( index,
+            calculate( fn.getCalcType(), (LongColumnVector) columnA, (LongColumnVector) columnB ) );
+        } else {
+          batch.setColumn( index,
+            calculate( fn.getCalcType(), (DoubleColumnVector) columnA, (DoubleColumnVector) columnB ) );
+        }
+      }
+    }
+
+    // Leave out the temporary fields
+    //
+    for ( int r = 0; r < rows.length; r++ ) {
+      rows[r] = RowDataUtil.removeItems( rows[r], data.getTempIndexes() );
+    }
+    return rows;
+  }
+
+  private static LongColumnVector calculate( int calcType, LongColumnVector a, LongColumnVector b ) {
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_ADD:
+        return a.add( b );
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        return a.subtract( b );
+      case CalculatorMetaFunction.CALC_MULTIPLY:
+        return a.multiply( b );
+      default:
+        return a.divide( b );
+    }
+  }
+
+  private static DoubleColumnVector calculate( int calcType, DoubleColumnVector a, DoubleColumnVector b ) {
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_ADD:
+        return a.add( b );
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        return a.subtract( b );
+      case CalculatorMetaFunction.CALC_MULTIPLY:
+        return a.multiply( b );
+      default:
+        return a.divide( b );
+    }
+  }
+
   /**
    * @param inputRowMeta
    *          the input row metadata
@@ -44,6 +44,8 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
 
   private int[] tempIndexes;
 
+  private boolean vectorized;
+
   private final Map<Integer, ValueMetaInterface> resultMetaMapping;
 
   public CalculatorData() {
@@ -83,6 +85,14 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
     this.tempIndexes = tempIndexes;
   }
 
+  public boolean isVectorized() {
+    return vectorized;
+  }
+
+  public void setVectorized( boolean vectorized ) {
+    this.vectorized = vectorized;
+  }
+
   public ValueMetaInterface getValueMetaFor( int resultType, String name ) throws KettlePluginException {
     // don't need any synchronization as data instance belongs only to one step instance
     ValueMetaInterface meta = resultMetaMapping.get( resultType );
@@ -233,10 +233,10 @@ public class Constant extends BaseStep implements StepInterface {
 
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
-    Object[] r = null;
-    r = getRow();
+    long previousLinesWritten = getLinesWritten();
+    Object[][] rows = getRows( ROW_BATCH_SIZE );
 
-    if ( r == null ) { // no more rows to be expected from the previous step(s)
+    if ( rows == null ) { // no more rows to be expected from the previous step(s)
       setOutputDone();
       return false;
     }
@@ -250,17 +250,21 @@ public class Constant extends BaseStep implements StepInterface {
       meta.getFields( data.outputMeta, getStepname(), null, null, this, repository, metaStore );
     }
 
-    // Add the constant data to the end of the row.
-    r = RowDataUtil.addRowData( r, getInputRowMeta().size(), data.getConstants().getData() );
+    // Add the constant data to the end of the rows.
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[i] = RowDataUtil.addRowData( rows[i], getInputRowMeta().size(), data.getConstants().getData() );
+    }
 
-    putRow( data.outputMeta, r );
+    putRows( data.outputMeta, rows, rows.length );
 
     if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString(
-        PKG, "Constant.Log.Wrote.Row", Long.toString( getLinesWritten() ), getInputRowMeta().getString( r ) ) );
+      for ( Object[] r : rows ) {
+        logRowlevel( BaseMessages.getString(
+          PKG, "Constant.Log.Wrote.Row", Long.toString( getLinesWritten() ), getInputRowMeta().getString( r ) ) );
+      }
     }
 
-    if ( checkFeedback( getLinesWritten() ) ) {
+    if ( checkFeedback( previousLinesWritten, getLinesWritten() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "Constant.Log.LineNr", Long.toString( getLinesWritten() ) ) );
       }
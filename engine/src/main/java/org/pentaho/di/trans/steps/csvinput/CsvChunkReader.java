@@ -0,0 +1,288 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.util.ExecutorUtil;
+
+/**
+ * Splits a local file in chunks of whole records and parses them on several threads. The file is mapped in memory.
+ * Records are found the way the CSV File Input step tokenizes them: delimiters and line ends between enclosures that
+ * start a field don't end a field or a record, doubled enclosures are escaped ones.
+ * <p>
+ * When the file has no enclosure the chunks end at the first line end after the chunk size, otherwise the records are
+ * scanned from the start of the file. Scanning is a lot cheaper than tokenizing and converting the fields, which is
+ * what the threads do.
+ *
+ * @see CsvInput
+ */
+public class CsvChunkReader {
+
+  /**
+   * Parses a chunk of records, on a worker thread.
+   */
+  public interface ChunkParser {
+    /**
+     * @param chunk
+     *          the mapped records
+     * @return the rows of the chunk in file order, or the conversion exceptions of rows that failed to convert
+     */
+    List<Object> parse( ByteBuffer chunk ) throws KettleException;
+  }
+
+  /** The size of the part of the file that is mapped to scan for records */
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final FileChannel fc;
+  private final long end;
+  private final int chunkSize;
+  private final int nrThreads;
+  private final boolean ordered;
+  private final byte[] delimiter;
+  private final byte[] enclosure;
+  private final boolean doubleLineEnds;
+  private final ChunkParser parser;
+
+  /** The start of the next chunk */
+  private long position;
+
+  private ByteBuffer window;
+  private long windowStart;
+
+  /** The chunks being parsed, in file order */
+  private final Deque<Future<List<Object>>> pending = new ArrayDeque<>();
+  private final CompletionService<List<Object>> completion;
+
+  /**
+   * @param fc
+   *          the file to read
+   * @param start
+   *          the position of the first record
+   * @param chunkSize
+   *          the minimal size of a chunk in bytes
+   * @param nrThreads
+   *          the maximal number of chunks parsed at once
+   * @param ordered
+   *          true to return the parsed chunks in file order, false to return them as soon as they're parsed
+   * @param delimiter
+   *          the field delimiter
+   * @param enclosure
+   *          the field enclosure or null if there is none
+   * @param doubleLineEnds
+   *          true if a line end right after another one belongs to the same record, as in the DOS and mixed formats
+   * @param parser
+   *          parses the chunks
+   */
+  public CsvChunkReader( FileChannel fc, long start, int chunkSize, int nrThreads, boolean ordered, byte[] delimiter,
+    byte[] enclosure, boolean doubleLineEnds, ChunkParser parser ) throws IOException {
+    this.fc = fc;
+    this.end = fc.size();
+    this.position = start;
+    this.chunkSize = Math.max( 1, chunkSize );
+    this.nrThreads = Math.max( 1, nrThreads );
+    this.ordered = ordered;
+    this.delimiter = delimiter;
+    this.enclosure = enclosure == null || enclosure.length == 0 ? null : enclosure;
+    this.doubleLineEnds = doubleLineEnds;
+    this.parser = parser;
+    this.completion = ordered ? null : new ExecutorCompletionService<List<Object>>( ExecutorUtil.getExecutor() );
+  }
+
+  /**
+   * Skip the record at the current position, the header row.
+   */
+  public void skipRecord() throws IOException {
+    position = getRecordEnd( position );
+  }
+
+  /**
+   * Get the rows of the next parsed chunk. Other chunks are parsed in the background in the meantime.
+   *
+   * @return the rows and conversion exceptions of the chunk, or null if all the chunks are read
+   */
+  public List<Object> nextChunk() throws KettleException {
+    try {
+      submitChunks();
+      if ( pending.isEmpty() ) {
+        return null;
+      }
+      Future<List<Object>> future;
+      if ( ordered ) {
+        future = pending.poll();
+      } else {
+        future = completion.take();
+        pending.remove( future );
+      }
+      List<Object> rows = future.get();
+
+      // Keep the threads busy while the rows are passed on
+      //
+      submitChunks();
+      return rows;
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof KettleException ) {
+        throw (KettleException) e.getCause();
+      }
+      throw new KettleFileException( "Error parsing a chunk of records", e.getCause() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleFileException( "Interrupted while parsing a chunk of records", e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Exception reading records using NIO", e );
+    }
+  }
+
+  /**
+   * Stop parsing the chunks that weren't read.
+   */
+  public void close() {
+    for ( Future<List<Object>> future : pending ) {
+      future.cancel( true );
+    }
+    pending.clear();
+    window = null;
+  }
+
+  private void submitChunks() throws IOException {
+    while ( pending.size() < nrThreads && position < end ) {
+      long chunkEnd = getChunkEnd( position );
+      if ( chunkEnd - position > Integer.MAX_VALUE ) {
+        throw new IOException( "Record at position " + position + " is too large to map" );
+      }
+      final ByteBuffer chunk = fc.map( FileChannel.MapMode.READ_ONLY, position, chunkEnd - position );
+      position = chunkEnd;
+      if ( ordered ) {
+        pending.add( ExecutorUtil.getExecutor().submit( () -> parser.parse( chunk ) ) );
+      } else {
+        pending.add( completion.submit( () -> parser.parse( chunk ) ) );
+      }
+    }
+  }
+
+  /**
+   * @return the end of the chunk starting at the given position, right after a record
+   */
+  long getChunkEnd( long start ) throws IOException {
+    long target = start + chunkSize;
+    if ( target >= end ) {
+      return end;
+    }
+    if ( enclosure == null ) {
+      // Without enclosures every line end ends a record
+      //
+      long pos = target;
+      while ( pos < end && !isLineEnd( byteAt( pos ) ) ) {
+        pos++;
+      }
+      return pos < end ? getLineEnd( pos ) : end;
+    }
+    long pos = start;
+    while ( pos < target ) {
+      pos = getRecordEnd( pos );
+    }
+    return pos;
+  }
+
+  /**
+   * @return the position right after the record starting at the given position
+   */
+  long getRecordEnd( long start ) throws IOException {
+    long pos = start;
+    boolean fieldStart = true;
+    while ( pos < end ) {
+      if ( fieldStart && enclosure != null && matches( pos, enclosure ) ) {
+        // Skip over the enclosed part, up to an enclosure that isn't doubled
+        //
+        pos += enclosure.length;
+        while ( pos < end ) {
+          if ( matches( pos, enclosure ) ) {
+            pos += enclosure.length;
+            if ( !matches( pos, enclosure ) ) {
+              break;
+            }
+            pos += enclosure.length;
+          } else {
+            pos++;
+          }
+        }
+        fieldStart = false;
+      } else if ( matches( pos, delimiter ) ) {
+        pos += delimiter.length;
+        fieldStart = true;
+      } else if ( isLineEnd( byteAt( pos ) ) ) {
+        return getLineEnd( pos );
+      } else {
+        pos++;
+        fieldStart = false;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * @return the position after the line end at the given position
+   */
+  private long getLineEnd( long pos ) throws IOException {
+    pos++;
+    if ( doubleLineEnds && pos < end && isLineEnd( byteAt( pos ) ) ) {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static boolean isLineEnd( int b ) {
+    return b == '\n' || b == '\r';
+  }
+
+  private boolean matches( long pos, byte[] pattern ) throws IOException {
+    if ( pos + pattern.length > end ) {
+      return false;
+    }
+    for ( int i = 0; i < pattern.length; i++ ) {
+      if ( byteAt( pos + i ) != pattern[ i ] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte byteAt( long pos ) throws IOException {
+    if ( window == null || pos < windowStart || pos >= windowStart + window.limit() ) {
+      windowStart = pos;
+      window = fc.map( FileChannel.MapMode.READ_ONLY, pos, Math.min( WINDOW_SIZE, end - pos ) );
+    }
+    return window.get( (int) ( pos - windowStart ) );
+  }
+}
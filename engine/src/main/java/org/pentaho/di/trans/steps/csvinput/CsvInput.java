@@ -28,6 +28,7 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.io.BufferedInputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -132,6 +133,10 @@ public class CsvInput extends BaseStep implements StepInterface {
         prepareToRunInParallel();
       }
 
+      // Parse the files on several threads?
+      //
+      data.parseThreads = getParseThreads();
+
       // Open the next file...
       //
       if ( !openNextFile() ) {
@@ -140,6 +145,10 @@ public class CsvInput extends BaseStep implements StepInterface {
       }
     }
 
+    if ( data.chunkReader != null ) {
+      return processChunk();
+    }
+
     // If we are running in parallel, make sure we don't read too much in this step copy...
     //
     if ( data.parallel ) {
@@ -168,31 +177,144 @@ public class CsvInput extends BaseStep implements StepInterface {
         }
       }
     } catch ( KettleConversionException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        StringBuilder errorDescriptions = new StringBuilder( 100 );
-        StringBuilder errorFields = new StringBuilder( 50 );
-        for ( int i = 0; i < e.getCauses().size(); i++ ) {
-          if ( i > 0 ) {
-            errorDescriptions.append( ", " );
-            errorFields.append( ", " );
-          }
-          errorDescriptions.append( e.getCauses().get( i ).getMessage() );
-          errorFields.append( e.getFields().get( i ).toStringMeta() );
+      handleConversionError( e );
+    }
+
+    return true;
+  }
+
+  private void handleConversionError( KettleConversionException e ) throws KettleException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      StringBuilder errorDescriptions = new StringBuilder( 100 );
+      StringBuilder errorFields = new StringBuilder( 50 );
+      for ( int i = 0; i < e.getCauses().size(); i++ ) {
+        if ( i > 0 ) {
+          errorDescriptions.append( ", " );
+          errorFields.append( ", " );
         }
+        errorDescriptions.append( e.getCauses().get( i ).getMessage() );
+        errorFields.append( e.getFields().get( i ).toStringMeta() );
+      }
 
-        putError(
-          data.outputRowMeta, e.getRowData(), e.getCauses().size(), errorDescriptions.toString(), errorFields
-            .toString(), "CSVINPUT001" );
+      putError(
+        data.outputRowMeta, e.getRowData(), e.getCauses().size(), errorDescriptions.toString(), errorFields
+          .toString(), "CSVINPUT001" );
+    } else {
+      // Only forward the first cause.
+      //
+      throw new KettleException( e.getMessage(), e.getCauses().get( 0 ) );
+    }
+  }
+
+  /**
+   * Pass on the rows of the next chunk parsed by the chunk reader, or open the next file once all are read.
+   */
+  private boolean processChunk() throws KettleException {
+    List<Object> rows = data.chunkReader.nextChunk();
+    if ( rows == null ) {
+      if ( openNextFile() ) {
+        return true; // try again on the next loop...
       } else {
-        // Only forward the first cause.
-        //
-        throw new KettleException( e.getMessage(), e.getCauses().get( 0 ) );
+        setOutputDone(); // last file, end here
+        return false;
       }
     }
 
+    for ( Object row : rows ) {
+      if ( isStopped() ) {
+        return false;
+      }
+      incrementLinesInput();
+      if ( row instanceof KettleConversionException ) {
+        // The chunk only knows the line of the record in the chunk, report the line in the file
+        //
+        KettleConversionException chunkException = (KettleConversionException) row;
+        KettleConversionException e = new KettleConversionException(
+          getConversionErrorMessage( chunkException.getCauses().size(), getLinesInput() ),
+          chunkException.getCauses(), chunkException.getFields(), chunkException.getRowData() );
+        if ( data.isAddingRowNumber ) {
+          e.getRowData()[ data.rownumFieldIndex ] = data.rowNumber++;
+        }
+        handleConversionError( e );
+      } else {
+        Object[] outputRowData = (Object[]) row;
+        if ( data.isAddingRowNumber ) {
+          outputRowData[ data.rownumFieldIndex ] = data.rowNumber++;
+        }
+        putRow( data.outputRowMeta, outputRowData );
+        if ( checkFeedback( getLinesInput() ) ) {
+          if ( log.isBasic() ) {
+            logBasic( BaseMessages.getString( PKG, "CsvInput.Log.LineNumber", Long.toString( getLinesInput() ) ) );
+          }
+        }
+      }
+    }
     return true;
   }
 
+  /**
+   * @return the number of threads to parse the files with. Files are only split in chunks when the copies of the step
+   *         don't read the files in parallel already, when new lines in fields are always enclosed and when the
+   *         encoding has single byte line ends.
+   */
+  private int getParseThreads() {
+    int threads = Const.toInt( getVariable( Const.KETTLE_CSV_INPUT_PARSE_THREADS ), 1 );
+    if ( threads <= 1 ) {
+      return 1;
+    }
+    if ( data.parallel || meta.isNewlinePossibleInFields() || data.encodingType != EncodingType.SINGLE ) {
+      if ( isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "CsvInput.Log.ParsingOnOneThread" ) );
+      }
+      return 1;
+    }
+    return threads;
+  }
+
+  /**
+   * Let the chunk reader parse the rest of the current file.
+   *
+   * @param start
+   *          the position of the first record to parse
+   */
+  private void startChunkReader( FileChannel fc, long start ) throws IOException {
+    //Set file format to mixed if empty
+    if ( StringUtils.isBlank( meta.getFileFormat() ) ) {
+      meta.setFileFormat( "mixed" );
+    }
+    int chunkSize = Const.toInt( getVariable( Const.KETTLE_CSV_INPUT_PARSE_CHUNK_SIZE ), 4096 ) * 1024;
+    boolean ordered = !"N".equalsIgnoreCase( getVariable( Const.KETTLE_CSV_INPUT_PARSE_ORDERED ) );
+    boolean doubleLineEnds = meta.getFileFormatTypeNr() != TextFileInputMeta.FILE_FORMAT_UNIX;
+
+    data.chunkReader = new CsvChunkReader( fc, start, chunkSize, data.parseThreads, ordered, data.delimiter,
+      data.enclosure, doubleLineEnds, this::parseChunk );
+    if ( isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "CsvInput.Log.ParsingInChunks", data.filenames[ data.filenr ],
+        data.parseThreads, chunkSize ) );
+    }
+  }
+
+  /**
+   * Tokenize and convert the records of a chunk, on a thread of the chunk reader.
+   *
+   * @return the rows of the chunk and the conversion exceptions of the rows that failed to convert
+   */
+  private List<Object> parseChunk( ByteBuffer chunk ) throws KettleException {
+    CsvInputData chunkData = data.newChunkData( chunk );
+    List<Object> rows = new ArrayList<>();
+    while ( true ) {
+      try {
+        Object[] row = readOneRow( chunkData, false, false );
+        if ( row == null ) {
+          return rows;
+        }
+        rows.add( row );
+      } catch ( KettleConversionException e ) {
+        rows.add( e );
+      }
+    }
+  }
+
   private void prepareToRunInParallel() throws KettleException {
     try {
       // At this point it doesn't matter if we have 1 or more files.
@@ -297,6 +419,11 @@ public class CsvInput extends BaseStep implements StepInterface {
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( data.chunkReader != null ) {
+      data.chunkReader.close();
+      data.chunkReader = null;
+    }
+
     try {
       // Close the previous file...
       //
@@ -355,6 +482,10 @@ public class CsvInput extends BaseStep implements StepInterface {
       data.fc = data.fis.getChannel();
       data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
 
+      if ( data.parseThreads > 1 ) {
+        startChunkReader( data.fc, bomSize );
+      }
+
       // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
       //
       if ( data.parallel ) {
@@ -400,7 +531,13 @@ public class CsvInput extends BaseStep implements StepInterface {
       //
       if ( meta.isHeaderPresent() ) {
         // Standard flat file : skip header
-        if ( !data.parallel || data.bytesToSkipInFirstFile <= 0 ) {
+        if ( data.chunkReader != null ) {
+          data.chunkReader.skipRecord();
+          logBasic( BaseMessages.getString( PKG, "CsvInput.Log.HeaderRowSkipped", data.filenames[ data.filenr - 1 ] ) );
+          if ( data.fieldsMapping.size() == 0 ) {
+            return false;
+          }
+        } else if ( !data.parallel || data.bytesToSkipInFirstFile <= 0 ) {
           readOneRow( true, false ); // skip this row.
           logBasic( BaseMessages.getString( PKG, "CsvInput.Log.HeaderRowSkipped", data.filenames[ data.filenr - 1 ] ) );
           if ( data.fieldsMapping.size() == 0 ) {
@@ -564,6 +701,36 @@ public class CsvInput extends BaseStep implements StepInterface {
    * @throws KettleException
    */
   private Object[] readOneRow( boolean skipRow, boolean ignoreEnclosures ) throws KettleException {
+    return readOneRow( data, skipRow, ignoreEnclosures );
+  }
+
+  /**
+   * Count a line read from the file. The lines parsed from a chunk are counted in the chunk, the step counts them when
+   * it passes their rows on.
+   */
+  private void incrementLinesInput( CsvInputData data ) {
+    if ( data.isChunk() ) {
+      data.chunkLinesRead++;
+    } else {
+      incrementLinesInput();
+    }
+  }
+
+  private static String getConversionErrorMessage( int nrErrors, long lineNr ) {
+    return "There were " + nrErrors + " conversion errors on line " + lineNr;
+  }
+
+  /**
+   * Read a single row of data from the file or from a chunk of it...
+   *
+   * @param data             the file or chunk to read from, the step data or the data of a chunk
+   * @param skipRow          if row should be skipped: header row or part of row in case of parallel read
+   * @param ignoreEnclosures if enclosures should be ignored, i.e. in case of we need to skip part of the row during
+   *                         parallel read
+   * @return a row of data...
+   * @throws KettleException
+   */
+  private Object[] readOneRow( CsvInputData data, boolean skipRow, boolean ignoreEnclosures ) throws KettleException {
 
     try {
 
@@ -611,7 +778,7 @@ public class CsvInput extends BaseStep implements StepInterface {
                 outputRowData[data.rownumFieldIndex] = data.rowNumber++;
               }
 
-              incrementLinesInput();
+              incrementLinesInput( data );
               return outputRowData;
             }
           }
@@ -846,15 +1013,15 @@ public class CsvInput extends BaseStep implements StepInterface {
       }
 
       if ( !ignoreEnclosures ) {
-        incrementLinesInput();
+        incrementLinesInput( data );
       }
 
       if ( conversionExceptions != null && conversionExceptions.size() > 0 ) {
         // Forward the first exception
         //
-        throw new KettleConversionException(
-          "There were " + conversionExceptions.size() + " conversion errors on line " + getLinesInput(),
-          conversionExceptions, exceptionFields, outputRowData );
+        throw new KettleConversionException( getConversionErrorMessage( conversionExceptions.size(),
+          data.isChunk() ? data.chunkLinesRead : getLinesInput() ), conversionExceptions, exceptionFields,
+          outputRowData );
       }
 
       return outputRowData;
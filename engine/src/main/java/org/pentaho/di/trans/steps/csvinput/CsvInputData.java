@@ -26,6 +26,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
 import org.pentaho.di.core.exception.KettleException;
@@ -83,6 +84,16 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
 
   public FieldsMapping fieldsMapping;
 
+  /** The number of threads parsing the file, above 1 the chunk reader parses it */
+  public int parseThreads;
+  public CsvChunkReader chunkReader;
+
+  /** Read from this channel instead of the file channel, a chunk of the file */
+  private ReadableByteChannel source;
+
+  /** The number of lines parsed from a chunk so far, the step counts the lines input when it passes the rows on */
+  long chunkLinesRead;
+
   /**
    * Data class for CsvInput step
    *
@@ -129,7 +140,7 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     }
 
     bb.position( endBuffer );
-    int n = fc.read( bb );
+    int n = source != null ? source.read( bb ) : fc.read( bb );
     if ( n >= 0 ) {
 
       // adjust the highest used position...
@@ -266,7 +277,49 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     return field;
   }
 
+  /**
+   * Create the data to parse a chunk of the current file with, on another thread. The chunk is read instead of the
+   * file and the row metadata is cloned so the conversions don't share formatters. The row numbers are left to the
+   * step.
+   *
+   * @param chunk
+   *          the records to parse
+   */
+  CsvInputData newChunkData( ByteBuffer chunk ) {
+    CsvInputData chunkData = new CsvInputData();
+    chunkData.source = new ByteBufferChannel( chunk );
+    chunkData.bb = ByteBuffer.allocate( preferredBufferSize );
+    chunkData.preferredBufferSize = preferredBufferSize;
+    chunkData.convertRowMeta = convertRowMeta.clone();
+    chunkData.outputRowMeta = outputRowMeta;
+    chunkData.delimiter = delimiter;
+    chunkData.enclosure = enclosure;
+    chunkData.filenames = filenames;
+    chunkData.filenr = filenr;
+    chunkData.binaryFilename = binaryFilename;
+    chunkData.isAddingRowNumber = false;
+    chunkData.filenameFieldIndex = filenameFieldIndex;
+    chunkData.rownumFieldIndex = rownumFieldIndex;
+    chunkData.encodingType = encodingType;
+    chunkData.delimiterMatcher = delimiterMatcher;
+    chunkData.enclosureMatcher = enclosureMatcher;
+    chunkData.crLfMatcher = crLfMatcher;
+    chunkData.fieldsMapping = fieldsMapping;
+    return chunkData;
+  }
+
+  /**
+   * @return true if this is the data of a chunk, parsed on a thread of the chunk reader
+   */
+  boolean isChunk() {
+    return source != null;
+  }
+
   void closeFile() throws KettleException {
+    if ( chunkReader != null ) {
+      chunkReader.close();
+      chunkReader = null;
+    }
     try {
       if ( fc != null ) {
         fc.close();
@@ -342,4 +395,37 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     }
   }
 
+  /**
+   * Reads a mapped chunk of the file.
+   */
+  private static class ByteBufferChannel implements ReadableByteChannel {
+    private ByteBuffer buffer;
+
+    ByteBufferChannel( ByteBuffer buffer ) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read( ByteBuffer dst ) {
+      if ( !buffer.hasRemaining() ) {
+        return -1;
+      }
+      int n = Math.min( dst.remaining(), buffer.remaining() );
+      ByteBuffer part = buffer.duplicate();
+      part.limit( part.position() + n );
+      dst.put( part );
+      buffer.position( buffer.position() + n );
+      return n;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+      // nothing to close, the mapping is released when it's garbage collected
+    }
+  }
 }
@@ -22,15 +22,21 @@
 
 package org.pentaho.di.trans.steps.databasejoin;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -45,6 +51,18 @@ import org.pentaho.di.trans.step.*;
 public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
   private static Class<?> PKG = DatabaseJoinMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The maximum number of parameters and rows of a batched join */
+  private static final int MAX_BATCH_PARAMETERS = 1000;
+  private static final int MAX_BATCH_ROWS = 100;
+
+  /**
+   * Only plain queries can be batched. An ORDER BY isn't allowed in a sub-query by every database, nor would the
+   * order survive the UNION ALL.
+   */
+  private static final Pattern BATCHABLE_SQL = Pattern.compile( "(?is)\\s*select\\b(?!.*\\border\\s+by\\b).*" );
+
+  private static final String BATCH_ROW_FIELD = "KETTLE_BATCH_ROW";
+
   private final ReentrantLock dbLock = new ReentrantLock();
 
   public DatabaseJoin( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
@@ -82,6 +100,8 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
 
           data.lookupRowMeta.addValueMeta( rowMeta.getValueMeta( data.keynrs[i] ).clone() );
         }
+
+        data.batchSize = getBatchSize( data );
       }
 
       // Construct the parameters row...
@@ -146,18 +166,48 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
-
-    boolean sendToErrorRow = false;
-    String errorMessage = null;
+    final DatabaseJoinMeta meta = (DatabaseJoinMeta) smi;
+    final DatabaseJoinData data = (DatabaseJoinData) sdi;
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchRows != null && !data.batchRows.isEmpty() && !joinBatch( meta, data ) ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
 
+    if ( data.batchRows != null ) {
+      data.batchRows.add( r );
+      return data.batchRows.size() < data.batchSize || joinBatch( meta, data );
+    }
+
+    // The first row is joined on its own, it decides whether the next ones are joined in batches
+    //
+    if ( !joinRow( meta, data, r ) ) {
+      return false;
+    }
+    if ( data.batchSize > 1 && data.batchRows == null ) {
+      data.batchRows = new ArrayList<>( data.batchSize );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseJoin.Log.JoiningInBatches", data.batchSize ) );
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Join a single row and pass on the results.
+   *
+   * @return false if the step stopped because of an error
+   */
+  private boolean joinRow( DatabaseJoinMeta meta, DatabaseJoinData data, Object[] r ) throws KettleException {
+    boolean sendToErrorRow = false;
+    String errorMessage = null;
+
     try {
-      lookupValues( (DatabaseJoinMeta) smi, (DatabaseJoinData) sdi, getInputRowMeta(), r ); // add new values to the row in rowset[0].
+      lookupValues( meta, data, getInputRowMeta(), r ); // add new values to the row in rowset[0].
       if ( checkFeedback( getLinesRead() ) ) {
         if ( log.isBasic() ) {
           logBasic( BaseMessages.getString( PKG, "DatabaseJoin.Log.LineNumber" ) + getLinesRead() );
@@ -184,6 +234,183 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * @return the number of rows to join with a single query, 1 to join them one by one
+   */
+  private int getBatchSize( DatabaseJoinData data ) {
+    int batchSize = Const.toInt( getVariable( Const.KETTLE_DATABASE_JOIN_BATCH_SIZE ), 1 );
+    if ( batchSize <= 1 || data.sql == null || !BATCHABLE_SQL.matcher( data.sql ).matches() ) {
+      return 1;
+    }
+    return Math.min( Math.min( batchSize, MAX_BATCH_ROWS ),
+      Math.max( 1, MAX_BATCH_PARAMETERS / Math.max( 1, data.keynrs.length ) ) );
+  }
+
+  /**
+   * Join the buffered rows with a single query, then pass on the results in the order of the rows. If the batch can't
+   * be joined, the rows are joined one by one from then on.
+   *
+   * @return false if the step stopped because of an error
+   */
+  private boolean joinBatch( DatabaseJoinMeta meta, DatabaseJoinData data ) throws KettleException {
+    List<Object[]> rows = data.batchRows;
+    data.batchRows = new ArrayList<>( data.batchSize );
+
+    List<List<Object[]>> joined = new ArrayList<>( rows.size() );
+    RowMetaInterface resultMeta = null;
+    dbLock.lock();
+    try {
+      resultMeta = queryBatch( data, rows, joined );
+    } catch ( KettleDatabaseException e ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "DatabaseJoin.Log.BatchFailed", e.getMessage() ) );
+      }
+      data.batchSize = 1;
+      data.batchRows = null;
+      closeBatchStatement( data );
+    } finally {
+      dbLock.unlock();
+    }
+
+    if ( resultMeta == null ) {
+      for ( Object[] row : rows ) {
+        if ( !joinRow( meta, data, row ) ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    RowMetaInterface rowMeta = getInputRowMeta();
+    int addSize = resultMeta.size() - 1;
+    for ( int i = 0; i < rows.size(); i++ ) {
+      Object[] rowData = rows.get( i );
+      try {
+        int counter = 0;
+        for ( Object[] add : joined.get( i ) ) {
+          if ( meta.getRowLimit() > 0 && counter >= meta.getRowLimit() ) {
+            break;
+          }
+          counter++;
+
+          Object[] newRow = RowDataUtil.resizeArray( rowData, data.outputRowMeta.size() );
+          System.arraycopy( add, 1, newRow, rowMeta.size(), addSize );
+          // we have to clone, otherwise we only get the last new value
+          putRow( data.outputRowMeta, data.outputRowMeta.cloneRow( newRow ) );
+
+          if ( log.isRowLevel() ) {
+            logRowlevel( BaseMessages.getString( PKG, "DatabaseJoin.Log.PutoutRow" )
+              + data.outputRowMeta.getString( newRow ) );
+          }
+        }
+
+        // Nothing found? Perhaps we have to put something out after all?
+        if ( counter == 0 && meta.isOuterJoin() ) {
+          if ( data.notfound == null ) {
+            data.notfound = new Object[addSize];
+          }
+          Object[] newRow = RowDataUtil.resizeArray( rowData, data.outputRowMeta.size() );
+          System.arraycopy( data.notfound, 0, newRow, rowMeta.size(), data.notfound.length );
+          putRow( data.outputRowMeta, newRow );
+        }
+        if ( checkFeedback( getLinesRead() ) && log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "DatabaseJoin.Log.LineNumber" ) + getLinesRead() );
+        }
+      } catch ( KettleException e ) {
+        if ( getStepMeta().isDoingErrorHandling() ) {
+          putError( getInputRowMeta(), rowData, 1, e.toString(), null, "DBJOIN001" );
+        } else {
+          logError( BaseMessages.getString( PKG, "DatabaseJoin.Log.ErrorInStepRunning" ) + e.getMessage(), e );
+          setErrors( 1 );
+          stopAll();
+          setOutputDone(); // signal end to receiver(s)
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Run the query of a batch: the SQL is repeated for every row in a UNION ALL, every copy returns the index of its
+   * row in the batch in front of its fields.
+   *
+   * @param joined receives the rows returned per row of the batch
+   * @return the metadata of the returned rows
+   */
+  private RowMetaInterface queryBatch( DatabaseJoinData data, List<Object[]> rows, List<List<Object[]>> joined )
+    throws KettleDatabaseException {
+    PreparedStatement ps;
+    RowMetaInterface paramsMeta;
+    if ( rows.size() == data.batchSize ) {
+      if ( data.batchStatement == null ) {
+        data.batchStatement = data.db.prepareSQL( getBatchSQL( data, data.batchSize ) );
+        data.batchParamsMeta = getBatchParamsMeta( data, data.batchSize );
+      }
+      ps = data.batchStatement;
+      paramsMeta = data.batchParamsMeta;
+    } else {
+      ps = data.db.prepareSQL( getBatchSQL( data, rows.size() ) );
+      paramsMeta = getBatchParamsMeta( data, rows.size() );
+    }
+
+    int nrParams = data.keynrs.length;
+    Object[] params = new Object[rows.size() * nrParams];
+    for ( int i = 0; i < rows.size(); i++ ) {
+      for ( int j = 0; j < nrParams; j++ ) {
+        params[i * nrParams + j] = rows.get( i )[data.keynrs[j]];
+      }
+      joined.add( new ArrayList<>() );
+    }
+
+    List<Object[]> results = new ArrayList<>();
+    RowMetaInterface resultMeta;
+    try {
+      resultMeta = data.db.getLookupRows( ps, paramsMeta, params, results );
+    } finally {
+      if ( ps != data.batchStatement ) {
+        data.db.closePreparedStatement( ps );
+      }
+    }
+
+    try {
+      for ( Object[] result : results ) {
+        incrementLinesInput();
+        joined.get( resultMeta.getInteger( result, 0 ).intValue() ).add( result );
+      }
+    } catch ( KettleException e ) {
+      throw new KettleDatabaseException( e );
+    }
+    return resultMeta;
+  }
+
+  private String getBatchSQL( DatabaseJoinData data, int nrRows ) {
+    String query = data.sql.replaceAll( "[\\s;]+$", "" );
+    StringBuilder sql = new StringBuilder();
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( i > 0 ) {
+        sql.append( Const.CR ).append( "UNION ALL" ).append( Const.CR );
+      }
+      // The line break keeps a trailing comment from swallowing the end of the sub-query
+      sql.append( "SELECT " ).append( i ).append( " AS " ).append( BATCH_ROW_FIELD )
+        .append( ", kettle_batch.* FROM ( " ).append( query ).append( Const.CR ).append( ") kettle_batch" );
+    }
+    if ( log.isDebug() ) {
+      logDebug( BaseMessages.getString( PKG, "DatabaseJoin.Log.SQLStatement", sql ) );
+    }
+    return sql.toString();
+  }
+
+  private RowMetaInterface getBatchParamsMeta( DatabaseJoinData data, int nrRows ) {
+    RowMetaInterface paramsMeta = new RowMeta();
+    for ( int i = 0; i < nrRows; i++ ) {
+      for ( ValueMetaInterface valueMeta : data.lookupRowMeta.getValueMetaList() ) {
+        paramsMeta.addValueMeta( valueMeta.clone() );
+      }
+    }
+    return paramsMeta;
+  }
+
   /**
    * Stop the running query
    * [PDI-17820] - In the Database Join step data.isCancelled is checked before synchronization and set after synchronization is completed.
@@ -203,6 +430,9 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
     try {
       if ( data.db != null && data.db.getConnection() != null && !data.isCanceled ) {
         data.db.cancelStatement( data.pstmt );
+        if ( data.batchStatement != null ) {
+          data.db.cancelStatement( data.batchStatement );
+        }
         setStopped( true );
         data.isCanceled = true;
       }
@@ -233,6 +463,7 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
         sql = environmentSubstitute( sql );
       }
       // Prepare the SQL statement
+      data.sql = sql;
       data.pstmt = data.db.prepareSQL( sql );
       if ( log.isDebug() ) {
         logDebug( BaseMessages.getString( PKG, "DatabaseJoin.Log.SQLStatement", sql ) );
@@ -248,10 +479,23 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
     return PKG;
   }
 
+  private void closeBatchStatement( DatabaseJoinData data ) {
+    if ( data.batchStatement != null ) {
+      try {
+        data.db.closePreparedStatement( data.batchStatement );
+      } catch ( KettleDatabaseException e ) {
+        logError( e.getMessage(), e );
+      }
+      data.batchStatement = null;
+    }
+  }
+
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     final DatabaseJoinData data = (DatabaseJoinData) sdi;
     dbLock.lock();
     try {
+      // The statement of the batches has to be closed before the connection is
+      closeBatchStatement( data );
       super.dispose( smi, sdi );
     } finally {
       dbLock.unlock();
@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.steps.databasejoin;
 
 import java.sql.PreparedStatement;
+import java.util.List;
 
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -44,6 +45,15 @@ public class DatabaseJoinData extends BaseDatabaseStepData implements StepDataIn
   public Object[] notfound; // Values in case nothing is found...
   public boolean isCanceled;
 
+  /** The SQL after variable substitution */
+  String sql;
+  /** The number of rows joined with a single query, 1 when rows are joined one by one */
+  int batchSize;
+  /** The rows waiting to be joined as a batch, null when rows are joined one by one */
+  List<Object[]> batchRows;
+  PreparedStatement batchStatement;
+  RowMetaInterface batchParamsMeta;
+
   public DatabaseJoinData() {
     super();
   }
@@ -22,11 +22,18 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.Database;
@@ -34,6 +41,7 @@ import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -61,6 +69,18 @@ import com.google.common.annotations.VisibleForTesting;
 public class DatabaseLookup extends BaseStep implements StepInterface {
   private static Class<?> PKG = DatabaseLookupMeta.class; // for i18n purposes, needed by Translator2!!
 
+  static final String CACHE_SHARING_NONE = "NONE";
+  static final String CACHE_SHARING_STEP = "STEP";
+  static final String CACHE_SHARING_TABLE = "TABLE";
+
+  private static final String CACHE_KEY_PREFIX = "DatabaseLookup.cache:";
+
+  /** The maximum number of parameters of a batched lookup, Oracle for one doesn't allow more values in an IN list */
+  private static final int MAX_BATCH_PARAMETERS = 1000;
+
+  /** Marks the keys of a batch that found more than one row when that's not allowed */
+  private static final Object[] MULTIPLE_RESULTS = new Object[ 0 ];
+
   private DatabaseLookupMeta meta;
   private DatabaseLookupData data;
 
@@ -78,8 +98,57 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
    */
   @VisibleForTesting
   synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+    Object[] lookupRow = getLookupRow( inputRowMeta, row );
+
+    Object[] add;
+    boolean cache_now = false;
+    boolean cacheHit = false;
+
+    // First, check if we looked up before
+    if ( meta.isCached() ) {
+      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
+      if ( add != null ) {
+        cacheHit = true;
+        data.cacheHits++;
+      } else {
+        data.cacheMisses++;
+      }
+    } else {
+      add = null;
+    }
+
+    if ( add == null ) {
+      if ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) { // do not go to the
+        // database when all rows
+        // are in (exception LIKE
+        // operator)
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
+            + meta.getStreamKeyField1().length
+            + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
+            + data.lookupMeta.getString( lookupRow ) );
+        }
+
+        data.db.setValuesLookup( data.lookupMeta, lookupRow );
+        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        cache_now = true;
+      }
+    }
+
+    // Only verify the data types if the data comes from the DB, NOT when we have a cache hit
+    // In that case, we already know the data type is OK.
+    if ( add != null && !cacheHit ) {
+      incrementLines();
+      convertReturnedValues( data.db.getReturnRowMeta(), 0, add );
+    }
+
+    return addLookupValues( inputRowMeta, row, lookupRow, add, cache_now );
+  }
 
+  /**
+   * @return the values of the input row to look up, converted to the types of the table fields
+   */
+  private Object[] getLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -118,38 +187,45 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
 
-    Object[] add;
-    boolean cache_now = false;
-    boolean cacheHit = false;
-
-    // First, check if we looked up before
-    if ( meta.isCached() ) {
-      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
-      if ( add != null ) {
-        cacheHit = true;
-      }
-    } else {
-      add = null;
-    }
+  /**
+   * Convert the values returned by the database to the return types chosen in the step.
+   *
+   * @param returnedMeta the metadata of the returned row
+   * @param offset       the index of the first return value in the returned row
+   * @param add          the return values
+   */
+  private void convertReturnedValues( RowMetaInterface returnedMeta, int offset, Object[] add )
+    throws KettleException {
+    int[] types = meta.getReturnValueDefaultType();
 
-    if ( add == null ) {
-      if ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) { // do not go to the
-        // database when all rows
-        // are in (exception LIKE
-        // operator)
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
-            + meta.getStreamKeyField1().length
-            + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
-            + data.lookupMeta.getString( lookupRow ) );
-        }
+    // The assumption here is that the types are in the same order
+    // as the returned lookup row, but since we make the lookup row
+    // that should not be a problem.
+    //
+    for ( int i = 0; i < types.length; i++ ) {
+      ValueMetaInterface returned = returnedMeta.getValueMeta( offset + i );
+      ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
 
-        data.db.setValuesLookup( data.lookupMeta, lookupRow );
-        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
-        cache_now = true;
+      if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
+        // Set the type to the default return type
+        add[ i ] = expected.convertData( returned, add[ i ] );
       }
     }
+  }
+
+  /**
+   * Add the looked up values, or the default values if nothing was found, to the input row.
+   *
+   * @param add      the looked up values, null if nothing was found
+   * @param cacheNow true to store the looked up values in the cache
+   * @return the output row, null if the row was eaten or sent to the error stream
+   */
+  private Object[] addLookupValues( RowMetaInterface inputRowMeta, Object[] row, Object[] lookupRow, Object[] add,
+                                    boolean cacheNow ) throws KettleException {
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
 
     if ( add == null ) { // nothing was found, unknown code: add default values
       if ( meta.isEatingRowOnLookupFailure() ) {
@@ -179,33 +255,12 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.FoundResultsAfterLookup" )
           + Arrays.toString( add ) );
       }
-
-      // Only verify the data types if the data comes from the DB, NOT when we have a cache hit
-      // In that case, we already know the data type is OK.
-      if ( !cacheHit ) {
-        incrementLines();
-        int[] types = meta.getReturnValueDefaultType();
-
-        // The assumption here is that the types are in the same order
-        // as the returned lookup row, but since we make the lookup row
-        // that should not be a problem.
-        //
-        for ( int i = 0; i < types.length; i++ ) {
-          ValueMetaInterface returned = data.db.getReturnRowMeta().getValueMeta( i );
-          ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
-
-          if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
-            // Set the type to the default return type
-            add[ i ] = expected.convertData( returned, add[ i ] );
-          }
-        }
-      }
     }
 
     // Store in cache if we need to!
     // If we already loaded all data into the cache, storing more makes no sense.
     //
-    if ( meta.isCached() && cache_now && !meta.isLoadingAllDataInCache() && data.allEquals ) {
+    if ( meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() && data.allEquals ) {
       data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, add );
     }
 
@@ -355,15 +410,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (DatabaseLookupMeta) smi;
+    data = (DatabaseLookupData) sdi;
+
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchRows != null && !data.batchRows.isEmpty() && !lookupBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
 
-    meta = (DatabaseLookupMeta) smi;
-    data = (DatabaseLookupData) sdi;
-
     if ( first ) {
       first = false;
 
@@ -413,10 +471,6 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         }
       }
 
-      if ( meta.isCached() ) {
-        data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
-      }
-
       determineFieldsTypesQueryingDb();
 
       initNullIf();
@@ -425,12 +479,23 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
       initReturnMeta();
 
+      if ( meta.isCached() ) {
+        data.cache = createCache();
+      }
+
       // If the user selected to load all data into the cache at startup, that's what we do now...
       //
       if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
         loadAllTableDataIntoTheCache();
       }
 
+      data.batchSize = getBatchSize();
+      if ( data.batchSize > 1 ) {
+        data.batchRows = new ArrayList<>( data.batchSize );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.LookingUpInBatches", data.batchSize ) );
+        }
+      }
     }
 
     if ( log.isRowLevel() ) {
@@ -438,38 +503,370 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.batchRows != null ) {
+      data.batchRows.add( r );
+      return data.batchRows.size() < data.batchSize || lookupBatch();
+    }
+
+    return lookupRow( r );
+  }
+
+  /**
+   * Look up a single row and pass it on.
+   *
+   * @return false if the step stopped because of an error
+   */
+  private boolean lookupRow( Object[] r ) throws KettleException {
     try {
       // add new lookup values to the row
-      Object[] outputRow = lookupValues( getInputRowMeta(), r );
+      putLookedUpRow( r, lookupValues( getInputRowMeta(), r ) );
+    } catch ( KettleException e ) {
+      return handleLookupError( r, e );
+    }
+    return true;
+  }
 
-      if ( outputRow != null ) {
-        // copy row to output rowset(s);
-        putRow( data.outputRowMeta, outputRow );
+  private void putLookedUpRow( Object[] r, Object[] outputRow ) throws KettleException {
+    if ( outputRow != null ) {
+      // copy row to output rowset(s);
+      putRow( data.outputRowMeta, outputRow );
 
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
-            + getInputRowMeta().getString( r ) );
-        }
-        if ( checkFeedback( getLinesRead() ) ) {
-          logBasic( "linenr " + getLinesRead() );
-        }
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
+          + getInputRowMeta().getString( r ) );
+      }
+      if ( checkFeedback( getLinesRead() ) ) {
+        logBasic( "linenr " + getLinesRead() );
+      }
+    }
+  }
+
+  /**
+   * @return false if the step stopped because of the error, true if the row went to the error stream
+   */
+  private boolean handleLookupError( Object[] r, KettleException e ) throws KettleException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
+      return true;
+    }
+    logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
+      + e.getMessage() );
+    setErrors( 1 );
+    stopAll();
+    setOutputDone(); // signal end to receiver(s)
+    return false;
+  }
+
+  /**
+   * Rows can be looked up in batches when every condition compares a key with "=", or is an "IS NULL" without a
+   * stream field, and the rows aren't all loaded into the cache.
+   *
+   * @return the number of rows to look up with a single query, 1 to look them up one by one
+   */
+  private int getBatchSize() {
+    int batchSize = Const.toInt( getVariable( Const.KETTLE_DATABASE_LOOKUP_BATCH_SIZE ), 1 );
+    if ( batchSize <= 1 || !data.allEquals || data.lookupMeta.isEmpty()
+      || ( meta.isCached() && meta.isLoadingAllDataInCache() ) ) {
+      return 1;
+    }
+    for ( int i = 0; i < meta.getKeyCondition().length; i++ ) {
+      boolean hasField = data.keynrs[ i ] >= 0;
+      boolean isNull = "IS NULL".equalsIgnoreCase( meta.getKeyCondition()[ i ] );
+      if ( data.keynrs2[ i ] >= 0 || ( isNull && hasField ) || ( !isNull && !hasField ) ) {
+        return 1;
       }
+    }
+    return Math.min( batchSize, Math.max( 1, MAX_BATCH_PARAMETERS / data.lookupMeta.size() ) );
+  }
+
+  /**
+   * Look up the buffered rows: the keys that aren't in the cache are looked up with a single query, then the rows are
+   * completed and passed on in their original order. If the batch can't be looked up, the rows are looked up one by
+   * one.
+   *
+   * @return false if the step stopped because of an error
+   */
+  private boolean lookupBatch() throws KettleException {
+    List<Object[]> rows = data.batchRows;
+    data.batchRows = new ArrayList<>( data.batchSize );
+
+    Object[][] lookupRows = new Object[ rows.size() ][];
+    Object[][] cached = new Object[ rows.size() ][];
+    Map<RowMetaAndData, Object[]> found;
+    try {
+      found = lookupKeys( rows, lookupRows, cached );
     } catch ( KettleException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
-      } else {
-        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
-          + e.getMessage() );
-        setErrors( 1 );
-        stopAll();
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+      if ( e instanceof KettleDatabaseException ) {
+        // Don't try again, the database doesn't handle the batched query
+        //
+        data.batchSize = 1;
+        data.batchRows = null;
       }
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchFailed", e.getMessage() ) );
+      }
+      for ( Object[] row : rows ) {
+        if ( !lookupRow( row ) ) {
+          return false;
+        }
+      }
+      return true;
     }
 
+    Set<RowMetaAndData> stored = new HashSet<>();
+    for ( int i = 0; i < rows.size(); i++ ) {
+      Object[] row = rows.get( i );
+      try {
+        Object[] outputRow;
+        if ( cached[ i ] != null ) {
+          outputRow = addLookupValues( getInputRowMeta(), row, lookupRows[ i ], cached[ i ], false );
+        } else {
+          RowMetaAndData key = new RowMetaAndData( data.lookupMeta, lookupRows[ i ] );
+          Object[] add = found.get( key );
+          if ( add == MULTIPLE_RESULTS ) {
+            throw new KettleDatabaseException(
+              "Only 1 row was expected as a result of a lookup, and at least 2 were found!" );
+          }
+          outputRow = addLookupValues( getInputRowMeta(), row, lookupRows[ i ], add, stored.add( key ) );
+        }
+        putLookedUpRow( row, outputRow );
+      } catch ( KettleException e ) {
+        if ( !handleLookupError( row, e ) ) {
+          return false;
+        }
+      }
+    }
     return true;
   }
 
+  /**
+   * Look up the keys of a batch of rows that aren't in the cache with a single query. The cache statistics and the
+   * lines input are only counted once the whole batch is looked up, the rows of a failed batch are counted again when
+   * they are looked up one by one.
+   *
+   * @param rows       the rows to look up
+   * @param lookupRows receives the lookup values of every row
+   * @param cached     receives the cached values of every row, null if the row isn't cached
+   * @return the values found per key, converted to the return types, or {@link #MULTIPLE_RESULTS}
+   */
+  private synchronized Map<RowMetaAndData, Object[]> lookupKeys( List<Object[]> rows, Object[][] lookupRows,
+                                                                 Object[][] cached ) throws KettleException {
+    Set<RowMetaAndData> distinct = new HashSet<>();
+    List<Object[]> keys = new ArrayList<>();
+    int cacheHits = 0;
+    int cacheMisses = 0;
+    for ( int i = 0; i < rows.size(); i++ ) {
+      lookupRows[ i ] = getLookupRow( getInputRowMeta(), rows.get( i ) );
+      if ( meta.isCached() ) {
+        cached[ i ] = data.cache.getRowFromCache( data.lookupMeta, lookupRows[ i ] );
+        if ( cached[ i ] != null ) {
+          cacheHits++;
+          continue;
+        }
+        cacheMisses++;
+      }
+      // A null never equals a key, there's no need to look it up
+      //
+      if ( !Arrays.asList( lookupRows[ i ] ).contains( null )
+        && distinct.add( new RowMetaAndData( data.lookupMeta, lookupRows[ i ] ) ) ) {
+        keys.add( lookupRows[ i ] );
+      }
+    }
+
+    Map<RowMetaAndData, Object[]> found = new HashMap<>();
+    if ( keys.isEmpty() ) {
+      data.cacheHits += cacheHits;
+      data.cacheMisses += cacheMisses;
+      return found;
+    }
+
+    int nrKeys = data.lookupMeta.size();
+    RowMetaInterface paramsMeta;
+    PreparedStatement ps;
+    if ( keys.size() == data.batchSize ) {
+      if ( data.batchStatement == null ) {
+        data.batchStatement = data.db.prepareSQL( getBatchSQL( data.batchSize ) );
+        data.batchParamsMeta = getBatchParamsMeta( data.batchSize );
+      }
+      ps = data.batchStatement;
+      paramsMeta = data.batchParamsMeta;
+    } else {
+      ps = data.db.prepareSQL( getBatchSQL( keys.size() ) );
+      paramsMeta = getBatchParamsMeta( keys.size() );
+    }
+    Object[] params = new Object[ keys.size() * nrKeys ];
+    for ( int i = 0; i < keys.size(); i++ ) {
+      System.arraycopy( keys.get( i ), 0, params, i * nrKeys, nrKeys );
+    }
+
+    List<Object[]> results = new ArrayList<>();
+    RowMetaInterface resultMeta;
+    try {
+      resultMeta = data.db.getLookupRows( ps, paramsMeta, params, results );
+    } finally {
+      if ( ps != data.batchStatement ) {
+        data.db.closePreparedStatement( ps );
+      }
+    }
+
+    int linesInput = 0;
+    for ( Object[] result : results ) {
+      Object[] key = new Object[ nrKeys ];
+      for ( int i = 0; i < nrKeys; i++ ) {
+        ValueMetaInterface keyMeta = data.lookupMeta.getValueMeta( i );
+        ValueMetaInterface returned = resultMeta.getValueMeta( i );
+        key[ i ] = keyMeta.getType() == returned.getType() ? result[ i ] : keyMeta.convertData( returned, result[ i ] );
+      }
+      RowMetaAndData rowKey = new RowMetaAndData( data.lookupMeta, key );
+      if ( !distinct.contains( rowKey ) ) {
+        // The database considers values equal that the step doesn't (case, trailing spaces, ...)
+        //
+        throw new KettleDatabaseException( BaseMessages.getString( PKG, "DatabaseLookup.Exception.BatchKeyMismatch",
+          data.lookupMeta.getString( key ) ) );
+      }
+      Object[] previous = found.get( rowKey );
+      if ( previous == null ) {
+        Object[] add = Arrays.copyOfRange( result, nrKeys, result.length );
+        linesInput++;
+        convertReturnedValues( resultMeta, nrKeys, add );
+        found.put( rowKey, add );
+      } else if ( meta.isFailingOnMultipleResults() ) {
+        found.put( rowKey, MULTIPLE_RESULTS );
+      }
+    }
+
+    data.cacheHits += cacheHits;
+    data.cacheMisses += cacheMisses;
+    for ( int i = 0; i < linesInput; i++ ) {
+      incrementLines();
+    }
+    return found;
+  }
+
+  /**
+   * @return the query that looks up the given number of keys, it returns the key fields followed by the return fields
+   */
+  private String getBatchSQL( int nrRows ) {
+    DatabaseMeta dbMeta = meta.getDatabaseMeta();
+    String[] keyFields = meta.getTableKeyField();
+    String[] conditions = meta.getKeyCondition();
+
+    StringBuilder sql = new StringBuilder( "SELECT " );
+    List<String> equalFields = new ArrayList<>();
+    for ( int i = 0; i < keyFields.length; i++ ) {
+      if ( !"IS NULL".equalsIgnoreCase( conditions[ i ] ) ) {
+        sql.append( equalFields.isEmpty() ? "" : ", " ).append( dbMeta.quoteField( keyFields[ i ] ) );
+        equalFields.add( dbMeta.quoteField( keyFields[ i ] ) );
+      }
+    }
+    for ( int i = 0; i < meta.getReturnValueField().length; i++ ) {
+      sql.append( ", " ).append( dbMeta.quoteField( meta.getReturnValueField()[ i ] ) );
+    }
+    sql.append( " FROM " ).append( dbMeta.getQuotedSchemaTableCombination(
+      environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ) ) );
+    sql.append( " WHERE " );
+    for ( int i = 0; i < keyFields.length; i++ ) {
+      if ( "IS NULL".equalsIgnoreCase( conditions[ i ] ) ) {
+        sql.append( dbMeta.quoteField( keyFields[ i ] ) ).append( " IS NULL AND " );
+      }
+    }
+
+    if ( equalFields.size() == 1 ) {
+      sql.append( equalFields.get( 0 ) ).append( " IN (" );
+      for ( int i = 0; i < nrRows; i++ ) {
+        sql.append( i == 0 ? " ?" : ", ?" );
+      }
+      sql.append( " )" );
+    } else {
+      sql.append( "( " );
+      for ( int i = 0; i < nrRows; i++ ) {
+        sql.append( i == 0 ? "( " : " OR ( " );
+        for ( int j = 0; j < equalFields.size(); j++ ) {
+          sql.append( j == 0 ? "" : " AND " ).append( equalFields.get( j ) ).append( " = ?" );
+        }
+        sql.append( " )" );
+      }
+      sql.append( " )" );
+    }
+
+    if ( !Utils.isEmpty( meta.getOrderByClause() ) ) {
+      sql.append( " ORDER BY " ).append( meta.getOrderByClause() );
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchSQL", sql ) );
+    }
+    return sql.toString();
+  }
+
+  /**
+   * @return the metadata of the parameters of a batch of the given number of rows: the lookup fields, repeated
+   */
+  private RowMetaInterface getBatchParamsMeta( int nrRows ) {
+    RowMetaInterface paramsMeta = new RowMeta();
+    for ( int i = 0; i < nrRows; i++ ) {
+      for ( ValueMetaInterface valueMeta : data.lookupMeta.getValueMetaList() ) {
+        paramsMeta.addValueMeta( valueMeta.clone() );
+      }
+    }
+    return paramsMeta;
+  }
+
+  /**
+   * Create the cache of looked up rows. Rows looked up on equal keys go to a cache that is shared by the step copies,
+   * or by all the steps looking up the same fields in the same table, depending on
+   * {@link Const#KETTLE_DATABASE_LOOKUP_CACHE_SHARING}.
+   */
+  private DatabaseLookupData.Cache createCache() {
+    if ( meta.isLoadingAllDataInCache() || !data.allEquals ) {
+      return DefaultCache.newCache( data, meta.getCacheSize() );
+    }
+
+    String sharing = Const.NVL( getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_SHARING ), CACHE_SHARING_STEP )
+      .trim().toUpperCase();
+    final long maxBytes = Const.toLong( getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_MAX_MEMORY ), 0L ) * 1024 * 1024;
+    final long timeToLive = Const.toLong( getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_TTL ), 0L ) * 1000;
+    final int nrCopies = getTrans() == null ? 1 : Math.max( 1, getTrans().findStepInterfaces( getStepname() ).size() );
+    Map<String, Object> registry = getTrans() == null ? null : getTrans().getExtensionDataMap();
+
+    if ( CACHE_SHARING_NONE.equals( sharing ) || registry == null
+      || ( CACHE_SHARING_STEP.equals( sharing ) && nrCopies < 2 ) ) {
+      return new TinyLfuCache( Math.max( 0, meta.getCacheSize() ), maxBytes, timeToLive, 1 );
+    }
+
+    // The shared cache holds as many rows as the copies would have cached separately
+    //
+    final long maxRows = meta.getCacheSize() > 0 ? (long) meta.getCacheSize() * nrCopies : 0L;
+    data.cacheKey = CACHE_SHARING_TABLE.equals( sharing ) ? getTableCacheKey() : CACHE_KEY_PREFIX + getStepname();
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.SharingCache", data.cacheKey ) );
+    }
+    return TinyLfuCache.acquire( registry, data.cacheKey,
+      () -> new TinyLfuCache( maxRows, maxBytes, timeToLive, nrCopies ) );
+  }
+
+  /**
+   * @return the key of a cache shared by all the steps looking up the same fields in the same table with the same
+   *         keys, conditions and default values
+   */
+  private String getTableCacheKey() {
+    StringBuilder key = new StringBuilder( CACHE_KEY_PREFIX );
+    key.append( meta.getDatabaseMeta().getName() ).append( '|' )
+      .append( environmentSubstitute( meta.getSchemaName() ) ).append( '|' )
+      .append( environmentSubstitute( meta.getTablename() ) ).append( '|' )
+      .append( meta.getOrderByClause() );
+    for ( int i = 0; i < meta.getTableKeyField().length; i++ ) {
+      key.append( "|k:" ).append( meta.getTableKeyField()[ i ] ).append( ' ' ).append( meta.getKeyCondition()[ i ] );
+    }
+    for ( ValueMetaInterface valueMeta : data.lookupMeta.getValueMetaList() ) {
+      key.append( "|t:" ).append( valueMeta.getTypeDesc() );
+    }
+    for ( int i = 0; i < meta.getReturnValueField().length; i++ ) {
+      key.append( "|r:" ).append( meta.getReturnValueField()[ i ] ).append( ' ' )
+        .append( meta.getReturnValueDefaultType()[ i ] ).append( ' ' ).append( meta.getReturnValueDefault()[ i ] );
+    }
+    return key.toString();
+  }
+
   private void loadAllTableDataIntoTheCache() throws KettleException {
     DatabaseMeta dbMeta = meta.getDatabaseMeta();
 
@@ -652,8 +1049,21 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     data = (DatabaseLookupData) sdi;
 
     if ( data.db != null ) {
+      if ( data.batchStatement != null ) {
+        try {
+          data.db.closePreparedStatement( data.batchStatement );
+        } catch ( KettleDatabaseException e ) {
+          logError( e.getMessage(), e );
+        }
+        data.batchStatement = null;
+      }
       data.db.disconnect();
     }
+    data.batchRows = null;
+
+    if ( data.cache instanceof TinyLfuCache ) {
+      releaseCache( (TinyLfuCache) data.cache );
+    }
 
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
@@ -662,6 +1072,24 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     super.dispose( smi, sdi );
   }
 
+  /**
+   * Report the cache statistics of this copy and stop using the cache. The evictions are reported by the last copy
+   * using a shared cache.
+   */
+  private void releaseCache( TinyLfuCache cache ) {
+    boolean last = data.cacheKey == null || TinyLfuCache.release( getTrans().getExtensionDataMap(), data.cacheKey );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.CacheStatistics", data.cacheHits,
+        data.cacheMisses, cache.getEvictions() ) );
+    }
+    log.snap( Metrics.METRIC_STEP_CACHE_HIT_COUNT, getStepname(), data.cacheHits );
+    log.snap( Metrics.METRIC_STEP_CACHE_MISS_COUNT, getStepname(), data.cacheMisses );
+    if ( last ) {
+      log.snap( Metrics.METRIC_STEP_CACHE_EVICTION_COUNT, getStepname(), cache.getEvictions() );
+    }
+    data.cacheKey = null;
+  }
+
   /*
    * this method is required in order to
    * provide ability for unit tests to
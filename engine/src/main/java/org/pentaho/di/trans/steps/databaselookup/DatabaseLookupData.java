@@ -22,6 +22,9 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.sql.PreparedStatement;
+import java.util.List;
+
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -49,6 +52,18 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  /** The key the cache is shared under, null if the cache is not shared */
+  public String cacheKey;
+  public long cacheHits;
+  public long cacheMisses;
+
+  /** The number of rows looked up with a single query, 1 when rows are looked up one by one */
+  public int batchSize;
+  /** The rows waiting to be looked up as a batch, null when rows are looked up one by one */
+  public List<Object[]> batchRows;
+  public PreparedStatement batchStatement;
+  public RowMetaInterface batchParamsMeta;
+
   public DatabaseLookupData() {
     super();
 
@@ -0,0 +1,467 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.RowSizeEstimator;
+
+/**
+ * A bounded cache of looked up rows that is safe to share between step copies, and between steps looking up the same
+ * values in the same table.
+ * <p>
+ * Rows are evicted following W-TinyLFU. New rows enter a small LRU window. A row leaving the window is only admitted
+ * to the main area if it was looked up more often than the row it would push out, as estimated by a count-min sketch
+ * of recent lookups. The main area is a segmented LRU where rows that are looked up again while on probation become
+ * protected. On skewed data the hot keys stay cached while keys that are only seen once pass through the window.
+ * <p>
+ * The cache is split into segments by key hash, each with its own lock, sketch and share of the capacity. It's bounded
+ * by a number of rows and optionally by the estimated memory the rows take, rows can expire after a time to live.
+ * Only equality lookups are served: the cache is used for steps where all the key conditions are "=".
+ */
+public class TinyLfuCache implements DatabaseLookupData.Cache {
+
+  private static final int WINDOW_PERCENTAGE = 1;
+  private static final int PROTECTED_PERCENTAGE = 80;
+
+  /** The estimated size of a cache entry on top of its key and value rows */
+  private static final long ENTRY_OVERHEAD = 128L;
+
+  private static final int MAX_SEGMENTS = 64;
+  private static final int ROWS_PER_SEGMENT = 64;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+  private final long timeToLiveNanos;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /** The number of steps copies using this cache, guarded by the registry it's shared through */
+  private int references;
+
+  /**
+   * @param maxRows
+   *          the maximum number of rows to cache, 0 for no limit
+   * @param maxBytes
+   *          the maximum estimated number of bytes the cached rows may take, 0 for no limit
+   * @param timeToLiveMillis
+   *          the number of milliseconds a row stays cached, 0 to keep rows until they are evicted
+   * @param concurrency
+   *          the number of threads expected to use the cache at the same time
+   */
+  public TinyLfuCache( long maxRows, long maxBytes, long timeToLiveMillis, int concurrency ) {
+    int nrSegments = 1;
+    while ( nrSegments < MAX_SEGMENTS && nrSegments < 4 * concurrency
+      && ( maxRows <= 0 || maxRows / ( nrSegments * 2 ) >= ROWS_PER_SEGMENT ) ) {
+      nrSegments <<= 1;
+    }
+    segments = new Segment[nrSegments];
+    for ( int i = 0; i < nrSegments; i++ ) {
+      segments[i] = new Segment( share( maxRows, nrSegments ), share( maxBytes, nrSegments ) );
+    }
+    segmentShift = 32 - Integer.numberOfTrailingZeros( nrSegments );
+    timeToLiveNanos = timeToLiveMillis * 1000000L;
+  }
+
+  private static long share( long max, int nrSegments ) {
+    return max <= 0 ? 0L : Math.max( 1L, ( max + nrSegments - 1 ) / nrSegments );
+  }
+
+  /**
+   * Get the cache registered under a key, creating and registering it if there is none. Every call needs to be matched
+   * by a call to {@link #release(Map, String)}.
+   *
+   * @param registry
+   *          the map to register the cache in, shared by all the users of the cache
+   * @param key
+   *          the key that identifies the cache
+   * @param factory
+   *          creates the cache if it's not registered yet
+   * @return the registered cache
+   */
+  public static TinyLfuCache acquire( Map<String, Object> registry, String key, Supplier<TinyLfuCache> factory ) {
+    synchronized ( registry ) {
+      TinyLfuCache cache = (TinyLfuCache) registry.get( key );
+      if ( cache == null ) {
+        cache = factory.get();
+        registry.put( key, cache );
+      }
+      cache.references++;
+      return cache;
+    }
+  }
+
+  /**
+   * Stop using the cache registered under a key, the last user to release it removes it from the registry.
+   *
+   * @return true if this was the last user of the cache
+   */
+  public static boolean release( Map<String, Object> registry, String key ) {
+    synchronized ( registry ) {
+      TinyLfuCache cache = (TinyLfuCache) registry.get( key );
+      if ( cache == null ) {
+        return false;
+      }
+      if ( --cache.references > 0 ) {
+        return false;
+      }
+      registry.remove( key );
+      return true;
+    }
+  }
+
+  @Override
+  public Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) throws KettleException {
+    RowMetaAndData key = new RowMetaAndData( lookupMeta, lookupRow );
+    int hash = spread( key.hashCode() );
+    Object[] row = segmentFor( hash ).get( key, hash, timeToLiveNanos > 0 ? System.nanoTime() : 0L );
+    if ( row == null ) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return row;
+  }
+
+  @Override
+  public void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow,
+                               Object[] add ) {
+    RowMetaAndData key = new RowMetaAndData( lookupMeta, lookupRow );
+    int hash = spread( key.hashCode() );
+    long expiresAt = timeToLiveNanos > 0 ? System.nanoTime() + timeToLiveNanos : 0L;
+    segmentFor( hash ).put( key, add, hash, expiresAt );
+  }
+
+  /**
+   * @return the number of lookups that found a row in the cache
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups that didn't find a row in the cache
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of rows evicted or expired
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return the number of rows in the cache
+   */
+  public long size() {
+    long size = 0;
+    for ( Segment segment : segments ) {
+      segment.lock.lock();
+      try {
+        size += segment.map.size();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  private Segment segmentFor( int hash ) {
+    return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+  }
+
+  private static int spread( int hash ) {
+    hash *= 0x9E3779B9;
+    return hash ^ ( hash >>> 16 );
+  }
+
+  private static boolean exceeds( long rows, long bytes, long maxRows, long maxBytes ) {
+    return ( maxRows > 0 && rows > maxRows ) || ( maxBytes > 0 && bytes > maxBytes );
+  }
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private static final class Node {
+    final RowMetaAndData key;
+    final Object[] value;
+    final int hash;
+    final long weight;
+    final long expiresAt;
+    int queue;
+    Node previous;
+    Node next;
+
+    Node( RowMetaAndData key, Object[] value, int hash, long weight, long expiresAt ) {
+      this.key = key;
+      this.value = value;
+      this.hash = hash;
+      this.weight = weight;
+      this.expiresAt = expiresAt;
+      previous = this;
+      next = this;
+    }
+  }
+
+  /**
+   * A part of the cache with its own lock and its own window, probation and protected LRU queues. The queues are
+   * circular lists around a sentinel node, the most recently used node comes right after the sentinel.
+   */
+  private final class Segment {
+    final ReentrantLock lock = new ReentrantLock();
+    final Map<RowMetaAndData, Node> map = new HashMap<>();
+    final FrequencySketch sketch;
+
+    final Node[] queues = new Node[] { sentinel(), sentinel(), sentinel() };
+    final long[] queueRows = new long[3];
+    final long[] queueBytes = new long[3];
+
+    final long maxRows;
+    final long maxBytes;
+    final long windowMaxRows;
+    final long windowMaxBytes;
+    final long protectedMaxRows;
+    final long protectedMaxBytes;
+
+    long rows;
+    long bytes;
+
+    Segment( long maxRows, long maxBytes ) {
+      this.maxRows = maxRows;
+      this.maxBytes = maxBytes;
+      windowMaxRows = maxRows > 0 ? Math.max( 1L, maxRows * WINDOW_PERCENTAGE / 100 ) : 0L;
+      windowMaxBytes = maxBytes > 0 ? Math.max( 1L, maxBytes * WINDOW_PERCENTAGE / 100 ) : 0L;
+      protectedMaxRows = maxRows > 0 ? Math.max( 1L, maxRows * PROTECTED_PERCENTAGE / 100 ) : 0L;
+      protectedMaxBytes = maxBytes > 0 ? Math.max( 1L, maxBytes * PROTECTED_PERCENTAGE / 100 ) : 0L;
+      sketch = new FrequencySketch( maxRows > 0 ? maxRows : 1024L );
+    }
+
+    private Node sentinel() {
+      return new Node( null, null, 0, 0L, 0L );
+    }
+
+    Object[] get( RowMetaAndData key, int hash, long now ) {
+      lock.lock();
+      try {
+        sketch.increment( hash );
+        Node node = map.get( key );
+        if ( node == null ) {
+          return null;
+        }
+        if ( node.expiresAt != 0L && now - node.expiresAt >= 0 ) {
+          evict( node );
+          return null;
+        }
+        onHit( node );
+        return node.value;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Add a row unless its key is cached already: the first row stored for a key is kept, like the default cache does.
+     */
+    void put( RowMetaAndData key, Object[] value, int hash, long expiresAt ) {
+      long weight = ENTRY_OVERHEAD + RowSizeEstimator.estimate( key.getData() ) + RowSizeEstimator.estimate( value );
+      lock.lock();
+      try {
+        if ( map.containsKey( key ) ) {
+          return;
+        }
+        Node node = new Node( key, value, hash, weight, expiresAt );
+        map.put( key, node );
+        link( WINDOW, node );
+        rows++;
+        bytes += weight;
+
+        // Rows leaving the window compete with the least recently used row of the main area
+        //
+        while ( queueRows[WINDOW] > 1
+          && exceeds( queueRows[WINDOW], queueBytes[WINDOW], windowMaxRows, windowMaxBytes ) ) {
+          Node candidate = queues[WINDOW].previous;
+          unlink( candidate );
+          link( PROBATION, candidate );
+          admit( candidate );
+        }
+
+        // Whatever is still too much goes, least recently used first
+        //
+        while ( rows > 0 && exceeds( rows, bytes, maxRows, maxBytes ) ) {
+          evict( leastRecentlyUsed() );
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void admit( Node candidate ) {
+      while ( exceeds( rows, bytes, maxRows, maxBytes ) ) {
+        Node victim = queues[PROBATION].previous;
+        if ( victim == candidate ) {
+          victim = queues[PROTECTED].previous;
+        }
+        if ( victim.key == null ) {
+          // Nothing else in the main area
+          evict( candidate );
+          return;
+        }
+        if ( sketch.frequency( candidate.hash ) > sketch.frequency( victim.hash ) ) {
+          evict( victim );
+        } else {
+          evict( candidate );
+          return;
+        }
+      }
+    }
+
+    private Node leastRecentlyUsed() {
+      for ( int queue : new int[] { PROBATION, PROTECTED, WINDOW } ) {
+        if ( queueRows[queue] > 0 ) {
+          return queues[queue].previous;
+        }
+      }
+      throw new IllegalStateException( "No rows to evict" );
+    }
+
+    private void onHit( Node node ) {
+      switch ( node.queue ) {
+        case PROBATION:
+          unlink( node );
+          link( PROTECTED, node );
+          while ( queueRows[PROTECTED] > 1
+            && exceeds( queueRows[PROTECTED], queueBytes[PROTECTED], protectedMaxRows, protectedMaxBytes ) ) {
+            Node demoted = queues[PROTECTED].previous;
+            unlink( demoted );
+            link( PROBATION, demoted );
+          }
+          break;
+        default:
+          unlink( node );
+          link( node.queue, node );
+          break;
+      }
+    }
+
+    private void evict( Node node ) {
+      unlink( node );
+      map.remove( node.key );
+      rows--;
+      bytes -= node.weight;
+      evictions.increment();
+    }
+
+    private void link( int queue, Node node ) {
+      Node sentinel = queues[queue];
+      node.queue = queue;
+      node.previous = sentinel;
+      node.next = sentinel.next;
+      sentinel.next.previous = node;
+      sentinel.next = node;
+      queueRows[queue]++;
+      queueBytes[queue] += node.weight;
+    }
+
+    private void unlink( Node node ) {
+      node.previous.next = node.next;
+      node.next.previous = node.previous;
+      node.previous = node;
+      node.next = node;
+      queueRows[node.queue]--;
+      queueBytes[node.queue] -= node.weight;
+    }
+  }
+
+  /**
+   * Estimates how often keys were looked up recently: a count-min sketch of 4-bit counters that are halved once the
+   * number of increments reaches ten times the number of counters per row, so old popularity fades.
+   */
+  static final class FrequencySketch {
+    private static final long[] SEEDS = { 0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL,
+      0xCBF29CE484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch( long expectedKeys ) {
+      int size = 16;
+      while ( size < expectedKeys && size < ( 1 << 24 ) ) {
+        size <<= 1;
+      }
+      table = new long[size];
+      tableMask = size - 1;
+      sampleSize = 10 * size;
+    }
+
+    int frequency( int hash ) {
+      int frequency = 15;
+      for ( int i = 0; i < SEEDS.length; i++ ) {
+        long h = rehash( hash, i );
+        int index = (int) ( h >>> 32 ) & tableMask;
+        int shift = ( (int) h & 15 ) << 2;
+        frequency = Math.min( frequency, (int) ( ( table[index] >>> shift ) & 0xFL ) );
+      }
+      return frequency;
+    }
+
+    void increment( int hash ) {
+      boolean added = false;
+      for ( int i = 0; i < SEEDS.length; i++ ) {
+        long h = rehash( hash, i );
+        int index = (int) ( h >>> 32 ) & tableMask;
+        int shift = ( (int) h & 15 ) << 2;
+        if ( ( ( table[index] >>> shift ) & 0xFL ) < 15 ) {
+          table[index] += 1L << shift;
+          added = true;
+        }
+      }
+      if ( added && ++additions >= sampleSize ) {
+        for ( int i = 0; i < table.length; i++ ) {
+          table[i] = ( table[i] >>> 1 ) & RESET_MASK;
+        }
+        additions /= 2;
+      }
+    }
+
+    private static long rehash( int hash, int i ) {
+      long h = ( hash + SEEDS[i] ) * SEEDS[( i + 1 ) & 3];
+      return h ^ ( h >>> 29 );
+    }
+  }
+}
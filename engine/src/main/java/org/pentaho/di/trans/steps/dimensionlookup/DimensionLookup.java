@@ -22,23 +22,27 @@
 
 package org.pentaho.di.trans.steps.dimensionlookup;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.StatementBatch;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashMap;
+import org.pentaho.di.core.hash.CompactRowHashIndex;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -112,6 +116,10 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
 
+      if ( data.batch != null ) {
+        data.batch.execute( true );
+        data.batchKeys.clear();
+      }
       setOutputDone(); // signal end to receiver(s)
       return false;
     }
@@ -214,6 +222,19 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       }
 
       setDimLookup( data.outputRowMeta );
+
+      data.batchSize = getBatchSize();
+      if ( data.batchSize > 1 ) {
+        loadNaturalKeys();
+        data.batch = new StatementBatch( data.db, data.batchSize, meta.getCommitSize() );
+        data.batchKeys = new HashSet<>();
+        data.nextKey = 1L;
+        data.lastKey = 0L;
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "DimensionLookup.Log.UpdatingInBatches", data.batchSize,
+            data.naturalKeys.size() ) );
+        }
+      }
     }
 
     // convert row to normal storage...
@@ -439,7 +460,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       // Nothing found in the cache?
       // Perform the lookup in the database...
       //
-      if ( returnRow == null ) {
+      if ( returnRow == null && !isNewEntry( lookupRow ) ) {
         data.db.setValues( data.lookupRowMeta, lookupRow, data.prepStatementLookup );
         returnRow = data.db.getLookup( data.prepStatementLookup );
         data.returnRowMeta = data.db.getReturnRowMeta();
@@ -509,9 +530,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
         switch ( getTechKeyCreation() ) {
           case CREATION_METHOD_TABLEMAX:
             // What's the next value for the technical key?
-            technicalKey =
-              data.db.getNextValue( getTrans().getCounters(), data.realSchemaName, data.realTableName, meta
-                .getKeyField() );
+            technicalKey = getNextTableMaxValue();
             break;
           case CREATION_METHOD_AUTOINC:
             technicalKey = null; // Set to null to flag auto-increment usage
@@ -535,6 +554,9 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
         technicalKey =
           dimInsert( data.inputRowMeta, row, technicalKey, true, valueVersion, valueDateFrom, valueDateTo );
+        if ( data.naturalKeys != null ) {
+          data.naturalKeys.put( Arrays.copyOf( lookupRow, data.keynrs.length ), new Object[ 0 ] );
+        }
 
         incrementLinesOutput();
         returnRow = new Object[ data.returnRowMeta.size() ];
@@ -732,9 +754,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
           } else {
             // Use our own sequence here...
             // What's the next value for the technical key?
-            technicalKey =
-              data.db.getNextValue( getTrans().getCounters(), data.realSchemaName, data.realTableName, meta
-                .getKeyField() );
+            technicalKey = getNextTableMaxValue();
           }
 
           // update our technicalKey with the return of the insert
@@ -1171,7 +1191,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
     // INSERT NEW VALUE!
     data.db.setValues( data.insertRowMeta, insertRow, data.prepStatementInsert );
-    data.db.insertRow( data.prepStatementInsert );
+    write( data.prepStatementInsert, row );
 
     if ( isDebug() ) {
       logDebug( "Row inserted!" );
@@ -1256,7 +1276,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       if ( isDebug() ) {
         logDebug( "Values set for update (" + data.updateRowMeta.size() + ")" );
       }
-      data.db.insertRow( data.prepStatementUpdate ); // do the actual update
+      write( data.prepStatementUpdate, row ); // do the actual update
       if ( isDebug() ) {
         logDebug( "Row updated!" );
       }
@@ -1365,7 +1385,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     dimensionUpdateRow[ updateIndex++ ] = dimkey;
 
     data.db.setValues( data.dimensionUpdateRowMeta, dimensionUpdateRow, data.prepStatementDimensionUpdate );
-    data.db.insertRow( data.prepStatementDimensionUpdate );
+    write( data.prepStatementDimensionUpdate, row );
   }
 
   // This updates all versions of a dimension entry.
@@ -1455,7 +1475,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     // UPDATE VALUES
     data.db.setValues( data.punchThroughRowMeta, punchThroughRow, data.prepStatementPunchThrough ); // set values for
     // update
-    data.db.insertRow( data.prepStatementPunchThrough ); // do the actual punch through update
+    write( data.prepStatementPunchThrough, row ); // do the actual punch through update
   }
 
   /**
@@ -1688,6 +1708,128 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     }
   }
 
+  /**
+   * The dimension can be updated in batches when the step numbers new entries itself and is the only copy writing the
+   * table: it then knows all the natural keys of the table and doesn't need to read back the generated keys.
+   *
+   * @return the number of inserts and updates to send with a single batch, 1 to update the dimension row by row
+   */
+  private int getBatchSize() throws KettleDatabaseException {
+    int batchSize = Const.toInt( getVariable( Const.KETTLE_DIMENSION_LOOKUP_BATCH_SIZE ), 1 );
+    if ( batchSize <= 1 || !meta.isUpdate() || isAutoIncrement()
+      || getTrans().findStepInterfaces( getStepname() ).size() > 1
+      || !CompactRowHashIndex.isSupported( data.cacheKeyRowMeta ) || !data.db.getUseBatchInsert( true ) ) {
+      return 1;
+    }
+    RowMetaInterface tableRowMeta = data.db.getQueryFields( getNaturalKeysSQL(), false );
+    if ( !CompactRowHashIndex.isWholeNumberKey( data.cacheKeyRowMeta, 0 ) || tableRowMeta == null
+      || !CompactRowHashIndex.isWholeNumberKey( tableRowMeta, 0 ) ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DimensionLookup.Log.KeysNotBatched" ) );
+      }
+      return 1;
+    }
+    return batchSize;
+  }
+
+  /**
+   * @return the statement that reads the distinct natural keys of the table
+   */
+  private String getNaturalKeysSQL() {
+    DatabaseMeta databaseMeta = meta.getDatabaseMeta();
+    String sql = "SELECT DISTINCT ";
+    for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+      if ( i > 0 ) {
+        sql += ", ";
+      }
+      sql += databaseMeta.quoteField( meta.getKeyLookup()[ i ] );
+    }
+    sql += " FROM " + data.schemaTable;
+    return sql;
+  }
+
+  /**
+   * Load the distinct natural keys of the table, converted to the data types of the input fields so they compare the
+   * same as the keys of the input rows.
+   */
+  private void loadNaturalKeys() throws KettleException {
+    data.naturalKeys = new CompactRowHashIndex( data.cacheKeyRowMeta, new RowMeta() );
+
+    String sql = getNaturalKeysSQL();
+    logDetailed( "Loading the natural keys of the dimension with: " + Const.CR + sql + Const.CR );
+
+    List<Object[]> rows = data.db.getRows( sql, -1 );
+    RowMetaInterface rowMeta = data.db.getReturnRowMeta();
+    for ( int i = 0; i < rows.size(); i++ ) {
+      Object[] row = rows.get( i );
+      rows.set( i, null ); // the index is a lot smaller than the rows
+
+      Object[] key = new Object[ data.cacheKeyRowMeta.size() ];
+      for ( int k = 0; k < key.length; k++ ) {
+        key[ k ] = data.cacheKeyRowMeta.getValueMeta( k ).convertData( rowMeta.getValueMeta( k ), row[ k ] );
+      }
+      data.naturalKeys.put( key, new Object[ 0 ] );
+      incrementLinesInput();
+    }
+  }
+
+  /**
+   * When updating in batches, a natural key that isn't in the table yet doesn't need to be looked up. A key with
+   * inserts or updates in the batch does: the batch is sent first.
+   *
+   * @param lookupRow the lookup row, starting with the natural key
+   * @return true if the entry is known to be new
+   */
+  private boolean isNewEntry( Object[] lookupRow ) throws KettleException {
+    if ( data.batch == null ) {
+      return false;
+    }
+    Object[] key = Arrays.copyOf( lookupRow, data.keynrs.length );
+    if ( data.batchKeys.contains( new RowMetaAndData( data.cacheKeyRowMeta, key ) ) ) {
+      data.batch.execute( false );
+      data.batchKeys.clear();
+      return false;
+    }
+    // The metadata of the returned rows comes with the first lookup
+    return data.returnRowMeta != null && data.naturalKeys.get( key ) == null;
+  }
+
+  /**
+   * Run an insert or update of the dimension entry of a row, or add it to the batch.
+   */
+  private void write( PreparedStatement ps, Object[] row ) throws KettleDatabaseException {
+    if ( data.batch == null ) {
+      data.db.insertRow( ps );
+      return;
+    }
+    if ( data.batch.add( ps ) ) {
+      data.batchKeys.clear();
+    } else {
+      Object[] key = new Object[ data.keynrs.length ];
+      for ( int i = 0; i < key.length; i++ ) {
+        key[ i ] = row[ data.keynrs[ i ] ];
+      }
+      data.batchKeys.add( new RowMetaAndData( data.cacheKeyRowMeta, key ) );
+    }
+  }
+
+  /**
+   * @return the next technical key of the table maximum counter, out of a reserved block when updating in batches
+   */
+  private Long getNextTableMaxValue() throws KettleDatabaseException {
+    if ( data.batch == null ) {
+      return data.db.getNextValue( getTrans().getCounters(), data.realSchemaName, data.realTableName, meta
+        .getKeyField() );
+    }
+    if ( data.nextKey > data.lastKey ) {
+      data.nextKey =
+        data.db.getNextValueBlock( getTrans().getCounters(), data.realSchemaName, data.realTableName, meta
+          .getKeyField(), data.batchSize );
+      data.lastKey = data.nextKey + data.batchSize - 1;
+    }
+    return data.nextKey++;
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (DimensionLookupMeta) smi;
@@ -1722,6 +1864,20 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     meta = (DimensionLookupMeta) smi;
     data = (DimensionLookupData) sdi;
     if ( data.db != null ) {
+      try {
+        // Send the inserts and updates that are left when the step was stopped before the end of its input
+        //
+        if ( data.batch != null && data.batch.size() > 0 ) {
+          if ( getErrors() == 0 ) {
+            data.batch.execute( false );
+          } else {
+            data.batch.clear();
+          }
+        }
+      } catch ( KettleDatabaseException e ) {
+        logError( BaseMessages.getString( PKG, "DimensionLookup.Log.ErrorOccurredInProcessing" ) + e.getMessage() );
+        setErrors( 1 );
+      }
       try {
         if ( !data.db.isAutoCommit() ) {
           if ( getErrors() == 0 ) {
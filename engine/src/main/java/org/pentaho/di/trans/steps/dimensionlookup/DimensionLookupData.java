@@ -25,9 +25,13 @@ package org.pentaho.di.trans.steps.dimensionlookup;
 import java.sql.PreparedStatement;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.StatementBatch;
 import org.pentaho.di.core.hash.ByteArrayHashMap;
+import org.pentaho.di.core.hash.CompactRowHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -93,6 +97,20 @@ public class DimensionLookupData extends BaseDatabaseStepData implements StepDat
 
   public List<Integer> lazyList;
 
+  /** The inserts and updates that weren't sent to the database yet, null when updating row by row */
+  public StatementBatch batch;
+  public int batchSize;
+
+  /** The natural keys in the table, entries that aren't in there are new and aren't looked up */
+  public CompactRowHashIndex naturalKeys;
+
+  /** The natural keys of the inserts and updates in the batch */
+  public Set<RowMetaAndData> batchKeys;
+
+  /** The next technical key of the reserved block and the last one */
+  public long nextKey;
+  public long lastKey;
+
   /**
    * The input row metadata, but converted to normal storage type
    */
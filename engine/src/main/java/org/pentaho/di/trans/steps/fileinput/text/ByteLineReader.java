@@ -0,0 +1,327 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.lang.StringUtils;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Reads the lines of a text file as bytes and decodes a line at once, instead of reading it character by character
+ * through a {@link java.io.Reader}. The lines are split the same way as
+ * {@link TextFileInputUtils#getLine(org.pentaho.di.core.logging.LogChannelInterface, BufferedInputStreamReader,
+ * EncodingType, int, StringBuilder, String, String, long)} does, so this only supports the encodings in which line
+ * feeds, carriage returns and enclosures can't be part of another character: see {@link #isSupported(Charset)}.
+ * <p>
+ * The reader can also stop at a position in the file, to let step copies read their own part of the file.
+ */
+public class ByteLineReader {
+  private static Class<?> PKG = TextFileInputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private static final int BUFFER_SIZE = 65536;
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  private final InputStream in;
+  private final Charset charset;
+  private final int fileFormatType;
+  private final byte[] enclosure;
+  private final byte[] escapeCharacter;
+  private final long end;
+
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int bufferPosition;
+  private int bufferEnd;
+
+  /** The position in the file of the next byte to read */
+  private long position;
+
+  private byte[] line = new byte[256];
+  private int lineLength;
+
+  private byte[] sanitized;
+
+  private boolean started;
+
+  /**
+   * @param in
+   *          the stream to read, positioned at the start of the line or after the byte order mark
+   * @param charset
+   *          the encoding of the file
+   * @param fileFormatType
+   *          the line ends: DOS, UNIX or mixed
+   * @param enclosure
+   *          lines are joined as long as an enclosure is open, empty to never join lines
+   * @param escapeCharacter
+   *          the escape character for the enclosures, may be empty
+   * @param position
+   *          the position of the stream in the file
+   * @param end
+   *          the lines starting at this position or after it are not read
+   */
+  public ByteLineReader( InputStream in, Charset charset, int fileFormatType, String enclosure,
+    String escapeCharacter, long position, long end ) {
+    this.in = in;
+    this.charset = charset;
+    this.fileFormatType = fileFormatType;
+    this.position = position;
+    this.end = end;
+
+    boolean lenientEnclosureHandling = ValueMetaBase.convertStringToBoolean( Const.NVL( EnvUtil.getSystemProperty(
+      Const.KETTLE_COMPATIBILITY_TEXT_FILE_INPUT_USE_LENIENT_ENCLOSURE_HANDLING ), "N" ) );
+    this.enclosure = lenientEnclosureHandling || StringUtils.isBlank( enclosure ) ? null : enclosure.getBytes( charset );
+    this.escapeCharacter = StringUtils.isEmpty( escapeCharacter ) ? null : escapeCharacter.getBytes( charset );
+  }
+
+  /**
+   * Line feeds and carriage returns have to be the single bytes 10 and 13, and can't be part of another character.
+   * This is the case for UTF-8 and the single byte encodings based on ASCII.
+   */
+  public static boolean isSupported( Charset charset ) {
+    if ( StandardCharsets.UTF_8.equals( charset ) ) {
+      return true;
+    }
+    return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f
+      && Arrays.equals( new byte[] { CR, LF }, "\r\n".getBytes( charset ) );
+  }
+
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Skips the rest of the line at the current position, to start reading a file at the next line from any position.
+   * Line breaks inside enclosures can't be recognized this way.
+   */
+  public void skipPartialLine() throws KettleFileException {
+    started = true;
+    try {
+      int c = read();
+      while ( c >= 0 ) {
+        if ( c == LF ) {
+          return;
+        }
+        if ( c == CR && ( fileFormatType == TextFileInputMeta.FILE_FORMAT_UNIX
+          || fileFormatType == TextFileInputMeta.FILE_FORMAT_MIXED && peek() != LF ) ) {
+          return;
+        }
+        c = read();
+      }
+    } catch ( IOException e ) {
+      throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.Error.ExceptionReadingLine", e
+        .toString() ), e );
+    }
+  }
+
+  /**
+   * Reads the next line. When the number of enclosures in the line is odd, there is a line break inside an enclosure
+   * and the next lines are joined with a line feed.
+   *
+   * @param lineNumberInFile
+   *          the number of the line in the file, incremented for every joined line
+   * @param decode
+   *          true to decode the line to a String
+   * @param keepBytes
+   *          true to keep the bytes of the line
+   * @return the line or null at the end of the file or of the part to read
+   */
+  public TextFileLine readLine( long lineNumberInFile, boolean decode, boolean keepBytes )
+    throws KettleFileException {
+    if ( started && position >= end ) {
+      return null;
+    }
+    started = true;
+
+    lineLength = 0;
+    if ( !readPhysicalLine() ) {
+      return null;
+    }
+    if ( enclosure != null ) {
+      while ( countEnclosures() % 2 != 0 ) {
+        // Include \n between lines ignoring \r to be OS independent
+        append( LF );
+        if ( !readPhysicalLine() ) {
+          return null;
+        }
+        lineNumberInFile++;
+      }
+    }
+
+    String string = decode ? new String( line, 0, lineLength, charset ) : null;
+    byte[] bytes = keepBytes ? Arrays.copyOf( line, lineLength ) : null;
+    return new TextFileLine( string, bytes, lineNumberInFile, null );
+  }
+
+  /**
+   * Appends the next line of the file to the line buffer, without the line end.
+   *
+   * @return false at the end of the file
+   */
+  private boolean readPhysicalLine() throws KettleFileException {
+    int start = lineLength;
+    try {
+      while ( bufferPosition < bufferEnd || fill() ) {
+        int i = bufferPosition;
+        while ( i < bufferEnd && buffer[i] != CR && buffer[i] != LF ) {
+          i++;
+        }
+        append( buffer, bufferPosition, i - bufferPosition );
+        position += i - bufferPosition;
+        bufferPosition = i;
+
+        if ( i < bufferEnd ) {
+          int c = read();
+          switch ( fileFormatType ) {
+            case TextFileInputMeta.FILE_FORMAT_DOS:
+              c = read();
+              if ( c != CR && c != LF ) {
+                // make sure its really a linefeed or carriage return, this is not a DOS file
+                throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.SingleLineFound" ) );
+              }
+              break;
+            case TextFileInputMeta.FILE_FORMAT_MIXED:
+              // either LF is the last character, or CR if it is followed by a non-linefeed character
+              if ( c == CR && peek() == LF ) {
+                read();
+              }
+              break;
+            default:
+              break;
+          }
+          return true;
+        }
+      }
+    } catch ( IOException e ) {
+      if ( lineLength == start ) {
+        throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.Error.ExceptionReadingLine", e
+          .toString() ), e );
+      }
+      return true;
+    }
+    return lineLength > start;
+  }
+
+  /**
+   * Counts the enclosures that are not escaped like {@link TextFileInputUtils#checkPattern(String, String, String)}.
+   */
+  private int countEnclosures() {
+    byte[] text = line;
+    int length = lineLength;
+    if ( escapeCharacter != null ) {
+      // Remove even number of escaped characters to simplify the detection of escaped enclosures
+      if ( sanitized == null || sanitized.length < length ) {
+        sanitized = new byte[line.length];
+      }
+      int escapeLength = escapeCharacter.length;
+      int n = 0;
+      int i = 0;
+      while ( i < length ) {
+        if ( matches( line, length, i, escapeCharacter ) && matches( line, length, i + escapeLength,
+          escapeCharacter ) ) {
+          i += 2 * escapeLength;
+        } else {
+          sanitized[n++] = line[i++];
+        }
+      }
+      text = sanitized;
+      length = n;
+    }
+
+    int count = 0;
+    int i = 0;
+    while ( i < length ) {
+      if ( matches( text, length, i, enclosure ) && ( escapeCharacter == null || !matches( text, length,
+        i - escapeCharacter.length, escapeCharacter ) ) ) {
+        count++;
+        i += enclosure.length;
+      } else {
+        i++;
+      }
+    }
+    return count;
+  }
+
+  private static boolean matches( byte[] text, int length, int offset, byte[] pattern ) {
+    if ( offset < 0 || offset + pattern.length > length ) {
+      return false;
+    }
+    for ( int i = 0; i < pattern.length; i++ ) {
+      if ( text[offset + i] != pattern[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void append( byte b ) {
+    ensureCapacity( lineLength + 1 );
+    line[lineLength++] = b;
+  }
+
+  private void append( byte[] bytes, int offset, int length ) {
+    ensureCapacity( lineLength + length );
+    System.arraycopy( bytes, offset, line, lineLength, length );
+    lineLength += length;
+  }
+
+  private void ensureCapacity( int capacity ) {
+    if ( capacity > line.length ) {
+      line = Arrays.copyOf( line, Math.max( capacity, line.length * 2 ) );
+    }
+  }
+
+  private int read() throws IOException {
+    if ( bufferPosition == bufferEnd && !fill() ) {
+      return -1;
+    }
+    position++;
+    return buffer[bufferPosition++] & 0xff;
+  }
+
+  private int peek() throws IOException {
+    if ( bufferPosition == bufferEnd && !fill() ) {
+      return -1;
+    }
+    return buffer[bufferPosition] & 0xff;
+  }
+
+  private boolean fill() throws IOException {
+    int read = in.read( buffer, 0, buffer.length );
+    if ( read <= 0 ) {
+      return false;
+    }
+    bufferPosition = 0;
+    bufferEnd = read;
+    return true;
+  }
+}
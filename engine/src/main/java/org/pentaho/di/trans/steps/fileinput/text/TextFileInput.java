@@ -80,6 +80,13 @@ public class TextFileInput extends BaseFileInputStep<TextFileInputMeta, TextFile
     data.separator = environmentSubstitute( meta.content.separator );
     data.enclosure = environmentSubstitute( meta.content.enclosure );
     data.escapeCharacter = environmentSubstitute( meta.content.escapeCharacter );
+
+    // Handle parallel reading capabilities: the copies can't split the files received from another step
+    if ( meta.content.runningInParallel && !meta.inputFiles.acceptingFilenames ) {
+      data.stepNumber = getUniqueStepNrAcrossSlaves();
+      data.totalNumberOfSteps = getUniqueStepCountAcrossSlaves();
+      data.parallel = data.totalNumberOfSteps > 1;
+    }
     // CSV without separator defined
     if ( meta.content.fileType.equalsIgnoreCase( "CSV" ) && ( meta.content.separator == null || meta.content.separator
         .isEmpty() ) ) {
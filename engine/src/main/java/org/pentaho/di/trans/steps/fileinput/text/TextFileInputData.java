@@ -71,6 +71,13 @@ public class TextFileInputData extends BaseFileInputStepData {
 
   public EncodingType encodingType;
 
+  /** Each step copy reads its own part of the files */
+  public boolean parallel;
+
+  public int stepNumber;
+
+  public int totalNumberOfSteps;
+
   public TextFileInputData() {
     // linked list is better, as usually .remove(0) is applied to this list
     lineBuffer = new LinkedList<TextFileLine>();
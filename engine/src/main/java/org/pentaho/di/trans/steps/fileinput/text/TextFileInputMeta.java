@@ -188,7 +188,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     @Injection( name = "ENCODING" )
     public String encoding;
 
-    /** The maximum number or lines to read */
+    /** The maximum number or lines to read, by each step copy when running in parallel */
     @Injection( name = "ROW_LIMIT" )
     public long rowLimit = -1;
 
@@ -208,6 +208,14 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     @Injection( name = "LENGTH" )
     public String length;
 
+    /** Flag indicating that the fields are passed on as binary strings and converted only when needed */
+    @Injection( name = "LAZY_CONVERSION" )
+    public boolean lazyConversion;
+
+    /** Flag indicating that each step copy reads its own part of the uncompressed files */
+    @Injection( name = "RUNNING_IN_PARALLEL" )
+    public boolean runningInParallel;
+
   }
 
   /** The filters to use... */
@@ -309,6 +317,8 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       content.fileFormat = XMLHandler.getTagValue( stepnode, "format" );
       content.encoding = XMLHandler.getTagValue( stepnode, "encoding" );
       content.length = XMLHandler.getTagValue( stepnode, "length" );
+      content.lazyConversion = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "lazy_conversion" ) );
+      content.runningInParallel = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "parallel" ) );
 
       Node filenode = XMLHandler.getSubNode( stepnode, "file" );
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
@@ -502,6 +512,8 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     content.rowNumberField = "";
     content.dateFormatLenient = true;
     content.rowNumberByFile = false;
+    content.lazyConversion = false;
+    content.runningInParallel = false;
 
     errorHandling.errorIgnored = false;
     errorHandling.skipBadFiles = false;
@@ -554,6 +566,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       }
     }
 
+    boolean lazyConversionActive = isLazyConversionActive();
     for ( int i = 0; i < inputFields.length; i++ ) {
       BaseFileField field = inputFields[i];
 
@@ -574,6 +587,16 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
         v.setDateFormatLenient( content.dateFormatLenient );
         v.setDateFormatLocale( content.dateFormatLocale );
         v.setTrimType( field.getTrimType() );
+        if ( lazyConversionActive ) {
+          // The values are read as bytes in the file encoding, the storage metadata converts them when needed
+          v.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+          v.setStringEncoding( space.environmentSubstitute( content.encoding ) );
+
+          ValueMetaInterface storageMetadata = ValueMetaFactory.cloneValueMeta( v, ValueMetaInterface.TYPE_STRING );
+          storageMetadata.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+          storageMetadata.setLength( -1, -1 );
+          v.setStorageMetadata( storageMetadata );
+        }
 
         row.addValueMeta( v );
       } catch ( Exception e ) {
@@ -710,6 +733,8 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     retval.append( "    " ).append( XMLHandler.addTagValue( "format", content.fileFormat ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "encoding", content.encoding ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "length", content.length ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "lazy_conversion", content.lazyConversion ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "parallel", content.runningInParallel ) );
     retval.append( "    " + XMLHandler.addTagValue( "add_to_result_filenames", inputFiles.isaddresult ) );
 
     retval.append( "    <file>" ).append( Const.CR );
@@ -876,6 +901,8 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       content.fileFormat = rep.getStepAttributeString( id_step, "format" );
       content.encoding = rep.getStepAttributeString( id_step, "encoding" );
       content.length = rep.getStepAttributeString( id_step, "length" );
+      content.lazyConversion = rep.getStepAttributeBoolean( id_step, "lazy_conversion" );
+      content.runningInParallel = rep.getStepAttributeBoolean( id_step, "parallel" );
       String addToResult = rep.getStepAttributeString( id_step, "add_to_result_filenames" );
       if ( Utils.isEmpty( addToResult ) ) {
         inputFiles.isaddresult = true;
@@ -1016,6 +1043,8 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       rep.saveStepAttribute( id_transformation, id_step, "format", content.fileFormat );
       rep.saveStepAttribute( id_transformation, id_step, "encoding", content.encoding );
       rep.saveStepAttribute( id_transformation, id_step, "length", content.length );
+      rep.saveStepAttribute( id_transformation, id_step, "lazy_conversion", content.lazyConversion );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel", content.runningInParallel );
       rep.saveStepAttribute( id_transformation, id_step, "add_to_result_filenames", inputFiles.isaddresult );
 
       rep.saveStepAttribute( id_transformation, id_step, "limit", content.rowLimit );
@@ -1223,6 +1252,26 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     }
   }
 
+  /**
+   * Lazy conversion only applies to CSV files without escape character or wrapped lines. The conversion errors can't
+   * be handled by this step and the null and default values can't be applied when the fields are converted later on,
+   * so the option is ignored when any of these are used.
+   *
+   * @return true if the fields are passed on as binary strings
+   */
+  public boolean isLazyConversionActive() {
+    if ( !content.lazyConversion || !"CSV".equalsIgnoreCase( content.fileType ) || !Utils.isEmpty(
+        content.escapeCharacter ) || content.lineWrapped || errorHandling.errorIgnored ) {
+      return false;
+    }
+    for ( BaseFileField field : inputFields ) {
+      if ( !Utils.isEmpty( field.getNullString() ) || !Utils.isEmpty( field.getIfNullValue() ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Since the exported transformation that runs this will reside in a ZIP file, we can't reference files relatively. So
    * what this does is turn the name of files into absolute paths OR it simply includes the resource in the ZIP file.
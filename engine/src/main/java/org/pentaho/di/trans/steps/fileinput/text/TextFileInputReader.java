@@ -23,16 +23,22 @@
 package org.pentaho.di.trans.steps.fileinput.text;
 
 import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.compress.CompressionInputStream;
 import org.pentaho.di.core.compress.CompressionProvider;
 import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.compress.NoneCompressionProvider;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.errorhandling.AbstractFileErrorHandler;
 import org.pentaho.di.trans.steps.file.IBaseFileInputReader;
@@ -44,6 +50,8 @@ import org.pentaho.di.trans.steps.file.IBaseFileInputStepControl;
  * @author Alexander Buloichik
  */
 public class TextFileInputReader implements IBaseFileInputReader {
+  private static Class<?> PKG = TextFileInputMeta.class; // for i18n purposes, needed by Translator2!!
+
   private static final int BUFFER_SIZE_INPUT_STREAM = 8192;
 
   private final IBaseFileInputStepControl step;
@@ -55,6 +63,21 @@ public class TextFileInputReader implements IBaseFileInputReader {
 
   private final BufferedInputStreamReader isr;
 
+  /** Reads the lines as bytes instead of isr when the encoding allows it */
+  private final ByteLineReader byteReader;
+
+  /** Decode the lines read as bytes, not needed for lazy conversion without filters */
+  private final boolean decodeLines;
+
+  /** Keep the bytes of the lines for lazy conversion */
+  private final boolean keepBytes;
+
+  /** Only the part of the file at the start has the header lines */
+  private final boolean header;
+
+  /** Only the part of the file at the end has the footer lines */
+  private final boolean footer;
+
   protected long lineInFile;
 
   private boolean first;
@@ -84,23 +107,91 @@ public class TextFileInputReader implements IBaseFileInputReader {
     BufferedInputStream inStream = new BufferedInputStream( in, BUFFER_SIZE_INPUT_STREAM );
     BOMDetector bom = new BOMDetector( inStream );
 
+    Charset charset;
     if ( bom.bomExist() ) {
       // if BOM exist, use it instead defined charset
-      isr = new BufferedInputStreamReader( new InputStreamReader( inStream, bom.getCharset() ) );
+      charset = Charset.forName( bom.getCharset() );
     } else if ( meta.getEncoding() != null && meta.getEncoding().length() > 0 ) {
-      isr = new BufferedInputStreamReader( new InputStreamReader( inStream, meta.getEncoding() ) );
+      charset = Charset.forName( meta.getEncoding() );
     } else {
-      isr = new BufferedInputStreamReader( new InputStreamReader( inStream ) );
+      charset = Charset.defaultCharset();
     }
 
-    String encoding = isr.getEncoding();
+    // The part of the file to read: when running in parallel every step copy reads its own part of an uncompressed
+    // file, the first copy reads the whole file if it can't be split.
+    long fileSize = file.getContent().getSize();
+    long start = 0;
+    long end = Long.MAX_VALUE;
+    if ( data.parallel ) {
+      if ( ByteLineReader.isSupported( charset ) && provider instanceof NoneCompressionProvider
+          && !meta.content.layoutPaged && !meta.content.breakInEnclosureAllowed ) {
+        start = fileSize * data.stepNumber / data.totalNumberOfSteps;
+        end = fileSize * ( data.stepNumber + 1 ) / data.totalNumberOfSteps;
+      } else if ( data.stepNumber > 0 ) {
+        start = end = fileSize;
+      } else if ( log.isDetailed() ) {
+        log.logDetailed( BaseMessages.getString( PKG, "TextFileInput.Log.ReadingWholeFile", data.filename ) );
+      }
+    }
+    header = meta.content.header && start == 0;
+    footer = meta.content.footer && end >= fileSize;
+
+    if ( ByteLineReader.isSupported( charset ) ) {
+      isr = null;
+
+      // With lazy conversion the bytes are kept if they are in the encoding of the fields
+      boolean lazyConversion = meta.isLazyConversionActive();
+      keepBytes = lazyConversion && ( !bom.bomExist() || charset.equals( Utils.isEmpty( meta.getEncoding() ) ? Charset
+          .defaultCharset() : Charset.forName( meta.getEncoding() ) ) );
+      decodeLines = !keepBytes || meta.getFilter().length > 0 || log.isRowLevel();
+
+      if ( start > 0 ) {
+        // Start reading after the end of the line before our part
+        long position = Math.max( start - 1, bom.getBomSize() );
+        skip( inStream, position - bom.getBomSize() );
+        byteReader =
+            new ByteLineReader( inStream, charset, data.fileFormatType, meta.getEnclosure(), meta
+                .getEscapeCharacter(), position, end );
+        byteReader.skipPartialLine();
+      } else {
+        byteReader =
+            new ByteLineReader( inStream, charset, data.fileFormatType, meta.getEnclosure(), meta
+                .getEscapeCharacter(), bom.getBomSize(), end );
+      }
+    } else {
+      isr = new BufferedInputStreamReader( new InputStreamReader( inStream, charset ) );
+      byteReader = null;
+      keepBytes = false;
+      decodeLines = true;
+    }
+
+    String encoding = isr != null ? isr.getEncoding() : charset.name();
     data.encodingType = EncodingType.guessEncodingType( encoding );
 
-    readInitial();
+    if ( start < end ) {
+      readInitial();
+    } else {
+      // Nothing to read for this step copy
+      data.doneReading = true;
+    }
+  }
+
+  private static void skip( InputStream inStream, long bytes ) throws IOException {
+    long skipped = 0;
+    while ( skipped < bytes ) {
+      long n = inStream.skip( bytes - skipped );
+      if ( n <= 0 ) {
+        if ( inStream.read() < 0 ) {
+          return;
+        }
+        n = 1;
+      }
+      skipped += n;
+    }
   }
 
   protected void readInitial() throws Exception {
-    data.doneWithHeader = !meta.content.header;
+    data.doneWithHeader = !header;
     // /////////////////////////////////////////////////////////////////////////////
     // Read the first lines...
 
@@ -113,21 +204,26 @@ public class TextFileInputReader implements IBaseFileInputReader {
      * OK, read a number of lines in the buffer: The header rows The nr rows in the page : optional The footer rows
      */
     int bufferSize = 1;
-    bufferSize += meta.content.header ? meta.content.nrHeaderLines : 0;
+    bufferSize += header ? meta.content.nrHeaderLines : 0;
     bufferSize +=
         meta.content.layoutPaged ? meta.content.nrLinesPerPage * ( Math.max( 0, meta.content.nrWraps ) + 1 ) : Math.max(
             0, meta.content.nrWraps ); // it helps when we have wrapped input w/o header
 
-    bufferSize += meta.content.footer ? meta.content.nrFooterLines : 0;
+    bufferSize += footer ? meta.content.nrFooterLines : 0;
 
     // See if we need to skip the document header lines...
     if ( meta.content.layoutPaged ) {
-      lineNumberInFile = TextFileInputUtils.skipLines( log, isr, data.encodingType, data.fileFormatType, data.lineStringBuilder,
-        meta.content.nrLinesDocHeader, meta.getEnclosure(), meta.getEscapeCharacter(), lineNumberInFile );
+      if ( byteReader != null ) {
+        lineNumberInFile = skipLines( meta.content.nrLinesDocHeader );
+      } else {
+        lineNumberInFile = TextFileInputUtils.skipLines( log, isr, data.encodingType, data.fileFormatType,
+          data.lineStringBuilder, meta.content.nrLinesDocHeader, meta.getEnclosure(), meta.getEscapeCharacter(),
+          lineNumberInFile );
+      }
     }
 
     for ( int i = 0; i < bufferSize && !data.doneReading; i++ ) {
-      boolean wasNotFiltered = tryToReadLine( !meta.content.header || i >= meta.content.nrHeaderLines );
+      boolean wasNotFiltered = tryToReadLine( !header || i >= meta.content.nrHeaderLines );
       if ( !wasNotFiltered ) {
         // grab another line, this one got filtered
         bufferSize++;
@@ -277,7 +373,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
          * IF we are done reading and we have a footer AND the number of lines in the buffer is smaller then the number
          * of footer lines THEN we can remove the remaining rows from the buffer: they are all footer rows.
          */
-        if ( data.doneReading && meta.content.footer && data.lineBuffer.size() < meta.content.nrFooterLines ) {
+        if ( data.doneReading && footer && data.lineBuffer.size() < meta.content.nrFooterLines ) {
           data.lineBuffer.clear();
         } else {
           // Not yet a footer line: it's a normal data line.
@@ -352,6 +448,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
       step.putRow( data.outputRowMeta, r );
       linesWritten++;
 
+      // When running in parallel every step copy counts its own lines
       if ( step.getLinesInput() >= meta.content.rowLimit && meta.content.rowLimit > 0 ) {
         close();
         return false;
@@ -385,7 +482,9 @@ public class TextFileInputReader implements IBaseFileInputReader {
         if ( in != null ) {
           BaseStep.closeQuietly( in );
         }
-        isr.close();
+        if ( isr != null ) {
+          isr.close();
+        }
         data.filename = null; // send it down the next time.
         if ( data.file != null ) {
           try {
@@ -416,29 +515,38 @@ public class TextFileInputReader implements IBaseFileInputReader {
 
   protected boolean tryToReadLine( boolean applyFilter ) throws KettleFileException {
 
-    TextFileLine textFileLine = TextFileInputUtils
-      .getLine( log, isr, data.encodingType, data.fileFormatType, data.lineStringBuilder,
-      meta.getEnclosure(), meta.getEscapeCharacter(), lineNumberInFile );
+    TextFileLine textFileLine;
+    if ( byteReader != null ) {
+      textFileLine = byteReader.readLine( lineNumberInFile, decodeLines, keepBytes );
+      if ( textFileLine == null ) {
+        textFileLine = new TextFileLine( null, lineNumberInFile, null );
+      }
+    } else {
+      textFileLine = TextFileInputUtils
+        .getLine( log, isr, data.encodingType, data.fileFormatType, data.lineStringBuilder,
+        meta.getEnclosure(), meta.getEscapeCharacter(), lineNumberInFile );
+    }
     String line = textFileLine.line;
+    byte[] bytes = textFileLine.bytes;
     lineNumberInFile = textFileLine.lineNumber;
 
-    if ( line != null ) {
+    if ( line != null || bytes != null ) {
       // when there is no header, check the filter for the first line
       if ( applyFilter ) {
         // Filter row?
         boolean isFilterLastLine = false;
-        boolean filterOK = checkFilterRow( line, isFilterLastLine );
+        boolean filterOK = checkFilterRow( textFileLine, isFilterLastLine );
         if ( filterOK ) {
-          data.lineBuffer.add( new TextFileLine( line, lineNumberInFile++, data.file ) ); // Store it in the
+          data.lineBuffer.add( new TextFileLine( line, bytes, lineNumberInFile++, data.file ) ); // Store it in the
           // line buffer...
         } else {
           return false;
         }
       } else { // don't checkFilterRow
 
-        if ( !meta.content.noEmptyLines || line.length() != 0 ) {
-          data.lineBuffer.add( new TextFileLine( line, lineNumberInFile++, data.file ) ); // Store it in the line
-                                                                                        // buffer...
+        if ( !meta.content.noEmptyLines || !isEmpty( textFileLine ) ) {
+          data.lineBuffer.add( new TextFileLine( line, bytes, lineNumberInFile++, data.file ) ); // Store it in the
+                                                                                               // line buffer...
         }
       }
     } else {
@@ -447,6 +555,29 @@ public class TextFileInputReader implements IBaseFileInputReader {
     return true;
   }
 
+  /**
+   * Skips the document header lines like {@link TextFileInputUtils#skipLines} does.
+   *
+   * @return the line number in file
+   */
+  private long skipLines( int nrLinesToSkip ) throws KettleFileException {
+    TextFileLine textFileLine = byteReader.readLine( lineNumberInFile, false, false );
+    long lineNumber = lineNumberInFile;
+    int skipped = 1;
+
+    while ( textFileLine != null && skipped < nrLinesToSkip ) {
+      lineNumber = textFileLine.lineNumber;
+      textFileLine = byteReader.readLine( lineNumber, false, false );
+      skipped++;
+    }
+
+    return textFileLine == null ? lineNumber : textFileLine.lineNumber;
+  }
+
+  private static boolean isEmpty( TextFileLine textFileLine ) {
+    return textFileLine.line != null ? textFileLine.line.length() == 0 : textFileLine.bytes.length == 0;
+  }
+
   /**
    * Check if the line should be taken.
    *
@@ -455,15 +586,15 @@ public class TextFileInputReader implements IBaseFileInputReader {
    *          (dummy input param, only set when return value is false)
    * @return true when the line should be taken (when false, isFilterLastLine will be set)
    */
-  private boolean checkFilterRow( String line, boolean isFilterLastLine ) {
+  private boolean checkFilterRow( TextFileLine line, boolean isFilterLastLine ) {
     boolean filterOK = true;
 
     // check for noEmptyLines
-    if ( meta.content.noEmptyLines && line.length() == 0 ) {
+    if ( meta.content.noEmptyLines && isEmpty( line ) ) {
       filterOK = false;
-    } else {
-      // check the filters
-      filterOK = data.filterProcessor.doFilters( line );
+    } else if ( line.line != null ) {
+      // check the filters, the line is always decoded when there are filters
+      filterOK = data.filterProcessor.doFilters( line.line );
       if ( !filterOK ) {
         if ( data.filterProcessor.isStopProcessing() ) {
           data.doneReading = true;
@@ -461,7 +461,7 @@ public class TextFileInputUtils {
       boolean hidden, Date modificationDateTime, String uri, String rooturi, String extension, Long size,
       final boolean failOnParseError )
         throws KettleException {
-    if ( textFileLine == null || textFileLine.line == null ) {
+    if ( textFileLine == null || textFileLine.line == null && textFileLine.bytes == null ) {
       return null;
     }
 
@@ -488,9 +488,19 @@ public class TextFileInputUtils {
     }
 
     try {
-      // System.out.println("Convertings line to string ["+line+"]");
-      String[] strings = convertLineToStrings( log, textFileLine.line, info, delimiter, enclosure, escapeCharacter );
       int shiftFields = ( passThruFields == null ? 0 : nrPassThruFields );
+
+      // With lazy conversion the fields are passed on as binary strings, split from the bytes of the line if we have them
+      boolean lazy = nrfields > 0 && outputRowMeta.getValueMeta( shiftFields ).isStorageBinaryString();
+      String encoding = lazy ? outputRowMeta.getValueMeta( shiftFields ).getStringEncoding() : null;
+      String[] strings = null;
+      byte[][] binaryStrings = null;
+      if ( lazy && textFileLine.bytes != null ) {
+        binaryStrings = convertLineToBinaryStrings( log, textFileLine.bytes, nrfields, delimiter, enclosure, encoding );
+      } else {
+        // System.out.println("Convertings line to string ["+line+"]");
+        strings = convertLineToStrings( log, textFileLine.line, info, delimiter, enclosure, escapeCharacter );
+      }
       for ( fieldnr = 0; fieldnr < nrfields; fieldnr++ ) {
         BaseFileField f = info.inputFields[fieldnr];
         int valuenr = shiftFields + fieldnr;
@@ -503,7 +513,13 @@ public class TextFileInputUtils {
         String ifnull = fieldnr < nrfields ? f.getIfNullValue() : "";
         int trim_type = fieldnr < nrfields ? f.getTrimType() : ValueMetaInterface.TRIM_TYPE_NONE;
 
-        if ( fieldnr < strings.length ) {
+        if ( binaryStrings != null ) {
+          value = binaryStrings[fieldnr];
+        } else if ( lazy ) {
+          // The line wasn't read as bytes in the encoding of the fields
+          String pol = strings[fieldnr];
+          value = pol == null ? null : Utils.isEmpty( encoding ) ? pol.getBytes() : pol.getBytes( encoding );
+        } else if ( fieldnr < strings.length ) {
           String pol = strings[ fieldnr ];
           try {
             if ( valueMeta.isNull( pol ) || !Utils.isEmpty( nullif ) && nullif.equals( pol ) ) {
@@ -959,6 +975,166 @@ public class TextFileInputUtils {
     return strings;
   }
 
+  /**
+   * Splits a CSV line read as bytes in fields the same way as {@link #convertLineToStrings} does without escape
+   * character. The fields are kept as bytes in the file encoding, to be converted lazily.
+   *
+   * @param line the bytes of the line
+   * @param nrFields the number of fields to return, the other fields are ignored
+   * @param encoding the encoding of the line, empty for the default encoding
+   * @return the bytes of the fields, null for the fields that are missing in the line
+   */
+  public static final byte[][] convertLineToBinaryStrings( LogChannelInterface log, byte[] line, int nrFields,
+      String delimiter, String enclosure, String encoding ) throws KettleException {
+    byte[][] fields = new byte[nrFields][];
+
+    try {
+      byte[] delimiterBytes = Utils.isEmpty( encoding ) ? delimiter.getBytes() : delimiter.getBytes( encoding );
+      byte[] enclosureBytes = Utils.isEmpty( enclosure ) ? new byte[0]
+          : Utils.isEmpty( encoding ) ? enclosure.getBytes() : enclosure.getBytes( encoding );
+
+      int fieldnr = 0;
+      int pos = 0;
+      int length = line.length;
+      boolean dencl = false;
+      int len_encl = enclosureBytes.length;
+
+      while ( pos < length ) {
+        int from = pos;
+        int next;
+        boolean encl_found;
+
+        // Is the field beginning with an enclosure?
+        if ( len_encl > 0 && startsWith( line, from, enclosureBytes ) ) {
+          encl_found = true;
+          int p = from + len_encl;
+
+          boolean is_enclosure = p + len_encl < length && startsWith( line, p, enclosureBytes );
+          boolean enclosure_after = false;
+
+          // Is it really an enclosure? See if it's not repeated twice
+          if ( is_enclosure && p < length - 1 && startsWith( line, p + len_encl, enclosureBytes ) ) {
+            p++;
+            enclosure_after = true;
+            dencl = true;
+          }
+
+          // Look for a closing enclosure!
+          while ( ( !is_enclosure || enclosure_after ) && p < length ) {
+            p++;
+            enclosure_after = false;
+            is_enclosure = p + len_encl < length && startsWith( line, p, enclosureBytes );
+
+            // Is it really an enclosure? See if it's not repeated twice
+            if ( is_enclosure && p < length - 1 && startsWith( line, p + len_encl, enclosureBytes ) ) {
+              p++;
+              enclosure_after = true;
+              dencl = true;
+            }
+          }
+
+          if ( p >= length ) {
+            next = p;
+          } else {
+            next = p + len_encl;
+          }
+        } else {
+          encl_found = false;
+          next = indexOf( line, delimiterBytes, from );
+        }
+        if ( next == -1 ) {
+          next = length;
+        }
+
+        byte[] pol;
+        if ( encl_found && ( ( from + len_encl ) <= ( next - len_encl ) ) ) {
+          pol = Arrays.copyOfRange( line, from + len_encl, next - len_encl );
+        } else {
+          pol = Arrays.copyOfRange( line, from, next );
+        }
+
+        if ( dencl ) {
+          pol = removeDoubleEnclosures( pol, enclosureBytes );
+        }
+
+        // More values than fields are ignored
+        if ( fieldnr < nrFields ) {
+          fields[fieldnr] = pol;
+        }
+
+        pos = next + delimiterBytes.length;
+        fieldnr++;
+      }
+      if ( pos == length ) {
+        if ( log.isRowLevel() ) {
+          log.logRowlevel( BaseMessages.getString( PKG, "TextFileInput.Log.ConvertLineToRowTitle" ), BaseMessages
+              .getString( PKG, "TextFileInput.Log.EndOfEmptyLineFound" ) );
+        }
+        if ( fieldnr < nrFields ) {
+          fields[fieldnr] = new byte[0];
+        }
+      }
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "TextFileInput.Log.Error.ErrorConvertingLine", e
+          .toString() ), e );
+    }
+
+    return fields;
+  }
+
+  private static boolean startsWith( byte[] line, int offset, byte[] pattern ) {
+    if ( offset + pattern.length > line.length ) {
+      return false;
+    }
+    for ( int i = 0; i < pattern.length; i++ ) {
+      if ( line[offset + i] != pattern[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf( byte[] line, byte[] pattern, int from ) {
+    for ( int i = from; i + pattern.length <= line.length; i++ ) {
+      if ( startsWith( line, i, pattern ) ) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Replaces the doubled enclosures by a single one until there are none left, like {@link #convertLineToStrings}.
+   */
+  private static byte[] removeDoubleEnclosures( byte[] pol, byte[] enclosure ) {
+    if ( enclosure.length == 1 ) {
+      // Every run of enclosures ends up as a single one
+      byte[] result = new byte[pol.length];
+      int n = 0;
+      for ( int i = 0; i < pol.length; i++ ) {
+        if ( pol[i] != enclosure[0] || n == 0 || result[n - 1] != enclosure[0] ) {
+          result[n++] = pol[i];
+        }
+      }
+      return n == pol.length ? pol : Arrays.copyOf( result, n );
+    }
+
+    byte[] doubled = new byte[2 * enclosure.length];
+    System.arraycopy( enclosure, 0, doubled, 0, enclosure.length );
+    System.arraycopy( enclosure, 0, doubled, enclosure.length, enclosure.length );
+
+    byte[] result = pol;
+    int idx = indexOf( result, doubled, 0 );
+    while ( idx >= 0 ) {
+      byte[] shorter = new byte[result.length - enclosure.length];
+      System.arraycopy( result, 0, shorter, 0, idx );
+      System.arraycopy( result, idx + enclosure.length, shorter, idx, result.length - idx - enclosure.length );
+      result = shorter;
+      idx = indexOf( result, doubled, Math.max( 0, idx - doubled.length + 1 ) );
+    }
+    return result;
+  }
+
   /**
    * Finds a pattern within a String returning the occurrences number
    *
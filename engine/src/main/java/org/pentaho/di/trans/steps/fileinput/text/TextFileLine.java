@@ -31,6 +31,9 @@ public class TextFileLine {
 
   FileObject file;
 
+  /** The bytes of the line in the file encoding, only kept when the fields are lazily converted */
+  byte[] bytes;
+
   public TextFileLine( String line, long lineNumber, FileObject file ) {
     super();
     this.line = line;
@@ -38,6 +41,11 @@ public class TextFileLine {
     this.file = file;
   }
 
+  public TextFileLine( String line, byte[] bytes, long lineNumber, FileObject file ) {
+    this( line, lineNumber, file );
+    this.bytes = bytes;
+  }
+
   public String getLine() {
     return line;
   }
@@ -57,4 +65,8 @@ public class TextFileLine {
   public void setFile( FileObject file ) {
     this.file = file;
   }
+
+  public byte[] getBytes() {
+    return bytes;
+  }
 }
@@ -28,6 +28,8 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.vector.RowBatch;
+import org.pentaho.di.core.row.vector.VectorizedCondition;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -68,14 +70,37 @@ public class FilterRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Evaluates the condition for a whole block of rows, in columnar form if vectorized execution is enabled.
+   *
+   * @return for every row, whether to keep it
+   */
+  private synchronized boolean[] keepRows( RowMetaInterface rowMeta, Object[][] rows ) throws KettleException {
+    if ( !data.vectorized ) {
+      boolean[] keep = new boolean[ rows.length ];
+      for ( int i = 0; i < rows.length; i++ ) {
+        keep[ i ] = keepRow( rowMeta, rows[ i ] );
+      }
+      return keep;
+    }
+    try {
+      return VectorizedCondition.evaluate( meta.getCondition(), new RowBatch( rowMeta, rows, rows.length ) );
+    } catch ( Exception e ) {
+      String message =
+        BaseMessages.getString( PKG, "FilterRows.Exception.UnexpectedErrorFoundInEvaluationFuction" );
+      logError( message );
+      logError( Const.getStackTracker( e ) );
+      throw new KettleException( message, e );
+    }
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (FilterRowsMeta) smi;
     data = (FilterRowsData) sdi;
 
-    boolean keep;
-
-    Object[] r = getRow(); // Get next usable row from input rowset(s)!
-    if ( r == null ) { // no more input to be expected...
+    long previousLinesRead = getLinesRead();
+    Object[][] rows = getRows( ROW_BATCH_SIZE ); // Get next usable rows from input rowset(s)!
+    if ( rows == null ) { // no more input to be expected...
 
       setOutputDone();
       return false;
@@ -90,6 +115,8 @@ public class FilterRows extends BaseStep implements StepInterface {
       // if filter refers to non-existing fields, throw exception
       checkNonExistingFields();
 
+      data.vectorized = isVectorizedExecution();
+
       // Cache the position of the RowSet for the output.
       //
       if ( data.chosesTargetSteps ) {
@@ -116,30 +143,40 @@ public class FilterRows extends BaseStep implements StepInterface {
       }
     }
 
-    keep = keepRow( getInputRowMeta(), r ); // Keep this row?
     if ( !data.chosesTargetSteps ) {
-      if ( keep ) {
-        putRow( data.outputRowMeta, r ); // copy row to output rowset(s);
+      // Keep the rows that pass in place and copy them to the output rowset(s) as one block
+      //
+      boolean[] keep = keepRows( getInputRowMeta(), rows );
+      int nrKept = 0;
+      for ( int i = 0; i < rows.length; i++ ) {
+        if ( keep[ i ] ) {
+          rows[nrKept++] = rows[ i ];
+        }
       }
+      putRows( data.outputRowMeta, rows, nrKept );
     } else {
-      if ( keep ) {
-        if ( data.trueRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
+      boolean[] keep = keepRows( getInputRowMeta(), rows ); // Keep these rows?
+      for ( int i = 0; i < rows.length; i++ ) {
+        Object[] r = rows[ i ];
+        if ( keep[ i ] ) {
+          if ( data.trueRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.trueRowSet );
           }
-          putRowTo( data.outputRowMeta, r, data.trueRowSet );
-        }
-      } else {
-        if ( data.falseRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+        } else {
+          if ( data.falseRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.falseRowSet );
           }
-          putRowTo( data.outputRowMeta, r, data.falseRowSet );
         }
       }
     }
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + getLinesRead() );
       }
@@ -40,6 +40,7 @@ public class FilterRowsData extends BaseStepData implements StepDataInterface {
   public boolean chosesTargetSteps;
   public String trueStepname;
   public String falseStepname;
+  public boolean vectorized;
 
   public FilterRowsData() {
     super();
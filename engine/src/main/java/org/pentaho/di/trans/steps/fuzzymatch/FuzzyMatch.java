@@ -22,12 +22,11 @@
 
 package org.pentaho.di.trans.steps.fuzzymatch;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.codec.language.DoubleMetaphone;
-import org.apache.commons.codec.language.Metaphone;
-import org.apache.commons.codec.language.RefinedSoundex;
-import org.apache.commons.codec.language.Soundex;
 import org.apache.commons.lang.StringUtils;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
@@ -61,6 +60,11 @@ import com.wcohen.ss.NeedlemanWunsch;
 public class FuzzyMatch extends BaseStep implements StepInterface {
   private static Class<?> PKG = FuzzyMatchMeta.class; // for i18n purposes, needed by Translator2!!
 
+  private static final String INDEX_KEY_PREFIX = "FuzzyMatch.index:";
+
+  /** How long a copy waits for the others to add their lookup values before checking if the transformation stopped */
+  private static final long INDEX_WAIT_MILLIS = 100L;
+
   private FuzzyMatchMeta meta;
   private FuzzyMatchData data;
 
@@ -81,14 +85,84 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
         + data.infoStream.getStepname() + "]" );
     }
 
-    boolean firstRun = true;
-    // Which row set do we read from?
+    List<RowSet> rowSets = findLookupRowSets();
+    createIndex( rowSets.size() );
+    try {
+      for ( RowSet rowSet : rowSets ) {
+        readLookupRows( rowSet );
+      }
+    } finally {
+      data.index.doneAdding();
+    }
+
+    // Wait for the other copies sharing the index
     //
-    RowSet rowSet = findInputRowSet( data.infoStream.getStepname() );
+    try {
+      while ( !data.index.waitUntilBuilt( INDEX_WAIT_MILLIS ) ) {
+        if ( isStopped() ) {
+          return false;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    data.search = data.index.newSearch();
+
+    return true;
+  }
+
+  /**
+   * @return the row sets this copy reads the lookup rows from, one per copy of the lookup step that sends rows to it
+   */
+  private List<RowSet> findLookupRowSets() throws KettleStepException {
+    String infoStepname = data.infoStream.getStepname();
+    List<RowSet> rowSets = new ArrayList<RowSet>();
+    for ( RowSet rowSet : getInputRowSets() ) {
+      if ( rowSet.getOriginStepName() != null && rowSet.getOriginStepName().equalsIgnoreCase( infoStepname )
+        && rowSet.getDestinationStepCopy() == getCopy() ) {
+        rowSets.add( rowSet );
+      }
+    }
+    if ( rowSets.isEmpty() ) {
+      return Collections.singletonList( findInputRowSet( infoStepname ) );
+    }
+    return rowSets;
+  }
+
+  /**
+   * Create the index of the lookup values. The copies of the step share a single index. When every copy receives all
+   * the lookup rows, the first copy adds them. When the lookup step distributes its rows, or runs in as many copies as
+   * this step so that each copy only gets the rows of one of them, every copy adds the rows it receives.
+   *
+   * @param nrLookupRowSets
+   *          the number of row sets this copy reads the lookup rows from
+   */
+  private void createIndex( int nrLookupRowSets ) {
+    final int nrCopies = getTrans() == null ? 1 : Math.max( 1, getTrans().findStepInterfaces( getStepname() ).size() );
+    Map<String, Object> registry = getTrans() == null ? null : getTrans().getExtensionDataMap();
+    if ( nrCopies < 2 || registry == null ) {
+      data.index = new FuzzyMatchIndex( meta.getAlgorithmType(), meta.isCaseSensitive() );
+      data.addLookupValues = true;
+      return;
+    }
+
+    final int nrInfoCopies = Math.max( 1, getTrans().findStepInterfaces( data.infoStream.getStepname() ).size() );
+    final boolean partial = data.infoStream.getStepMeta().isDistributes() || nrLookupRowSets < nrInfoCopies;
+    data.indexKey = INDEX_KEY_PREFIX + getStepname();
+    data.index = FuzzyMatchIndex.acquire( registry, data.indexKey,
+      () -> new FuzzyMatchIndex( meta.getAlgorithmType(), meta.isCaseSensitive(), nrCopies ) );
+    data.addLookupValues = partial || getCopy() == 0;
+    if ( isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.SharingIndex", nrCopies ) );
+    }
+  }
+
+  private void readLookupRows( RowSet rowSet ) throws KettleException {
     Object[] rowData = getRowFrom( rowSet ); // rows are originating from "lookup_from"
 
     while ( rowData != null ) {
-      if ( firstRun ) {
+      if ( data.infoMeta == null ) {
         data.infoMeta = rowSet.getRowMeta().clone();
         // Check lookup field
         int indexOfLookupField = data.infoMeta.indexOfValue( environmentSubstitute( meta.getLookupField() ) );
@@ -157,16 +231,12 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
           .getString( storeData ) ) );
       }
 
-      addToCache( storeData );
+      if ( data.addLookupValues ) {
+        addToCache( storeData );
+      }
 
       rowData = getRowFrom( rowSet );
-
-      if ( firstRun ) {
-        firstRun = false;
-      }
     }
-
-    return true;
   }
 
   private Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
@@ -201,7 +271,7 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
 
   private void addToCache( Object[] value ) throws KettleException {
     try {
-      data.look.add( value );
+      data.index.add( value );
     } catch ( java.lang.OutOfMemoryError o ) {
       // exception out of memory
       throw new KettleException( BaseMessages.getString( PKG, "FuzzyMatch.Error.JavaHeap", o.toString() ) );
@@ -243,16 +313,15 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
-
     long distance = -1;
 
     // Object o=row[data.indexOfMainField];
     String lookupvalue = getInputRowMeta().getString( row, data.indexOfMainField );
 
-    while ( it.hasNext() ) {
+    // Only compare the values the index can't rule out
+    for ( int candidate : data.search.getCloseValues( lookupvalue, data.maximalDistance ) ) {
       // Get cached row data
-      Object[] cachedData = it.next();
+      Object[] cachedData = data.index.getRow( candidate );
       // Key value is the first value
       String cacheValue = (String) cachedData[0];
 
@@ -315,38 +384,33 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
-
     Object o = row[data.indexOfMainField];
     String lookupvalue = (String) o;
 
-    String lookupValueMF = getEncodedMF( lookupvalue, meta.getAlgorithmType() );
+    String lookupValueMF = FuzzyMatchIndex.getEncodedMF( lookupvalue, meta.getAlgorithmType() );
 
-    while ( it.hasNext() ) {
+    // The index groups the cached values by code, of those the last cached one is the match
+    int[] candidates = data.index.getSameCode( lookupValueMF );
+    if ( candidates.length > 0 ) {
       // Get cached row data
-      Object[] cachedData = it.next();
+      Object[] cachedData = data.index.getRow( candidates[candidates.length - 1] );
       // Key value is the first value
       String cacheValue = (String) cachedData[0];
 
-      String cacheValueMF = getEncodedMF( cacheValue, meta.getAlgorithmType() );
-
-      if ( lookupValueMF.equals( cacheValueMF ) ) {
+      // Add match value
+      int index = 0;
+      rowData[index++] = cacheValue;
 
-        // Add match value
-        int index = 0;
-        rowData[index++] = cacheValue;
-
-        // Add metric value?
-        if ( data.addValueFieldName ) {
-          rowData[index++] = cacheValueMF;
-        }
-        // Add additional return values?
-        if ( data.addAdditionalFields ) {
-          for ( int i = 0; i < meta.getValue().length; i++ ) {
-            int nf = i + index;
-            int nr = i + 1;
-            rowData[nf] = cachedData[nr];
-          }
+      // Add metric value?
+      if ( data.addValueFieldName ) {
+        rowData[index++] = lookupValueMF;
+      }
+      // Add additional return values?
+      if ( data.addAdditionalFields ) {
+        for ( int i = 0; i < meta.getValue().length; i++ ) {
+          int nf = i + index;
+          int nr = i + 1;
+          rowData[nf] = cachedData[nr];
         }
       }
     }
@@ -354,43 +418,28 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     return rowData;
   }
 
-  private String getEncodedMF( String value, Integer algorithmType ) {
-    String encodedValueMF = "";
-    switch ( algorithmType ) {
-      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
-        encodedValueMF = ( new Metaphone() ).metaphone( value );
-        break;
-      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
-        encodedValueMF = ( ( new DoubleMetaphone() ).doubleMetaphone( value ) );
-        break;
-      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
-        encodedValueMF = ( new Soundex() ).encode( value );
-        break;
-      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
-        encodedValueMF = ( new RefinedSoundex() ).encode( value );
-        break;
-      default:
-        break;
-    }
-    return encodedValueMF;
-  }
-
   private Object[] doSimilarity( Object[] row ) {
 
     // Reserve room
     Object[] rowData = buildEmptyRow();
-    // prepare to read from cache ...
-    Iterator<Object[]> it = data.look.iterator();
     double similarity = 0;
+    int closest = -1;
 
     // get current value from main stream
     Object o = row[data.indexOfMainField];
 
     String lookupvalue = o == null ? "" : (String) o;
 
-    while ( it.hasNext() ) {
+    // Only compare the values the index can't rule out, the closest first when looking for the closest value
+    int[] candidates =
+      data.search.getSimilarValues( lookupvalue, data.minimalSimilarity, meta.isGetCloserValue() );
+    for ( int c = 0; c < candidates.length; c++ ) {
+      if ( meta.isGetCloserValue() && data.search.getBound( c ) < similarity ) {
+        // None of the remaining values can be closer
+        break;
+      }
       // Get cached row data
-      Object[] cachedData = it.next();
+      Object[] cachedData = data.index.getRow( candidates[c] );
       // Key value is the first value
       String cacheValue = (String) cachedData[0];
 
@@ -411,8 +460,11 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
 
       if ( data.minimalSimilarity <= csimilarity && csimilarity <= data.maximalSimilarity ) {
         if ( meta.isGetCloserValue() ) {
-          if ( csimilarity > similarity || ( csimilarity == 0 && cacheValue.equals( lookupvalue ) ) ) {
+          if ( csimilarity > similarity || ( csimilarity == 0 && cacheValue.equals( lookupvalue ) )
+            || ( csimilarity == similarity && closest >= 0 && candidates[c] < closest ) ) {
+            // Of equally close values the first cached one wins
             similarity = csimilarity;
+            closest = candidates[c];
             // Update match value
             int index = 0;
             rowData[index++] = cacheValue;
@@ -471,7 +523,7 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
         return false;
       }
       if ( isDetailed() ) {
-        logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.ReadValuesInMemory", data.look.size() ) );
+        logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.ReadValuesInMemory", data.index.size() ) );
       }
     }
 
@@ -622,7 +674,13 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (FuzzyMatchMeta) smi;
     data = (FuzzyMatchData) sdi;
-    data.look.clear();
+    if ( data.indexKey != null ) {
+      FuzzyMatchIndex.release( getTrans().getExtensionDataMap(), data.indexKey );
+      data.indexKey = null;
+    }
+    // Recover memory immediately, allow the cached values to be garbage collected
+    data.index = null;
+    data.search = null;
     super.dispose( smi, sdi );
   }
 
@@ -22,8 +22,6 @@
 
 package org.pentaho.di.trans.steps.fuzzymatch;
 
-import java.util.HashSet;
-
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -38,7 +36,14 @@ public class FuzzyMatchData extends BaseStepData implements StepDataInterface {
   public RowMetaInterface outputRowMeta;
 
   /** used to store values in used to look up things */
-  public HashSet<Object[]> look;
+  public FuzzyMatchIndex index;
+  public FuzzyMatchIndex.Search search;
+
+  /** the key of the index shared by the step copies, null if the index isn't shared */
+  public String indexKey;
+
+  /** false if another copy of the step adds the lookup values to the shared index */
+  public boolean addLookupValues;
 
   public boolean readLookupValues;
 
@@ -69,7 +74,6 @@ public class FuzzyMatchData extends BaseStepData implements StepDataInterface {
 
   public FuzzyMatchData() {
     super();
-    this.look = new HashSet<Object[]>();
     this.indexOfMainField = -1;
     this.addValueFieldName = false;
     this.valueSeparator = "";
@@ -0,0 +1,596 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fuzzymatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.apache.commons.codec.language.Metaphone;
+import org.apache.commons.codec.language.RefinedSoundex;
+import org.apache.commons.codec.language.Soundex;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * An index of the lookup values of a Fuzzy Match step. It's built once from the lookup stream and narrows down the
+ * values a main stream value needs to be compared with:
+ * <ul>
+ * <li>Levenshtein and Damerau-Levenshtein: a BK-tree over the Levenshtein distance, which is a metric. The
+ * Damerau-Levenshtein distance (optimal string alignment) is at least half the Levenshtein distance, so those values
+ * are searched within twice the maximum distance.</li>
+ * <li>Jaro, Jaro-Winkler and pair similarity: an inverted index of the characters (Jaro) or the letter pairs of the
+ * values. The characters or pairs a value has in common with the main stream value give an upper bound of the
+ * similarity, so the values that can't be similar enough are skipped.</li>
+ * <li>The phonetic algorithms: the values grouped by their code.</li>
+ * </ul>
+ * Needleman-Wunsch isn't indexed, every value is a candidate.
+ * <p>
+ * Candidates are returned in the order the values were added, unless asked for the closest first, so a step that
+ * compares them finds the same matches as one that compares every value. Once built, the index can be searched by
+ * several threads at the same time, each with a {@link Search} of its own, so the copies of a step share a single
+ * index.
+ */
+public class FuzzyMatchIndex {
+
+  /** Bounds are rounded up a bit so that a rounding error in the similarity doesn't skip a value */
+  private static final double BOUND_MARGIN = 1e-9;
+
+  private static final int[] NO_CANDIDATES = new int[0];
+
+  private final int algorithm;
+  private final boolean caseSensitive;
+
+  /** The cached rows, the value is the first field */
+  private List<Object[]> rows = new ArrayList<>();
+  private boolean built;
+
+  /** The step copies still adding rows, and the copies using the index */
+  private int adding;
+  private int references;
+
+  /** BK-tree */
+  private Node root;
+
+  /** Phonetic code to the rows with that code */
+  private Map<String, int[]> codes;
+
+  /** Character or letter pair to the rows that have it and how many times */
+  private Map<String, Postings> postings;
+  private int[] nrGrams;
+
+  /** The rows without characters or letter pairs, they're compared with every value */
+  private int[] noGrams;
+
+  /**
+   * @param algorithm
+   *          one of the FuzzyMatchMeta.OPERATION_TYPE_ algorithms
+   * @param caseSensitive
+   *          false to compare distances in lower case
+   */
+  public FuzzyMatchIndex( int algorithm, boolean caseSensitive ) {
+    this( algorithm, caseSensitive, 1 );
+  }
+
+  /**
+   * @param algorithm
+   *          one of the FuzzyMatchMeta.OPERATION_TYPE_ algorithms
+   * @param caseSensitive
+   *          false to compare distances in lower case
+   * @param nrCopies
+   *          the number of step copies that add rows, the index is built when all of them are done
+   */
+  public FuzzyMatchIndex( int algorithm, boolean caseSensitive, int nrCopies ) {
+    this.algorithm = algorithm;
+    this.caseSensitive = caseSensitive;
+    this.adding = nrCopies;
+  }
+
+  /**
+   * Get the index registered under a key, registering a new one if there is none. Each call must be followed by a
+   * call to {@link #release(Map, String)}.
+   *
+   * @param registry
+   *          the map to register the index in, shared by all the users of the index
+   * @param key
+   *          the key that identifies the index
+   * @param factory
+   *          creates the index if it's not registered yet
+   * @return the registered index
+   */
+  public static FuzzyMatchIndex acquire( Map<String, Object> registry, String key,
+    Supplier<FuzzyMatchIndex> factory ) {
+    synchronized ( registry ) {
+      FuzzyMatchIndex index = (FuzzyMatchIndex) registry.get( key );
+      if ( index == null ) {
+        index = factory.get();
+        registry.put( key, index );
+      }
+      index.references++;
+      return index;
+    }
+  }
+
+  /**
+   * Stop using the index registered under a key, the last user to release it removes it from the registry.
+   */
+  public static void release( Map<String, Object> registry, String key ) {
+    synchronized ( registry ) {
+      FuzzyMatchIndex index = (FuzzyMatchIndex) registry.get( key );
+      if ( index != null && --index.references <= 0 ) {
+        registry.remove( key );
+      }
+    }
+  }
+
+  /**
+   * Add a cached row, the value to match is its first field and isn't null.
+   */
+  public synchronized void add( Object[] row ) {
+    if ( built ) {
+      throw new IllegalStateException( "The index is already built" );
+    }
+    rows.add( row );
+  }
+
+  /**
+   * Build the index structures, once all the rows are added. Calling it again does nothing.
+   */
+  public synchronized void build() {
+    if ( built ) {
+      return;
+    }
+    built = true;
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+        buildTree();
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+        buildCodes();
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+      case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+        buildPostings();
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * A step copy is done adding rows, the last one builds the index.
+   */
+  public synchronized void doneAdding() {
+    if ( --adding <= 0 ) {
+      build();
+      notifyAll();
+    }
+  }
+
+  /**
+   * Wait for the other step copies to add their rows.
+   *
+   * @return true if the index is built, false if the time is up
+   */
+  public synchronized boolean waitUntilBuilt( long millis ) throws InterruptedException {
+    if ( !built ) {
+      wait( millis );
+    }
+    return built;
+  }
+
+  public synchronized int size() {
+    return rows.size();
+  }
+
+  /**
+   * @return the cached row of a candidate
+   */
+  public Object[] getRow( int candidate ) {
+    return rows.get( candidate );
+  }
+
+  /**
+   * @return a new search, to be used by a single thread
+   */
+  public Search newSearch() {
+    return new Search();
+  }
+
+  /**
+   * @return the candidates with the given phonetic code, in the order they were added
+   */
+  public int[] getSameCode( String code ) {
+    int[] candidates = code == null ? null : codes.get( code );
+    return candidates == null ? NO_CANDIDATES : candidates;
+  }
+
+  /**
+   * @return the code of a value for the given phonetic algorithm
+   */
+  public static String getEncodedMF( String value, int algorithmType ) {
+    String encodedValueMF = "";
+    switch ( algorithmType ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+        encodedValueMF = ( new Metaphone() ).metaphone( value );
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+        encodedValueMF = ( ( new DoubleMetaphone() ).doubleMetaphone( value ) );
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+        encodedValueMF = ( new Soundex() ).encode( value );
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+        encodedValueMF = ( new RefinedSoundex() ).encode( value );
+        break;
+      default:
+        break;
+    }
+    return encodedValueMF;
+  }
+
+  private String getValue( int row ) {
+    String value = (String) rows.get( row )[ 0 ];
+    return caseSensitive ? value : value.toLowerCase();
+  }
+
+  private void buildTree() {
+    for ( int i = 0; i < rows.size(); i++ ) {
+      String value = getValue( i );
+      if ( root == null ) {
+        root = new Node( value );
+        root.add( i );
+        continue;
+      }
+      Node node = root;
+      while ( true ) {
+        int distance = StringUtils.getLevenshteinDistance( value, node.value );
+        if ( distance == 0 ) {
+          node.add( i );
+          break;
+        }
+        Node child = node.getChild( distance );
+        if ( child == null ) {
+          child = new Node( value );
+          child.add( i );
+          node.setChild( distance, child );
+          break;
+        }
+        node = child;
+      }
+    }
+  }
+
+  private void buildCodes() {
+    Map<String, IntList> lists = new HashMap<>();
+    for ( int i = 0; i < rows.size(); i++ ) {
+      String code = getEncodedMF( (String) rows.get( i )[ 0 ], algorithm );
+      if ( code != null ) {
+        IntList list = lists.get( code );
+        if ( list == null ) {
+          list = new IntList();
+          lists.put( code, list );
+        }
+        list.add( i );
+      }
+    }
+    codes = new HashMap<>( lists.size() * 2 );
+    for ( Map.Entry<String, IntList> entry : lists.entrySet() ) {
+      codes.put( entry.getKey(), entry.getValue().toArray() );
+    }
+  }
+
+  private void buildPostings() {
+    Map<String, IntList[]> lists = new HashMap<>();
+    IntList empty = new IntList();
+    nrGrams = new int[ rows.size() ];
+    for ( int i = 0; i < rows.size(); i++ ) {
+      Map<String, Integer> grams = getGrams( (String) rows.get( i )[ 0 ] );
+      for ( Map.Entry<String, Integer> gram : grams.entrySet() ) {
+        IntList[] list = lists.get( gram.getKey() );
+        if ( list == null ) {
+          list = new IntList[] { new IntList(), new IntList() };
+          lists.put( gram.getKey(), list );
+        }
+        list[ 0 ].add( i );
+        list[ 1 ].add( gram.getValue() );
+        nrGrams[ i ] += gram.getValue();
+      }
+      if ( nrGrams[ i ] == 0 ) {
+        empty.add( i );
+      }
+    }
+    postings = new HashMap<>( lists.size() * 2 );
+    for ( Map.Entry<String, IntList[]> entry : lists.entrySet() ) {
+      postings.put( entry.getKey(), new Postings( entry.getValue()[ 0 ].toArray(), entry.getValue()[ 1 ].toArray() ) );
+    }
+    noGrams = empty.toArray();
+  }
+
+  /**
+   * The characters (Jaro, Jaro-Winkler) or letter pairs of a value and how many times they occur. Characters are
+   * counted in lower case: characters that match in a case sensitive comparison match in lower case too, so the bound
+   * holds either way.
+   */
+  private Map<String, Integer> getGrams( String value ) {
+    Map<String, Integer> grams = new HashMap<>();
+    if ( algorithm == FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY ) {
+      for ( String pair : LetterPairSimilarity.wordLetterPairs( value.toUpperCase() ) ) {
+        Integer count = grams.get( pair );
+        grams.put( pair, count == null ? 1 : count + 1 );
+      }
+    } else {
+      String lowerCase = value.toLowerCase();
+      for ( int i = 0; i < lowerCase.length(); i++ ) {
+        String character = String.valueOf( lowerCase.charAt( i ) );
+        Integer count = grams.get( character );
+        grams.put( character, count == null ? 1 : count + 1 );
+      }
+    }
+    return grams;
+  }
+
+  /**
+   * @return the highest similarity two values with the given number of characters or pairs and the given number of
+   *         those in common can have
+   */
+  private double getBound( int common, int nrGrams1, int nrGrams2 ) {
+    if ( common == 0 ) {
+      return 0.0;
+    }
+    double bound;
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+        bound = 2.0 * common / ( nrGrams1 + nrGrams2 );
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+        // The Winkler bonus for a common prefix of at most 4 characters
+        double jaro = ( (double) common / nrGrams1 + (double) common / nrGrams2 + 1.0 ) / 3.0;
+        bound = jaro + 0.4 * ( 1.0 - jaro );
+        break;
+      default:
+        // At most the common characters match, without transpositions
+        bound = ( (double) common / nrGrams1 + (double) common / nrGrams2 + 1.0 ) / 3.0;
+        break;
+    }
+    return bound + BOUND_MARGIN;
+  }
+
+  /**
+   * Searches the index, with room for the intermediate results of a single thread.
+   */
+  public class Search {
+
+    private int[] common;
+    private IntList touched = new IntList();
+
+    private double[] bounds = new double[ 0 ];
+
+    /**
+     * @param value
+     *          the main stream value
+     * @param maximalDistance
+     *          the highest distance of the values to return
+     * @return the candidates that can be within the distance, in the order they were added
+     */
+    public int[] getCloseValues( String value, int maximalDistance ) {
+      if ( root == null ) {
+        return algorithm == FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH ? all() : NO_CANDIDATES;
+      }
+      String key = caseSensitive ? value : value.toLowerCase();
+      int radius =
+        algorithm == FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN ? 2 * maximalDistance : maximalDistance;
+
+      IntList candidates = new IntList();
+      List<Node> nodes = new ArrayList<>();
+      nodes.add( root );
+      while ( !nodes.isEmpty() ) {
+        Node node = nodes.remove( nodes.size() - 1 );
+        int distance = StringUtils.getLevenshteinDistance( key, node.value );
+        if ( distance <= radius ) {
+          candidates.addAll( node.rows );
+        }
+        // Triangle inequality: only the children at a distance within the radius of ours can hold candidates
+        int from = Math.max( 1, distance - radius );
+        int to = Math.min( node.children.length - 1, distance + radius );
+        for ( int d = from; d <= to; d++ ) {
+          if ( node.children[ d ] != null ) {
+            nodes.add( node.children[ d ] );
+          }
+        }
+      }
+      int[] result = candidates.toArray();
+      Arrays.sort( result );
+      return result;
+    }
+
+    /**
+     * @param value
+     *          the main stream value
+     * @param minimalSimilarity
+     *          the lowest similarity of the values to return
+     * @param closestFirst
+     *          true to return the candidates by descending bound, then in the order they were added. False to return
+     *          them in the order they were added.
+     * @return the candidates that can be at least as similar as the minimal similarity, see {@link #getBound(int)}
+     */
+    public int[] getSimilarValues( String value, double minimalSimilarity, boolean closestFirst ) {
+      Map<String, Integer> grams = getGrams( value );
+      int nrValueGrams = 0;
+      for ( Integer count : grams.values() ) {
+        nrValueGrams += count;
+      }
+      // Without characters or letter pairs, or when every value qualifies, compare all of them
+      if ( nrValueGrams == 0 || minimalSimilarity <= 0.0 ) {
+        int[] result = all();
+        bounds = new double[ result.length ];
+        Arrays.fill( bounds, 1.0 );
+        return result;
+      }
+
+      if ( common == null ) {
+        common = new int[ rows.size() ];
+      }
+      for ( Map.Entry<String, Integer> gram : grams.entrySet() ) {
+        Postings list = postings.get( gram.getKey() );
+        if ( list != null ) {
+          int count = gram.getValue();
+          for ( int i = 0; i < list.rows.length; i++ ) {
+            int row = list.rows[ i ];
+            if ( common[ row ] == 0 ) {
+              touched.add( row );
+            }
+            common[ row ] += Math.min( count, list.counts[ i ] );
+          }
+        }
+      }
+
+      final int[] found = new int[ touched.size + noGrams.length ];
+      final double[] foundBounds = new double[ found.length ];
+      int nrFound = 0;
+      for ( int i = 0; i < touched.size; i++ ) {
+        int row = touched.values[ i ];
+        double bound = FuzzyMatchIndex.this.getBound( common[ row ], nrValueGrams, nrGrams[ row ] );
+        common[ row ] = 0;
+        if ( bound >= minimalSimilarity ) {
+          found[ nrFound ] = row;
+          foundBounds[ nrFound++ ] = bound;
+        }
+      }
+      touched.size = 0;
+      for ( int row : noGrams ) {
+        found[ nrFound ] = row;
+        foundBounds[ nrFound++ ] = 1.0;
+      }
+
+      Integer[] order = new Integer[ nrFound ];
+      for ( int i = 0; i < nrFound; i++ ) {
+        order[ i ] = i;
+      }
+      Arrays.sort( order, new Comparator<Integer>() {
+        @Override
+        public int compare( Integer a, Integer b ) {
+          if ( closestFirst ) {
+            int cmp = Double.compare( foundBounds[ b ], foundBounds[ a ] );
+            if ( cmp != 0 ) {
+              return cmp;
+            }
+          }
+          return Integer.compare( found[ a ], found[ b ] );
+        }
+      } );
+      int[] result = new int[ nrFound ];
+      bounds = new double[ nrFound ];
+      for ( int i = 0; i < nrFound; i++ ) {
+        result[ i ] = found[ order[ i ] ];
+        bounds[ i ] = foundBounds[ order[ i ] ];
+      }
+      return result;
+    }
+
+    /**
+     * @return the highest similarity the candidate at the given position of the last result of
+     *         {@link #getSimilarValues(String, double, boolean)} can have
+     */
+    public double getBound( int position ) {
+      return bounds[ position ];
+    }
+
+    private int[] all() {
+      int[] result = new int[ rows.size() ];
+      for ( int i = 0; i < result.length; i++ ) {
+        result[ i ] = i;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * A node of the BK-tree: a value, the rows with that value and per distance the child with values at that distance.
+   */
+  private static final class Node {
+    private final String value;
+    private final IntList rows = new IntList();
+    private Node[] children = new Node[ 0 ];
+
+    private Node( String value ) {
+      this.value = value;
+    }
+
+    private void add( int row ) {
+      rows.add( row );
+    }
+
+    private Node getChild( int distance ) {
+      return distance < children.length ? children[ distance ] : null;
+    }
+
+    private void setChild( int distance, Node child ) {
+      if ( distance >= children.length ) {
+        children = Arrays.copyOf( children, distance + 1 );
+      }
+      children[ distance ] = child;
+    }
+  }
+
+  private static final class Postings {
+    private final int[] rows;
+    private final int[] counts;
+
+    private Postings( int[] rows, int[] counts ) {
+      this.rows = rows;
+      this.counts = counts;
+    }
+  }
+
+  private static final class IntList {
+    private int[] values = new int[ 4 ];
+    private int size;
+
+    private void add( int value ) {
+      if ( size == values.length ) {
+        values = Arrays.copyOf( values, size * 2 );
+      }
+      values[ size++ ] = value;
+    }
+
+    private void addAll( IntList other ) {
+      for ( int i = 0; i < other.size; i++ ) {
+        add( other.values[ i ] );
+      }
+    }
+
+    private int[] toArray() {
+      return Arrays.copyOf( values, size );
+    }
+  }
+}
@@ -30,6 +30,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -38,6 +39,8 @@ import java.util.Collections;
 import org.apache.commons.math.stat.descriptive.rank.Percentile;
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.HyperLogLog;
+import org.pentaho.di.core.util.TDigest;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
@@ -48,6 +51,9 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.vector.ColumnVector;
+import org.pentaho.di.core.row.vector.DoubleColumnVector;
+import org.pentaho.di.core.row.vector.LongColumnVector;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
@@ -77,8 +83,15 @@ public class GroupBy extends BaseStep implements StepInterface {
 
   private GroupByData data;
 
+  /**
+   * The minimum number of rows of a group in a block to calculate its aggregates on columns of values.
+   */
+  private static final int MIN_VECTOR_ROWS = 8;
+
   private boolean allNullsAreZero = false;
   private boolean minNullIsValued = false;
+  private int distinctApproxPrecision = HyperLogLog.DEFAULT_PRECISION;
+  private double percentileApproxCompression = TDigest.DEFAULT_COMPRESSION;
 
   public GroupBy( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans ) {
@@ -93,6 +106,10 @@ public class GroupBy extends BaseStep implements StepInterface {
     meta = (GroupByMeta) smi;
     data = (GroupByData) sdi;
 
+    if ( data.vectorized && !first && !data.newBatch ) {
+      return processRows();
+    }
+
     Object[] r = getRow(); // get row!
 
     if ( first ) {
@@ -100,6 +117,10 @@ public class GroupBy extends BaseStep implements StepInterface {
       allNullsAreZero = ValueMetaBase.convertStringToBoolean( val );
       val = getVariable( Const.KETTLE_AGGREGATION_MIN_NULL_IS_VALUED, "N" );
       minNullIsValued = ValueMetaBase.convertStringToBoolean( val );
+      distinctApproxPrecision = Math.max( HyperLogLog.MIN_PRECISION, Math.min( HyperLogLog.MAX_PRECISION, Const.toInt(
+          getVariable( Const.KETTLE_AGGREGATION_DISTINCT_APPROX_PRECISION ), HyperLogLog.DEFAULT_PRECISION ) ) );
+      percentileApproxCompression = Math.max( TDigest.MIN_COMPRESSION, Const.toDouble(
+          getVariable( Const.KETTLE_AGGREGATION_PERCENTILE_APPROX_COMPRESSION ), TDigest.DEFAULT_COMPRESSION ) );
 
       // What is the output looking like?
       //
@@ -184,6 +205,12 @@ public class GroupBy extends BaseStep implements StepInterface {
       // Initialize the group metadata
       //
       initGroupMeta( data.inputRowMeta );
+
+      // Without passing all rows along, the next rows are processed a block at a time
+      //
+      data.vectorized = !meta.passAllRows() && isVectorizedExecution();
+      data.vectorAggregates = getVectorAggregates( data.inputRowMeta );
+      data.primitiveAggregates = getPrimitiveAggregates( data.inputRowMeta );
     }
 
     if ( first || data.newBatch ) {
@@ -272,6 +299,58 @@ public class GroupBy extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Processes a block of rows. The block is split in runs of rows of the same group, the aggregates of a run are
+   * calculated on the columns of the run at once where possible.
+   * <p>
+   * Just like row by row processing, the last row that was read (data.previous) is only aggregated once the next row
+   * has been read (or the input is done).
+   */
+  private boolean processRows() throws KettleException {
+    long previousLinesRead = getLinesRead();
+    Object[][] rows = getRows( ROW_BATCH_SIZE );
+    if ( rows == null ) { // no more input to be expected...
+      handleLastOfGroup();
+      setOutputDone();
+      return false;
+    }
+
+    int from = 0;
+    while ( from < rows.length ) {
+      int to = from;
+      while ( to < rows.length && sameGroup( data.previous, rows[ to ] ) ) {
+        to++;
+      }
+      if ( to > from ) {
+        calcAggregate( data.previous );
+        calcAggregate( rows, from, to - 1 );
+        data.previous = data.inputRowMeta.cloneRow( rows[ to - 1 ] );
+      }
+
+      if ( to < rows.length ) {
+        // Not the same group: the previous group is complete
+        //
+        calcAggregate( data.previous );
+        Object[] result = buildResult( data.previous );
+        if ( result != null ) {
+          putRow( data.groupAggMeta, result ); // copy row to possible alternate rowset(s).
+        }
+        newAggregate( rows[ to ] ); // Create a new group aggregate (init)
+        data.previous = data.inputRowMeta.cloneRow( rows[ to ] );
+        to++;
+      }
+      from = to;
+    }
+
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "GroupBy.LineNumber" ) + getLinesRead() );
+      }
+    }
+
+    return true;
+  }
+
   private void handleLastOfGroup() throws KettleException {
     if ( meta.passAllRows() ) {
       // ALL ROWS
@@ -407,6 +486,277 @@ public class GroupBy extends BaseStep implements StepInterface {
 
   }
 
+  /**
+   * Sums, averages, counts, minimums and maximums of integers and numbers are calculated on a column of primitive
+   * values (see {@link #calcAggregate(Object[][], int, int)}), all other aggregates row by row.
+   *
+   * @return for every subject field, whether its aggregate can be calculated on a column of values at once
+   */
+  boolean[] getVectorAggregates( RowMetaInterface inputRowMeta ) {
+    boolean[] vectorAggregates = new boolean[ data.subjectnrs.length ];
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      int aggType = meta.getAggregateType()[ i ];
+      if ( aggType == GroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+        vectorAggregates[ i ] = true;
+        continue;
+      }
+      ValueMetaInterface subjMeta = inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
+      if ( subjMeta == null || ( !subjMeta.isInteger() && !subjMeta.isNumber() ) ) {
+        continue;
+      }
+      switch ( aggType ) {
+        case GroupByMeta.TYPE_GROUP_SUM:
+        case GroupByMeta.TYPE_GROUP_AVERAGE:
+        case GroupByMeta.TYPE_GROUP_COUNT_ALL:
+          vectorAggregates[ i ] = true;
+          break;
+        case GroupByMeta.TYPE_GROUP_MIN:
+        case GroupByMeta.TYPE_GROUP_MAX:
+          // The values are compared as is: no conversions, custom comparators or reversed sort order
+          vectorAggregates[ i ] = ( aggType == GroupByMeta.TYPE_GROUP_MAX || !minNullIsValued )
+            && ( subjMeta.getClass() == ValueMetaInteger.class || subjMeta.getClass() == ValueMetaNumber.class )
+            && subjMeta.isStorageNormal() && !subjMeta.isSortedDescending();
+          break;
+        default:
+          break;
+      }
+    }
+    return vectorAggregates;
+  }
+
+  /**
+   * Sums, averages, minimums and maximums of plain integers and numbers are kept in primitive longs and doubles while
+   * the rows of a group come in, instead of boxing a new sum (or comparing through the value metadata) on every row.
+   *
+   * @return for every subject field, whether its aggregate is calculated on primitive values, null if none is
+   */
+  boolean[] getPrimitiveAggregates( RowMetaInterface inputRowMeta ) {
+    boolean[] primitiveAggregates = new boolean[ data.subjectnrs.length ];
+    boolean any = false;
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      int aggType = meta.getAggregateType()[ i ];
+      ValueMetaInterface subjMeta = inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
+      if ( subjMeta == null || !subjMeta.isStorageNormal()
+          || ( subjMeta.getClass() != ValueMetaInteger.class && subjMeta.getClass() != ValueMetaNumber.class ) ) {
+        continue;
+      }
+      switch ( aggType ) {
+        case GroupByMeta.TYPE_GROUP_SUM:
+        case GroupByMeta.TYPE_GROUP_AVERAGE:
+          primitiveAggregates[ i ] = true;
+          break;
+        case GroupByMeta.TYPE_GROUP_MIN:
+        case GroupByMeta.TYPE_GROUP_MAX:
+          // Nulls are ignored and the values compared as is: no reversed sort order
+          primitiveAggregates[ i ] = ( aggType == GroupByMeta.TYPE_GROUP_MAX || !minNullIsValued )
+            && !subjMeta.isSortedDescending();
+          break;
+        default:
+          break;
+      }
+      any |= primitiveAggregates[ i ];
+    }
+    return any ? primitiveAggregates : null;
+  }
+
+  private boolean isPrimitiveAggregate( int i ) {
+    return data.primitiveAggregates != null && data.primitiveAggregates[ i ];
+  }
+
+  /**
+   * Adds the rows from index from up to (excluding) index to, all of the same group, to the aggregates.
+   */
+  private void calcAggregate( Object[][] rows, int from, int to ) throws KettleValueException {
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      if ( data.vectorAggregates[ i ] && to - from >= MIN_VECTOR_ROWS ) {
+        calcVectorAggregate( i, rows, from, to );
+      } else {
+        for ( int r = from; r < to; r++ ) {
+          calcAggregate( i, rows[ r ] );
+        }
+      }
+    }
+  }
+
+  private void calcVectorAggregate( int i, Object[][] rows, int from, int to ) throws KettleValueException {
+    int aggType = meta.getAggregateType()[ i ];
+    if ( aggType == GroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+      data.counts[ i ] += to - from;
+      return;
+    }
+
+    int subjectnr = data.subjectnrs[ i ];
+    ColumnVector column = ColumnVector.of( data.inputRowMeta.getValueMeta( subjectnr ), rows, from, to, subjectnr );
+    if ( isPrimitiveAggregate( i ) ) {
+      calcPrimitiveAggregate( i, column );
+      return;
+    }
+    switch ( aggType ) {
+      case GroupByMeta.TYPE_GROUP_SUM:
+        data.agg[ i ] = sum( data.agg[ i ], column );
+        break;
+      case GroupByMeta.TYPE_GROUP_AVERAGE:
+        data.agg[ i ] = sum( data.agg[ i ], column );
+        data.counts[ i ] += column.size() - column.getNullCount();
+        break;
+      case GroupByMeta.TYPE_GROUP_COUNT_ALL:
+        data.counts[ i ] += column.size() - column.getNullCount();
+        break;
+      case GroupByMeta.TYPE_GROUP_MIN:
+      case GroupByMeta.TYPE_GROUP_MAX:
+        data.agg[ i ] = extreme( data.agg[ i ], column, aggType == GroupByMeta.TYPE_GROUP_MIN, rows, from, subjectnr );
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Adds the non-null values of a column to a primitive aggregate.
+   */
+  private void calcPrimitiveAggregate( int i, ColumnVector column ) {
+    int aggType = meta.getAggregateType()[ i ];
+    if ( column instanceof LongColumnVector ) {
+      long[] values = ( (LongColumnVector) column ).getValues();
+      for ( int j = 0; j < values.length; j++ ) {
+        if ( !column.isNull( j ) ) {
+          addPrimitive( i, aggType, values[ j ] );
+        }
+      }
+    } else {
+      double[] values = ( (DoubleColumnVector) column ).getValues();
+      for ( int j = 0; j < values.length; j++ ) {
+        if ( !column.isNull( j ) ) {
+          addPrimitive( i, aggType, values[ j ] );
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a subject value to a primitive aggregate, data.counts holds the number of non-null values added so far.
+   */
+  private void calcPrimitiveAggregate( int i, Object subj ) {
+    if ( subj instanceof Long ) {
+      addPrimitive( i, meta.getAggregateType()[ i ], (Long) subj );
+    } else if ( subj != null ) {
+      addPrimitive( i, meta.getAggregateType()[ i ], (Double) subj );
+    }
+  }
+
+  private void addPrimitive( int i, int aggType, long value ) {
+    long agg = data.longAgg[ i ];
+    if ( data.counts[ i ]++ == 0 ) {
+      data.longAgg[ i ] = value;
+    } else if ( aggType == GroupByMeta.TYPE_GROUP_MIN ) {
+      data.longAgg[ i ] = Math.min( agg, value );
+    } else if ( aggType == GroupByMeta.TYPE_GROUP_MAX ) {
+      data.longAgg[ i ] = Math.max( agg, value );
+    } else {
+      data.longAgg[ i ] = agg + value;
+    }
+  }
+
+  private void addPrimitive( int i, int aggType, double value ) {
+    double agg = data.doubleAgg[ i ];
+    if ( data.counts[ i ]++ == 0 ) {
+      data.doubleAgg[ i ] = value;
+    } else if ( aggType == GroupByMeta.TYPE_GROUP_MIN ) {
+      data.doubleAgg[ i ] = Double.compare( value, agg ) < 0 ? value : agg;
+    } else if ( aggType == GroupByMeta.TYPE_GROUP_MAX ) {
+      data.doubleAgg[ i ] = Double.compare( value, agg ) > 0 ? value : agg;
+    } else {
+      data.doubleAgg[ i ] = agg + value;
+    }
+  }
+
+  /**
+   * @return the boxed value of a primitive aggregate, null if no values were added
+   */
+  private Object getPrimitiveAggregate( int i ) {
+    if ( data.counts[ i ] == 0 ) {
+      return null;
+    }
+    if ( data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] ).isInteger() ) {
+      return data.longAgg[ i ];
+    }
+    return data.doubleAgg[ i ];
+  }
+
+  /**
+   * Adds the values of the column to the sum, in the same order as row by row. A null sum takes the first value, like
+   * {@link ValueDataUtil#sum(ValueMetaInterface, Object, ValueMetaInterface, Object)} does.
+   */
+  private static Object sum( Object sum, ColumnVector column ) {
+    int j = 0;
+    if ( sum == null ) {
+      while ( j < column.size() && column.isNull( j ) ) {
+        j++;
+      }
+      if ( j == column.size() ) {
+        return null;
+      }
+      sum = column.getObject( j++ );
+    }
+
+    if ( column instanceof LongColumnVector ) {
+      long[] values = ( (LongColumnVector) column ).getValues();
+      long total = (Long) sum;
+      for ( ; j < values.length; j++ ) {
+        if ( !column.isNull( j ) ) {
+          total += values[ j ];
+        }
+      }
+      return total;
+    } else {
+      double[] values = ( (DoubleColumnVector) column ).getValues();
+      double total = (Double) sum;
+      for ( ; j < values.length; j++ ) {
+        if ( !column.isNull( j ) ) {
+          total += values[ j ];
+        }
+      }
+      return total;
+    }
+  }
+
+  /**
+   * @return the smallest (or largest) of the current value and the non-null values of the column. Like row by row, the
+   * first of equal values is kept, as the very object of the row.
+   */
+  private static Object extreme( Object value, ColumnVector column, boolean min, Object[][] rows, int from,
+                                 int subjectnr ) {
+    Object result = value;
+    if ( column instanceof LongColumnVector ) {
+      LongColumnVector longs = (LongColumnVector) column;
+      long best = value == null ? 0L : (Long) value;
+      for ( int j = 0; j < column.size(); j++ ) {
+        if ( column.isNull( j ) ) {
+          continue;
+        }
+        int cmp = Long.compare( longs.get( j ), best );
+        if ( result == null || ( min ? cmp < 0 : cmp > 0 ) ) {
+          result = rows[ from + j ][ subjectnr ];
+          best = longs.get( j );
+        }
+      }
+    } else {
+      DoubleColumnVector doubles = (DoubleColumnVector) column;
+      double best = value == null ? 0.0 : (Double) value;
+      for ( int j = 0; j < column.size(); j++ ) {
+        if ( column.isNull( j ) ) {
+          continue;
+        }
+        int cmp = Double.compare( doubles.get( j ), best );
+        if ( result == null || ( min ? cmp < 0 : cmp > 0 ) ) {
+          result = rows[ from + j ][ subjectnr ];
+          best = doubles.get( j );
+        }
+      }
+    }
+    return result;
+  }
+
   // Is the row r of the same group as previous?
   boolean sameGroup( Object[] previous, Object[] r ) throws KettleValueException {
     return data.inputRowMeta.compare( previous, r, data.groupnrs ) == 0;
@@ -418,154 +768,180 @@ public class GroupBy extends BaseStep implements StepInterface {
    * @param row
    * @throws KettleValueException
    */
-  @SuppressWarnings( "unchecked" ) void calcAggregate( Object[] row ) throws KettleValueException {
+  void calcAggregate( Object[] row ) throws KettleValueException {
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
-      Object subj = row[ data.subjectnrs[ i ] ];
-      ValueMetaInterface subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
-      Object value = data.agg[ i ];
-      ValueMetaInterface valueMeta = data.aggMeta.getValueMeta( i );
+      calcAggregate( i, row );
+    }
+  }
 
-      switch ( meta.getAggregateType()[ i ] ) {
-        case GroupByMeta.TYPE_GROUP_SUM:
+  /**
+   * Adds the subject value of a row to the aggregate of a single subject field.
+   *
+   * @param i   the index of the subject field
+   * @param row the row
+   * @throws KettleValueException
+   */
+  @SuppressWarnings( "unchecked" ) private void calcAggregate( int i, Object[] row ) throws KettleValueException {
+    Object subj = row[ data.subjectnrs[ i ] ];
+    if ( isPrimitiveAggregate( i ) ) {
+      calcPrimitiveAggregate( i, subj );
+      return;
+    }
+    ValueMetaInterface subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
+    Object value = data.agg[ i ];
+    ValueMetaInterface valueMeta = data.aggMeta.getValueMeta( i );
+
+    switch ( meta.getAggregateType()[ i ] ) {
+      case GroupByMeta.TYPE_GROUP_SUM:
+        data.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
+        break;
+      case GroupByMeta.TYPE_GROUP_AVERAGE:
+        if ( !subjMeta.isNull( subj ) ) {
           data.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
-          break;
-        case GroupByMeta.TYPE_GROUP_AVERAGE:
-          if ( !subjMeta.isNull( subj ) ) {
-            data.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
-            data.counts[ i ]++;
-          }
-          break;
-        case GroupByMeta.TYPE_GROUP_MEDIAN:
-        case GroupByMeta.TYPE_GROUP_PERCENTILE:
-        case GroupByMeta.TYPE_GROUP_PERCENTILE_NEAREST_RANK:
-          if ( !subjMeta.isNull( subj ) ) {
-            ( (List<Double>) data.agg[ i ] ).add( subjMeta.getNumber( subj ) );
-          }
-          break;
-        case GroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
-        case GroupByMeta.TYPE_GROUP_STANDARD_DEVIATION_SAMPLE:
-          if ( !subjMeta.isNull( subj ) ) {
-            data.counts[ i ]++;
-            double n = data.counts[ i ];
-            double x = subjMeta.getNumber( subj );
-            // for standard deviation null is exact 0
-            double sum = value == null ? new Double( 0 ) : (Double) value;
-            double mean = data.mean[ i ];
-
-            double delta = x - mean;
-            mean = mean + ( delta / n );
-            sum = sum + delta * ( x - mean );
-
-            data.mean[ i ] = mean;
-            data.agg[ i ] = sum;
+          data.counts[ i ]++;
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_MEDIAN:
+      case GroupByMeta.TYPE_GROUP_PERCENTILE:
+      case GroupByMeta.TYPE_GROUP_PERCENTILE_NEAREST_RANK:
+        if ( !subjMeta.isNull( subj ) ) {
+          ( (List<Double>) data.agg[ i ] ).add( subjMeta.getNumber( subj ) );
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
+      case GroupByMeta.TYPE_GROUP_STANDARD_DEVIATION_SAMPLE:
+        if ( !subjMeta.isNull( subj ) ) {
+          data.counts[ i ]++;
+          double n = data.counts[ i ];
+          double x = subjMeta.getNumber( subj );
+          // for standard deviation null is exact 0
+          double sum = value == null ? new Double( 0 ) : (Double) value;
+          double mean = data.mean[ i ];
+
+          double delta = x - mean;
+          mean = mean + ( delta / n );
+          sum = sum + delta * ( x - mean );
+
+          data.mean[ i ] = mean;
+          data.agg[ i ] = sum;
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
+        if ( !subjMeta.isNull( subj ) ) {
+          if ( data.distinctObjs == null ) {
+            data.distinctObjs = new Set[ meta.getSubjectField().length ];
           }
-          break;
-        case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
-          if ( !subjMeta.isNull( subj ) ) {
-            if ( data.distinctObjs == null ) {
-              data.distinctObjs = new Set[ meta.getSubjectField().length ];
-            }
-            if ( data.distinctObjs[ i ] == null ) {
-              data.distinctObjs[ i ] = new TreeSet<Object>();
-            }
-            Object obj = subjMeta.convertToNormalStorageType( subj );
-            if ( !data.distinctObjs[ i ].contains( obj ) ) {
-              data.distinctObjs[ i ].add( obj );
-              // null is exact 0, or we will not be able to ++.
-              value = value == null ? new Long( 0 ) : value;
-              data.agg[ i ] = (Long) value + 1;
-            }
+          if ( data.distinctObjs[ i ] == null ) {
+            data.distinctObjs[ i ] = new TreeSet<Object>();
           }
-          break;
-        case GroupByMeta.TYPE_GROUP_COUNT_ALL:
-          if ( !subjMeta.isNull( subj ) ) {
-            data.counts[ i ]++;
+          Object obj = subjMeta.convertToNormalStorageType( subj );
+          if ( !data.distinctObjs[ i ].contains( obj ) ) {
+            data.distinctObjs[ i ].add( obj );
+            // null is exact 0, or we will not be able to ++.
+            value = value == null ? new Long( 0 ) : value;
+            data.agg[ i ] = (Long) value + 1;
           }
-          break;
-        case GroupByMeta.TYPE_GROUP_COUNT_ANY:
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+        if ( !subjMeta.isNull( subj ) ) {
+          ( (HyperLogLog) value ).add( subjMeta.convertToNormalStorageType( subj ) );
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_MEDIAN_APPROX:
+      case GroupByMeta.TYPE_GROUP_PERCENTILE_APPROX:
+        if ( !subjMeta.isNull( subj ) ) {
+          ( (TDigest) value ).add( subjMeta.getNumber( subj ) );
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_COUNT_ALL:
+        if ( !subjMeta.isNull( subj ) ) {
           data.counts[ i ]++;
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_COUNT_ANY:
+        data.counts[ i ]++;
+        break;
+      case GroupByMeta.TYPE_GROUP_MIN: {
+        if ( subj == null && !minNullIsValued ) {
+          // PDI-10250 do not compare null
           break;
-        case GroupByMeta.TYPE_GROUP_MIN: {
-          if ( subj == null && !minNullIsValued ) {
-            // PDI-10250 do not compare null
-            break;
-          }
-          // PDI-15648 set the initial value for further comparing
-          if ( value == null && subj != null && !minNullIsValued ) {
+        }
+        // PDI-15648 set the initial value for further comparing
+        if ( value == null && subj != null && !minNullIsValued ) {
+          data.agg[ i ] = subj;
+          break;
+        }
+
+        if ( subjMeta.isSortedDescending() ) {
+          // Account for negation in ValueMeta.compare() - See PDI-2302
+          if ( subjMeta.compare( value, valueMeta, subj ) < 0 ) {
             data.agg[ i ] = subj;
-            break;
           }
-
-          if ( subjMeta.isSortedDescending() ) {
-            // Account for negation in ValueMeta.compare() - See PDI-2302
-            if ( subjMeta.compare( value, valueMeta, subj ) < 0 ) {
-              data.agg[ i ] = subj;
-            }
-          } else {
-            if ( subjMeta.compare( subj, valueMeta, value ) < 0 ) {
-              data.agg[ i ] = subj;
-            }
+        } else {
+          if ( subjMeta.compare( subj, valueMeta, value ) < 0 ) {
+            data.agg[ i ] = subj;
           }
-          break;
         }
-        case GroupByMeta.TYPE_GROUP_MAX:
-          if ( subjMeta.isSortedDescending() ) {
-            // Account for negation in ValueMeta.compare() - See PDI-2302
-            if ( subjMeta.compare( value, valueMeta, subj ) > 0 ) {
-              data.agg[ i ] = subj;
-            }
-          } else {
-            if ( subjMeta.compare( subj, valueMeta, value ) > 0 ) {
-              data.agg[ i ] = subj;
-            }
-          }
-          break;
-        case GroupByMeta.TYPE_GROUP_FIRST:
-          if ( !( subj == null ) && value == null ) {
+        break;
+      }
+      case GroupByMeta.TYPE_GROUP_MAX:
+        if ( subjMeta.isSortedDescending() ) {
+          // Account for negation in ValueMeta.compare() - See PDI-2302
+          if ( subjMeta.compare( value, valueMeta, subj ) > 0 ) {
             data.agg[ i ] = subj;
           }
-          break;
-        case GroupByMeta.TYPE_GROUP_LAST:
-          if ( !( subj == null ) ) {
+        } else {
+          if ( subjMeta.compare( subj, valueMeta, value ) > 0 ) {
             data.agg[ i ] = subj;
           }
-          break;
-        case GroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
-          // This is on purpose. The calculation of the
-          // first field is done when setting up a new group
-          // This is just the field of the first row
-          // if (linesWritten==0) value.setValue(subj);
-          break;
-        case GroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_FIRST:
+        if ( !( subj == null ) && value == null ) {
           data.agg[ i ] = subj;
-          break;
-        case GroupByMeta.TYPE_GROUP_CONCAT_COMMA:
-          if ( !( subj == null ) ) {
-            StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
-              sb.append( ", " );
-            }
-            sb.append( subjMeta.getString( subj ) );
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_LAST:
+        if ( !( subj == null ) ) {
+          data.agg[ i ] = subj;
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
+        // This is on purpose. The calculation of the
+        // first field is done when setting up a new group
+        // This is just the field of the first row
+        // if (linesWritten==0) value.setValue(subj);
+        break;
+      case GroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+        data.agg[ i ] = subj;
+        break;
+      case GroupByMeta.TYPE_GROUP_CONCAT_COMMA:
+        if ( !( subj == null ) ) {
+          StringBuilder sb = (StringBuilder) value;
+          if ( sb.length() > 0 ) {
+            sb.append( ", " );
+          }
+          sb.append( subjMeta.getString( subj ) );
+        }
+        break;
+      case GroupByMeta.TYPE_GROUP_CONCAT_STRING:
+        if ( !( subj == null ) ) {
+          String separator = "";
+          if ( !Utils.isEmpty( meta.getValueField()[ i ] ) ) {
+            separator = environmentSubstitute( meta.getValueField()[ i ] );
           }
-          break;
-        case GroupByMeta.TYPE_GROUP_CONCAT_STRING:
-          if ( !( subj == null ) ) {
-            String separator = "";
-            if ( !Utils.isEmpty( meta.getValueField()[ i ] ) ) {
-              separator = environmentSubstitute( meta.getValueField()[ i ] );
-            }
 
-            StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
-              sb.append( separator );
-            }
-            sb.append( subjMeta.getString( subj ) );
+          StringBuilder sb = (StringBuilder) value;
+          if ( sb.length() > 0 ) {
+            sb.append( separator );
           }
+          sb.append( subjMeta.getString( subj ) );
+        }
 
-          break;
-        default:
-          break;
-      }
+        break;
+      default:
+        break;
     }
   }
 
@@ -581,6 +957,13 @@ public class GroupBy extends BaseStep implements StepInterface {
     }
     data.distinctObjs = null;
     data.agg = new Object[ data.subjectnrs.length ];
+    if ( data.longAgg == null ) {
+      data.longAgg = new long[ data.subjectnrs.length ];
+      data.doubleAgg = new double[ data.subjectnrs.length ];
+    } else {
+      Arrays.fill( data.longAgg, 0L );
+      Arrays.fill( data.doubleAgg, 0.0 );
+    }
     data.mean = new double[ data.subjectnrs.length ]; // sets all doubles to 0.0
     data.aggMeta = new RowMeta();
 
@@ -610,10 +993,19 @@ public class GroupBy extends BaseStep implements StepInterface {
           vMeta = new ValueMetaNumber( meta.getAggregateField()[ i ] );
           v = new ArrayList<Double>();
           break;
+        case GroupByMeta.TYPE_GROUP_MEDIAN_APPROX:
+        case GroupByMeta.TYPE_GROUP_PERCENTILE_APPROX:
+          vMeta = new ValueMetaNumber( meta.getAggregateField()[ i ] );
+          v = new TDigest( percentileApproxCompression );
+          break;
         case GroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
         case GroupByMeta.TYPE_GROUP_STANDARD_DEVIATION_SAMPLE:
           vMeta = new ValueMetaNumber( meta.getAggregateField()[ i ] );
           break;
+        case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          vMeta = new ValueMetaInteger( meta.getAggregateField()[ i ] );
+          v = new HyperLogLog( distinctApproxPrecision );
+          break;
         case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
         case GroupByMeta.TYPE_GROUP_COUNT_ANY:
         case GroupByMeta.TYPE_GROUP_COUNT_ALL:
@@ -645,6 +1037,7 @@ public class GroupBy extends BaseStep implements StepInterface {
       if ( ( subjMeta != null )
           && ( aggType != GroupByMeta.TYPE_GROUP_COUNT_ALL
           && aggType != GroupByMeta.TYPE_GROUP_COUNT_DISTINCT
+          && aggType != GroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX
           && aggType != GroupByMeta.TYPE_GROUP_COUNT_ANY ) ) {
         vMeta.setLength( subjMeta.getLength(), subjMeta.getPrecision() );
       }
@@ -701,7 +1094,7 @@ public class GroupBy extends BaseStep implements StepInterface {
     Object[] result = new Object[ data.subjectnrs.length ];
 
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
-      Object ag = data.agg[ i ];
+      Object ag = isPrimitiveAggregate( i ) ? getPrimitiveAggregate( i ) : data.agg[ i ];
       switch ( meta.getAggregateType()[ i ] ) {
         case GroupByMeta.TYPE_GROUP_SUM:
           break;
@@ -737,6 +1130,18 @@ public class GroupBy extends BaseStep implements StepInterface {
           int index = (int) Math.ceil( ( percentileValue / 100 ) * latencies.length );
           ag = latencies[ index - 1 ];
           break;
+        case GroupByMeta.TYPE_GROUP_MEDIAN_APPROX:
+        case GroupByMeta.TYPE_GROUP_PERCENTILE_APPROX:
+          double approxPercentile = 50.0;
+          if ( meta.getAggregateType()[ i ] == GroupByMeta.TYPE_GROUP_PERCENTILE_APPROX ) {
+            approxPercentile = Double.parseDouble( meta.getValueField()[ i ] );
+          }
+          TDigest digest = (TDigest) ag;
+          ag = digest.size() == 0 ? null : digest.quantile( approxPercentile / 100 );
+          break;
+        case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          ag = ( (HyperLogLog) ag ).cardinality();
+          break;
         case GroupByMeta.TYPE_GROUP_COUNT_ANY:
         case GroupByMeta.TYPE_GROUP_COUNT_ALL:
           ag = new Long( data.counts[ i ] );
@@ -44,6 +44,13 @@ import org.pentaho.di.trans.step.StepDataInterface;
 public class GroupByData extends BaseStepData implements StepDataInterface {
   public Object[] previous;
 
+  /**
+   * Whether the rows are processed a block at a time, and per subject field whether its aggregate is calculated on a
+   * column of values.
+   */
+  public boolean vectorized;
+  public boolean[] vectorAggregates;
+
   /**
    * target value meta for aggregation fields
    */
@@ -60,6 +67,14 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
   public int[] subjectnrs;
   public long[] counts;
 
+  /**
+   * Per subject field whether its aggregate is kept in a primitive, and the primitive values (counts holds the number
+   * of values added).
+   */
+  public boolean[] primitiveAggregates;
+  public long[] longAgg;
+  public double[] doubleAgg;
+
   public Set<Object>[] distinctObjs;
 
   public ArrayList<Object[]> bufferList;
@@ -103,11 +103,18 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
 
   public static final int TYPE_GROUP_PERCENTILE_NEAREST_RANK = 20;
 
+  public static final int TYPE_GROUP_COUNT_DISTINCT_APPROX = 21;
+
+  public static final int TYPE_GROUP_MEDIAN_APPROX = 22;
+
+  public static final int TYPE_GROUP_PERCENTILE_APPROX = 23;
+
   public static final String[] typeGroupCode = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */
   {
     "-", "SUM", "AVERAGE", "MEDIAN", "PERCENTILE", "MIN", "MAX", "COUNT_ALL", "CONCAT_COMMA", "FIRST", "LAST",
     "FIRST_INCL_NULL", "LAST_INCL_NULL", "CUM_SUM", "CUM_AVG", "STD_DEV", "CONCAT_STRING", "COUNT_DISTINCT",
-    "COUNT_ANY", "STD_DEV_SAMPLE", "PERCENTILE_NEAREST_RANK" };
+    "COUNT_ANY", "STD_DEV_SAMPLE", "PERCENTILE_NEAREST_RANK", "COUNT_DISTINCT_APPROX",
+    "MEDIAN_APPROX", "PERCENTILE_APPROX" };
 
   public static final String[] typeGroupLongDesc = {
     "-", BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.SUM" ),
@@ -129,7 +136,10 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
     BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.COUNT_DISTINCT" ),
     BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.COUNT_ANY" ),
     BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.STANDARD_DEVIATION_SAMPLE" ),
-    BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.PERCENTILE_NEAREST_RANK" )
+    BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.PERCENTILE_NEAREST_RANK" ),
+    BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.COUNT_DISTINCT_APPROX" ),
+    BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.MEDIAN_APPROX" ),
+    BaseMessages.getString( PKG, "GroupByMeta.TypeGroupLongDesc.PERCENTILE_APPROX" )
   };
 
 
@@ -490,6 +500,7 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
             valueType = subj.getType();
             break;
           case TYPE_GROUP_COUNT_DISTINCT:
+          case TYPE_GROUP_COUNT_DISTINCT_APPROX:
           case TYPE_GROUP_COUNT_ANY:
           case TYPE_GROUP_COUNT_ALL:
             valueType = ValueMetaInterface.TYPE_INTEGER;
@@ -502,6 +513,8 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
           case TYPE_GROUP_STANDARD_DEVIATION_SAMPLE:
           case TYPE_GROUP_PERCENTILE:
           case TYPE_GROUP_PERCENTILE_NEAREST_RANK:
+          case TYPE_GROUP_MEDIAN_APPROX:
+          case TYPE_GROUP_PERCENTILE_APPROX:
             valueType = ValueMetaInterface.TYPE_NUMBER;
             break;
           case TYPE_GROUP_CONCAT_STRING:
@@ -518,7 +531,8 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
           precision = -1;
           length = -1;
         } else if ( aggregateType[ i ] == TYPE_GROUP_COUNT_ALL
-            || aggregateType[ i ] == TYPE_GROUP_COUNT_DISTINCT || aggregateType[ i ] == TYPE_GROUP_COUNT_ANY ) {
+            || aggregateType[ i ] == TYPE_GROUP_COUNT_DISTINCT || aggregateType[ i ] == TYPE_GROUP_COUNT_ANY
+            || aggregateType[ i ] == TYPE_GROUP_COUNT_DISTINCT_APPROX ) {
           length = ValueMetaInterface.DEFAULT_INTEGER_LENGTH;
           precision = 0;
         } else if ( aggregateType[ i ] == TYPE_GROUP_SUM
@@ -84,6 +84,7 @@ public class Mapping extends BaseStep implements StepInterface {
       switch ( getData().mappingTransMeta.getTransformationType() ) {
         case Normal:
         case SerialSingleThreaded:
+        case WorkStealing:
 
           // Before we start, let's see if there are loose ends to tie up...
           //
@@ -206,7 +207,8 @@ public class Mapping extends BaseStep implements StepInterface {
           // Since everything is running in the MappingThreads we don't have to do
           // anything else here but wait...
           //
-          if ( getTransMeta().getTransformationType() == TransformationType.Normal ) {
+          if ( getTransMeta().getTransformationType() == TransformationType.Normal
+            || getTransMeta().getTransformationType() == TransformationType.WorkStealing ) {
             getData().getMappingTrans().waitUntilFinished();
 
             // Set some statistics from the mapping...
@@ -300,6 +302,7 @@ public class Mapping extends BaseStep implements StepInterface {
     switch (  mappingData.mappingTransMeta.getTransformationType() ) {
       case Normal:
       case SerialSingleThreaded:
+      case WorkStealing:
         break;
 
       case SingleThreaded:
@@ -30,4 +30,8 @@ public class Aggregate {
   public Set<Object>[] distinctObjs;
   public double[] mean;
 
+  /** The sums, minimums and maximums kept in primitives, counts holds the number of values added */
+  public long[] longAgg;
+  public double[] doubleAgg;
+
 }
@@ -0,0 +1,218 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+
+/**
+ * Combines the partial aggregates of all the copies of a Memory Group By step.
+ * <p>
+ * Every copy first aggregates the rows it receives on its own. Once it has seen all its rows, it hands its groups (and
+ * the rows it spilled to disk) over, split up in partitions by the hash of the group. When all copies are done, the
+ * partitions are divided among the copies that received rows: each copy merges the partial aggregates of its
+ * partitions from all copies and outputs the result. A group only ever ends up in one partition, so every group is
+ * output exactly once.
+ */
+class CopyCombiner {
+
+  private static final long AWAIT_MILLIS = 100L;
+
+  private final int nrPartitions;
+  private final Partial[] partials;
+  private final CountDownLatch arrived;
+
+  private int[] owners;
+
+  /**
+   * @param nrCopies
+   *          the number of copies of the step
+   * @param nrPartitions
+   *          the number of partitions to split the groups of every copy in
+   */
+  CopyCombiner( int nrCopies, int nrPartitions ) {
+    this.nrPartitions = nrPartitions;
+    this.partials = new Partial[nrCopies];
+    this.arrived = new CountDownLatch( nrCopies );
+  }
+
+  int getNrPartitions() {
+    return nrPartitions;
+  }
+
+  int getNrCopies() {
+    return partials.length;
+  }
+
+  /**
+   * Hand over the partial aggregates of a step copy.
+   *
+   * @param copyNr
+   *          the copy that is done aggregating its rows
+   * @param map
+   *          the groups of the copy, or null if the copy didn't receive any rows
+   * @param spilled
+   *          the complete spill partitions of the copy by partition number, or null if it didn't spill
+   */
+  void arrive( int copyNr, Map<HashEntry, Aggregate> map, SpillPartition[] spilled ) {
+    if ( map != null ) {
+      Partial partial = new Partial( map, spilled );
+      for ( HashEntry entry : map.keySet() ) {
+        partial.entries.get( MemoryGroupBy.getPartitionNr( entry.hashCode(), 0, nrPartitions ) ).add( entry );
+      }
+      partials[copyNr] = partial;
+    }
+    arrived.countDown();
+  }
+
+  /**
+   * Wait until all the copies handed over their partial aggregates.
+   *
+   * @param stopped
+   *          tells if the waiting step was stopped
+   * @return true if all copies arrived, false if the step was stopped first
+   */
+  boolean await( BooleanSupplier stopped ) throws KettleException {
+    try {
+      while ( !arrived.await( AWAIT_MILLIS, TimeUnit.MILLISECONDS ) ) {
+        if ( stopped.getAsBoolean() ) {
+          return false;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while waiting for the other step copies", e );
+    }
+    assignOwners();
+    return true;
+  }
+
+  private synchronized void assignOwners() {
+    if ( owners != null ) {
+      return;
+    }
+    List<Integer> active = new ArrayList<>();
+    for ( int copyNr = 0; copyNr < partials.length; copyNr++ ) {
+      if ( partials[copyNr] != null ) {
+        active.add( copyNr );
+      }
+    }
+    owners = new int[nrPartitions];
+    for ( int partitionNr = 0; partitionNr < nrPartitions; partitionNr++ ) {
+      owners[partitionNr] = active.isEmpty() ? -1 : active.get( partitionNr % active.size() );
+    }
+  }
+
+  /**
+   * @return true if none of the copies received any rows, only valid after {@link #await(BooleanSupplier)}
+   */
+  synchronized boolean isEmpty() {
+    return owners.length == 0 || owners[0] < 0;
+  }
+
+  /**
+   * @return the partitions the copy has to merge and output, only valid after {@link #await(BooleanSupplier)}
+   */
+  synchronized List<Integer> getPartitionsOf( int copyNr ) {
+    List<Integer> partitionNrs = new ArrayList<>();
+    for ( int partitionNr = 0; partitionNr < nrPartitions; partitionNr++ ) {
+      if ( owners[partitionNr] == copyNr ) {
+        partitionNrs.add( partitionNr );
+      }
+    }
+    return partitionNrs;
+  }
+
+  /**
+   * @return the groups of a copy in a partition, empty if the copy didn't receive any rows
+   */
+  List<HashEntry> getGroups( int copyNr, int partitionNr ) {
+    Partial partial = partials[copyNr];
+    return partial == null ? new ArrayList<HashEntry>() : partial.entries.get( partitionNr );
+  }
+
+  Aggregate getAggregate( int copyNr, HashEntry entry ) {
+    return partials[copyNr].map.get( entry );
+  }
+
+  /**
+   * @return the rows a copy spilled to disk for a partition or null if there are none
+   */
+  SpillPartition getSpilled( int copyNr, int partitionNr ) {
+    Partial partial = partials[copyNr];
+    return partial == null || partial.spilled == null ? null : partial.spilled[partitionNr];
+  }
+
+  /**
+   * Remove the temporary files the copy is responsible for: those of the partitions it owns, or the ones it wrote
+   * itself if the copies never got to combine their aggregates.
+   */
+  void deleteSpilled( int copyNr ) throws KettleException {
+    boolean combining;
+    synchronized ( this ) {
+      combining = owners != null;
+    }
+    for ( int partitionNr = 0; partitionNr < nrPartitions; partitionNr++ ) {
+      if ( combining ) {
+        if ( owners[partitionNr] == copyNr ) {
+          for ( int nr = 0; nr < partials.length; nr++ ) {
+            delete( getSpilled( nr, partitionNr ) );
+          }
+        }
+      } else {
+        delete( getSpilled( copyNr, partitionNr ) );
+      }
+    }
+  }
+
+  private static void delete( SpillPartition partition ) throws KettleException {
+    if ( partition != null ) {
+      partition.delete();
+    }
+  }
+
+  /**
+   * The groups and spilled rows of one step copy.
+   */
+  private class Partial {
+    private final Map<HashEntry, Aggregate> map;
+    private final SpillPartition[] spilled;
+    private final List<List<HashEntry>> entries;
+
+    Partial( Map<HashEntry, Aggregate> map, SpillPartition[] spilled ) {
+      this.map = map;
+      this.spilled = spilled;
+      this.entries = new ArrayList<>( nrPartitions );
+      for ( int i = 0; i < nrPartitions; i++ ) {
+        entries.add( new ArrayList<HashEntry>() );
+      }
+    }
+  }
+}
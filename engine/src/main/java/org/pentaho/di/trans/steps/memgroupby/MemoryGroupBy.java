@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.steps.memgroupby;
 
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
@@ -31,18 +32,22 @@ import java.util.TreeSet;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.math.stat.descriptive.rank.Percentile;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.HyperLogLog;
+import org.pentaho.di.core.util.TDigest;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.RowSizeEstimator;
 import org.pentaho.di.core.row.ValueDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -62,6 +67,20 @@ import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
 public class MemoryGroupBy extends BaseStep implements StepInterface {
   private static Class<?> PKG = MemoryGroupByMeta.class; // for i18n purposes, needed by Translator2!!
 
+  static final int DEFAULT_SPILL_PARTITIONS = 16;
+
+  /**
+   * Partitions that still don't fit in memory are split up again, but only this many times: beyond that the groups
+   * are all kept in memory.
+   */
+  static final int MAX_SPILL_LEVEL = 8;
+
+  /**
+   * The estimated size of a group besides its key and aggregated values: the hash map entry, the hash entry, the
+   * aggregate and its arrays.
+   */
+  private static final int GROUP_OVERHEAD = 160;
+
   private MemoryGroupByMeta meta;
 
   private MemoryGroupByData data;
@@ -69,6 +88,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   private boolean allNullsAreZero = false;
   private boolean minNullIsValued = false;
   private boolean compatibilityMode = false;
+  private int distinctApproxPrecision = HyperLogLog.DEFAULT_PRECISION;
+  private double percentileApproxCompression = TDigest.DEFAULT_COMPRESSION;
 
   public MemoryGroupBy( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                         Trans trans ) {
@@ -86,7 +107,13 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     Object[] r = getRow(); // get row!
 
     if ( first ) {
+      data.combiner = getCombiner();
+
       if ( ( r == null ) && ( !meta.isAlwaysGivingBackOneRow() ) ) {
+        if ( data.combiner != null ) {
+          // Nothing to add, but the other copies wait for all copies to be done
+          data.combiner.arrive( getCopy(), null, null );
+        }
         setOutputDone();
         return false;
       }
@@ -97,6 +124,17 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       minNullIsValued = ValueMetaBase.convertStringToBoolean( val );
       compatibilityMode = ValueMetaBase.convertStringToBoolean(
         getVariable( Const.KETTLE_COMPATIBILITY_MEMORY_GROUP_BY_SUM_AVERAGE_RETURN_NUMBER_TYPE, "N" ) );
+      distinctApproxPrecision = Math.max( HyperLogLog.MIN_PRECISION, Math.min( HyperLogLog.MAX_PRECISION, Const.toInt(
+        getVariable( Const.KETTLE_AGGREGATION_DISTINCT_APPROX_PRECISION ), HyperLogLog.DEFAULT_PRECISION ) ) );
+      percentileApproxCompression = Math.max( TDigest.MIN_COMPRESSION, Const.toDouble(
+        getVariable( Const.KETTLE_AGGREGATION_PERCENTILE_APPROX_COMPRESSION ), TDigest.DEFAULT_COMPRESSION ) );
+      data.memoryBudget = getMemoryBudget();
+      data.nrSpillPartitions = Math.max( 2, Const.toInt(
+        getVariable( Const.KETTLE_MEMORY_GROUP_BY_SPILL_PARTITIONS ), DEFAULT_SPILL_PARTITIONS ) );
+      if ( data.combiner != null ) {
+        // Rows spilled to disk are combined by partition as well
+        data.nrSpillPartitions = data.combiner.getNrPartitions();
+      }
 
       // What is the output looking like?
       //
@@ -147,6 +185,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
             return false;
           }
         }
+
+        data.primitiveAggregates = getPrimitiveAggregates( data.inputRowMeta );
       }
 
       // Create a metadata value for the counter Integers
@@ -177,7 +217,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     if ( r == null ) { // no more input to be expected... (or none received in the first place)
 
       updateValueMeta();
-      handleLastOfGroup();
+      if ( data.combiner != null ) {
+        combineCopies();
+      } else {
+        handleLastOfGroup();
+      }
 
       setOutputDone();
       return false;
@@ -200,27 +244,22 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   }
 
   private void handleLastOfGroup() throws KettleException {
+    boolean noGroups = data.map.isEmpty();
+
     // Dump the content of the map...
     //
-    for ( HashEntry entry : data.map.keySet() ) {
-      Aggregate aggregate = data.map.get( entry );
-      Object[] aggregateResult = getAggregateResult( aggregate );
+    putGroups();
 
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
-      }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
-      }
-      putRow( data.outputRowMeta, outputRowData );
+    // ... then aggregate the groups that didn't fit in memory
+    //
+    if ( data.spillPartitions != null ) {
+      aggregateSpilledRows();
     }
 
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
+    if ( noGroups && meta.isAlwaysGivingBackOneRow() ) {
       Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
       int index = 0;
       for ( int i = 0; i < data.groupMeta.size(); i++ ) {
@@ -229,7 +268,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       for ( int i = 0; i < data.aggMeta.size(); i++ ) {
         if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
           || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
-          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT ) {
+          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT
+          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX ) {
           outputRowData[index++] = Long.valueOf( 0L );
         } else {
           outputRowData[index++] = null;
@@ -239,6 +279,394 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  private void putGroups() throws KettleException {
+    for ( HashEntry entry : data.map.keySet() ) {
+      Aggregate aggregate = data.map.get( entry );
+      Object[] aggregateResult = getAggregateResult( aggregate );
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+      }
+      putRow( data.outputRowMeta, outputRowData );
+    }
+  }
+
+  /**
+   * Aggregate the rows written to temporary files, one partition at a time. A partition that doesn't fit in memory
+   * either is split up into partitions of the next level, which are aggregated afterwards.
+   */
+  private void aggregateSpilledRows() throws KettleException {
+    closeSpillPartitions();
+
+    while ( !data.spilled.isEmpty() && !isStopped() ) {
+      SpillPartition partition = data.spilled.pop();
+      data.map.clear();
+      data.memoryUsed = 0L;
+      data.level = partition.getLevel() + 1;
+      addToAggregate( partition );
+      putGroups();
+
+      if ( data.spillPartitions != null ) {
+        closeSpillPartitions();
+      }
+    }
+    data.map.clear();
+    data.memoryUsed = 0L;
+    data.level = 0;
+  }
+
+  private void addToAggregate( SpillPartition partition ) throws KettleException {
+    try {
+      partition.open();
+      for ( Object[] row = partition.next(); row != null && !isStopped(); row = partition.next() ) {
+        addToAggregate( row );
+      }
+    } finally {
+      partition.delete();
+    }
+  }
+
+  /**
+   * Hand the partial aggregates of this copy over to the other copies, wait for theirs and then merge and output the
+   * partitions of groups this copy was assigned.
+   */
+  private void combineCopies() throws KettleException {
+    CopyCombiner combiner = data.combiner;
+    boolean receivedRows = !data.map.isEmpty() || data.spillPartitions != null;
+    SpillPartition[] spilled = data.spillPartitions == null ? null : finishSpillPartitions();
+    combiner.arrive( getCopy(), receivedRows ? data.map : null, spilled );
+    if ( !combiner.await( this::isStopped ) ) {
+      return;
+    }
+
+    if ( combiner.isEmpty() ) {
+      // None of the copies received rows, only the first one gives back a row if needed
+      if ( getCopy() == 0 ) {
+        handleLastOfGroup();
+      }
+      return;
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.CombiningCopies", combiner.getNrCopies(),
+        combiner.getNrPartitions() ) );
+    }
+
+    // The other copies read the groups of this copy from now on, leave them alone
+    //
+    data.map = new HashMap<HashEntry, Aggregate>();
+
+    for ( int partitionNr : combiner.getPartitionsOf( getCopy() ) ) {
+      if ( isStopped() ) {
+        break;
+      }
+      data.map.clear();
+      data.memoryUsed = 0L;
+      data.level = 1;
+
+      // First merge the groups of all copies, then add the rows they spilled to disk
+      //
+      for ( int copyNr = 0; copyNr < combiner.getNrCopies(); copyNr++ ) {
+        for ( HashEntry entry : combiner.getGroups( copyNr, partitionNr ) ) {
+          Aggregate aggregate = combiner.getAggregate( copyNr, entry );
+          Aggregate combined = data.map.get( entry );
+          if ( combined == null ) {
+            data.map.put( entry, aggregate );
+            data.memoryUsed += estimateGroupSize( entry.getGroupData() );
+          } else {
+            mergeAggregate( combined, aggregate );
+          }
+        }
+      }
+      for ( int copyNr = 0; copyNr < combiner.getNrCopies(); copyNr++ ) {
+        SpillPartition partition = combiner.getSpilled( copyNr, partitionNr );
+        if ( partition != null ) {
+          addToAggregate( partition );
+        }
+      }
+      putGroups();
+
+      if ( data.spillPartitions != null ) {
+        aggregateSpilledRows();
+      }
+    }
+    data.map.clear();
+    data.memoryUsed = 0L;
+    data.level = 0;
+  }
+
+  /**
+   * @return the object that combines the aggregates of all step copies, null if the copies aggregate on their own
+   */
+  private CopyCombiner getCombiner() {
+    if ( !meta.isCombiningCopies() || isPartitioned()
+      || getTransMeta().getTransformationType() != TransMeta.TransformationType.Normal ) {
+      return null;
+    }
+    int nrCopies = getTrans().findStepInterfaces( getStepname() ).size();
+    MemoryGroupByData firstCopy = (MemoryGroupByData) getTrans().getStepDataInterface( getStepname(), 0 );
+    if ( nrCopies < 2 || firstCopy == null ) {
+      return null;
+    }
+
+    // The copies share the combiner of the first copy
+    //
+    synchronized ( firstCopy ) {
+      if ( firstCopy.combiner == null ) {
+        int nrPartitions = Math.max( nrCopies, Const.toInt(
+          getVariable( Const.KETTLE_MEMORY_GROUP_BY_SPILL_PARTITIONS ), DEFAULT_SPILL_PARTITIONS ) );
+        firstCopy.combiner = new CopyCombiner( nrCopies, nrPartitions );
+      }
+      return firstCopy.combiner;
+    }
+  }
+
+  /**
+   * Merge the partial aggregate of the same group from another step copy into an aggregate.
+   *
+   * @param aggregate
+   *          the aggregate to merge into
+   * @param other
+   *          the aggregate to merge, it is left as-is
+   */
+  @SuppressWarnings( "unchecked" ) void mergeAggregate( Aggregate aggregate, Aggregate other ) throws KettleException {
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      if ( isPrimitiveAggregate( i ) ) {
+        mergePrimitive( aggregate, other, i );
+        continue;
+      }
+      Object value = aggregate.agg[i];
+      Object otherValue = other.agg[i];
+      ValueMetaInterface valueMeta = data.aggMeta.getValueMeta( i );
+
+      switch ( meta.getAggregateType()[i] ) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+          aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, otherValue );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, otherValue );
+          aggregate.counts[i] += other.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
+          List<Double> otherValues = (List<Double>) otherValue;
+          ( (List<Double>) value ).addAll( otherValues );
+          data.memoryUsed += 24L * otherValues.size();
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
+          // Merge the counts, means and sums of squared differences (Chan et al.)
+          long n = aggregate.counts[i];
+          long otherN = other.counts[i];
+          if ( otherN == 0 ) {
+            break;
+          }
+          if ( aggregate.mean == null ) {
+            aggregate.mean = new double[meta.getSubjectField().length];
+          }
+          double otherMean = other.mean == null ? 0.0 : other.mean[i];
+          double otherSum = otherValue == null ? 0.0 : (Double) otherValue;
+          if ( n == 0 ) {
+            aggregate.mean[i] = otherMean;
+            aggregate.agg[i] = otherSum;
+          } else {
+            double sum = value == null ? 0.0 : (Double) value;
+            double delta = otherMean - aggregate.mean[i];
+            double total = n + otherN;
+            aggregate.mean[i] += delta * otherN / total;
+            aggregate.agg[i] = sum + otherSum + delta * delta * n * otherN / total;
+          }
+          aggregate.counts[i] = n + otherN;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
+          if ( other.distinctObjs != null && other.distinctObjs[i] != null ) {
+            if ( aggregate.distinctObjs == null ) {
+              aggregate.distinctObjs = new Set[meta.getSubjectField().length];
+            }
+            if ( aggregate.distinctObjs[i] == null ) {
+              aggregate.distinctObjs[i] = new TreeSet<>();
+            }
+            for ( Object obj : other.distinctObjs[i] ) {
+              if ( aggregate.distinctObjs[i].add( obj ) ) {
+                data.memoryUsed += 40 + RowSizeEstimator.estimateValue( obj );
+              }
+            }
+            aggregate.counts[i] = aggregate.distinctObjs[i].size();
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          HyperLogLog hll = (HyperLogLog) value;
+          long hllSize = hll.getSizeInBytes();
+          hll.merge( (HyperLogLog) otherValue );
+          data.memoryUsed += hll.getSizeInBytes() - hllSize;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN_APPROX:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE_APPROX:
+          TDigest digest = (TDigest) value;
+          long digestSize = digest.getSizeInBytes();
+          digest.merge( (TDigest) otherValue );
+          data.memoryUsed += digest.getSizeInBytes() - digestSize;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          aggregate.counts[i] += other.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          boolean otherIsNull = valueMeta.isNull( otherValue );
+          boolean valueIsNull = valueMeta.isNull( value );
+          if ( minNullIsValued || ( !otherIsNull && !valueIsNull ) ) {
+            aggregate.agg[i] = valueMeta.compare( otherValue, value ) < 0 ? otherValue : value;
+          } else if ( valueIsNull && !otherIsNull ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          if ( valueMeta.compare( otherValue, value ) > 0 ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_FIRST:
+          if ( value == null ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST:
+          if ( !valueMeta.isNull( otherValue ) ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
+          if ( aggregate.counts[i] == 0 ) {
+            aggregate.agg[i] = otherValue;
+            aggregate.counts[i] = other.counts[i];
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+          aggregate.agg[i] = otherValue;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
+        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
+          String separator = ", ";
+          if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING ) {
+            separator = Utils.isEmpty( meta.getValueField()[i] ) ? "" : environmentSubstitute( meta.getValueField()[i] );
+          }
+          StringBuilder sb = (StringBuilder) value;
+          StringBuilder otherSb = (StringBuilder) otherValue;
+          if ( otherSb.length() > 0 ) {
+            int length = sb.length();
+            if ( length > 0 ) {
+              sb.append( separator );
+            }
+            sb.append( otherSb );
+            data.memoryUsed += 2L * ( sb.length() - length );
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Start writing the rows of new groups to temporary files, the groups already in memory stay there.
+   */
+  private void startSpilling() {
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.Spilling", data.map.size(),
+        data.memoryUsed / ( 1024 * 1024 ), data.nrSpillPartitions, data.level ) );
+    }
+    data.spillPartitions = new SpillPartition[data.nrSpillPartitions];
+  }
+
+  private void spill( HashEntry entry, Object[] r ) throws KettleException {
+    int partitionNr = getPartitionNr( entry.hashCode(), data.level, data.spillPartitions.length );
+    SpillPartition partition = data.spillPartitions[partitionNr];
+    if ( partition == null ) {
+      partition = new SpillPartition( KettleVFS.createTempFile( "memgroupby", ".tmp",
+        environmentSubstitute( "%%java.io.tmpdir%%" ), this ), data.inputRowMeta, data.level );
+      data.spillPartitions[partitionNr] = partition;
+    }
+    partition.write( r );
+  }
+
+  /**
+   * Finish writing the current partitions and queue them for aggregation.
+   */
+  private void closeSpillPartitions() throws KettleException {
+    for ( SpillPartition partition : finishSpillPartitions() ) {
+      if ( partition != null ) {
+        data.spilled.push( partition );
+      }
+    }
+  }
+
+  /**
+   * Finish writing the current partitions.
+   *
+   * @return the partitions by partition number, null for the ones no rows were written to
+   */
+  private SpillPartition[] finishSpillPartitions() throws KettleException {
+    SpillPartition[] partitions = data.spillPartitions;
+    data.spillPartitions = null;
+    for ( SpillPartition partition : partitions ) {
+      if ( partition != null ) {
+        addSpilled( partition.close(), 1 );
+      }
+    }
+    return partitions;
+  }
+
+  private void deleteSpilledRows() {
+    Deque<SpillPartition> partitions = data.spilled;
+    if ( data.spillPartitions != null ) {
+      for ( SpillPartition partition : data.spillPartitions ) {
+        if ( partition != null ) {
+          partitions.push( partition );
+        }
+      }
+      data.spillPartitions = null;
+    }
+    while ( !partitions.isEmpty() ) {
+      try {
+        partitions.pop().delete();
+      } catch ( KettleException e ) {
+        logError( e.getLocalizedMessage(), e );
+      }
+    }
+  }
+
+  /**
+   * The partition of a group: the hash of the group is mixed with the level, so the rows of a partition are spread
+   * over all the partitions of the next level.
+   */
+  static int getPartitionNr( int hashCode, int level, int nrPartitions ) {
+    long h = ( hashCode ^ ( ( level + 1 ) * 0x9E3779B97F4A7C15L ) ) * 0xBF58476D1CE4E5B9L;
+    h ^= h >>> 31;
+    return (int) ( ( h >>> 1 ) % nrPartitions );
+  }
+
+  private long estimateGroupSize( Object[] groupData ) {
+    long size = GROUP_OVERHEAD + RowSizeEstimator.estimate( groupData ) + 24L * data.subjectnrs.length;
+    if ( data.primitiveAggregates != null ) {
+      size += 32L + 16L * data.subjectnrs.length;
+    }
+    return size;
+  }
+
+  /**
+   * @return the maximum estimated size in bytes of the groups to keep in memory, 0 to keep them all in memory
+   */
+  private long getMemoryBudget() {
+    String budgetMb = getVariable( Const.KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET );
+    if ( Utils.isEmpty( budgetMb ) ) {
+      return Runtime.getRuntime().maxMemory() / 4;
+    }
+    return Math.max( 0L, Const.toLong( budgetMb, 0L ) ) * 1024 * 1024;
+  }
+
   @VisibleForTesting
   void updateValueMeta() throws KettleException {
 
@@ -270,6 +698,13 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     Aggregate aggregate = data.map.get( entry );
     if ( aggregate == null ) {
+      if ( data.spillPartitions != null ) {
+        // No more room for new groups, aggregate this one later on
+        //
+        spill( entry, r );
+        return;
+      }
+
       // Create a new value...
       //
       aggregate = new Aggregate();
@@ -278,10 +713,15 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       // Store it in the map!
       //
       data.map.put( entry, aggregate );
+      data.memoryUsed += estimateGroupSize( groupData );
     }
 
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
       Object subj = r[data.subjectnrs[i]];
+      if ( isPrimitiveAggregate( i ) ) {
+        addPrimitive( aggregate, i, subj );
+        continue;
+      }
       ValueMetaInterface subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[i] );
       Object value = aggregate.agg[i];
       ValueMetaInterface valueMeta = data.aggMeta.getValueMeta( i );
@@ -300,6 +740,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
           if ( !subjMeta.isNull( subj ) ) {
             ( (List<Double>) aggregate.agg[i] ).add( subjMeta.getNumber( subj ) );
+            data.memoryUsed += 24;
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
@@ -337,10 +778,28 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
             }
             if ( !aggregate.distinctObjs[i].contains( obj ) ) {
               aggregate.distinctObjs[i].add( obj );
+              data.memoryUsed += 40 + RowSizeEstimator.estimateValue( obj );
             }
           }
           aggregate.counts[i] = aggregate.distinctObjs[i].size();
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          if ( !subjMeta.isNull( subj ) ) {
+            HyperLogLog hll = (HyperLogLog) value;
+            long size = hll.getSizeInBytes();
+            hll.add( subjMeta.convertToNormalStorageType( subj ) );
+            data.memoryUsed += hll.getSizeInBytes() - size;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN_APPROX:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE_APPROX:
+          if ( !subjMeta.isNull( subj ) ) {
+            TDigest digest = (TDigest) value;
+            long size = digest.getSizeInBytes();
+            digest.add( subjMeta.getNumber( subj ) );
+            data.memoryUsed += digest.getSizeInBytes() - size;
+          }
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
           if ( !subjMeta.isNull( subj ) ) {
             aggregate.counts[i]++;
@@ -387,10 +846,12 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
           if ( !( subj == null ) ) {
             StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
+            int length = sb.length();
+            if ( length > 0 ) {
               sb.append( ", " );
             }
             sb.append( subjMeta.getString( subj ) );
+            data.memoryUsed += 2L * ( sb.length() - length );
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
@@ -400,16 +861,136 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
               separator = environmentSubstitute( meta.getValueField()[i] );
             }
             StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
+            int length = sb.length();
+            if ( length > 0 ) {
               sb.append( separator );
             }
             sb.append( subjMeta.getString( subj ) );
+            data.memoryUsed += 2L * ( sb.length() - length );
           }
           break;
         default:
           break;
       }
     }
+
+    if ( data.memoryBudget > 0 && data.memoryUsed > data.memoryBudget && data.spillPartitions == null
+      && data.level < MAX_SPILL_LEVEL ) {
+      startSpilling();
+    }
+  }
+
+  /**
+   * Sums, averages, minimums and maximums of plain integers and numbers are kept in primitive longs and doubles while
+   * the rows come in, instead of boxing a new sum (or comparing through the value metadata) on every row.
+   *
+   * @return for every subject field, whether its aggregate is calculated on primitive values, null if none is
+   */
+  boolean[] getPrimitiveAggregates( RowMetaInterface inputRowMeta ) {
+    boolean[] primitiveAggregates = new boolean[data.subjectnrs.length];
+    boolean any = false;
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      int aggType = meta.getAggregateType()[i];
+      ValueMetaInterface subjMeta = inputRowMeta.getValueMeta( data.subjectnrs[i] );
+      if ( subjMeta == null || !subjMeta.isStorageNormal()
+        || ( subjMeta.getClass() != ValueMetaInteger.class && subjMeta.getClass() != ValueMetaNumber.class ) ) {
+        continue;
+      }
+      switch ( aggType ) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          // In compatibility mode integers are summed up as numbers
+          primitiveAggregates[i] = !compatibilityMode || subjMeta.isNumber();
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          // Nulls are ignored and the values compared as is: no reversed sort order
+          primitiveAggregates[i] = ( aggType == MemoryGroupByMeta.TYPE_GROUP_MAX || !minNullIsValued )
+            && !subjMeta.isSortedDescending();
+          break;
+        default:
+          break;
+      }
+      any |= primitiveAggregates[i];
+    }
+    return any ? primitiveAggregates : null;
+  }
+
+  private boolean isPrimitiveAggregate( int i ) {
+    return data.primitiveAggregates != null && data.primitiveAggregates[i];
+  }
+
+  /**
+   * Adds a subject value to a primitive aggregate, the counts of the aggregate hold the number of non-null values
+   * added so far.
+   */
+  private void addPrimitive( Aggregate aggregate, int i, Object subj ) {
+    if ( subj == null ) {
+      return;
+    }
+    int aggType = meta.getAggregateType()[i];
+    boolean first = aggregate.counts[i]++ == 0;
+    if ( subj instanceof Long ) {
+      long value = (Long) subj;
+      long agg = aggregate.longAgg[i];
+      if ( first ) {
+        aggregate.longAgg[i] = value;
+      } else if ( aggType == MemoryGroupByMeta.TYPE_GROUP_MIN ) {
+        aggregate.longAgg[i] = Math.min( agg, value );
+      } else if ( aggType == MemoryGroupByMeta.TYPE_GROUP_MAX ) {
+        aggregate.longAgg[i] = Math.max( agg, value );
+      } else {
+        aggregate.longAgg[i] = agg + value;
+      }
+    } else {
+      double value = (Double) subj;
+      double agg = aggregate.doubleAgg[i];
+      if ( first ) {
+        aggregate.doubleAgg[i] = value;
+      } else if ( aggType == MemoryGroupByMeta.TYPE_GROUP_MIN ) {
+        aggregate.doubleAgg[i] = Double.compare( value, agg ) < 0 ? value : agg;
+      } else if ( aggType == MemoryGroupByMeta.TYPE_GROUP_MAX ) {
+        aggregate.doubleAgg[i] = Double.compare( value, agg ) > 0 ? value : agg;
+      } else {
+        aggregate.doubleAgg[i] = agg + value;
+      }
+    }
+  }
+
+  private void mergePrimitive( Aggregate aggregate, Aggregate other, int i ) {
+    if ( other.counts[i] == 0 ) {
+      return;
+    }
+    int aggType = meta.getAggregateType()[i];
+    if ( aggregate.counts[i] == 0 ) {
+      aggregate.longAgg[i] = other.longAgg[i];
+      aggregate.doubleAgg[i] = other.doubleAgg[i];
+    } else if ( aggType == MemoryGroupByMeta.TYPE_GROUP_MIN ) {
+      aggregate.longAgg[i] = Math.min( aggregate.longAgg[i], other.longAgg[i] );
+      aggregate.doubleAgg[i] = Double.compare( other.doubleAgg[i], aggregate.doubleAgg[i] ) < 0
+        ? other.doubleAgg[i] : aggregate.doubleAgg[i];
+    } else if ( aggType == MemoryGroupByMeta.TYPE_GROUP_MAX ) {
+      aggregate.longAgg[i] = Math.max( aggregate.longAgg[i], other.longAgg[i] );
+      aggregate.doubleAgg[i] = Double.compare( other.doubleAgg[i], aggregate.doubleAgg[i] ) > 0
+        ? other.doubleAgg[i] : aggregate.doubleAgg[i];
+    } else {
+      aggregate.longAgg[i] += other.longAgg[i];
+      aggregate.doubleAgg[i] += other.doubleAgg[i];
+    }
+    aggregate.counts[i] += other.counts[i];
+  }
+
+  /**
+   * @return the boxed value of a primitive aggregate, null if no values were added
+   */
+  private Object getPrimitiveAggregate( Aggregate aggregate, int i ) {
+    if ( aggregate.counts[i] == 0 ) {
+      return null;
+    }
+    if ( data.inputRowMeta.getValueMeta( data.subjectnrs[i] ).isInteger() ) {
+      return aggregate.longAgg[i];
+    }
+    return aggregate.doubleAgg[i];
   }
 
   /**
@@ -432,6 +1013,10 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       aggregate.distinctObjs = null;
       aggregate.agg = new Object[data.subjectnrs.length];
       aggregate.mean = new double[data.subjectnrs.length]; // sets all doubles to 0.0
+      if ( data.primitiveAggregates != null ) {
+        aggregate.longAgg = new long[data.subjectnrs.length];
+        aggregate.doubleAgg = new double[data.subjectnrs.length];
+      }
     }
 
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
@@ -444,9 +1029,26 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
           vMeta = new ValueMetaNumber( meta.getAggregateField()[i] );
           v = new ArrayList<Double>();
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN_APPROX:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE_APPROX:
+          vMeta = new ValueMetaNumber( meta.getAggregateField()[i] );
+          if ( aggregate != null ) {
+            TDigest digest = new TDigest( percentileApproxCompression );
+            data.memoryUsed += digest.getSizeInBytes();
+            v = digest;
+          }
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
           vMeta = new ValueMetaNumber( meta.getAggregateField()[i] );
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          vMeta = new ValueMetaInteger( meta.getAggregateField()[i] );
+          if ( aggregate != null ) {
+            HyperLogLog hll = new HyperLogLog( distinctApproxPrecision );
+            data.memoryUsed += hll.getSizeInBytes();
+            v = hll;
+          }
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
@@ -465,7 +1067,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_MAX:
           vMeta = subjMeta.clone();
           vMeta.setName( meta.getAggregateField()[i] );
-          v = r == null ? null : r[data.subjectnrs[i]];
+          v = r == null || isPrimitiveAggregate( i ) ? null : r[data.subjectnrs[i]];
           break;
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
           vMeta = new ValueMetaString( meta.getAggregateField()[i] );
@@ -481,6 +1083,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
       if ( meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
         && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT
+        && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX
         && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY ) {
         vMeta.setLength( subjMeta.getLength(), subjMeta.getPrecision() );
       }
@@ -519,7 +1122,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( data.subjectnrs != null ) {
       for ( int i = 0; i < data.subjectnrs.length; i++ ) {
-        Object ag = aggregate.agg[i];
+        Object ag = isPrimitiveAggregate( i ) ? getPrimitiveAggregate( aggregate, i ) : aggregate.agg[i];
         switch ( meta.getAggregateType()[i] ) {
           case MemoryGroupByMeta.TYPE_GROUP_SUM:
             break;
@@ -543,6 +1146,18 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
             }
             ag = new Percentile().evaluate( values, percentile );
             break;
+          case MemoryGroupByMeta.TYPE_GROUP_MEDIAN_APPROX:
+          case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE_APPROX:
+            double approxPercentile = 50.0;
+            if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_PERCENTILE_APPROX ) {
+              approxPercentile = Double.parseDouble( meta.getValueField()[i] );
+            }
+            TDigest digest = (TDigest) ag;
+            ag = digest.size() == 0 ? null : digest.quantile( approxPercentile / 100 );
+            break;
+          case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+            ag = ( (HyperLogLog) ag ).cardinality();
+            break;
           case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
           case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
           case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
@@ -591,6 +1206,14 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     super.dispose( smi, sdi );
+    deleteSpilledRows();
+    if ( data.combiner != null ) {
+      try {
+        data.combiner.deleteSpilled( getCopy() );
+      } catch ( KettleException e ) {
+        logError( e.getLocalizedMessage(), e );
+      }
+    }
     ( (MemoryGroupByData) sdi ).clear();
   }
 
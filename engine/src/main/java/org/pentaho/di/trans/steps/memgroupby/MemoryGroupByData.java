@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 
 import org.pentaho.di.core.exception.KettleValueException;
@@ -85,6 +87,9 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
   public int[] groupnrs;
   public int[] subjectnrs;
 
+  /** Per subject field whether its aggregate is kept in a primitive, null if none is */
+  public boolean[] primitiveAggregates;
+
   public boolean firstRead;
 
   public Object[] groupResult;
@@ -99,6 +104,26 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  /** The maximum estimated size of the groups in memory in bytes, 0 to never spill to disk */
+  public long memoryBudget;
+
+  /** The estimated size of the groups in memory in bytes */
+  public long memoryUsed;
+
+  public int nrSpillPartitions;
+
+  /** The partitioning level of the rows being aggregated, 0 for the input rows */
+  int level;
+
+  /** The partitions the rows of new groups are written to once the memory budget is used up, null until then */
+  SpillPartition[] spillPartitions;
+
+  /** The complete partitions that still need to be aggregated */
+  Deque<SpillPartition> spilled = new ArrayDeque<>();
+
+  /** Combines the aggregates of all the step copies, null if every copy outputs its own groups */
+  CopyCombiner combiner;
+
   public MemoryGroupByData() {
     super();
 
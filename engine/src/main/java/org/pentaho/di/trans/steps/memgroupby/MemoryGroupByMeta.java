@@ -99,10 +99,17 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
 
   public static final int TYPE_GROUP_COUNT_ANY = 16;
 
+  public static final int TYPE_GROUP_COUNT_DISTINCT_APPROX = 17;
+
+  public static final int TYPE_GROUP_MEDIAN_APPROX = 18;
+
+  public static final int TYPE_GROUP_PERCENTILE_APPROX = 19;
+
   public static final String[] typeGroupCode = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */
   {
     "-", "SUM", "AVERAGE", "MEDIAN", "PERCENTILE", "MIN", "MAX", "COUNT_ALL", "CONCAT_COMMA", "FIRST", "LAST",
-    "FIRST_INCL_NULL", "LAST_INCL_NULL", "STD_DEV", "CONCAT_STRING", "COUNT_DISTINCT", "COUNT_ANY", };
+    "FIRST_INCL_NULL", "LAST_INCL_NULL", "STD_DEV", "CONCAT_STRING", "COUNT_DISTINCT", "COUNT_ANY",
+    "COUNT_DISTINCT_APPROX", "MEDIAN_APPROX", "PERCENTILE_APPROX", };
 
   public static final String[] typeGroupLongDesc = {
     "-", BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.SUM" ),
@@ -120,7 +127,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.STANDARD_DEVIATION" ),
     BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.CONCAT_STRING" ),
     BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_DISTINCT" ),
-    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_ANY" ), };
+    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_ANY" ),
+    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_DISTINCT_APPROX" ),
+    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.MEDIAN_APPROX" ),
+    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.PERCENTILE_APPROX" ), };
 
   @Injection( name = "GROUPFIELD", group = "FIELDS" )
   /** Fields to group over */
@@ -146,6 +156,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   /** Flag to indicate that we always give back one row. Defaults to true for existing transformations. */
   private boolean alwaysGivingBackOneRow;
 
+  @Injection( name = "COMBININGCOPIES", group = "FIELDS" )
+  /** Flag to indicate that the copies of the step aggregate their rows together rather than each on their own. */
+  private boolean combiningCopies;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -289,6 +303,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       } else {
         alwaysGivingBackOneRow = "Y".equalsIgnoreCase( giveBackRow );
       }
+      combiningCopies = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "combine_copies" ) );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnableToLoadStepInfoFromXML" ), e );
@@ -372,6 +387,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
             value_type = subj.getType();
             break;
           case TYPE_GROUP_COUNT_DISTINCT:
+          case TYPE_GROUP_COUNT_DISTINCT_APPROX:
           case TYPE_GROUP_COUNT_ALL:
           case TYPE_GROUP_COUNT_ANY:
             value_type = ValueMetaInterface.TYPE_INTEGER;
@@ -390,6 +406,8 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
           case TYPE_GROUP_MEDIAN:
           case TYPE_GROUP_PERCENTILE:
           case TYPE_GROUP_STANDARD_DEVIATION:
+          case TYPE_GROUP_MEDIAN_APPROX:
+          case TYPE_GROUP_PERCENTILE_APPROX:
             value_type = ValueMetaInterface.TYPE_NUMBER;
             break;
           case TYPE_GROUP_CONCAT_STRING:
@@ -400,7 +418,8 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
         }
 
         if ( aggregateType[i] == TYPE_GROUP_COUNT_ALL
-          || aggregateType[i] == TYPE_GROUP_COUNT_DISTINCT || aggregateType[i] == TYPE_GROUP_COUNT_ANY ) {
+          || aggregateType[i] == TYPE_GROUP_COUNT_DISTINCT || aggregateType[i] == TYPE_GROUP_COUNT_ANY
+          || aggregateType[i] == TYPE_GROUP_COUNT_DISTINCT_APPROX ) {
           length = ValueMetaInterface.DEFAULT_INTEGER_LENGTH;
           precision = 0;
         } else if ( aggregateType[i] == TYPE_GROUP_SUM
@@ -445,6 +464,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     StringBuilder retval = new StringBuilder( 500 );
 
     retval.append( "      " ).append( XMLHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "combine_copies", combiningCopies ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -494,6 +514,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       }
 
       alwaysGivingBackOneRow = rep.getStepAttributeBoolean( id_step, 0, "give_back_row", hasNumberOfValues );
+      combiningCopies = rep.getStepAttributeBoolean( id_step, 0, "combine_copies", false );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnexpectedErrorInReadingStepInfoFromRepository" ), e );
@@ -504,6 +525,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "give_back_row", alwaysGivingBackOneRow );
+      rep.saveStepAttribute( id_transformation, id_step, "combine_copies", combiningCopies );
 
       for ( int i = 0; i < groupField.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "group_name", groupField[i] );
@@ -567,6 +589,22 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return true if the copies of the step combine their aggregates, so that every group is output once in total
+   *         rather than once per copy
+   */
+  public boolean isCombiningCopies() {
+    return combiningCopies;
+  }
+
+  /**
+   * @param combiningCopies
+   *          true to have the copies of the step combine their aggregates
+   */
+  public void setCombiningCopies( boolean combiningCopies ) {
+    this.combiningCopies = combiningCopies;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
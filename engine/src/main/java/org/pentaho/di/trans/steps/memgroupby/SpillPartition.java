@@ -0,0 +1,152 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+
+/**
+ * A temporary file holding the input rows of the groups that didn't fit in memory and hash to the same partition. The
+ * rows are written in the order they arrived, so reading them back and aggregating them gives the same result as
+ * aggregating them in memory would have.
+ */
+class SpillPartition {
+
+  private static final int BUFFER_SIZE = 65536;
+
+  private final FileObject file;
+  private final RowMetaInterface rowMeta;
+  private final int level;
+
+  private DataOutputStream outputStream;
+  private DataInputStream inputStream;
+  private long nrRows;
+  private long nrRowsRead;
+
+  /**
+   * @param file
+   *          the temporary file to write the rows to
+   * @param rowMeta
+   *          the layout of the rows
+   * @param level
+   *          the partitioning level, 0 for the partitions of the input rows, one more for every time a partition is
+   *          split up again
+   */
+  SpillPartition( FileObject file, RowMetaInterface rowMeta, int level ) {
+    this.file = file;
+    this.rowMeta = rowMeta;
+    this.level = level;
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  long getNrRows() {
+    return nrRows;
+  }
+
+  void write( Object[] row ) throws KettleException {
+    try {
+      if ( outputStream == null ) {
+        outputStream = new DataOutputStream( new BufferedOutputStream( KettleVFS.getOutputStream( file, false ),
+          BUFFER_SIZE ) );
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to write to temp-file " + file, e );
+    }
+    rowMeta.writeData( outputStream, row );
+    nrRows++;
+  }
+
+  /**
+   * Finish writing rows.
+   *
+   * @return the size of the file in bytes
+   */
+  long close() throws KettleException {
+    try {
+      if ( outputStream != null ) {
+        outputStream.close();
+        outputStream = null;
+      }
+      return file.exists() ? file.getContent().getSize() : 0L;
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to close temp-file " + file, e );
+    }
+  }
+
+  /**
+   * Start reading back the rows, after {@link #close()}.
+   */
+  void open() throws KettleException {
+    try {
+      inputStream = new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( file ), BUFFER_SIZE ) );
+      nrRowsRead = 0;
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to read temp-file " + file, e );
+    }
+  }
+
+  /**
+   * @return the next row or null if all rows were read
+   */
+  Object[] next() throws KettleException {
+    if ( nrRowsRead >= nrRows ) {
+      return null;
+    }
+    try {
+      nrRowsRead++;
+      return rowMeta.readData( inputStream );
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to read temp-file " + file, e );
+    }
+  }
+
+  /**
+   * Close the file and remove it.
+   */
+  void delete() throws KettleException {
+    try {
+      if ( outputStream != null ) {
+        outputStream.close();
+        outputStream = null;
+      }
+      if ( inputStream != null ) {
+        inputStream.close();
+        inputStream = null;
+      }
+      file.delete();
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to delete temp-file " + file, e );
+    }
+  }
+}
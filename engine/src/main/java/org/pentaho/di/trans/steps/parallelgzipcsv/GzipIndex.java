@@ -0,0 +1,797 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.parallelgzipcsv;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * An index of access points in a gzip file: places in the compressed data where decompression can start without
+ * reading the file from the beginning. A {@link GzipIndexInputStream} uses it to read the uncompressed data from any
+ * offset, which lets several step copies each decompress their own part of the same file.<br>
+ * <br>
+ * Block gzip (BGZF) files consist of small independent gzip members, every member start is an access point. The index
+ * of such a file is built from the member headers and trailers without decompressing anything.<br>
+ * <br>
+ * Any other gzip file is decompressed once to build the index. Between two deflate blocks the only state the decoder
+ * needs is the last 32KB of uncompressed data, an access point in the middle of a member stores that window together
+ * with the bit position of the next block.
+ */
+public class GzipIndex {
+
+  /**
+   * The extension of the file the index of a gzip file is stored in, next to that file.
+   */
+  public static final String FILE_EXTENSION = ".gzidx";
+
+  static final int WINDOW_SIZE = 32768;
+
+  private static final int MAGIC = 0x475a4958; // GZIX
+  private static final int VERSION = 1;
+
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  private static final int FHCRC = 2;
+
+  /**
+   * A place in the gzip file to start decompressing from.
+   */
+  public static class AccessPoint {
+    private final long out;
+    private final long in;
+    private final int bits;
+    private final byte[] window;
+
+    AccessPoint( long out, long in, int bits, byte[] window ) {
+      this.out = out;
+      this.in = in;
+      this.bits = bits;
+      this.window = window;
+    }
+
+    /**
+     * @return the offset in the uncompressed data
+     */
+    public long getUncompressedOffset() {
+      return out;
+    }
+
+    /**
+     * @return the offset of the first byte to read in the compressed data
+     */
+    public long getCompressedOffset() {
+      return in;
+    }
+
+    /**
+     * @return the number of bits of the first byte that belong to the previous deflate block
+     */
+    public int getBits() {
+      return bits;
+    }
+
+    /**
+     * @return the uncompressed data preceding the access point or null if the access point is the start of a member
+     */
+    public byte[] getWindow() {
+      return window;
+    }
+
+    /**
+     * @return true if the access point is the start of a gzip member
+     */
+    public boolean isMemberStart() {
+      return window == null;
+    }
+  }
+
+  private final List<AccessPoint> accessPoints;
+  private final long uncompressedSize;
+  private final boolean blockGzip;
+
+  GzipIndex( List<AccessPoint> accessPoints, long uncompressedSize, boolean blockGzip ) {
+    this.accessPoints = accessPoints;
+    this.uncompressedSize = uncompressedSize;
+    this.blockGzip = blockGzip;
+  }
+
+  /**
+   * @return the access points in the order of the file
+   */
+  public List<AccessPoint> getAccessPoints() {
+    return Collections.unmodifiableList( accessPoints );
+  }
+
+  /**
+   * @return the size of the uncompressed data
+   */
+  public long getUncompressedSize() {
+    return uncompressedSize;
+  }
+
+  /**
+   * @return true if the index was built from the blocks of a block gzip (BGZF) file
+   */
+  public boolean isBlockGzip() {
+    return blockGzip;
+  }
+
+  /**
+   * @return the last access point at or before an offset in the uncompressed data
+   */
+  public AccessPoint findAccessPoint( long offset ) {
+    int low = 0;
+    int high = accessPoints.size() - 1;
+    while ( low < high ) {
+      int middle = ( low + high + 1 ) >>> 1;
+      if ( accessPoints.get( middle ).out <= offset ) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return accessPoints.get( low );
+  }
+
+  /**
+   * @return the first member start after an access point or null if the access point is in the last member
+   */
+  AccessPoint findNextMemberStart( AccessPoint accessPoint ) {
+    for ( int i = accessPoints.indexOf( accessPoint ) + 1; i < accessPoints.size(); i++ ) {
+      AccessPoint next = accessPoints.get( i );
+      if ( next.isMemberStart() ) {
+        return next;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Write the index, together with the size and modification time of the gzip file it was built from.
+   */
+  public void write( OutputStream outputStream, long compressedSize, long lastModified ) throws IOException {
+    Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+    try {
+      DeflaterOutputStream deflaterStream = new DeflaterOutputStream( outputStream, deflater );
+      DataOutputStream out = new DataOutputStream( deflaterStream );
+      out.writeInt( MAGIC );
+      out.writeInt( VERSION );
+      out.writeLong( compressedSize );
+      out.writeLong( lastModified );
+      out.writeBoolean( blockGzip );
+      out.writeLong( uncompressedSize );
+      out.writeInt( accessPoints.size() );
+      for ( AccessPoint accessPoint : accessPoints ) {
+        out.writeLong( accessPoint.out );
+        out.writeLong( accessPoint.in );
+        out.writeByte( accessPoint.bits );
+        if ( accessPoint.window == null ) {
+          out.writeInt( -1 );
+        } else {
+          out.writeInt( accessPoint.window.length );
+          out.write( accessPoint.window );
+        }
+      }
+      out.flush();
+      deflaterStream.finish();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Read an index written by {@link #write(OutputStream, long, long)}.
+   *
+   * @return the index or null if it was built from a gzip file of another size or modification time
+   */
+  public static GzipIndex read( InputStream inputStream, long compressedSize, long lastModified )
+    throws IOException {
+    DataInputStream in = new DataInputStream( new InflaterInputStream( inputStream ) );
+    if ( in.readInt() != MAGIC || in.readInt() != VERSION ) {
+      throw new ZipException( "Not a gzip index" );
+    }
+    if ( in.readLong() != compressedSize || in.readLong() != lastModified ) {
+      return null;
+    }
+    boolean blockGzip = in.readBoolean();
+    long uncompressedSize = in.readLong();
+    int size = in.readInt();
+    if ( size <= 0 ) {
+      throw new ZipException( "Invalid gzip index" );
+    }
+    List<AccessPoint> accessPoints = new ArrayList<AccessPoint>( size );
+    for ( int i = 0; i < size; i++ ) {
+      long out = in.readLong();
+      long offset = in.readLong();
+      int bits = in.readByte();
+      int windowLength = in.readInt();
+      byte[] window = null;
+      if ( windowLength > WINDOW_SIZE ) {
+        throw new ZipException( "Invalid gzip index" );
+      } else if ( windowLength >= 0 ) {
+        window = new byte[windowLength];
+        in.readFully( window );
+      }
+      accessPoints.add( new AccessPoint( out, offset, bits, window ) );
+    }
+    return new GzipIndex( accessPoints, uncompressedSize, blockGzip );
+  }
+
+  /**
+   * @return true if the gzip data starts with a block gzip (BGZF) member
+   */
+  public static boolean isBlockGzip( InputStream in ) throws IOException {
+    Scanner scanner = new Scanner( in, 0L );
+    return scanner.readByte() == 0x1f && scanner.readByte() == 0x8b && scanner.readHeader() >= 0;
+  }
+
+  /**
+   * Build the index of gzip data.
+   *
+   * @param in
+   *          the gzip data, read to the end
+   * @param span
+   *          the minimum distance between two access points in the uncompressed data
+   */
+  public static GzipIndex build( InputStream in, long span ) throws IOException {
+    return new Scanner( in, span ).scan();
+  }
+
+  /**
+   * Get an index shared by several users, the first one to ask builds it while the others wait for it. The index is
+   * removed from the registry once all the users got it.
+   *
+   * @param registry
+   *          the map to register the index in while it is shared
+   * @param key
+   *          the key of the index in the registry
+   * @param users
+   *          the number of users of the index
+   * @param factory
+   *          builds or loads the index
+   */
+  public static GzipIndex acquire( Map<String, Object> registry, String key, int users,
+    Callable<GzipIndex> factory ) throws IOException {
+    SharedIndex shared;
+    boolean owner = false;
+    synchronized ( registry ) {
+      shared = (SharedIndex) registry.get( key );
+      if ( shared == null ) {
+        shared = new SharedIndex( factory, users );
+        registry.put( key, shared );
+        owner = true;
+      }
+      if ( --shared.users <= 0 ) {
+        registry.remove( key );
+      }
+    }
+    if ( owner ) {
+      shared.task.run();
+    }
+    try {
+      return shared.task.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for the gzip index" );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException( e.getCause() );
+    }
+  }
+
+  private static class SharedIndex {
+    private final FutureTask<GzipIndex> task;
+    private int users;
+
+    SharedIndex( Callable<GzipIndex> factory, int users ) {
+      this.task = new FutureTask<GzipIndex>( factory );
+      this.users = users;
+    }
+  }
+
+  /**
+   * A canonical Huffman code with a lookup table for the codes of up to {@link #FAST_BITS} bits.
+   */
+  private static class Huffman {
+    static final int FAST_BITS = 9;
+    static final int FAST_MASK = ( 1 << FAST_BITS ) - 1;
+
+    final short[] count = new short[16];
+    final short[] symbol;
+    final int[] fast = new int[1 << FAST_BITS];
+
+    Huffman( int symbols ) {
+      symbol = new short[symbols];
+    }
+
+    void build( int[] lengths, int offset, int symbols ) throws IOException {
+      Arrays.fill( count, (short) 0 );
+      Arrays.fill( fast, 0 );
+      for ( int i = 0; i < symbols; i++ ) {
+        count[lengths[offset + i]]++;
+      }
+      int left = 1;
+      for ( int length = 1; length < 16; length++ ) {
+        left = ( left << 1 ) - count[length];
+        if ( left < 0 ) {
+          throw new ZipException( "Invalid Huffman code lengths" );
+        }
+      }
+      int[] offsets = new int[16];
+      for ( int length = 1; length < 15; length++ ) {
+        offsets[length + 1] = offsets[length] + count[length];
+      }
+      for ( int i = 0; i < symbols; i++ ) {
+        if ( lengths[offset + i] != 0 ) {
+          symbol[offsets[lengths[offset + i]]++] = (short) i;
+        }
+      }
+      int code = 0;
+      int index = 0;
+      for ( int length = 1; length <= FAST_BITS; length++ ) {
+        for ( int i = 0; i < count[length]; i++ ) {
+          int entry = length << 16 | symbol[index++];
+          // Deflate sends the codes starting with their most significant bit
+          for ( int j = Integer.reverse( code ) >>> ( 32 - length ); j < fast.length; j += 1 << length ) {
+            fast[j] = entry;
+          }
+          code++;
+        }
+        code <<= 1;
+      }
+    }
+  }
+
+  /**
+   * Decompresses gzip data without keeping more than the last 32KB of it, to find the access points.
+   */
+  private static class Scanner {
+    private static final int MASK = WINDOW_SIZE - 1;
+    private static final int[] ORDER = { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+    private static final int[] LENGTH_BASE =
+      { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227,
+        258 };
+    private static final int[] LENGTH_EXTRA =
+      { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final int[] DISTANCE_BASE =
+      { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097,
+        6145, 8193, 12289, 16385, 24577 };
+    private static final int[] DISTANCE_EXTRA =
+      { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+
+    private final InputStream in;
+    private final long span;
+    private final byte[] buffer = new byte[65536];
+    private int position;
+    private int limit;
+    private long bufferOffset;
+    private int bitBuffer;
+    private int bitCount;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private long out;
+    private long memberStart;
+
+    private final List<AccessPoint> accessPoints = new ArrayList<AccessPoint>();
+    private long lastAccessPoint;
+    private boolean memberStartNeeded;
+
+    private final int[] lengths = new int[320];
+    private final Huffman codeLengthCodes = new Huffman( 19 );
+    private final Huffman lengthCodes = new Huffman( 288 );
+    private final Huffman distanceCodes = new Huffman( 30 );
+    private final Huffman fixedLengthCodes = new Huffman( 288 );
+    private final Huffman fixedDistanceCodes = new Huffman( 30 );
+    private boolean fixedCodes;
+
+    Scanner( InputStream in, long span ) {
+      this.in = in;
+      this.span = span;
+    }
+
+    GzipIndex scan() throws IOException {
+      boolean blockGzip = false;
+      boolean first = true;
+      while ( true ) {
+        alignToByte();
+        long memberOffset = bitPosition() >>> 3;
+        int id1 = readByte();
+        if ( id1 < 0 && !first ) {
+          break;
+        }
+        if ( id1 != 0x1f || readByte() != 0x8b ) {
+          if ( first ) {
+            throw new ZipException( "Not in GZIP format" );
+          }
+          break; // Trailing garbage is ignored, like GZIPInputStream does
+        }
+        int blockSize = readHeader();
+        if ( first ) {
+          blockGzip = blockSize >= 0;
+          first = false;
+        }
+        if ( accessPoints.isEmpty() || memberStartNeeded || out - lastAccessPoint >= span ) {
+          accessPoints.add( new AccessPoint( out, memberOffset, 0, null ) );
+          lastAccessPoint = out;
+          memberStartNeeded = false;
+        }
+        if ( blockGzip ) {
+          if ( blockSize < 0 ) {
+            throw new ZipException( "Missing BGZF block size" );
+          }
+          // The block size includes the header: skip the deflate data and the CRC32, the size is all we need
+          skip( blockSize + 1 - ( ( bitPosition() >>> 3 ) - memberOffset ) - 4 );
+          out += readInt() & 0xffffffffL;
+        } else {
+          inflateMember();
+          alignToByte();
+          skip( 8 );
+        }
+      }
+      return new GzipIndex( accessPoints, out, blockGzip );
+    }
+
+    /**
+     * Read the rest of a gzip member header after the magic bytes.
+     *
+     * @return the size of the block - 1 if the header has a BGZF extra field or -1 if not
+     */
+    int readHeader() throws IOException {
+      if ( readHeaderByte() != 8 ) {
+        throw new ZipException( "Unsupported compression method" );
+      }
+      int flags = readHeaderByte();
+      skip( 6 );
+      int blockSize = -1;
+      if ( ( flags & FEXTRA ) != 0 ) {
+        int extraLength = readShort();
+        while ( extraLength >= 4 ) {
+          int id1 = readHeaderByte();
+          int id2 = readHeaderByte();
+          int length = readShort();
+          extraLength -= 4;
+          if ( id1 == 'B' && id2 == 'C' && length == 2 && extraLength >= 2 ) {
+            blockSize = readShort();
+          } else {
+            skip( Math.min( length, extraLength ) );
+          }
+          extraLength -= Math.min( length, extraLength );
+        }
+        skip( extraLength );
+      }
+      if ( ( flags & FNAME ) != 0 ) {
+        while ( readHeaderByte() != 0 ) {
+          // skip the file name
+        }
+      }
+      if ( ( flags & FCOMMENT ) != 0 ) {
+        while ( readHeaderByte() != 0 ) {
+          // skip the comment
+        }
+      }
+      if ( ( flags & FHCRC ) != 0 ) {
+        skip( 2 );
+      }
+      return blockSize;
+    }
+
+    private void inflateMember() throws IOException {
+      memberStart = out;
+      boolean last;
+      boolean firstBlock = true;
+      do {
+        if ( !firstBlock && out - lastAccessPoint >= span ) {
+          addWindowAccessPoint();
+        }
+        firstBlock = false;
+        last = getBits( 1 ) == 1;
+        switch ( getBits( 2 ) ) {
+          case 0:
+            stored();
+            break;
+          case 1:
+            if ( !fixedCodes ) {
+              buildFixedCodes();
+              fixedCodes = true;
+            }
+            codes( fixedLengthCodes, fixedDistanceCodes );
+            break;
+          case 2:
+            dynamic();
+            break;
+          default:
+            throw new ZipException( "Invalid block type" );
+        }
+      } while ( !last );
+    }
+
+    private void addWindowAccessPoint() {
+      long position = bitPosition();
+      int length = (int) Math.min( WINDOW_SIZE, out - memberStart );
+      byte[] copy = new byte[length];
+      int start = (int) ( out - length ) & MASK;
+      int first = Math.min( length, WINDOW_SIZE - start );
+      System.arraycopy( window, start, copy, 0, first );
+      System.arraycopy( window, 0, copy, first, length - first );
+      accessPoints.add( new AccessPoint( out, position >>> 3, (int) ( position & 7 ), copy ) );
+      lastAccessPoint = out;
+      // Decompression from this point stops at the end of the member: the next member start needs to be in the index
+      memberStartNeeded = true;
+    }
+
+    private void stored() throws IOException {
+      alignToByte();
+      int length = getBits( 16 );
+      if ( length != ( ~getBits( 16 ) & 0xffff ) ) {
+        throw new ZipException( "Invalid stored block lengths" );
+      }
+      while ( length > 0 && bitCount >= 8 ) {
+        window[(int) out & MASK] = (byte) getBits( 8 );
+        out++;
+        length--;
+      }
+      while ( length > 0 ) {
+        if ( position == limit && !fill() ) {
+          throw new EOFException( "Unexpected end of ZLIB input stream" );
+        }
+        int n = Math.min( length, limit - position );
+        for ( int i = 0; i < n; i++ ) {
+          window[(int) out & MASK] = buffer[position++];
+          out++;
+        }
+        length -= n;
+      }
+    }
+
+    private void buildFixedCodes() throws IOException {
+      int[] fixed = new int[288];
+      Arrays.fill( fixed, 0, 144, 8 );
+      Arrays.fill( fixed, 144, 256, 9 );
+      Arrays.fill( fixed, 256, 280, 7 );
+      Arrays.fill( fixed, 280, 288, 8 );
+      fixedLengthCodes.build( fixed, 0, 288 );
+      Arrays.fill( fixed, 0, 30, 5 );
+      fixedDistanceCodes.build( fixed, 0, 30 );
+    }
+
+    private void dynamic() throws IOException {
+      int lengthCount = getBits( 5 ) + 257;
+      int distanceCount = getBits( 5 ) + 1;
+      int codeCount = getBits( 4 ) + 4;
+      if ( lengthCount > 286 || distanceCount > 30 ) {
+        throw new ZipException( "Too many length or distance symbols" );
+      }
+      Arrays.fill( lengths, 0, 19, 0 );
+      for ( int i = 0; i < codeCount; i++ ) {
+        lengths[ORDER[i]] = getBits( 3 );
+      }
+      codeLengthCodes.build( lengths, 0, 19 );
+
+      int total = lengthCount + distanceCount;
+      int index = 0;
+      while ( index < total ) {
+        int symbol = decode( codeLengthCodes );
+        if ( symbol < 16 ) {
+          lengths[index++] = symbol;
+        } else {
+          int length = 0;
+          int repeat;
+          if ( symbol == 16 ) {
+            if ( index == 0 ) {
+              throw new ZipException( "Invalid bit length repeat" );
+            }
+            length = lengths[index - 1];
+            repeat = 3 + getBits( 2 );
+          } else if ( symbol == 17 ) {
+            repeat = 3 + getBits( 3 );
+          } else {
+            repeat = 11 + getBits( 7 );
+          }
+          if ( index + repeat > total ) {
+            throw new ZipException( "Invalid bit length repeat" );
+          }
+          while ( repeat-- > 0 ) {
+            lengths[index++] = length;
+          }
+        }
+      }
+      if ( lengths[256] == 0 ) {
+        throw new ZipException( "Missing end-of-block code" );
+      }
+      lengthCodes.build( lengths, 0, lengthCount );
+      distanceCodes.build( lengths, lengthCount, distanceCount );
+      codes( lengthCodes, distanceCodes );
+    }
+
+    private void codes( Huffman lengthCodes, Huffman distanceCodes ) throws IOException {
+      while ( true ) {
+        int symbol = decode( lengthCodes );
+        if ( symbol < 256 ) {
+          window[(int) out & MASK] = (byte) symbol;
+          out++;
+        } else if ( symbol == 256 ) {
+          return;
+        } else {
+          symbol -= 257;
+          if ( symbol >= 29 ) {
+            throw new ZipException( "Invalid literal/length code" );
+          }
+          int length = LENGTH_BASE[symbol] + getBits( LENGTH_EXTRA[symbol] );
+          symbol = decode( distanceCodes );
+          if ( symbol >= 30 ) {
+            throw new ZipException( "Invalid distance code" );
+          }
+          int distance = DISTANCE_BASE[symbol] + getBits( DISTANCE_EXTRA[symbol] );
+          if ( distance > out - memberStart ) {
+            throw new ZipException( "Invalid distance too far back" );
+          }
+          for ( int i = 0; i < length; i++ ) {
+            window[(int) out & MASK] = window[(int) ( out - distance ) & MASK];
+            out++;
+          }
+        }
+      }
+    }
+
+    private int decode( Huffman huffman ) throws IOException {
+      // Top up the bit buffer without failing at the end of the data: the last code can be shorter than the table
+      while ( bitCount < Huffman.FAST_BITS ) {
+        int b = readRawByte();
+        if ( b < 0 ) {
+          break;
+        }
+        bitBuffer |= b << bitCount;
+        bitCount += 8;
+      }
+      int entry = huffman.fast[bitBuffer & Huffman.FAST_MASK];
+      if ( entry != 0 && ( entry >>> 16 ) <= bitCount ) {
+        bitBuffer >>>= entry >>> 16;
+        bitCount -= entry >>> 16;
+        return entry & 0xffff;
+      }
+      int code = 0;
+      int first = 0;
+      int index = 0;
+      for ( int length = 1; length < 16; length++ ) {
+        code |= getBits( 1 );
+        int count = huffman.count[length];
+        if ( code - count < first ) {
+          return huffman.symbol[index + ( code - first )];
+        }
+        index += count;
+        first = ( first + count ) << 1;
+        code <<= 1;
+      }
+      throw new ZipException( "Invalid Huffman code" );
+    }
+
+    private int getBits( int n ) throws IOException {
+      while ( bitCount < n ) {
+        int b = readRawByte();
+        if ( b < 0 ) {
+          throw new EOFException( "Unexpected end of ZLIB input stream" );
+        }
+        bitBuffer |= b << bitCount;
+        bitCount += 8;
+      }
+      int bits = bitBuffer & ( ( 1 << n ) - 1 );
+      bitBuffer >>>= n;
+      bitCount -= n;
+      return bits;
+    }
+
+    private void alignToByte() throws IOException {
+      getBits( bitCount & 7 );
+    }
+
+    /**
+     * @return the position in the data in bits of the next bit to decode
+     */
+    private long bitPosition() {
+      return ( bufferOffset + position ) * 8 - bitCount;
+    }
+
+    /**
+     * Read a byte at a byte boundary, from the bit buffer first.
+     */
+    int readByte() throws IOException {
+      if ( bitCount >= 8 ) {
+        return getBits( 8 );
+      }
+      return readRawByte();
+    }
+
+    private int readHeaderByte() throws IOException {
+      int b = readByte();
+      if ( b < 0 ) {
+        throw new EOFException( "Unexpected end of GZIP input stream" );
+      }
+      return b;
+    }
+
+    private int readShort() throws IOException {
+      return readHeaderByte() | readHeaderByte() << 8;
+    }
+
+    private int readInt() throws IOException {
+      return readShort() | readShort() << 16;
+    }
+
+    private void skip( long n ) throws IOException {
+      while ( n > 0 && bitCount >= 8 ) {
+        getBits( 8 );
+        n--;
+      }
+      while ( n > 0 ) {
+        if ( position == limit && !fill() ) {
+          throw new EOFException( "Unexpected end of GZIP input stream" );
+        }
+        int skipped = (int) Math.min( n, limit - position );
+        position += skipped;
+        n -= skipped;
+      }
+    }
+
+    private int readRawByte() throws IOException {
+      if ( position == limit && !fill() ) {
+        return -1;
+      }
+      return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+      bufferOffset += limit;
+      position = 0;
+      limit = 0;
+      int n;
+      do {
+        n = in.read( buffer );
+      } while ( n == 0 );
+      if ( n < 0 ) {
+        return false;
+      }
+      limit = n;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.parallelgzipcsv;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.pentaho.di.trans.steps.parallelgzipcsv.GzipIndex.AccessPoint;
+
+/**
+ * Reads the uncompressed data of a gzip file from an offset, starting to decompress at the nearest access point of a
+ * {@link GzipIndex} before it instead of at the beginning of the file.<br>
+ * <br>
+ * From the start of a member the stream reads like a {@link java.util.zip.GZIPInputStream}, including the checks of
+ * the member trailers. From an access point in the middle of a member the deflate data is decompressed with the window
+ * of the access point as dictionary, shifted by the bits of the first byte that belong to the previous block. At the
+ * end of that member the stream continues at the next member start from the index.
+ */
+public class GzipIndexInputStream extends InputStream {
+  private final InputStream in;
+  private final GzipIndex index;
+  private final Inflater inflater = new Inflater( true );
+  private final CRC32 crc = new CRC32();
+
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+  private long bufferOffset;
+
+  private AccessPoint accessPoint;
+  private boolean midMember;
+  private int shift;
+  private int carry = -1;
+  private byte[] shifted;
+  private long memberSize;
+  private boolean eof;
+
+  private final byte[] single = new byte[1];
+
+  /**
+   * @param in
+   *          the gzip data, from the beginning of the file
+   * @param index
+   *          the index of the gzip data
+   * @param offset
+   *          the offset in the uncompressed data to start reading at
+   * @param bufferSize
+   *          the size of the buffer for the compressed data
+   */
+  public GzipIndexInputStream( InputStream in, GzipIndex index, long offset, int bufferSize ) throws IOException {
+    this.in = in;
+    this.index = index;
+    this.buffer = new byte[bufferSize];
+
+    accessPoint = index.findAccessPoint( offset );
+    skipCompressed( accessPoint.getCompressedOffset() );
+    if ( accessPoint.isMemberStart() ) {
+      startMember();
+    } else {
+      inflater.setDictionary( accessPoint.getWindow() );
+      shift = accessPoint.getBits();
+      midMember = true;
+    }
+
+    long toSkip = offset - accessPoint.getUncompressedOffset();
+    while ( toSkip > 0 ) {
+      long n = skip( toSkip );
+      if ( n <= 0 ) {
+        break;
+      }
+      toSkip -= n;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read( single, 0, 1 ) < 0 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return 0;
+    }
+    while ( !eof ) {
+      int n;
+      try {
+        n = inflater.inflate( b, off, len );
+      } catch ( DataFormatException e ) {
+        throw new ZipException( e.getMessage() );
+      }
+      if ( n > 0 ) {
+        if ( !midMember ) {
+          crc.update( b, off, n );
+        }
+        memberSize += n;
+        return n;
+      }
+      if ( inflater.finished() ) {
+        endMember();
+      } else if ( inflater.needsDictionary() ) {
+        throw new ZipException( "Unexpected preset dictionary" );
+      } else if ( inflater.needsInput() ) {
+        fillInflater();
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public long skip( long n ) throws IOException {
+    byte[] discard = new byte[(int) Math.min( n, buffer.length )];
+    long skipped = 0;
+    while ( skipped < n ) {
+      int read = read( discard, 0, (int) Math.min( n - skipped, discard.length ) );
+      if ( read < 0 ) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    in.close();
+  }
+
+  private void fillInflater() throws IOException {
+    if ( shift == 0 ) {
+      if ( position == limit && !fill() ) {
+        throw new EOFException( "Unexpected end of ZLIB input stream" );
+      }
+      inflater.setInput( buffer, position, limit - position );
+      position = limit;
+      return;
+    }
+
+    // The deflate data doesn't start at a byte boundary: realign it for the inflater
+    //
+    if ( shifted == null ) {
+      shifted = new byte[buffer.length];
+    }
+    int length = 0;
+    while ( length == 0 ) {
+      if ( position == limit && !fill() ) {
+        if ( carry < 0 ) {
+          throw new EOFException( "Unexpected end of ZLIB input stream" );
+        }
+        shifted[length++] = (byte) ( carry >>> shift );
+        carry = -1;
+        break;
+      }
+      while ( position < limit ) {
+        int b = buffer[position++] & 0xff;
+        if ( carry >= 0 ) {
+          shifted[length++] = (byte) ( ( carry >>> shift ) | ( b << ( 8 - shift ) ) );
+        }
+        carry = b;
+      }
+    }
+    inflater.setInput( shifted, 0, length );
+  }
+
+  private void endMember() throws IOException {
+    if ( midMember ) {
+      // The end of the deflate data is somewhere in the last input, the index knows where the next member starts
+      //
+      accessPoint = index.findNextMemberStart( accessPoint );
+      if ( accessPoint == null ) {
+        eof = true;
+        return;
+      }
+      long start = accessPoint.getCompressedOffset();
+      if ( start < bufferOffset ) {
+        throw new ZipException( "Invalid gzip index" );
+      } else if ( start <= bufferOffset + limit ) {
+        position = (int) ( start - bufferOffset );
+      } else {
+        skipCompressed( start );
+      }
+      shift = 0;
+      carry = -1;
+      midMember = false;
+    } else {
+      position = limit - inflater.getRemaining();
+      long checksum = readInt() & 0xffffffffL;
+      long size = readInt() & 0xffffffffL;
+      if ( checksum != crc.getValue() || size != ( memberSize & 0xffffffffL ) ) {
+        throw new ZipException( "Corrupt GZIP trailer" );
+      }
+    }
+    startMember();
+  }
+
+  private void startMember() throws IOException {
+    int id1 = readByte();
+    if ( id1 < 0 || id1 != 0x1f || readByte() != 0x8b ) {
+      // Trailing garbage is ignored, like GZIPInputStream does
+      eof = true;
+      return;
+    }
+    if ( readHeaderByte() != 8 ) {
+      throw new ZipException( "Unsupported compression method" );
+    }
+    int flags = readHeaderByte();
+    skipHeaderBytes( 6 );
+    if ( ( flags & 4 ) != 0 ) {
+      skipHeaderBytes( readShort() );
+    }
+    if ( ( flags & 8 ) != 0 ) {
+      while ( readHeaderByte() != 0 ) {
+        // skip the file name
+      }
+    }
+    if ( ( flags & 16 ) != 0 ) {
+      while ( readHeaderByte() != 0 ) {
+        // skip the comment
+      }
+    }
+    if ( ( flags & 2 ) != 0 ) {
+      skipHeaderBytes( 2 );
+    }
+    inflater.reset();
+    crc.reset();
+    memberSize = 0;
+  }
+
+  private int readByte() throws IOException {
+    if ( position == limit && !fill() ) {
+      return -1;
+    }
+    return buffer[position++] & 0xff;
+  }
+
+  private int readHeaderByte() throws IOException {
+    int b = readByte();
+    if ( b < 0 ) {
+      throw new EOFException( "Unexpected end of GZIP input stream" );
+    }
+    return b;
+  }
+
+  private int readShort() throws IOException {
+    return readHeaderByte() | readHeaderByte() << 8;
+  }
+
+  private int readInt() throws IOException {
+    return readShort() | readShort() << 16;
+  }
+
+  private void skipHeaderBytes( int n ) throws IOException {
+    for ( int i = 0; i < n; i++ ) {
+      readHeaderByte();
+    }
+  }
+
+  /**
+   * Skip forward in the compressed data to an offset beyond the buffer.
+   */
+  private void skipCompressed( long offset ) throws IOException {
+    long toSkip = offset - ( bufferOffset + limit );
+    while ( toSkip > 0 ) {
+      long n = in.skip( toSkip );
+      if ( n <= 0 ) {
+        if ( in.read() < 0 ) {
+          throw new EOFException( "Unexpected end of GZIP input stream" );
+        }
+        n = 1;
+      }
+      toSkip -= n;
+    }
+    bufferOffset = offset;
+    position = 0;
+    limit = 0;
+  }
+
+  private boolean fill() throws IOException {
+    bufferOffset += limit;
+    position = 0;
+    limit = 0;
+    int n;
+    do {
+      n = in.read( buffer );
+    } while ( n == 0 );
+    if ( n < 0 ) {
+      return false;
+    }
+    limit = n;
+    return true;
+  }
+}
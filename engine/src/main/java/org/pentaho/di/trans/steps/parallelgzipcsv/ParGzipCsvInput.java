@@ -23,11 +23,15 @@
 package org.pentaho.di.trans.steps.parallelgzipcsv;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
@@ -54,6 +58,8 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 public class ParGzipCsvInput extends BaseStep implements StepInterface {
   private static Class<?> PKG = ParGzipCsvInputMeta.class; // for i18n purposes, needed by Translator2!!
 
+  private static final long DEFAULT_GZIP_INDEX_SPAN_MB = 16L;
+
   private ParGzipCsvInputMeta meta;
   private ParGzipCsvInputData data;
 
@@ -163,8 +169,8 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
 
   private boolean skipToNextBlock() throws KettleException {
 
-    if ( data.eofReached ) {
-      return true; // next file please!
+    if ( data.eofReached || data.indexed ) {
+      return true; // next file please! (an indexed read covers the whole part of the file of this step copy)
     }
     // Reset the bytes read in the current block of data
     //
@@ -286,7 +292,13 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
         data.binaryFilename = data.filenames[data.filenr].getBytes();
       }
 
-      data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      // When running in parallel, see if the file can be split between the step copies with a gzip index
+      //
+      GzipIndex index = data.parallel ? getGzipIndex( data.filenames[data.filenr], fileObject ) : null;
+      data.indexed = index != null;
+      if ( !data.indexed ) {
+        data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      }
 
       clearBuffer();
       data.fileReadPosition = 0L;
@@ -297,9 +309,36 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
       //
       data.filenr++;
 
-      // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
-      //
-      if ( data.parallel ) {
+      if ( data.indexed ) {
+        // Every step copy reads a contiguous part of the uncompressed data.
+        // The index lets us start decompressing at the nearest access point before the start of that part.
+        //
+        long size = index.getUncompressedSize();
+        long start = size * data.stepNumber / data.totalNumberOfSteps;
+        long end = size * ( data.stepNumber + 1 ) / data.totalNumberOfSteps;
+        if ( start >= end ) {
+          // More step copies than bytes, nothing to read in this file for this step copy
+          data.eofReached = true;
+          return false;
+        }
+
+        logBasic( BaseMessages.getString( PKG, "ParGzipCsvInput.Log.IndexedRangeFeedback", Long.toString( start ),
+          Long.toString( end ), Long.toString( size ), data.filenames[data.filenr - 1] ) );
+
+        data.gzis = new GzipIndexInputStream( data.fis, index, start, data.bufferSize );
+        data.fileReadPosition = start;
+        data.blockSize = end - start;
+        data.totalBytesRead = 0L;
+
+        // Skip the first (partial) row until the next CR, the previous step copy reads it.
+        // The first step copy checks for a header row instead.
+        //
+        if ( start > 0 || meta.isHeaderPresent() ) {
+          readOneRow( false );
+        }
+      } else if ( data.parallel ) {
+        // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
+        //
         // Calculate the first block of data to read from the file
         // If the buffer size is 500, we read 0-499 for the first file,
         // 500-999 for the second, 1000-1499 for the third, etc.
@@ -391,6 +430,79 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Get the index of a gzip file to split it between the step copies. The step copies in this JVM share the index:
+   * the first one to open the file loads or builds it while the others wait for it.
+   *
+   * @return the index or null if the file can't be split
+   */
+  private GzipIndex getGzipIndex( final String filename, final FileObject fileObject ) throws IOException {
+    final long spanMB = Const.toLong( getVariable( Const.KETTLE_GZIP_INDEX_SPAN ), DEFAULT_GZIP_INDEX_SPAN_MB );
+    int nrCopies = getTrans() == null ? 1 : Math.max( 1, getTrans().findStepInterfaces( getStepname() ).size() );
+    Map<String, Object> registry = getTrans() == null ? null : getTrans().getExtensionDataMap();
+    if ( nrCopies < 2 || registry == null ) {
+      try {
+        return loadGzipIndex( filename, fileObject, spanMB );
+      } catch ( KettleFileException e ) {
+        throw new IOException( e );
+      }
+    }
+    String key = ParGzipCsvInput.class.getName() + "." + getStepname() + "." + filename;
+    return GzipIndex.acquire( registry, key, nrCopies, () -> loadGzipIndex( filename, fileObject, spanMB ) );
+  }
+
+  /**
+   * Read the index of a gzip file from the index file next to it or build the index and save it in that file.
+   * Without a span only block gzip (BGZF) files are indexed, other gzip files would have to be decompressed first.
+   */
+  private GzipIndex loadGzipIndex( String filename, FileObject fileObject, long spanMB ) throws IOException,
+    KettleFileException {
+    long compressedSize = fileObject.getContent().getSize();
+    long lastModified = fileObject.getContent().getLastModifiedTime();
+    if ( spanMB <= 0 ) {
+      try ( InputStream in = KettleVFS.getInputStream( fileObject ) ) {
+        if ( !GzipIndex.isBlockGzip( in ) ) {
+          return null;
+        }
+      }
+      spanMB = DEFAULT_GZIP_INDEX_SPAN_MB;
+    }
+
+    FileObject indexFile = null;
+    if ( "Y".equalsIgnoreCase( getVariable( Const.KETTLE_GZIP_INDEX_CACHE, "Y" ) ) ) {
+      indexFile = KettleVFS.getFileObject( filename + GzipIndex.FILE_EXTENSION, getTransMeta() );
+      if ( indexFile.exists() ) {
+        try ( InputStream in = KettleVFS.getInputStream( indexFile ) ) {
+          GzipIndex index = GzipIndex.read( in, compressedSize, lastModified );
+          if ( index != null ) {
+            return index;
+          }
+        } catch ( IOException e ) {
+          logDetailed( BaseMessages.getString( PKG, "ParGzipCsvInput.Log.UnableToReadIndex", filename
+            + GzipIndex.FILE_EXTENSION, e.getMessage() ) );
+        }
+      }
+    }
+
+    logBasic( BaseMessages.getString( PKG, "ParGzipCsvInput.Log.BuildingIndex", filename ) );
+    GzipIndex index;
+    try ( InputStream in = KettleVFS.getInputStream( fileObject ) ) {
+      index = GzipIndex.build( in, spanMB * 1024 * 1024 );
+    }
+
+    if ( indexFile != null ) {
+      // The index is only a cache: a read-only directory shouldn't stop us from reading the file
+      //
+      try ( OutputStream out = KettleVFS.getOutputStream( indexFile, false ) ) {
+        index.write( out, compressedSize, lastModified );
+      } catch ( IOException e ) {
+        logBasic( BaseMessages.getString( PKG, "ParGzipCsvInput.Log.UnableToWriteIndex", filename
+          + GzipIndex.FILE_EXTENSION, e.getMessage() ) );
+      }
+    }
+    return index;
+  }
+
   private void clearBuffer() {
     data.startBuffer = 0;
     data.endBuffer = 0;
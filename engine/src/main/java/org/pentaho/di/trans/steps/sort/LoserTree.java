@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleException;
+
+/**
+ * Merges k sorted sources with a tournament tree of losers: every internal node of the tree keeps the source that lost
+ * the match played there, the overall winner sits on top. Taking the smallest element and reading the next one from
+ * the same source replays only the matches on the path of that source, log2(k) comparisons per element.
+ * <p>
+ * Elements that compare equal come out in the order of their sources, the merge of stable sorted runs is stable. A
+ * merge is a sorted source itself, it can be merged further or written out.
+ *
+ * @param <T>
+ *          the type of the merged elements
+ */
+class LoserTree<T> implements SortedSource<T> {
+
+  private final List<? extends SortedSource<T>> sources;
+  private final Comparator<? super T> comparator;
+  private final int k;
+
+  /** The current element of every source, null once the source is exhausted. */
+  private final Object[] heads;
+
+  /** The losers of the matches on internal nodes 1..k-1, the winner in node 0. */
+  private final int[] tree;
+
+  LoserTree( List<? extends SortedSource<T>> sources, Comparator<? super T> comparator ) throws KettleException {
+    this.sources = sources;
+    this.comparator = comparator;
+    k = sources.size();
+    heads = new Object[k];
+    tree = new int[Math.max( 1, k )];
+    Arrays.fill( tree, -1 );
+
+    for ( int i = 0; i < k; i++ ) {
+      heads[i] = sources.get( i ).next();
+    }
+    // The first source to reach a node waits there for the winner of the other subtree
+    //
+    for ( int i = k - 1; i >= 0; i-- ) {
+      int winner = i;
+      int node = ( i + k ) >> 1;
+      while ( node > 0 ) {
+        if ( tree[node] == -1 ) {
+          tree[node] = winner;
+          winner = -1;
+          break;
+        }
+        if ( beats( tree[node], winner ) ) {
+          int loser = winner;
+          winner = tree[node];
+          tree[node] = loser;
+        }
+        node >>= 1;
+      }
+      if ( winner != -1 ) {
+        tree[0] = winner;
+      }
+    }
+  }
+
+  /**
+   * @return the smallest element of all the sources, null when they are all exhausted
+   */
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public T next() throws KettleException {
+    if ( k == 0 ) {
+      return null;
+    }
+    int winner = tree[0];
+    T element = (T) heads[winner];
+    if ( element == null ) {
+      return null;
+    }
+    heads[winner] = sources.get( winner ).next();
+
+    for ( int node = ( winner + k ) >> 1; node > 0; node >>= 1 ) {
+      if ( beats( tree[node], winner ) ) {
+        int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = winner;
+    return element;
+  }
+
+  /**
+   * @return true if the current element of source a comes before the one of source b, exhausted sources come last
+   */
+  @SuppressWarnings( "unchecked" )
+  private boolean beats( int a, int b ) {
+    Object headA = heads[a];
+    Object headB = heads[b];
+    if ( headA == null ) {
+      return false;
+    }
+    if ( headB == null ) {
+      return true;
+    }
+    int cmp = comparator.compare( (T) headA, (T) headB );
+    return cmp < 0 || ( cmp == 0 && a < b );
+  }
+}
@@ -0,0 +1,663 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+
+/**
+ * Sorts the rows of the Sort Rows buffer on normalized keys.
+ * <p>
+ * The sort fields of every row are encoded once into a byte sequence that compares, byte by byte and unsigned, the
+ * same as {@link RowMetaInterface#compare(Object[], Object[], int[])} compares the rows: ascending or descending,
+ * nulls first, case insensitive or with a collator where the value metadata asks for it. The keys are stored back to
+ * back in a few large pages instead of as one object per row, and sorted with a radix sort on 8 byte chunks of the
+ * keys: the sort itself only touches primitive arrays and never calls into the value metadata.
+ * <p>
+ * Every field encoding is self-delimiting, so the key of a row is never a prefix of the key of another row with
+ * different values. The sort is stable, rows with equal keys keep the order they were added in, just like with
+ * {@link java.util.Collections#sort(List, java.util.Comparator)}.
+ */
+class NormalizedKeySorter {
+
+  /**
+   * The size of a page holding the encoded keys.
+   */
+  static final int PAGE_SIZE = 1 << 20;
+
+  /**
+   * Buffers with fewer rows than this are sorted in the calling thread only.
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /**
+   * Ranges with fewer rows than this are sorted with an insertion sort instead of a radix sort.
+   */
+  private static final int INSERTION_SORT_THRESHOLD = 48;
+
+  /**
+   * The memory the sort needs per row on top of its key: the address and length of the key, the row numbers and key
+   * chunks of the radix sort and their copies, and a reference in the array of rows.
+   */
+  static final int BYTES_PER_ROW = 8 + 4 + 2 * ( 4 + 8 ) + 8;
+
+  /**
+   * The number of rows the length of the keys is estimated on.
+   */
+  private static final int SAMPLE_SIZE = 100;
+
+  /**
+   * String.compareToIgnoreCase() folds the case of whole code points as of Java 16 and of single UTF-16 code units
+   * before that: the case insensitive keys follow whichever this runtime does.
+   */
+  private static final boolean FOLDS_CODE_POINTS = "\ud83d\ude00".compareToIgnoreCase( "\uffee" ) > 0;
+
+  private static final int NULL_VALUE = 0x00;
+  private static final int NOT_NULL_VALUE = 0x01;
+
+  private final ValueMetaInterface[] valueMetas;
+  private final int[] fieldNrs;
+
+  /**
+   * Per sort field, the collator to create the collation keys of strings with, or null.
+   */
+  private final Collator[] collators;
+
+  private final int parallelism;
+
+  NormalizedKeySorter( RowMetaInterface rowMeta, int[] fieldNrs ) {
+    this( rowMeta, fieldNrs, ForkJoinPool.getCommonPoolParallelism() );
+  }
+
+  NormalizedKeySorter( RowMetaInterface rowMeta, int[] fieldNrs, int parallelism ) {
+    this.fieldNrs = fieldNrs.clone();
+    this.parallelism = Math.max( 1, parallelism );
+    valueMetas = new ValueMetaInterface[fieldNrs.length];
+    collators = new Collator[fieldNrs.length];
+    for ( int i = 0; i < fieldNrs.length; i++ ) {
+      valueMetas[i] = rowMeta.getValueMeta( fieldNrs[i] );
+      if ( valueMetas[i].getType() == ValueMetaInterface.TYPE_STRING && !valueMetas[i].isCollatorDisabled() ) {
+        collators[i] = Collator.getInstance( valueMetas[i].getCollatorLocale() );
+        collators[i].setStrength( valueMetas[i].getCollatorStrength() );
+      }
+    }
+  }
+
+  /**
+   * @return true if the rows can be sorted on normalized keys of these fields: strings, integers, numbers, dates and
+   *         booleans in normal storage, compared the standard way for their data type.
+   */
+  static boolean isSupported( RowMetaInterface rowMeta, int[] fieldNrs ) {
+    if ( fieldNrs == null || fieldNrs.length == 0 ) {
+      return false;
+    }
+    for ( int fieldNr : fieldNrs ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( fieldNr );
+      if ( valueMeta == null || valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+        || !isComparedByType( valueMeta ) ) {
+        return false;
+      }
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+        case ValueMetaInterface.TYPE_INTEGER:
+        case ValueMetaInterface.TYPE_NUMBER:
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the value metadata compares values with the plain comparison of its data type, not with a custom
+   *         comparator or an overridden compare() method the keys can't reproduce.
+   */
+  private static boolean isComparedByType( ValueMetaInterface valueMeta ) {
+    if ( !( valueMeta instanceof ValueMetaBase ) || ( (ValueMetaBase) valueMeta ).getComparator() != null ) {
+      return false;
+    }
+    try {
+      return valueMeta.getClass().getMethod( "compare", Object.class, Object.class ).getDeclaringClass()
+        == ValueMetaBase.class;
+    } catch ( NoSuchMethodException e ) {
+      return false;
+    }
+  }
+
+  /**
+   * Estimate the memory the sort of these rows needs, on top of the rows themselves, from the keys of a sample of
+   * the rows.
+   *
+   * @param rows
+   *          the rows to sort, a random access list
+   * @return the estimated number of bytes
+   * @throws KettleValueException
+   *           in case a sort field value can't be read
+   */
+  long estimateMemory( List<Object[]> rows ) throws KettleValueException {
+    int nrRows = rows.size();
+    if ( nrRows < 2 ) {
+      return 0L;
+    }
+    KeyEncoder encoder = new KeyEncoder( null, null, 0, 0 );
+    int nrSamples = Math.min( nrRows, SAMPLE_SIZE );
+    long keyBytes = 0L;
+    for ( int i = 0; i < nrSamples; i++ ) {
+      encoder.position = 0;
+      encoder.encodeRow( rows.get( (int) ( (long) i * nrRows / nrSamples ) ) );
+      keyBytes += encoder.position;
+    }
+    long keyLength = ( keyBytes + nrSamples - 1 ) / nrSamples;
+
+    // Every encoder fills pages of its own, the last one is partly empty
+    //
+    return nrRows * ( BYTES_PER_ROW + keyLength ) + (long) parallelism * PAGE_SIZE;
+  }
+
+  /**
+   * Sort the rows in place.
+   *
+   * @param rows
+   *          the rows to sort, a random access list
+   * @throws KettleValueException
+   *           in case a sort field value can't be read
+   */
+  void sort( List<Object[]> rows ) throws KettleValueException {
+    int nrRows = rows.size();
+    if ( nrRows < 2 ) {
+      return;
+    }
+    Object[][] rowArray = rows.toArray( new Object[nrRows][] );
+    Keys keys = encode( rowArray );
+
+    Ranges ranges = new Ranges( keys, nrRows );
+    if ( nrRows >= PARALLEL_THRESHOLD && parallelism > 1 ) {
+      ranges.sortParallel();
+    } else {
+      ranges.sort( 0, nrRows, 0, false );
+    }
+
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.set( i, rowArray[ranges.order[i]] );
+    }
+  }
+
+  /**
+   * Encode the keys of all the rows, large buffers are encoded in parallel slices.
+   */
+  private Keys encode( Object[][] rows ) throws KettleValueException {
+    Keys keys = new Keys( rows.length );
+    int nrSlices = rows.length >= PARALLEL_THRESHOLD ? Math.min( parallelism, rows.length / PARALLEL_THRESHOLD ) : 1;
+    int sliceSize = ( rows.length + nrSlices - 1 ) / nrSlices;
+    List<KeyEncoder> encoders = new ArrayList<>( nrSlices );
+    for ( int from = 0; from < rows.length; from += sliceSize ) {
+      encoders.add( new KeyEncoder( keys, rows, from, Math.min( rows.length, from + sliceSize ) ) );
+    }
+
+    if ( encoders.size() == 1 ) {
+      encoders.get( 0 ).encode();
+    } else {
+      ForkJoinTask.invokeAll( encoders );
+      for ( KeyEncoder encoder : encoders ) {
+        if ( encoder.error != null ) {
+          throw encoder.error;
+        }
+      }
+    }
+
+    // Every encoder numbered its pages from 0, renumber them into one list of pages
+    //
+    for ( KeyEncoder encoder : encoders ) {
+      keys.addPages( encoder.pages, encoder.from, encoder.to );
+    }
+    return keys;
+  }
+
+  /**
+   * The encoded keys of all the rows of a buffer, kept back to back in pages.
+   */
+  private static final class Keys {
+    private byte[][] pages = new byte[0][];
+    private int nrPages;
+
+    /** Per row: the page number (high 32 bits) and offset in the page (low 32 bits) of the key. */
+    private final long[] address;
+
+    /** Per row: the length of the key. */
+    private final int[] length;
+
+    Keys( int nrRows ) {
+      address = new long[nrRows];
+      length = new int[nrRows];
+    }
+
+    /**
+     * Add the pages one encoder filled and renumber the addresses of the rows it encoded.
+     */
+    void addPages( List<byte[]> encoderPages, int from, int to ) {
+      int base = nrPages;
+      if ( base > 0 ) {
+        for ( int i = from; i < to; i++ ) {
+          address[i] += (long) base << 32;
+        }
+      }
+      if ( nrPages + encoderPages.size() > pages.length ) {
+        pages = Arrays.copyOf( pages, nrPages + encoderPages.size() );
+      }
+      for ( byte[] page : encoderPages ) {
+        pages[nrPages++] = page;
+      }
+    }
+
+    /**
+     * @return the 8 bytes of the key of the row that start at 8 * depth as an unsigned long, padded with zeros.
+     */
+    long chunk( int row, int depth ) {
+      int from = depth << 3;
+      int available = length[row] - from;
+      byte[] page = pages[(int) ( address[row] >>> 32 )];
+      int offset = (int) address[row] + from;
+      long chunk = 0L;
+      if ( available >= 8 ) {
+        for ( int i = 0; i < 8; i++ ) {
+          chunk = ( chunk << 8 ) | ( page[offset + i] & 0xFF );
+        }
+      } else {
+        for ( int i = 0; i < 8; i++ ) {
+          chunk = ( chunk << 8 ) | ( i < available ? page[offset + i] & 0xFF : 0 );
+        }
+      }
+      return chunk;
+    }
+
+    /**
+     * @return true if the key of the row continues after the chunk at the given depth
+     */
+    boolean continuesAfter( int row, int depth ) {
+      return length[row] > ( depth + 1 ) << 3;
+    }
+  }
+
+  /**
+   * The row numbers in sort order, sorted range by range on 8 byte chunks of their keys. Ranges of rows with equal
+   * chunks are sorted on the next chunk of their keys, until the keys end.
+   */
+  private static final class Ranges {
+    private final Keys keys;
+    private final int[] order;
+    private final long[] chunks;
+    private final int[] orderAux;
+    private final long[] chunksAux;
+
+    Ranges( Keys keys, int nrRows ) {
+      this.keys = keys;
+      order = new int[nrRows];
+      for ( int i = 0; i < nrRows; i++ ) {
+        order[i] = i;
+      }
+      chunks = new long[nrRows];
+      orderAux = new int[nrRows];
+      chunksAux = new long[nrRows];
+    }
+
+    /**
+     * Distribute the rows on the first byte of their keys, then sort the 256 ranges this gives in parallel.
+     */
+    void sortParallel() {
+      int nrRows = order.length;
+      int[] starts = new int[257];
+      for ( int i = 0; i < nrRows; i++ ) {
+        chunks[i] = keys.chunk( i, 0 );
+        starts[(int) ( chunks[i] >>> 56 ) + 1]++;
+      }
+      for ( int b = 0; b < 256; b++ ) {
+        starts[b + 1] += starts[b];
+      }
+      int[] next = Arrays.copyOf( starts, 256 );
+      for ( int i = 0; i < nrRows; i++ ) {
+        int index = next[(int) ( chunks[i] >>> 56 )]++;
+        chunksAux[index] = chunks[i];
+        orderAux[index] = i;
+      }
+      System.arraycopy( chunksAux, 0, chunks, 0, nrRows );
+      System.arraycopy( orderAux, 0, order, 0, nrRows );
+
+      List<RecursiveAction> tasks = new ArrayList<>();
+      for ( int b = 0; b < 256; b++ ) {
+        final int from = starts[b];
+        final int to = starts[b + 1];
+        if ( to - from > 1 ) {
+          tasks.add( new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+              sort( from, to, 0, true );
+            }
+          } );
+        }
+      }
+      ForkJoinTask.invokeAll( tasks );
+    }
+
+    /**
+     * Sort the rows from (inclusive) to (exclusive), starting at the given chunk of their keys.
+     *
+     * @param chunksLoaded
+     *          true if the chunks of this depth are already loaded for the range
+     */
+    void sort( int from, int to, int depth, boolean chunksLoaded ) {
+      int[] counts = new int[8 * 256];
+      int[] stack = new int[3 * 16];
+      int size = 0;
+      stack[size++] = from;
+      stack[size++] = to;
+      stack[size++] = depth;
+
+      boolean loaded = chunksLoaded;
+      while ( size > 0 ) {
+        int d = stack[--size];
+        int t = stack[--size];
+        int f = stack[--size];
+
+        if ( !loaded ) {
+          for ( int i = f; i < t; i++ ) {
+            chunks[i] = keys.chunk( order[i], d );
+          }
+        }
+        loaded = false;
+
+        if ( t - f < INSERTION_SORT_THRESHOLD ) {
+          insertionSort( f, t );
+        } else {
+          radixSort( f, t, counts );
+        }
+
+        // Rows with the same chunk need sorting on the rest of their keys, if there is a rest
+        //
+        int runStart = f;
+        for ( int i = f + 1; i <= t; i++ ) {
+          if ( i == t || chunks[i] != chunks[runStart] ) {
+            if ( i - runStart > 1 && keys.continuesAfter( order[runStart], d ) ) {
+              if ( size + 3 > stack.length ) {
+                stack = Arrays.copyOf( stack, stack.length * 2 );
+              }
+              stack[size++] = runStart;
+              stack[size++] = i;
+              stack[size++] = d + 1;
+            }
+            runStart = i;
+          }
+        }
+      }
+    }
+
+    /**
+     * A stable least significant digit radix sort of the chunks in the range, one byte at a time. Bytes that are the
+     * same for all the rows in the range are skipped.
+     */
+    private void radixSort( int from, int to, int[] counts ) {
+      int length = to - from;
+      Arrays.fill( counts, 0 );
+      for ( int i = from; i < to; i++ ) {
+        long chunk = chunks[i];
+        for ( int b = 0; b < 8; b++ ) {
+          counts[( b << 8 ) + (int) ( ( chunk >>> ( b << 3 ) ) & 0xFF )]++;
+        }
+      }
+
+      long[] sourceChunks = chunks;
+      int[] sourceOrder = order;
+      long[] targetChunks = chunksAux;
+      int[] targetOrder = orderAux;
+      for ( int b = 0; b < 8; b++ ) {
+        int base = b << 8;
+        int shift = b << 3;
+        if ( counts[base + (int) ( ( sourceChunks[from] >>> shift ) & 0xFF )] == length ) {
+          continue;
+        }
+        int position = from;
+        for ( int v = 0; v < 256; v++ ) {
+          int count = counts[base + v];
+          counts[base + v] = position;
+          position += count;
+        }
+        for ( int i = from; i < to; i++ ) {
+          long chunk = sourceChunks[i];
+          int index = counts[base + (int) ( ( chunk >>> shift ) & 0xFF )]++;
+          targetChunks[index] = chunk;
+          targetOrder[index] = sourceOrder[i];
+        }
+        long[] swapChunks = sourceChunks;
+        sourceChunks = targetChunks;
+        targetChunks = swapChunks;
+        int[] swapOrder = sourceOrder;
+        sourceOrder = targetOrder;
+        targetOrder = swapOrder;
+      }
+      if ( sourceChunks != chunks ) {
+        System.arraycopy( sourceChunks, from, chunks, from, length );
+        System.arraycopy( sourceOrder, from, order, from, length );
+      }
+    }
+
+    private void insertionSort( int from, int to ) {
+      for ( int i = from + 1; i < to; i++ ) {
+        long chunk = chunks[i];
+        int row = order[i];
+        int j = i - 1;
+        while ( j >= from && Long.compareUnsigned( chunks[j], chunk ) > 0 ) {
+          chunks[j + 1] = chunks[j];
+          order[j + 1] = order[j];
+          j--;
+        }
+        chunks[j + 1] = chunk;
+        order[j + 1] = row;
+      }
+    }
+  }
+
+  /**
+   * Encodes the keys of a slice of the rows into pages of its own.
+   */
+  private final class KeyEncoder extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Keys keys;
+    private final Object[][] rows;
+    private final int from;
+    private final int to;
+    private final Collator[] sliceCollators;
+    private final List<byte[]> pages = new ArrayList<>();
+
+    private byte[] page;
+    private int pagePosition;
+    private byte[] scratch = new byte[256];
+    private int position;
+
+    KettleValueException error;
+
+    KeyEncoder( Keys keys, Object[][] rows, int from, int to ) {
+      this.keys = keys;
+      this.rows = rows;
+      this.from = from;
+      this.to = to;
+      // Collators are not thread safe, every slice gets copies of its own
+      sliceCollators = new Collator[collators.length];
+      for ( int i = 0; i < collators.length; i++ ) {
+        sliceCollators[i] = collators[i] == null ? null : (Collator) collators[i].clone();
+      }
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        encode();
+      } catch ( KettleValueException e ) {
+        error = e;
+      }
+    }
+
+    void encode() throws KettleValueException {
+      for ( int i = from; i < to; i++ ) {
+        position = 0;
+        encodeRow( rows[i] );
+        store( i );
+      }
+    }
+
+    private void store( int row ) {
+      if ( page == null || pagePosition + position > page.length ) {
+        page = new byte[Math.max( PAGE_SIZE, position )];
+        pages.add( page );
+        pagePosition = 0;
+      }
+      System.arraycopy( scratch, 0, page, pagePosition, position );
+      keys.address[row] = ( (long) ( pages.size() - 1 ) << 32 ) | pagePosition;
+      keys.length[row] = position;
+      pagePosition += position;
+    }
+
+    private void encodeRow( Object[] row ) throws KettleValueException {
+      for ( int i = 0; i < fieldNrs.length; i++ ) {
+        ValueMetaInterface valueMeta = valueMetas[i];
+        Object value = row[fieldNrs[i]];
+        int start = position;
+        if ( valueMeta.isNull( value ) ) {
+          put( NULL_VALUE );
+        } else {
+          put( NOT_NULL_VALUE );
+          encodeValue( i, valueMeta, value );
+        }
+        if ( valueMeta.isSortedDescending() ) {
+          for ( int b = start; b < position; b++ ) {
+            scratch[b] = (byte) ~scratch[b];
+          }
+        }
+      }
+    }
+
+    private void encodeValue( int field, ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          putLong( valueMeta.getInteger( value ) ^ Long.MIN_VALUE );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          // Double.compare() order: flip the sign bit of positive numbers, all the bits of negative ones
+          long bits = Double.doubleToLongBits( valueMeta.getNumber( value ) );
+          putLong( bits < 0 ? ~bits : bits ^ Long.MIN_VALUE );
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+          putLong( valueMeta.getDate( value ).getTime() ^ Long.MIN_VALUE );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          put( valueMeta.getBoolean( value ) ? 1 : 0 );
+          break;
+        default:
+          encodeString( field, valueMeta, value );
+          break;
+      }
+    }
+
+    /**
+     * Strings are encoded escaping every 0x00 byte as 0x00 0xFF and terminated with 0x00 0x00, so that a string sorts
+     * before any longer string it is a prefix of.
+     */
+    private void encodeString( int field, ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+      String string = valueMeta.getString( value );
+      if ( valueMeta.isIgnoreWhitespace() ) {
+        string = string.trim();
+      }
+      Collator collator = sliceCollators[field];
+      if ( collator != null ) {
+        for ( byte b : collator.getCollationKey( string ).toByteArray() ) {
+          putEscaped( b & 0xFF );
+        }
+      } else if ( valueMeta.isCaseInsensitive() && FOLDS_CODE_POINTS ) {
+        // String.compareToIgnoreCase() compares code points folded to upper and then to lower case
+        for ( int i = 0; i < string.length(); ) {
+          int codePoint = string.codePointAt( i );
+          i += Character.charCount( codePoint );
+          int folded = Character.toLowerCase( Character.toUpperCase( codePoint ) );
+          putEscaped( ( folded >>> 16 ) & 0xFF );
+          putEscaped( ( folded >>> 8 ) & 0xFF );
+          putEscaped( folded & 0xFF );
+        }
+      } else if ( valueMeta.isCaseInsensitive() ) {
+        // String.compareToIgnoreCase() compares UTF-16 code units folded to upper and then to lower case
+        for ( int i = 0; i < string.length(); i++ ) {
+          char folded = Character.toLowerCase( Character.toUpperCase( string.charAt( i ) ) );
+          putEscaped( folded >>> 8 );
+          putEscaped( folded & 0xFF );
+        }
+      } else {
+        // String.compareTo() compares UTF-16 code units
+        for ( int i = 0; i < string.length(); i++ ) {
+          char c = string.charAt( i );
+          putEscaped( c >>> 8 );
+          putEscaped( c & 0xFF );
+        }
+      }
+      put( 0x00 );
+      put( 0x00 );
+    }
+
+    private void putEscaped( int b ) {
+      put( b );
+      if ( b == 0 ) {
+        put( 0xFF );
+      }
+    }
+
+    private void putLong( long value ) {
+      ensureCapacity( 8 );
+      for ( int shift = 56; shift >= 0; shift -= 8 ) {
+        scratch[position++] = (byte) ( value >>> shift );
+      }
+    }
+
+    private void put( int b ) {
+      ensureCapacity( 1 );
+      scratch[position++] = (byte) b;
+    }
+
+    private void ensureCapacity( int extra ) {
+      if ( position + extra > scratch.length ) {
+        scratch = Arrays.copyOf( scratch, Math.max( scratch.length * 2, position + extra ) );
+      }
+    }
+  }
+}
@@ -24,7 +24,10 @@ package org.pentaho.di.trans.steps.sort;
 
 /**
  * Keeps track of which temporary file a row is coming from
+ *
+ * @deprecated no longer used by the Sort Rows step, which merges its temporary files with a {@link LoserTree}
  */
+@Deprecated
 public class RowTempFile {
   public Object[] row;
   public int fileNumber;
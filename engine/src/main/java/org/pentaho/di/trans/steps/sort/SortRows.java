@@ -22,29 +22,24 @@
 
 package org.pentaho.di.trans.steps.sort;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.vfs2.FileObject;
-import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
 import org.pentaho.di.core.exception.KettleException;
-import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.util.ExecutorUtil;
+import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -64,6 +59,16 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 public class SortRows extends BaseStep implements StepInterface {
   private static Class<?> PKG = SortRows.class; // for i18n
 
+  /**
+   * The compression of the temp files, when they are compressed, unless set with KETTLE_SORT_SPILL_COMPRESSION.
+   */
+  static final String DEFAULT_SPILL_COMPRESSION = "Snappy";
+
+  /**
+   * The number of temp files merged at once, unless set with KETTLE_SORT_MAX_MERGE_FILES.
+   */
+  static final int DEFAULT_MAX_MERGE_FILES = 128;
+
   private SortRowsMeta meta;
   private SortRowsData data;
 
@@ -91,7 +96,7 @@ public class SortRows extends BaseStep implements StepInterface {
     //
     data.freeCounter++;
     if ( data.sortSize <= 0 && data.freeCounter >= 1000 ) {
-      data.freeMemoryPct = Const.getPercentageFreeMemory();
+      data.freeMemoryPct = getPercentageFreeMemory();
       data.freeCounter = 0;
 
       if ( log.isDetailed() ) {
@@ -120,256 +125,184 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
-  // dump sorted rows from in-memory buffer to fs file
-  // clean current buffer
+  // sort the rows of the in-memory buffer and write them to a temp file in the background,
+  // the step goes on filling a new buffer in the meantime
   void sortExternalRows() throws KettleException {
     // we just recently dump buffer - but there is no new rows came.
     if ( data.buffer.isEmpty() ) {
       return;
     }
 
-    // First sort the rows in buffer[]
-    quickSort( data.buffer );
+    // One buffer is written at a time: we hold at most the buffer being written and the one being filled
+    //
+    waitForSpill();
 
-    // Then write them to disk...
-    DataOutputStream dos;
-    GZIPOutputStream gzos;
-    int p;
+    final List<Object[]> rows = data.buffer;
+    data.buffer = new ArrayList<Object[]>( rows.size() );
 
-    try {
-      FileObject fileObject =
-          KettleVFS.createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ),
-              getTransMeta() );
+    final SpillFile spillFile = createSpillFile();
+    data.spillFiles.add( spillFile ); // Remember the files!
+    data.files.add( spillFile.getFile() );
 
-      data.files.add( fileObject ); // Remember the files!
-      OutputStream outputStream = KettleVFS.getOutputStream( fileObject, false );
-      if ( data.compressFiles ) {
-        gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
-        dos = new DataOutputStream( gzos );
-      } else {
-        dos = new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
-        gzos = null;
-      }
-
-      // Just write the data, nothing else
-      List<Integer> duplicates = new ArrayList<Integer>();
-      Object[] previousRow = null;
-      if ( meta.isOnlyPassingUniqueRows() ) {
-        int index = 0;
-        while ( index < data.buffer.size() ) {
-          Object[] row = data.buffer.get( index );
-          if ( previousRow != null ) {
-            int result = data.outputRowMeta.compare( row, previousRow, data.fieldnrs );
-            if ( result == 0 ) {
-              duplicates.add( index );
-              if ( log.isRowLevel() ) {
-                logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
-                    .getString( row ) ) );
-              }
-            }
-          }
-          index++;
-          previousRow = row;
-        }
-      }
+    if ( data.sortSize < 0 ) {
+      if ( rows.size() > data.minSortSize ) {
+        data.minSortSize = rows.size(); // if we did it once, we can do it again.
 
-      // How many records do we have left?
-      data.bufferSizes.add( data.buffer.size() - duplicates.size() );
-
-      int duplicatesIndex = 0;
-      for ( p = 0; p < data.buffer.size(); p++ ) {
-        boolean skip = false;
-        if ( duplicatesIndex < duplicates.size() ) {
-          if ( p == duplicates.get( duplicatesIndex ) ) {
-            skip = true;
-            duplicatesIndex++;
-          }
-        }
-        if ( !skip ) {
-          data.outputRowMeta.writeData( dos, data.buffer.get( p ) );
-        }
+        // Memory usage goes up over time, even with garbage collection
+        // We need pointers, file handles, etc.
+        // As such, we're going to lower the min sort size a bit
+        //
+        data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
       }
+    }
 
-      if ( data.sortSize < 0 ) {
-        if ( data.buffer.size() > data.minSortSize ) {
-          data.minSortSize = data.buffer.size(); // if we did it once, we can do
-                                                 // it again.
+    data.pendingSpill = ExecutorUtil.getExecutor().submit( () -> {
+      // First sort the rows, then write them to disk
+      quickSort( rows );
+      long written = spillFile.write( sortedRows( rows ) );
+      rows.clear();
+      return written;
+    } );
 
-          // Memory usage goes up over time, even with garbage collection
-          // We need pointers, file handles, etc.
-          // As such, we're going to lower the min sort size a bit
-          //
-          data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
-        }
+    // How much memory do we have left?
+    //
+    data.freeMemoryPct = getPercentageFreeMemory();
+    data.freeCounter = 0;
+    if ( data.sortSize <= 0 ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
       }
+    }
 
-      // Clear the list
-      data.buffer.clear();
-
-      // Close temp-file
-      dos.close(); // close data stream
-      if ( gzos != null ) {
-        gzos.close(); // close gzip stream
-      }
-      outputStream.close(); // close file stream
+    data.getBufferIndex = 0;
+  }
 
-      // How much memory do we have left?
-      //
-      data.freeMemoryPct = Const.getPercentageFreeMemory();
-      data.freeCounter = 0;
-      if ( data.sortSize <= 0 ) {
-        if ( log.isDetailed() ) {
-          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
+  // the rows of a sorted buffer, without the duplicates if only unique rows are passed
+  private SortedSource<Object[]> sortedRows( List<Object[]> rows ) {
+    final Iterator<Object[]> iterator = rows.iterator();
+    if ( !meta.isOnlyPassingUniqueRows() ) {
+      return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+    return new SortedSource<Object[]>() {
+      private Object[] previousRow;
+
+      @Override
+      public Object[] next() throws KettleException {
+        while ( iterator.hasNext() ) {
+          Object[] row = iterator.next();
+          boolean duplicate = previousRow != null && data.outputRowMeta.compare( row, previousRow, data.fieldnrs ) == 0;
+          previousRow = row;
+          if ( !duplicate ) {
+            return row;
+          }
+          if ( log.isRowLevel() ) {
+            logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
+                .getString( row ) ) );
+          }
         }
+        return null;
       }
+    };
+  }
 
+  private SpillFile createSpillFile() throws KettleException {
+    try {
+      FileObject fileObject =
+          KettleVFS.createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ),
+              getTransMeta() );
+      return new SpillFile( fileObject, data.outputRowMeta, data.compressFiles, data.compressionProvider );
     } catch ( Exception e ) {
       throw new KettleException( "Error processing temp-file!", e );
     }
-
-    data.getBufferIndex = 0;
   }
 
-  private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
-    DataInputStream result = new DataInputStream( gzipInputStream );
-    data.gzis.add( gzipInputStream );
-    return result;
+  /**
+   * Wait until the temp file that is written in the background is complete.
+   *
+   * @throws KettleException
+   *           in case writing the file failed
+   */
+  private void waitForSpill() throws KettleException {
+    Future<Long> pendingSpill = data.pendingSpill;
+    if ( pendingSpill == null ) {
+      return;
+    }
+    data.pendingSpill = null;
+    try {
+      pendingSpill.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while writing a temp-file", e );
+    } catch ( ExecutionException e ) {
+      throw new KettleException( "Error processing temp-file!", e.getCause() );
+    }
   }
 
-  // get sorted rows from available files in iterative manner.
-  // that means call to this method will continue to return rows
-  // till all temp files will not be read to the end.
-  Object[] getBuffer() throws KettleValueException {
-    Object[] retval;
+  /**
+   * Open the temp files for the final merge. If there are more files than we may have open at once, the oldest ones
+   * are merged into a single file first, as often as needed.
+   */
+  private void openMerge() throws KettleException {
+    waitForSpill();
 
-    // Open all files at once and read one row from each file...
-    if ( data.files.size() > 0 && ( data.dis.size() == 0 || data.fis.size() == 0 ) ) {
-      if ( log.isBasic() ) {
-        logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
+    while ( data.spillFiles.size() > data.maxMergeFiles ) {
+      // Merge just enough files to end up with the maximum for the final merge
+      //
+      int nrFiles = Math.min( data.maxMergeFiles, data.spillFiles.size() - data.maxMergeFiles + 1 );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.IntermediateMerge", nrFiles,
+            data.spillFiles.size() ) );
       }
-
+      List<SpillFile> oldest = data.spillFiles.subList( 0, nrFiles );
+      SpillFile merged = createSpillFile();
       try {
-        for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
-          FileObject fileObject = data.files.get( f );
-          String filename = KettleVFS.getFilename( fileObject );
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
-          }
-          InputStream fi = KettleVFS.getInputStream( fileObject );
-          DataInputStream di;
-          data.fis.add( fi );
-          if ( data.compressFiles ) {
-            di = getDataInputStream( new GZIPInputStream( new BufferedInputStream( fi ) ) );
-          } else {
-            di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
-          }
-          data.dis.add( di );
-
-          // How long is the buffer?
-          int buffersize = data.bufferSizes.get( f );
-
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
-                filename, buffersize ) );
-          }
+        merged.write( mergeOf( oldest ) );
+      } catch ( KettleException e ) {
+        merged.delete();
+        throw e;
+      }
+      oldest.clear();
+      data.spillFiles.add( 0, merged );
+      data.files.subList( 0, nrFiles ).clear();
+      data.files.add( 0, merged.getFile() );
+    }
 
-          if ( buffersize > 0 ) {
-            Object[] row = data.outputRowMeta.readData( di );
-            data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
-          }
-        }
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.spillFiles.size() ) );
+    }
+    data.merge = mergeOf( data.spillFiles );
+  }
 
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
-      } catch ( Exception e ) {
-        logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
+  private LoserTree<Object[]> mergeOf( List<SpillFile> spillFiles ) throws KettleException {
+    for ( SpillFile spillFile : spillFiles ) {
+      if ( log.isDetailed() ) {
+        String filename = KettleVFS.getFilename( spillFile.getFile() );
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows", filename,
+            spillFile.getNrRows() ) );
       }
+      spillFile.open();
     }
+    return new LoserTree<Object[]>( spillFiles, data.rowComparator );
+  }
 
-    if ( data.files.size() == 0 ) {
+  // get sorted rows from available files in iterative manner.
+  // that means call to this method will continue to return rows
+  // till all temp files will not be read to the end.
+  Object[] getBuffer() throws KettleException {
+    if ( data.spillFiles.isEmpty() ) {
       // read from in-memory processing
-
       if ( data.getBufferIndex < data.buffer.size() ) {
-        retval = data.buffer.get( data.getBufferIndex );
-        data.getBufferIndex++;
-      } else {
-        retval = null;
+        return data.buffer.get( data.getBufferIndex++ );
       }
-    } else {
-      // read from disk processing
-
-      if ( data.rowbuffer.size() == 0 ) {
-        retval = null;
-      } else {
-        // We now have "filenr" rows waiting: which one is the smallest?
-        //
-        if ( log.isRowLevel() ) {
-          for ( int i = 0; i < data.rowbuffer.size() && !isStopped(); i++ ) {
-            Object[] b = data.rowbuffer.get( i );
-            logRowlevel( BaseMessages
-                .getString( PKG, "SortRows.RowLevel.PrintRow", i, data.outputRowMeta.getString( b ) ) );
-          }
-        }
-
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
-        retval = rowTempFile.row;
-        int smallest = rowTempFile.fileNumber;
-
-        // now get another Row for position smallest
-
-        FileObject file = data.files.get( smallest );
-        DataInputStream di = data.dis.get( smallest );
-        InputStream fi = data.fis.get( smallest );
-
-        try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
-        } catch ( KettleFileException fe ) { // empty file or EOF mostly
-          GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
-          try {
-            di.close();
-            fi.close();
-            if ( gzfi != null ) {
-              gzfi.close();
-            }
-            file.delete();
-          } catch ( IOException e ) {
-            logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", smallest, file.toString() ) );
-            setErrors( 1 );
-            stopAll();
-            return null;
-          }
-
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
-
-          if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
+      return null;
+    }
 
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
-          //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
-          }
-        } catch ( SocketTimeoutException e ) {
-          throw new KettleValueException( e ); // should never happen on local files
-        }
-      }
+    // read from disk processing: merge the sorted temp files
+    if ( data.merge == null ) {
+      openMerge();
     }
-    return retval;
+    return data.merge.next();
   }
 
   @Override
@@ -418,7 +351,6 @@ public class SortRows extends BaseStep implements StepInterface {
       // Metadata
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields( data.outputRowMeta, getStepname(), null, null, this, repository, metaStore );
-      data.comparator = new RowTemapFileComparator( data.outputRowMeta, data.fieldnrs );
 
       for ( int i = 0; i < fieldNames.length; i++ ) {
         data.fieldnrs[i] = inputRowMeta.indexOfValue( fieldNames[i] );
@@ -438,6 +370,12 @@ public class SortRows extends BaseStep implements StepInterface {
         i++;
       }
       data.rowComparator = new RowObjectArrayComparator( data.outputRowMeta, data.fieldnrs );
+
+      // Sort on normalized keys when all the sort fields can be encoded that way
+      //
+      if ( isSortingOnNormalizedKeys() && NormalizedKeySorter.isSupported( data.outputRowMeta, data.fieldnrs ) ) {
+        data.normalizedKeySorter = new NormalizedKeySorter( data.outputRowMeta, data.fieldnrs );
+      }
     } // end if first
 
     // it is not first row and it is null
@@ -501,7 +439,7 @@ public class SortRows extends BaseStep implements StepInterface {
     Object[] previousRow = null;
 
     // log time spent for external merge (expected time consuming operation)
-    if ( log.isDebug() && !data.files.isEmpty() ) {
+    if ( log.isDebug() && !data.spillFiles.isEmpty() ) {
       this.logDebug( BaseMessages.getString( PKG, "SortRows.Debug.ExternalMergeStarted" ) );
     }
 
@@ -534,7 +472,7 @@ public class SortRows extends BaseStep implements StepInterface {
       r = getBuffer();
     }
 
-    if ( log.isDebug() && !data.files.isEmpty() ) {
+    if ( log.isDebug() && !data.spillFiles.isEmpty() ) {
       this.logDebug( BaseMessages.getString( PKG, "SortRows.Debug.ExternalMergeFinished" ) );
     }
 
@@ -570,13 +508,14 @@ public class SortRows extends BaseStep implements StepInterface {
     //
     data.buffer = new ArrayList<Object[]>( 5000 );
 
-    // Buffer for reading from disk
-    //
-    data.rowbuffer = new ArrayList<Object[]>( 5000 );
-
     data.compressFiles = getBooleanValueOfVariable( meta.getCompressFilesVariable(), meta.getCompressFiles() );
-
-    data.tempRows = new ArrayList<RowTempFile>();
+    if ( data.compressFiles ) {
+      // GZIP is used if the compression provider isn't available
+      data.compressionProvider = CompressionProviderFactory.getInstance().getCompressionProviderByName(
+          Const.NVL( getVariable( Const.KETTLE_SORT_SPILL_COMPRESSION ), DEFAULT_SPILL_COMPRESSION ) );
+    }
+    data.maxMergeFiles =
+        Math.max( 2, Const.toInt( getVariable( Const.KETTLE_SORT_MAX_MERGE_FILES ), DEFAULT_MAX_MERGE_FILES ) );
 
     data.minSortSize = 5000;
 
@@ -594,39 +533,76 @@ public class SortRows extends BaseStep implements StepInterface {
     // Clean out the sort buffer
     data.buffer.clear();
     data.getBufferIndex = 0;
-    data.rowbuffer.clear();
 
-    // close any open DataInputStream objects
-    if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
-      for ( DataInputStream dis : data.dis ) {
-        BaseStep.closeQuietly( dis );
-      }
-    }
-    // close any open InputStream objects
-    if ( ( data.fis != null ) && ( data.fis.size() > 0 ) ) {
-      for ( InputStream is : data.fis ) {
-        BaseStep.closeQuietly( is );
-      }
+    // wait for a temp file that is still being written, then remove all temp files
+    try {
+      waitForSpill();
+    } catch ( KettleException e ) {
+      logError( e.getLocalizedMessage(), e );
     }
-    // remove temp files
-    for ( int f = 0; f < data.files.size(); f++ ) {
-      FileObject fileToDelete = data.files.get( f );
+    data.merge = null;
+    for ( SpillFile spillFile : data.spillFiles ) {
       try {
-        if ( fileToDelete != null && fileToDelete.exists() ) {
-          fileToDelete.delete();
-        }
-      } catch ( FileSystemException e ) {
+        spillFile.delete();
+      } catch ( KettleException e ) {
         logError( e.getLocalizedMessage(), e );
       }
     }
+    data.spillFiles.clear();
+    data.files.clear();
+  }
+
+  /**
+   * @return true unless sorting on normalized keys is switched off with the KETTLE_SORT_NORMALIZED_KEYS variable
+   */
+  private boolean isSortingOnNormalizedKeys() {
+    String value = getVariable( Const.KETTLE_SORT_NORMALIZED_KEYS );
+    return Utils.isEmpty( value ) || ValueMetaString.convertStringToBoolean( value );
   }
 
   /**
    * Sort the entire vector, if it is not empty.
    */
+  /**
+   * The normalized key sort needs memory of its own for the keys. When it sorts the buffer, the buffer is full: the
+   * free memory that is left is the free memory less what the sort will need.
+   *
+   * @return the percentage of free memory once the buffer is sorted
+   */
+  private int getPercentageFreeMemory() throws KettleException {
+    int freeMemoryPct = Const.getPercentageFreeMemory();
+    if ( data.normalizedKeySorter != null && data.freeMemoryPctLimit > 0 ) {
+      long sortMemory = data.normalizedKeySorter.estimateMemory( data.buffer );
+      freeMemoryPct -= (int) Math.round( 100 * (double) sortMemory / Runtime.getRuntime().maxMemory() );
+    }
+    return freeMemoryPct;
+  }
+
+  /**
+   * @return true if the memory the normalized key sort of the rows needs is free, if not the rows are sorted with the
+   *         row comparator that needs no memory of its own
+   */
+  private boolean isNormalizedKeySortFitting( List<Object[]> rows ) throws KettleException {
+    Runtime runtime = Runtime.getRuntime();
+    long freeMemory = runtime.freeMemory() + runtime.maxMemory() - runtime.totalMemory();
+    long sortMemory = data.normalizedKeySorter.estimateMemory( rows );
+    if ( sortMemory <= freeMemory ) {
+      return true;
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.NormalizedKeySortSkipped", rows.size(),
+          sortMemory / 1024 / 1024, freeMemory / 1024 / 1024 ) );
+    }
+    return false;
+  }
+
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      if ( data.normalizedKeySorter != null && isNormalizedKeySortFitting( elements ) ) {
+        data.normalizedKeySorter.sort( elements );
+      } else {
+        Collections.sort( elements, data.rowComparator );
+      }
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -651,7 +627,7 @@ public class SortRows extends BaseStep implements StepInterface {
   }
 
   private void preSortBeforeFlush() throws KettleException {
-    if ( data.files.size() > 0 ) {
+    if ( !data.spillFiles.isEmpty() ) {
       // dump to dist and then read from disk
       sortExternalRows();
     } else {
@@ -687,22 +663,6 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
-  private class RowTemapFileComparator extends SortRowsComparator implements Comparator<RowTempFile> {
-    RowTemapFileComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
-    }
-
-    @Override
-    public int compare( RowTempFile o1, RowTempFile o2 ) {
-      try {
-        return rowMeta.compare( o1.row, o2.row, fieldNrs );
-      } catch ( KettleValueException e ) {
-        logError( "Error comparing rows: " + e.toString() );
-        return 0;
-      }
-    }
-  }
-
   private class RowObjectArrayComparator extends SortRowsComparator implements Comparator<Object[]> {
     RowObjectArrayComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
       super( rowMeta, fieldNrs );
@@ -27,9 +27,11 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.compress.CompressionProvider;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -39,20 +41,70 @@ import org.pentaho.di.trans.step.StepDataInterface;
  * @since 24-jan-2005
  */
 public class SortRowsData extends BaseStepData implements StepDataInterface {
+  /**
+   * The temp files, in the order they are merged.
+   *
+   * @deprecated the step keeps its temp files in {@link #spillFiles}, this list only mirrors them
+   */
+  @Deprecated
   public List<FileObject> files;
   public List<Object[]> buffer;
   public int getBufferIndex;
 
+  /**
+   * @deprecated no longer used, the temp files are read by {@link SpillFile}
+   */
+  @Deprecated
   public List<InputStream> fis;
+
+  /**
+   * @deprecated no longer used, the temp files are read by {@link SpillFile}
+   */
+  @Deprecated
   public List<GZIPInputStream> gzis;
+
+  /**
+   * @deprecated no longer used, the temp files are read by {@link SpillFile}
+   */
+  @Deprecated
   public List<DataInputStream> dis;
+
+  /**
+   * @deprecated no longer used, the head rows of the temp files are kept by {@link LoserTree}
+   */
+  @Deprecated
   public List<Object[]> rowbuffer;
+
+  /**
+   * @deprecated no longer used, see {@link SpillFile#getNrRows()}
+   */
+  @Deprecated
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
+  /**
+   * @deprecated no longer used, the head rows of the temp files are kept by {@link LoserTree}
+   */
+  @Deprecated
   public List<RowTempFile> tempRows;
 
+  // The sorted runs written to temp files, in the order they were written
+  List<SpillFile> spillFiles;
+
+  // The run that is being sorted and written in the background
+  Future<Long> pendingSpill;
+
+  // Merges the rows of the temp files
+  LoserTree<Object[]> merge;
+
+  CompressionProvider compressionProvider;
+  int maxMergeFiles;
+
   public int[] fieldnrs; // the corresponding field numbers;
+
+  /**
+   * @deprecated no longer used
+   */
+  @Deprecated
   public FileObject fil;
   public RowMetaInterface outputRowMeta;
   public int sortSize;
@@ -60,8 +112,8 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
-  Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
+  NormalizedKeySorter normalizedKeySorter;
 
   public int freeCounter;
   public int freeMemoryPct;
@@ -79,11 +131,15 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public SortRowsData() {
     super();
 
+    spillFiles = new ArrayList<SpillFile>();
+
     files = new ArrayList<FileObject>();
     fis = new ArrayList<InputStream>();
     gzis = new ArrayList<GZIPInputStream>();
     dis = new ArrayList<DataInputStream>();
+    rowbuffer = new ArrayList<Object[]>();
     bufferSizes = new ArrayList<Integer>();
+    tempRows = new ArrayList<RowTempFile>();
 
     previous = null; // Heroic
   }
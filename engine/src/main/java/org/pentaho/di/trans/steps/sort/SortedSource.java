@@ -0,0 +1,39 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import org.pentaho.di.core.exception.KettleException;
+
+/**
+ * A source of elements that come in sorted order, like the rows of a temp file of the Sort Rows step.
+ *
+ * @param <T>
+ *          the type of the elements
+ */
+interface SortedSource<T> {
+
+  /**
+   * @return the next element or null if the source is exhausted
+   */
+  T next() throws KettleException;
+}
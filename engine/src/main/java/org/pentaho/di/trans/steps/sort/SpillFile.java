@@ -0,0 +1,187 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * A sorted run of rows written by the Sort Rows step to a temporary file. The file is written once, then read back
+ * once as one of the sources of a merge and deleted as soon as all its rows are read.
+ */
+class SpillFile implements SortedSource<Object[]> {
+
+  private static final int OUTPUT_BUFFER_SIZE = 500000;
+  private static final int INPUT_BUFFER_SIZE = 50000;
+
+  private final FileObject file;
+  private final RowMetaInterface rowMeta;
+  private final boolean compressed;
+  private final CompressionProvider compressionProvider;
+
+  private volatile long nrRows;
+  private long remaining;
+  private InputStream input;
+  private DataInputStream dataInput;
+
+  /**
+   * @param file
+   *          the temporary file
+   * @param rowMeta
+   *          the layout of the rows
+   * @param compressed
+   *          true to compress the file
+   * @param compressionProvider
+   *          the compression to use, or null for GZIP
+   */
+  SpillFile( FileObject file, RowMetaInterface rowMeta, boolean compressed, CompressionProvider compressionProvider ) {
+    this.file = file;
+    this.rowMeta = rowMeta;
+    this.compressed = compressed;
+    this.compressionProvider = compressionProvider;
+  }
+
+  FileObject getFile() {
+    return file;
+  }
+
+  /**
+   * @return the number of rows written to the file
+   */
+  long getNrRows() {
+    return nrRows;
+  }
+
+  /**
+   * Write the rows of a source to the file.
+   *
+   * @param rows
+   *          the sorted rows
+   * @return the number of rows written
+   */
+  long write( SortedSource<Object[]> rows ) throws KettleException {
+    long written = 0L;
+    try ( DataOutputStream output = openOutput() ) {
+      for ( Object[] row = rows.next(); row != null; row = rows.next() ) {
+        rowMeta.writeData( output, row );
+        written++;
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( "Error writing temp-file " + file, e );
+    }
+    nrRows = written;
+    return written;
+  }
+
+  private DataOutputStream openOutput() throws IOException, KettleFileException {
+    OutputStream output = KettleVFS.getOutputStream( file, false );
+    if ( compressed ) {
+      output = new BufferedOutputStream( output );
+      output = compressionProvider != null ? compressionProvider.createOutputStream( output )
+        : new GZIPOutputStream( output );
+    }
+    return new DataOutputStream( new BufferedOutputStream( output, OUTPUT_BUFFER_SIZE ) );
+  }
+
+  /**
+   * Open the file to read the rows back with {@link #next()}.
+   */
+  void open() throws KettleException {
+    try {
+      input = KettleVFS.getInputStream( file );
+      InputStream in = input;
+      if ( compressed ) {
+        in = new BufferedInputStream( in );
+        in = compressionProvider != null ? compressionProvider.createInputStream( in ) : new GZIPInputStream( in );
+      }
+      dataInput = new DataInputStream( new BufferedInputStream( in, INPUT_BUFFER_SIZE ) );
+      remaining = nrRows;
+    } catch ( IOException e ) {
+      close();
+      throw new KettleException( "Error opening temp-file " + file, e );
+    }
+  }
+
+  /**
+   * @return the next row of the file, null after the last one: the file is deleted then
+   */
+  @Override
+  public Object[] next() throws KettleException {
+    if ( remaining <= 0 ) {
+      delete();
+      return null;
+    }
+    try {
+      Object[] row = rowMeta.readData( dataInput );
+      remaining--;
+      return row;
+    } catch ( KettleFileException | SocketTimeoutException e ) {
+      throw new KettleException( "Error reading back temp-file " + file, e );
+    }
+  }
+
+  /**
+   * Close the file if it's open.
+   */
+  void close() {
+    BaseStep.closeQuietly( dataInput );
+    BaseStep.closeQuietly( input );
+    dataInput = null;
+    input = null;
+    remaining = 0;
+  }
+
+  /**
+   * Close and delete the file.
+   *
+   * @throws KettleException
+   *           if the file can't be deleted
+   */
+  void delete() throws KettleException {
+    close();
+    try {
+      if ( file.exists() ) {
+        file.delete();
+      }
+    } catch ( FileSystemException e ) {
+      throw new KettleException( "Unable to delete temp-file " + file, e );
+    }
+  }
+}
@@ -32,6 +32,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.CompactRowHashIndex;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -321,11 +322,19 @@ public class StreamLookup extends BaseStep implements StepInterface {
           Long value = valueMeta.getInteger( valueData, 0 );
           data.longIndex.put( key, value );
         } else {
-          if ( data.hashIndex == null ) {
-            data.hashIndex = new ByteArrayHashIndex( keyMeta );
+          if ( data.compactIndex == null && data.hashIndex == null ) {
+            if ( CompactRowHashIndex.isSupported( keyMeta ) ) {
+              data.compactIndex = new CompactRowHashIndex( keyMeta, valueMeta );
+            } else {
+              data.hashIndex = new ByteArrayHashIndex( keyMeta );
+            }
+          }
+          if ( data.compactIndex != null ) {
+            data.compactIndex.put( keyData, valueData );
+          } else {
+            data.hashIndex
+              .put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
           }
-          data.hashIndex
-            .put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
         }
       }
     } else {
@@ -353,6 +362,8 @@ public class StreamLookup extends BaseStep implements StepInterface {
             return null;
           }
           return new Object[] { value, };
+        } else if ( data.compactIndex != null ) {
+          return data.compactIndex.get( keyData );
         } else {
           try {
             byte[] value = data.hashIndex.get( RowMeta.extractData( keyMeta, keyData ) );
@@ -482,6 +493,7 @@ public class StreamLookup extends BaseStep implements StepInterface {
     data.look = null;
     data.list = null;
     data.hashIndex = null;
+    data.compactIndex = null;
     data.longIndex = null;
 
     super.dispose( smi, sdi );
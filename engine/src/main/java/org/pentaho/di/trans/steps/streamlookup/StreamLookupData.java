@@ -31,6 +31,7 @@ import java.util.Map;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.CompactRowHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -74,6 +75,9 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
 
+  /** The index used to preserve memory, unless the key types need {@link #hashIndex} */
+  public CompactRowHashIndex compactIndex;
+
   public RowMetaInterface lookupMeta;
 
   public RowMetaInterface infoMeta;
@@ -0,0 +1,272 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+
+import org.pentaho.di.core.util.ExecutorUtil;
+
+/**
+ * A buffered output stream that hands its full buffers to a background thread, which writes them to the underlying
+ * stream. Compression and file I/O then run while the step formats the next rows. At most a fixed number of buffers
+ * is in use, so a writer that is faster than the disk blocks until a buffer is written.
+ * <p>
+ * The stream is meant to be written from a single thread. Errors of the background writes are thrown by the next
+ * write, flush or close. The buffers are released once a flush has written them, so a stream that is kept open
+ * without data, like one of many split files, doesn't hold on to them.
+ */
+public class AsyncBufferedOutputStream extends BufferedOutputStream {
+
+  private static class Block {
+    private final byte[] data;
+    private final int length;
+
+    private Block( byte[] data, int length ) {
+      this.data = data;
+      this.length = length;
+    }
+  }
+
+  private final Executor executor;
+  private final int bufferSize;
+  private final int maxBuffers;
+
+  private final Object lock = new Object();
+  private final Deque<Block> pending = new ArrayDeque<>();
+  private final Deque<byte[]> free = new ArrayDeque<>();
+  private int allocated;
+  private boolean draining;
+  private Throwable failure;
+  private boolean closed;
+
+  /**
+   * @param out        the stream to write to in the background
+   * @param bufferSize the size of the buffers
+   * @param queued     the number of full buffers that can wait to be written
+   */
+  public AsyncBufferedOutputStream( OutputStream out, int bufferSize, int queued ) {
+    this( out, bufferSize, queued, ExecutorUtil.getExecutor() );
+  }
+
+  AsyncBufferedOutputStream( OutputStream out, int bufferSize, int queued, Executor executor ) {
+    super( out, 1 );
+    if ( bufferSize <= 0 || queued <= 0 ) {
+      throw new IllegalArgumentException( "Buffer size and queued buffers must be positive" );
+    }
+    this.executor = executor;
+    this.bufferSize = bufferSize;
+    this.maxBuffers = queued + 1;
+    // Buffers are allocated on the first write, a stream that is kept open without data doesn't hold one
+    //
+    buf = null;
+    count = 0;
+  }
+
+  @Override
+  public synchronized void write( int b ) throws IOException {
+    if ( buf == null ) {
+      buf = acquire();
+    }
+    buf[count++] = (byte) b;
+    if ( count == buf.length ) {
+      handOff();
+    }
+  }
+
+  @Override
+  public synchronized void write( byte[] b, int off, int len ) throws IOException {
+    if ( ( off | len | ( off + len ) | ( b.length - ( off + len ) ) ) < 0 ) {
+      throw new IndexOutOfBoundsException();
+    }
+    while ( len > 0 ) {
+      if ( buf == null ) {
+        buf = acquire();
+      }
+      int n = Math.min( len, buf.length - count );
+      System.arraycopy( b, off, buf, count, n );
+      count += n;
+      off += n;
+      len -= n;
+      if ( count == buf.length ) {
+        handOff();
+      }
+    }
+  }
+
+  /**
+   * Writes all buffered data to the underlying stream and flushes it. This waits for the background writes and then
+   * releases the buffers.
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    handOff();
+    synchronized ( lock ) {
+      try {
+        while ( draining && failure == null ) {
+          lock.wait();
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException( "Interrupted while waiting for the buffered data to be written" );
+      }
+      checkFailure();
+      free.clear();
+      allocated = 0;
+    }
+    out.flush();
+  }
+
+  /**
+   * Flushes and closes the underlying stream. The underlying stream is only closed once the background writer is done
+   * with it, even if the flush is interrupted or fails.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    try {
+      flush();
+    } finally {
+      awaitDrained();
+      out.close();
+    }
+  }
+
+  /**
+   * Waits until the background writer no longer uses the underlying stream, the interrupt flag is restored afterwards.
+   */
+  private void awaitDrained() {
+    boolean interrupted = false;
+    synchronized ( lock ) {
+      while ( draining ) {
+        try {
+          lock.wait();
+        } catch ( InterruptedException e ) {
+          interrupted = true;
+        }
+      }
+    }
+    if ( interrupted ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void handOff() throws IOException {
+    if ( buf == null ) {
+      return;
+    }
+    byte[] data = buf;
+    int length = count;
+    buf = null;
+    count = 0;
+
+    synchronized ( lock ) {
+      if ( length == 0 ) {
+        free.push( data );
+        return;
+      }
+      checkFailure();
+      pending.add( new Block( data, length ) );
+      if ( !draining ) {
+        draining = true;
+        executor.execute( this::drain );
+      }
+    }
+  }
+
+  private byte[] acquire() throws IOException {
+    if ( closed ) {
+      throw new IOException( "Stream closed" );
+    }
+    synchronized ( lock ) {
+      try {
+        while ( free.isEmpty() && allocated >= maxBuffers && failure == null ) {
+          lock.wait();
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException( "Interrupted while waiting for a free buffer" );
+      }
+      checkFailure();
+      if ( !free.isEmpty() ) {
+        return free.pop();
+      }
+      allocated++;
+    }
+    return new byte[bufferSize];
+  }
+
+  private void drain() {
+    while ( true ) {
+      Block block;
+      synchronized ( lock ) {
+        block = pending.peek();
+        if ( block == null ) {
+          draining = false;
+          lock.notifyAll();
+          return;
+        }
+      }
+      try {
+        out.write( block.data, 0, block.length );
+      } catch ( Throwable e ) {
+        synchronized ( lock ) {
+          failure = e;
+          for ( Block b : pending ) {
+            free.push( b.data );
+          }
+          pending.clear();
+          draining = false;
+          lock.notifyAll();
+        }
+        return;
+      }
+      synchronized ( lock ) {
+        pending.poll();
+        free.push( block.data );
+        lock.notifyAll();
+      }
+    }
+  }
+
+  // Method is defined as package-protected in order to be accessible by unit tests
+  int getAllocatedBuffers() {
+    synchronized ( lock ) {
+      return allocated;
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    if ( failure != null ) {
+      throw new IOException( "Error writing buffered data : " + failure.toString(), failure );
+    }
+  }
+}
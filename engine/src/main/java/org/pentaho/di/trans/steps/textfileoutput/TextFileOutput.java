@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -200,7 +201,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             }
           }
 
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream = createBufferedOutputStream( compressionOutputStream );
 
           fileStreams = data.new FileStream( fileOutputStream, compressionOutputStream, bufferedOutputStream );
 
@@ -220,7 +221,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
           CompressionProvider compressionProvider = getCompressionProvider();
           CompressionOutputStream compressionOutputStream = compressionProvider.createOutputStream( fileOutputStream );
           compressionOutputStream.addEntry( filename, environmentSubstitute( meta.getExtension() ) );
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream = createBufferedOutputStream( compressionOutputStream );
 
           fileStreams.setFileOutputStream( fileOutputStream );
           fileStreams.setCompressedOutputStream( compressionOutputStream );
@@ -246,6 +247,19 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Unless KETTLE_FILE_OUTPUT_WRITE_BUFFERS is 0, rows are formatted in large buffers that are compressed and written
+   * to the file on a background thread. Otherwise every file keeps its small buffer and is written on the step thread.
+   */
+  private BufferedOutputStream createBufferedOutputStream( OutputStream outputStream ) {
+    int writeBuffers = Const.toInt( getVariable( Const.KETTLE_FILE_OUTPUT_WRITE_BUFFERS ), 2 );
+    if ( writeBuffers > 0 ) {
+      int bufferSize = Math.max( Const.toInt( getVariable( Const.KETTLE_FILE_OUTPUT_BUFFER_SIZE ), 64 ), 1 ) * 1024;
+      return new AsyncBufferedOutputStream( outputStream, bufferSize, writeBuffers );
+    }
+    return new BufferedOutputStream( outputStream, 5000 );
+  }
+
   public String getOutputFileName( Object[] row ) throws KettleException {
     String filename = null;
     if ( row == null ) {
@@ -551,6 +565,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       byte[] text;
       if ( Utils.isEmpty( meta.getEncoding() ) ) {
         text = string.getBytes();
+      } else if ( data.charset != null ) {
+        text = string.getBytes( data.charset );
       } else {
         try {
           text = string.getBytes( meta.getEncoding() );
@@ -567,7 +583,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
         int size = 0;
         byte[] filler = null;
         try {
-          if ( !Utils.isEmpty( meta.getEncoding() ) ) {
+          if ( data.binaryPadding != null ) {
+            filler = data.binaryPadding;
+          } else if ( !Utils.isEmpty( meta.getEncoding() ) ) {
             filler = " ".getBytes( meta.getEncoding() );
           } else {
             filler = " ".getBytes();
@@ -598,7 +616,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
   private byte[] getBinaryString( String string ) throws KettleStepException {
     try {
-      if ( data.hasEncoding ) {
+      if ( data.charset != null ) {
+        return string.getBytes( data.charset );
+      } else if ( data.hasEncoding ) {
         return string.getBytes( meta.getEncoding() );
       } else {
         return string.getBytes();
@@ -871,6 +891,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       data.binarySeparator = new byte[] {};
       data.binaryEnclosure = new byte[] {};
       data.binaryNewline = new byte[] {};
+      data.charset = data.hasEncoding ? Charset.forName( meta.getEncoding() ) : Charset.defaultCharset();
+      data.binaryPadding = " ".getBytes( data.charset );
 
       if ( data.hasEncoding ) {
         if ( !Utils.isEmpty( meta.getSeparator() ) ) {
@@ -25,6 +25,7 @@ package org.pentaho.di.trans.steps.textfileoutput;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.text.DateFormatSymbols;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -124,12 +125,19 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
     }
 
     public void close() throws IOException {
-      setBufferedOutputStream( null );
-      getCompressedOutputStream().close();
-      setCompressedOutputStream( null );
-      getFileOutputStream().close();
-      setFileOutputStream( null );
-      isDirty = false;
+      try {
+        if ( bufferedOutputStream != null ) {
+          // Buffers can still be on their way to the compression stream
+          bufferedOutputStream.flush();
+        }
+      } finally {
+        setBufferedOutputStream( null );
+        getCompressedOutputStream().close();
+        setCompressedOutputStream( null );
+        getFileOutputStream().close();
+        setFileOutputStream( null );
+        isDirty = false;
+      }
     }
 
     public boolean isOpen() {
@@ -417,6 +425,12 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
 
   public boolean hasEncoding;
 
+  /** The charset the values are encoded with, looked up once rather than for every value */
+  public Charset charset;
+
+  /** The encoded space fields are padded with */
+  public byte[] binaryPadding;
+
   public byte[][] binaryNullValue;
 
   public boolean oneFileOpened;
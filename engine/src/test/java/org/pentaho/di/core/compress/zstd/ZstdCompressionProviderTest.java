@@ -0,0 +1,122 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.compress.CompressionPluginType;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class ZstdCompressionProviderTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  public static final String PROVIDER_NAME = "Zstd";
+
+  public CompressionProviderFactory factory = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    PluginRegistry.addPluginType( CompressionPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    factory = CompressionProviderFactory.getInstance();
+  }
+
+  @Test
+  public void testGetName() {
+    ZstdCompressionProvider provider = (ZstdCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    assertNotNull( provider );
+    assertEquals( PROVIDER_NAME, provider.getName() );
+  }
+
+  @Test
+  public void testGetProviderAttributes() {
+    ZstdCompressionProvider provider = (ZstdCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    assertEquals( "Zstandard compression", provider.getDescription() );
+    assertTrue( provider.supportsInput() );
+    assertTrue( provider.supportsOutput() );
+    assertEquals( "zst", provider.getDefaultExtension() );
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ZstdCompressionProvider provider = (ZstdCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    byte[] data = createTestData();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try ( OutputStream outStream = provider.createOutputStream( out ) ) {
+      outStream.write( data );
+    }
+    assertTrue( out.size() < data.length );
+    assertArrayEquals( data, read( provider, out.toByteArray() ) );
+  }
+
+  @Test
+  public void testParallelRoundTrip() throws IOException {
+    ZstdCompressionProvider provider = (ZstdCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    byte[] data = createTestData();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try ( OutputStream outStream =
+      new ZstdCompressionOutputStream( out, provider, ZstdCompressionProvider.DEFAULT_LEVEL, 4 ) ) {
+      // Uneven writes, so the blocks don't line up with them
+      for ( int offset = 0; offset < data.length; offset += 65537 ) {
+        outStream.write( data, offset, Math.min( 65537, data.length - offset ) );
+      }
+    }
+    assertArrayEquals( data, read( provider, out.toByteArray() ) );
+  }
+
+  private static byte[] createTestData() {
+    StringBuilder sb = new StringBuilder();
+    for ( int i = 0; i < 500000; i++ ) {
+      sb.append( i ).append( ";Name " ).append( i % 97 ).append( ";" ).append( i * 31 % 1000 ).append( '\n' );
+    }
+    return sb.toString().getBytes();
+  }
+
+  private static byte[] read( ZstdCompressionProvider provider, byte[] compressed ) throws IOException {
+    try ( InputStream in = provider.createInputStream( new ByteArrayInputStream( compressed ) ) ) {
+      return IOUtils.toByteArray( in );
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.AdaptiveBlockingRowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+
+public class AdaptiveRowSetSizerTest {
+
+  private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos( 100 );
+
+  private LogChannelInterface log;
+
+  @Before
+  public void setUp() {
+    log = mock( LogChannelInterface.class );
+  }
+
+  @Test
+  public void testConsumerBoundHopShrinks() {
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 1000, Long.MAX_VALUE );
+    AdaptiveBlockingRowSet rowSet = sizer.newRowSet();
+    sizer.resize( INTERVAL );
+
+    // The producer keeps waiting on a full buffer
+    fill( rowSet );
+    rowSet.putRowWait( new RowMeta(), new Object[] { 0L }, 20, TimeUnit.MILLISECONDS );
+    sizer.resize( INTERVAL );
+
+    assertEquals( 500, rowSet.getCapacity() );
+  }
+
+  @Test
+  public void testBlockedHopShrinks() {
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 1000, Long.MAX_VALUE );
+    AdaptiveBlockingRowSet rowSet = sizer.newRowSet();
+    fill( rowSet );
+    sizer.resize( INTERVAL );
+
+    // Not a single row gets through while the producer waits
+    rowSet.putRowWait( new RowMeta(), new Object[] { 0L }, 20, TimeUnit.MILLISECONDS );
+    sizer.resize( INTERVAL );
+    assertEquals( 500, rowSet.getCapacity() );
+
+    rowSet.putRowWait( new RowMeta(), new Object[] { 0L }, 20, TimeUnit.MILLISECONDS );
+    sizer.resize( INTERVAL );
+    assertEquals( 250, rowSet.getCapacity() );
+  }
+
+  @Test
+  public void testProducerWaitWithRoomLeftKeepsTheCapacity() {
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 1000, Long.MAX_VALUE );
+    AdaptiveBlockingRowSet rowSet = sizer.newRowSet();
+    rowSet.setCapacity( 1 );
+    sizer.resize( INTERVAL );
+
+    // The producer waited, but by now the consumer emptied the buffer
+    rowSet.putRow( new RowMeta(), new Object[] { 1L } );
+    rowSet.putRowWait( new RowMeta(), new Object[] { 2L }, 20, TimeUnit.MILLISECONDS );
+    rowSet.getRowImmediate();
+    rowSet.setCapacity( 1000 );
+    sizer.resize( INTERVAL );
+
+    assertEquals( 1000, rowSet.getCapacity() );
+  }
+
+  @Test
+  public void testBurstyHopGrows() {
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 1000, Long.MAX_VALUE );
+    AdaptiveBlockingRowSet rowSet = sizer.newRowSet();
+    sizer.resize( INTERVAL );
+
+    // The consumer waits on an empty buffer, then the producer waits on a full one
+    rowSet.getRowWait( 20, TimeUnit.MILLISECONDS );
+    rowSet.setCapacity( 1 );
+    rowSet.putRow( new RowMeta(), new Object[] { 1L } );
+    rowSet.putRowWait( new RowMeta(), new Object[] { 2L }, 20, TimeUnit.MILLISECONDS );
+    rowSet.setCapacity( 1000 );
+    sizer.resize( INTERVAL );
+
+    assertEquals( 2000, rowSet.getCapacity() );
+  }
+
+  @Test
+  public void testIdleHopKeepsItsCapacity() {
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 1000, Long.MAX_VALUE );
+    AdaptiveBlockingRowSet rowSet = sizer.newRowSet();
+    sizer.resize( INTERVAL );
+    rowSet.getRowWait( 20, TimeUnit.MILLISECONDS );
+    sizer.resize( INTERVAL );
+
+    assertEquals( 1000, rowSet.getCapacity() );
+  }
+
+  @Test
+  public void testCapacitiesStayWithinTheMemoryBudget() {
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 10000, 1024 * 1024 );
+    AdaptiveBlockingRowSet first = sizer.newRowSet();
+    AdaptiveBlockingRowSet second = sizer.newRowSet();
+    first.putRow( new RowMeta(), new Object[] { new String( new char[1000] ) } );
+    second.putRow( new RowMeta(), new Object[] { 1L } );
+    sizer.resize( INTERVAL );
+
+    long firstBytes = first.getCapacity() * first.getStatistics().getAverageRowBytes();
+    long secondBytes = second.getCapacity() * second.getStatistics().getAverageRowBytes();
+    assertTrue( firstBytes + secondBytes <= sizer.getMemoryBudget() );
+    assertTrue( first.getCapacity() >= AdaptiveRowSetSizer.MIN_CAPACITY );
+    assertTrue( first.getCapacity() < 10000 );
+  }
+
+  @Test
+  public void testMoreHopsThanTheBudgetHoldsAtTheMinimumCapacity() {
+    // 20 hops of 100 rows of about 1 KB don't fit in 1 MB
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 1000, 1024 * 1024 );
+    List<AdaptiveBlockingRowSet> rowSets = new ArrayList<>();
+    for ( int i = 0; i < 20; i++ ) {
+      AdaptiveBlockingRowSet rowSet = sizer.newRowSet();
+      rowSet.putRow( new RowMeta(), new Object[] { new String( new char[i < 10 ? 1000 : 10] ) } );
+      rowSets.add( rowSet );
+    }
+    sizer.resize( INTERVAL );
+
+    long totalBytes = 0L;
+    for ( AdaptiveBlockingRowSet rowSet : rowSets ) {
+      totalBytes += rowSet.getCapacity() * rowSet.getStatistics().getAverageRowBytes();
+      assertTrue( rowSet.getCapacity() >= 1 );
+    }
+    assertTrue( totalBytes <= sizer.getMemoryBudget() );
+    // The hops with the small rows keep the minimum capacity, the ones with the large rows make up for it
+    assertEquals( AdaptiveRowSetSizer.MIN_CAPACITY, rowSets.get( 19 ).getCapacity() );
+    assertTrue( rowSets.get( 0 ).getCapacity() < AdaptiveRowSetSizer.MIN_CAPACITY );
+  }
+
+  @Test
+  public void testNewRowSetStartsWithinTheBudgetLeft() {
+    AdaptiveRowSetSizer sizer = new AdaptiveRowSetSizer( log, 10000, 1024 * 1024 );
+    AdaptiveBlockingRowSet first = sizer.newRowSet();
+    first.putRow( new RowMeta(), new Object[] { new String( new char[1000] ) } );
+    sizer.resize( INTERVAL );
+
+    long rowBytes = first.getStatistics().getAverageRowBytes();
+    long left = sizer.getMemoryBudget() - first.getCapacity() * rowBytes;
+    AdaptiveBlockingRowSet second = sizer.newRowSet();
+    assertTrue( second.getCapacity() < 10000 );
+    assertTrue( second.getCapacity() <= Math.max( AdaptiveRowSetSizer.MIN_CAPACITY, left / rowBytes ) );
+  }
+
+  private static void fill( AdaptiveBlockingRowSet rowSet ) {
+    for ( long i = 0; i < rowSet.getCapacity(); i++ ) {
+      rowSet.putRow( new RowMeta(), new Object[] { i } );
+    }
+  }
+}
@@ -177,6 +177,32 @@ public class BaseStepTest {
       .getLogLevel();
   }
 
+  @Test
+  @SuppressWarnings( "deprecation" )
+  public void testDeprecatedLineCountersFollowTheCounters() {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+
+    baseStep.incrementLinesRead();
+    baseStep.incrementLinesRead( 4 );
+    baseStep.decrementLinesRead();
+    baseStep.incrementLinesWritten( 3 );
+    baseStep.incrementLinesInput();
+    baseStep.setLinesOutput( 7 );
+    baseStep.incrementLinesUpdated();
+    baseStep.incrementLinesRejected();
+    baseStep.incrementLinesSkipped();
+
+    assertEquals( 4L, baseStep.linesRead );
+    assertEquals( 3L, baseStep.linesWritten );
+    assertEquals( 1L, baseStep.linesInput );
+    assertEquals( 7L, baseStep.linesOutput );
+    assertEquals( 1L, baseStep.linesUpdated );
+    assertEquals( 1L, baseStep.linesRejected );
+    assertEquals( 1L, baseStep.linesSkipped );
+    assertEquals( baseStep.getLinesRead(), baseStep.linesRead );
+  }
+
   @Test
   public void testStepListenersConcurrentModification() throws InterruptedException {
     // Create a base step
@@ -434,6 +460,54 @@ public class BaseStepTest {
     }
   }
 
+  @Test
+  public void putRowsAndGetRowsMoveBlocksOfRows() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep producer =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    BaseStep consumer =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    RowSet rowSet = new QueueRowSet();
+    producer.addRowSetToOutputRowSets( rowSet );
+    consumer.addRowSetToInputRowSets( rowSet );
+
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "x" ) );
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L }, { 4L } };
+
+    // the first block waits for the transformation to run and goes row by row, the second one is moved as a whole
+    producer.putRows( rowMeta, rows, 3 );
+    producer.putRows( rowMeta, rows, 4 );
+    assertEquals( 7, rowSet.size() );
+    assertEquals( 7, producer.getLinesWritten() );
+
+    Object[][] block = consumer.getRows( 5 );
+    assertEquals( 5, block.length );
+    assertEquals( 1L, block[0][0] );
+    assertEquals( 2L, block[4][0] );
+    block = consumer.getRows( 5 );
+    assertEquals( 2, block.length );
+    assertEquals( 4L, block[1][0] );
+    assertEquals( 7, consumer.getLinesRead() );
+  }
+
+  @Test
+  public void putRowsAndGetRowsDefaultRowHandlerMethods() throws KettleException {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+    RowHandler handler = spy( rowHandlerWithDefaultMethods() );
+    baseStep.setRowHandler( handler );
+
+    RowMetaInterface rowMetaInterface = mock( RowMetaInterface.class );
+    Object[][] rows = new Object[][] { { "foo" }, { "bar" }, { "baz" } };
+    baseStep.putRows( rowMetaInterface, rows, 2 );
+    verify( handler ).putRow( rowMetaInterface, rows[0] );
+    verify( handler ).putRow( rowMetaInterface, rows[1] );
+    verify( handler, never() ).putRow( rowMetaInterface, rows[2] );
+
+    assertEquals( 1, baseStep.getRows( 10 ).length );
+  }
 
   private RowHandler rowHandlerWithDefaultMethods() {
     return new RowHandler() {
@@ -527,4 +601,26 @@ public class BaseStepTest {
     baseStepSpy.getRow();
     verify( mockHelper.transMeta, times( 1 ) ).checkRowMixingStatically( any( StepMeta.class ), anyObject() );
   }
+
+  @Test
+  public void testGetRowsSafeModeChecksEveryRow() throws KettleException {
+    Trans transMock = mock( Trans.class );
+    when( transMock.isSafeModeEnabled() ).thenReturn( true );
+    when( transMock.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, transMock );
+
+    RowSet rowSet = new QueueRowSet();
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "x" ) );
+    for ( long i = 0; i < 3; i++ ) {
+      rowSet.putRow( rowMeta, new Object[] { i } );
+    }
+    baseStep.addRowSetToInputRowSets( rowSet );
+
+    Object[][] block = baseStep.getRows( 5 );
+    assertEquals( 3, block.length );
+    assertEquals( 3, baseStep.getLinesRead() );
+    verify( mockHelper.transMeta, times( 3 ) ).checkRowMixingStatically( any( StepMeta.class ), anyObject() );
+  }
 }
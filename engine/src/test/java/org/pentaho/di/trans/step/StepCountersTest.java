@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StepCountersTest {
+
+  @Test
+  public void testAddAndSet() {
+    StepCounters counters = new StepCounters();
+    assertEquals( 1L, StepCounters.add( counters.linesRead(), 1 ) );
+    assertEquals( 11L, StepCounters.add( counters.linesRead(), 10 ) );
+    assertEquals( 10L, StepCounters.add( counters.linesRead(), -1 ) );
+
+    StepCounters.set( counters.linesWritten(), 42L );
+    assertEquals( 42L, counters.linesWritten().sum() );
+    StepCounters.set( counters.linesWritten(), 7L );
+    assertEquals( 7L, counters.linesWritten().sum() );
+
+    counters.reset();
+    assertEquals( 0L, counters.linesRead().sum() );
+    assertEquals( 0L, counters.linesWritten().sum() );
+  }
+
+  @Test
+  public void testSnapshot() {
+    StepCounters counters = new StepCounters();
+    StepCounters.add( counters.linesRead(), 1 );
+    StepCounters.add( counters.linesWritten(), 2 );
+    StepCounters.add( counters.linesInput(), 3 );
+    StepCounters.add( counters.linesOutput(), 4 );
+    StepCounters.add( counters.linesUpdated(), 5 );
+    StepCounters.add( counters.linesRejected(), 6 );
+    StepCounters.add( counters.linesSkipped(), 7 );
+
+    StepCounters.Snapshot snapshot = counters.snapshot( 8 );
+    StepCounters.add( counters.linesRead(), 100 );
+
+    assertEquals( 1L, snapshot.getLinesRead() );
+    assertEquals( 2L, snapshot.getLinesWritten() );
+    assertEquals( 3L, snapshot.getLinesInput() );
+    assertEquals( 4L, snapshot.getLinesOutput() );
+    assertEquals( 5L, snapshot.getLinesUpdated() );
+    assertEquals( 6L, snapshot.getLinesRejected() );
+    assertEquals( 7L, snapshot.getLinesSkipped() );
+    assertEquals( 8L, snapshot.getErrors() );
+  }
+
+  @Test
+  public void testConcurrentUpdatesAreNotLost() throws Exception {
+    final StepCounters counters = new StepCounters();
+    final int nrThreads = 4;
+    final int nrRows = 100000;
+
+    List<Thread> threads = new ArrayList<>();
+    for ( int i = 0; i < nrThreads; i++ ) {
+      threads.add( new Thread( () -> {
+        for ( int j = 0; j < nrRows; j++ ) {
+          StepCounters.add( counters.linesRead(), 1 );
+          StepCounters.add( counters.linesWritten(), 1 );
+        }
+      } ) );
+    }
+    for ( Thread thread : threads ) {
+      thread.start();
+    }
+    // a pass-through step counts a row as read before it counts it as written
+    for ( int i = 0; i < 1000; i++ ) {
+      StepCounters.Snapshot snapshot = counters.snapshot( 0 );
+      assertTrue( snapshot.getLinesWritten() <= snapshot.getLinesRead() );
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    assertEquals( (long) nrThreads * nrRows, counters.linesRead().sum() );
+    assertEquals( (long) nrThreads * nrRows, counters.linesWritten().sum() );
+  }
+
+  @Test
+  public void testSnapshotOfOtherStepInterface() {
+    StepInterface step = mock( StepInterface.class );
+    when( step.getLinesRead() ).thenReturn( 10L );
+    when( step.getLinesWritten() ).thenReturn( 9L );
+    when( step.getLinesRejected() ).thenReturn( 1L );
+    when( step.getErrors() ).thenReturn( 1L );
+
+    StepCounters.Snapshot snapshot = StepCounters.snapshotOf( step );
+    assertEquals( 10L, snapshot.getLinesRead() );
+    assertEquals( 9L, snapshot.getLinesWritten() );
+    assertEquals( 1L, snapshot.getLinesRejected() );
+    assertEquals( 0L, snapshot.getLinesSkipped() );
+    assertEquals( 1L, snapshot.getErrors() );
+  }
+}
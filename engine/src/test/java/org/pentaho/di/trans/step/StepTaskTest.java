@@ -0,0 +1,122 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+
+public class StepTaskTest {
+
+  private StepInterface step;
+  private StepMetaInterface meta;
+  private StepDataInterface data;
+  private StepMetaDataCombi combi;
+
+  @Before
+  public void setUp() {
+    step = mock( StepInterface.class );
+    meta = mock( StepMetaInterface.class );
+    data = mock( StepDataInterface.class );
+    when( step.getLogChannel() ).thenReturn( mock( LogChannelInterface.class ) );
+
+    combi = new StepMetaDataCombi();
+    combi.step = step;
+    combi.meta = meta;
+    combi.data = data;
+  }
+
+  @Test
+  public void sliceStopsWhenOutputIsFull() throws Exception {
+    RowSet output = new QueueRowSet();
+    when( step.getInputRowSets() ).thenReturn( Collections.<RowSet>emptyList() );
+    when( step.getOutputRowSets() ).thenReturn( Collections.singletonList( output ) );
+    when( step.processRow( meta, data ) ).then( invocation -> output.putRow( new RowMeta(), new Object[0] ) );
+
+    StepTask task = new StepTask( combi, 3 );
+    assertTrue( task.isRunnable() );
+    assertFalse( task.runSlice( 100 ) );
+
+    verify( step ).setRunning( true );
+    verify( step, times( 3 ) ).processRow( meta, data );
+    assertFalse( task.isRunnable() );
+
+    output.getRow();
+    assertTrue( task.isRunnable() );
+  }
+
+  @Test
+  public void sliceWaitsForInput() throws Exception {
+    RowSet input = new QueueRowSet();
+    when( step.getInputRowSets() ).thenReturn( Collections.singletonList( input ) );
+    when( step.getOutputRowSets() ).thenReturn( Collections.<RowSet>emptyList() );
+    when( step.processRow( meta, data ) ).then( invocation -> input.getRow() != null || !input.isDone() );
+
+    StepTask task = new StepTask( combi, 3 );
+    assertFalse( task.runSlice( 100 ) );
+    verify( step, never() ).processRow( meta, data );
+    assertFalse( task.isRunnable() );
+
+    input.putRow( new RowMeta(), new Object[0] );
+    input.putRow( new RowMeta(), new Object[0] );
+    assertTrue( task.isRunnable() );
+    assertFalse( task.runSlice( 100 ) );
+    verify( step, times( 2 ) ).processRow( meta, data );
+
+    input.setDone();
+    assertTrue( task.isRunnable() );
+    assertTrue( task.runSlice( 100 ) );
+    assertTrue( task.isDone() );
+    assertFalse( task.isRunnable() );
+    verify( step, times( 3 ) ).processRow( meta, data );
+    verify( step ).dispose( meta, data );
+    verify( step ).markStop();
+  }
+
+  @Test
+  public void stoppedStepFinishesWithoutProcessingRows() throws Exception {
+    when( step.getInputRowSets() ).thenReturn( Collections.<RowSet>emptyList() );
+    when( step.getOutputRowSets() ).thenReturn( Collections.<RowSet>emptyList() );
+    when( step.isStopped() ).thenReturn( true );
+
+    StepTask task = new StepTask( combi, 3 );
+    assertTrue( task.runSlice( 100 ) );
+    verify( step, never() ).processRow( meta, data );
+    verify( step ).markStop();
+    assertEquals( step, task.getStep() );
+  }
+}
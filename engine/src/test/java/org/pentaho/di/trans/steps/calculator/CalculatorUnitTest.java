@@ -48,6 +48,7 @@ import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -1061,4 +1062,43 @@ public class CalculatorUnitTest {
       ++i;
     }
   }
+
+  @Test
+  public void testCopyOfLazyFieldIsTheSameWithAndWithoutVectors() throws KettleException {
+    RowMeta inputRowMeta = new RowMeta();
+    ValueMetaInteger lazyMeta = new ValueMetaInteger( "a" );
+    lazyMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    lazyMeta.setStorageMetadata( new ValueMetaString( "a" ) );
+    inputRowMeta.addValueMeta( lazyMeta );
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( new CalculatorMetaFunction[] {
+      new CalculatorMetaFunction( "copy", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "a", null, null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, false, "", "", "", "" ) } );
+
+    for ( String vectorized : new String[] { "N", "Y" } ) {
+      RowSet input = new QueueRowSet();
+      input.putRow( inputRowMeta, new Object[] { "12".getBytes() } );
+      input.putRow( inputRowMeta, new Object[] { null } );
+      input.setDone();
+      RowSet output = new QueueRowSet();
+
+      Calculator calculator = new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+      calculator.setVariable( Const.KETTLE_VECTORIZED_STEPS, vectorized );
+      calculator.addRowSetToInputRowSets( input );
+      calculator.addRowSetToOutputRowSets( output );
+      calculator.init( smh.initStepMetaInterface, smh.initStepDataInterface );
+      CalculatorData data = new CalculatorData();
+      while ( calculator.processRow( meta, data ) ) {
+        // process all the rows
+      }
+
+      assertFalse( data.isVectorized() );
+      Object[] row = output.getRowImmediate();
+      assertEquals( ValueMetaInterface.STORAGE_TYPE_NORMAL, output.getRowMeta().getValueMeta( 1 ).getStorageType() );
+      assertEquals( 12L, row[ 1 ] );
+      row = output.getRowImmediate();
+      assertEquals( null, row[ 1 ] );
+    }
+  }
 }
@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.Comparator;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputField;
+
+public class CsvInputParallelParsingTest extends BaseCsvParsingTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final int NR_ROWS = 5000;
+
+  /**
+   * Write a file with enclosed new lines, delimiters and enclosures in every seventh row.
+   *
+   * @return the rows in the file
+   */
+  private Object[][] writeFile( File file ) throws Exception {
+    Object[][] expected = new Object[ NR_ROWS ][];
+    try ( PrintWriter writer = new PrintWriter( file, "UTF-8" ) ) {
+      writer.print( "name,id,comment\n" );
+      for ( int i = 0; i < NR_ROWS; i++ ) {
+        String comment = i % 7 == 0 ? "line\nbreak, \"quoted\"" : "plain " + i;
+        writer.print( "name" + i + "," + i + ",\"" + comment.replace( "\"", "\"\"" ) + "\"\n" );
+        expected[ i ] = new Object[] { "name" + i, Integer.toString( i ), comment };
+      }
+    }
+    return expected;
+  }
+
+  private Object[][] parse( String ordered ) throws Exception {
+    File file = folder.newFile( "parallel.csv" );
+    Object[][] expected = writeFile( file );
+    init( file.getAbsolutePath(), true );
+    step.setVariable( Const.KETTLE_CSV_INPUT_PARSE_THREADS, "4" );
+    step.setVariable( Const.KETTLE_CSV_INPUT_PARSE_CHUNK_SIZE, "1" );
+    step.setVariable( Const.KETTLE_CSV_INPUT_PARSE_ORDERED, ordered );
+    setFields( new TextFileInputField( "name", -1, -1 ), new TextFileInputField( "id", -1, -1 ),
+      new TextFileInputField( "comment", -1, -1 ) );
+
+    process();
+    step.dispose( meta, data );
+    return expected;
+  }
+
+  @Test
+  public void testOrdered() throws Exception {
+    Object[][] expected = parse( "Y" );
+
+    check( expected );
+    assertEquals( NR_ROWS, step.getLinesInput() );
+  }
+
+  @Test
+  public void testConversionErrorReportsTheLineInTheFile() throws Exception {
+    File file = folder.newFile( "errors.csv" );
+    try ( PrintWriter writer = new PrintWriter( file, "UTF-8" ) ) {
+      writer.print( "name,id\n" );
+      for ( int i = 0; i < NR_ROWS; i++ ) {
+        writer.print( "name" + i + "," + ( i == 3000 ? "x" : Integer.toString( i ) ) + "\n" );
+      }
+    }
+    meta.setLazyConversionActive( false );
+    stepMeta.setStepMetaInterface( meta );
+    init( file.getAbsolutePath(), true );
+    step.setVariable( Const.KETTLE_CSV_INPUT_PARSE_THREADS, "4" );
+    step.setVariable( Const.KETTLE_CSV_INPUT_PARSE_CHUNK_SIZE, "1" );
+    TextFileInputField id = new TextFileInputField( "id", -1, -1 );
+    id.setType( ValueMetaInterface.TYPE_INTEGER );
+    setFields( new TextFileInputField( "name", -1, -1 ), id );
+
+    try {
+      process();
+      fail( "The conversion error should stop the step" );
+    } catch ( KettleException e ) {
+      assertTrue( e.getMessage(), e.getMessage().contains( "conversion errors on line 3001" ) );
+    } finally {
+      step.dispose( meta, data );
+    }
+    assertEquals( 3001, step.getLinesInput() );
+  }
+
+  @Test
+  public void testUnordered() throws Exception {
+    Object[][] expected = parse( "N" );
+
+    assertEquals( NR_ROWS, rows.size() );
+    rows.sort( Comparator.comparingInt( row -> Integer.parseInt( new String( (byte[]) row[ 1 ] ) ) ) );
+    check( expected );
+  }
+}
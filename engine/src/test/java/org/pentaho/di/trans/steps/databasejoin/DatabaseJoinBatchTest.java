@@ -0,0 +1,176 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databasejoin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.H2DatabaseMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransTestFactory;
+
+public class DatabaseJoinBatchTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEPNAME = "join";
+
+  private static Connection connection;
+
+  /** The data of the step in the last transformation that ran */
+  private DatabaseJoinData lastData;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws SQLException {
+    connection = DriverManager.getConnection( "jdbc:h2:mem:databasejoinbatch;DB_CLOSE_DELAY=-1" );
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE ORDERS ( CUSTOMER BIGINT, ID BIGINT, AMOUNT BIGINT )" );
+      // Customer 0 has no orders, the others as many as their number
+      for ( int customer = 1; customer < 10; customer++ ) {
+        for ( int order = 1; order <= customer; order++ ) {
+          statement.execute( "INSERT INTO ORDERS VALUES ( " + customer + ", " + ( customer * 100 + order ) + ", "
+            + ( order * 10 ) + " )" );
+        }
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws SQLException {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "SHUTDOWN" );
+    }
+    connection.close();
+  }
+
+  @Test
+  public void testBatchesJoinLikeRowByRow() throws Exception {
+    String sql = "SELECT ID, AMOUNT FROM ORDERS WHERE CUSTOMER = ? AND AMOUNT < ?";
+    // 11 rows: full batches of 4 and a last one of 2
+    List<RowMetaAndData> input = customers( 3, 0, 9, 1, 5, 5, 7, 2, 0, 8, 4 );
+
+    List<RowMetaAndData> rowByRow = run( sql, 1, input );
+    assertEquals( 1, lastData.batchSize );
+
+    List<RowMetaAndData> batched = run( sql, 4, input );
+    assertEquals( 4, lastData.batchSize );
+
+    // Every row of the UNION ALL goes back to its own input row, in the same order as when joined one by one
+    assertEquals( 3 + 1 + 5 + 1 + 5 + 5 + 5 + 2 + 1 + 5 + 4, batched.size() );
+    assertEquals( rowByRow.toString(), batched.toString() );
+  }
+
+  @Test
+  public void testOrderByIsJoinedRowByRow() throws Exception {
+    String sql = "SELECT ID, AMOUNT FROM ORDERS WHERE CUSTOMER = ? AND AMOUNT < ? ORDER BY AMOUNT DESC";
+    List<RowMetaAndData> input = customers( 3, 0, 4 );
+
+    List<RowMetaAndData> output = run( sql, 4, input );
+
+    assertEquals( 1, lastData.batchSize );
+    assertEquals( 3 + 1 + 4, output.size() );
+    assertEquals( 30L, output.get( 0 ).getInteger( "AMOUNT", -1L ) );
+    assertEquals( 10L, output.get( 2 ).getInteger( "AMOUNT", -1L ) );
+  }
+
+  @Test
+  public void testFailedBatchFallsBackToRowByRow() throws Exception {
+    // The duplicate column name is fine in a query, not in the sub-queries of a batch
+    String sql = "SELECT ID, ID FROM ORDERS WHERE CUSTOMER = ? AND AMOUNT < ?";
+    List<RowMetaAndData> input = customers( 3, 0, 4, 2, 1 );
+
+    List<RowMetaAndData> rowByRow = run( sql, 1, input );
+    List<RowMetaAndData> batched = run( sql, 2, input );
+
+    assertEquals( 1, lastData.batchSize );
+    assertEquals( rowByRow.toString(), batched.toString() );
+  }
+
+  /**
+   * @return a row per customer, with the maximum amount of the orders to join
+   */
+  private static List<RowMetaAndData> customers( long... customers ) {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "customer" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "max_amount" ) );
+    List<RowMetaAndData> rows = new ArrayList<>();
+    for ( long customer : customers ) {
+      rows.add( new RowMetaAndData( rowMeta, customer, 60L ) );
+    }
+    return rows;
+  }
+
+  private List<RowMetaAndData> run( String sql, int batchSize, List<RowMetaAndData> input ) throws Exception {
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    databaseMeta.setName( "h2" );
+    databaseMeta.setDBName( "mem:databasejoinbatch" );
+
+    DatabaseJoinMeta meta = new DatabaseJoinMeta();
+    meta.setDefault();
+    meta.setDatabaseMeta( databaseMeta );
+    meta.setSql( sql );
+    meta.setOuterJoin( true );
+    meta.setParameterField( new String[] { "customer", "max_amount" } );
+    meta.setParameterType( new int[] { ValueMetaInterface.TYPE_INTEGER, ValueMetaInterface.TYPE_INTEGER } );
+
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, meta, STEPNAME );
+    Trans trans = new Trans( transMeta );
+    trans.setVariable( Const.KETTLE_DATABASE_JOIN_BATCH_SIZE, Integer.toString( batchSize ) );
+    trans.prepareExecution( null );
+
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( TransTestFactory.DUMMY_STEPNAME, 0 ).addRowListener( collector );
+    RowProducer producer = trans.addRowProducer( TransTestFactory.INJECTOR_STEPNAME, 0 );
+    trans.startThreads();
+    for ( RowMetaAndData row : input ) {
+      producer.putRow( row.getRowMeta(), row.getData() );
+    }
+    producer.finished();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    lastData = (DatabaseJoinData) trans.getStepDataInterface( STEPNAME, 0 );
+    return collector.getRowsWritten();
+  }
+}
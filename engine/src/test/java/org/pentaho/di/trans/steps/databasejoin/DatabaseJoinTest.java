@@ -24,6 +24,7 @@ package org.pentaho.di.trans.steps.databasejoin;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.trans.Trans;
@@ -36,10 +37,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 
 import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
 import static junit.framework.TestCase.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -123,4 +126,17 @@ public class DatabaseJoinTest {
     verify( mockStepDataInterface.db, times( 0 ) ).cancelStatement( any( PreparedStatement.class ) );
     assertFalse( mockStepDataInterface.isCanceled );
   }
+
+  @Test
+  public void testDisposeClosesTheBatchStatementBeforeDisconnecting() throws KettleException {
+    PreparedStatement batchStatement = mock( PreparedStatement.class );
+    mockStepDataInterface.batchStatement = batchStatement;
+
+    mockDatabaseJoin.dispose( mockStepMetaInterface, mockStepDataInterface );
+
+    InOrder inOrder = inOrder( mockStepDataInterface.db );
+    inOrder.verify( mockStepDataInterface.db ).closePreparedStatement( batchStatement );
+    inOrder.verify( mockStepDataInterface.db ).disconnect();
+    assertNull( mockStepDataInterface.batchStatement );
+  }
 }
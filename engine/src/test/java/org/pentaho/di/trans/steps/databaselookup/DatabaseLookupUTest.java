@@ -68,7 +68,9 @@ import org.mockito.Mockito;
 import org.mockito.internal.util.reflection.Whitebox;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
@@ -451,6 +453,153 @@ public class DatabaseLookupUTest {
     assertNotNull( data.cache.getRowFromCache( data.lookupMeta, new Object[] { 2L } ) );
   }
 
+  @Test
+  public void looksUpRowsInBatches() throws Exception {
+    StepMockHelper<DatabaseLookupMeta, DatabaseLookupData> smh =
+      new StepMockHelper<>( "batched DatabaseLookup", DatabaseLookupMeta.class, DatabaseLookupData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setDatabaseMeta( mock( DatabaseMeta.class ) );
+    meta.setTablename( "VirtualTable" );
+    meta.setTableKeyField( new String[] { ID_FIELD } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setStreamKeyField1( new String[] { ID_FIELD } );
+    meta.setStreamKeyField2( new String[] { null } );
+    meta.setReturnValueField( new String[] { "name" } );
+    meta.setReturnValueNewName( new String[] { "name" } );
+    meta.setReturnValueDefault( new String[] { "unknown" } );
+    meta.setReturnValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+
+    RowMeta tableFields = new RowMeta();
+    tableFields.addValueMeta( new ValueMetaInteger( ID_FIELD ) );
+    tableFields.addValueMeta( new ValueMetaString( "name" ) );
+
+    // The table holds every id but 2
+    Database db = mock( Database.class );
+    doReturn( tableFields ).when( db ).getTableFields( anyString() );
+    doReturn( mock( PreparedStatement.class ) ).when( db ).prepareSQL( anyString() );
+    doAnswer( new Answer<RowMetaInterface>() {
+      @Override public RowMetaInterface answer( InvocationOnMock invocation ) throws Throwable {
+        Object[] params = (Object[]) invocation.getArguments()[ 2 ];
+        List<Object[]> rows = (List<Object[]>) invocation.getArguments()[ 3 ];
+        for ( Object id : params ) {
+          if ( (Long) id != 2L ) {
+            rows.add( new Object[] { id, "name" + id } );
+          }
+        }
+        return tableFields;
+      }
+    } ).when( db ).getLookupRows( any( PreparedStatement.class ), any( RowMetaInterface.class ),
+      any( Object[].class ), any( List.class ) );
+
+    DatabaseLookup step = spy( new DatabaseLookup( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ) );
+    doReturn( db ).when( step ).getDatabase( any( DatabaseMeta.class ) );
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( ID_FIELD ) );
+    RowSet input = smh.getMockInputRowSet( new Object[] { 1L }, new Object[] { 2L }, new Object[] { 3L },
+      new Object[] { 1L }, new Object[] { null } );
+    when( input.getRowMeta() ).thenReturn( inputRowMeta );
+    step.addRowSetToInputRowSets( input );
+    step.setInputRowMeta( inputRowMeta );
+    RowSet output = new QueueRowSet();
+    step.addRowSetToOutputRowSets( output );
+    step.setVariable( Const.KETTLE_DATABASE_LOOKUP_BATCH_SIZE, "2" );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    assertTrue( step.init( meta, data ) );
+    while ( step.processRow( meta, data ) ) {
+      // keep going
+    }
+
+    assertEquals( 2, data.batchSize );
+    // The last batch only holds a null, which can't be found
+    verify( db, times( 2 ) ).getLookupRows( any( PreparedStatement.class ), any( RowMetaInterface.class ),
+      any( Object[].class ), any( List.class ) );
+    verify( db, times( 0 ) ).getLookup( anyBoolean() );
+    for ( String name : new String[] { "name1", "unknown", "name3", "name1", "unknown" } ) {
+      assertEquals( name, output.getRow()[ 1 ] );
+    }
+    assertEquals( 0, output.size() );
+  }
+
+  @Test
+  public void countsFailedBatchOnlyOnceWhenLookingUpRowByRow() throws Exception {
+    StepMockHelper<DatabaseLookupMeta, DatabaseLookupData> smh =
+      new StepMockHelper<>( "batched DatabaseLookup", DatabaseLookupMeta.class, DatabaseLookupData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setDatabaseMeta( mock( DatabaseMeta.class ) );
+    meta.setTablename( "VirtualTable" );
+    meta.setTableKeyField( new String[] { ID_FIELD } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setStreamKeyField1( new String[] { ID_FIELD } );
+    meta.setStreamKeyField2( new String[] { null } );
+    meta.setReturnValueField( new String[] { "name" } );
+    meta.setReturnValueNewName( new String[] { "name" } );
+    meta.setReturnValueDefault( new String[] { "unknown" } );
+    meta.setReturnValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    meta.setCached( true );
+    meta.setCacheSize( 10 );
+
+    RowMeta tableFields = new RowMeta();
+    tableFields.addValueMeta( new ValueMetaString( ID_FIELD ) );
+    tableFields.addValueMeta( new ValueMetaString( "name" ) );
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    // The database compares the keys case-insensitively: "b" comes back as "B", after "a" was matched
+    Database db = mock( Database.class );
+    doReturn( tableFields ).when( db ).getTableFields( anyString() );
+    doReturn( returnRowMeta ).when( db ).getReturnRowMeta();
+    doReturn( mock( PreparedStatement.class ) ).when( db ).prepareSQL( anyString() );
+    doAnswer( new Answer<RowMetaInterface>() {
+      @Override public RowMetaInterface answer( InvocationOnMock invocation ) throws Throwable {
+        List<Object[]> rows = (List<Object[]>) invocation.getArguments()[ 3 ];
+        rows.add( new Object[] { "a", "name-a" } );
+        rows.add( new Object[] { "B", "name-B" } );
+        return tableFields;
+      }
+    } ).when( db ).getLookupRows( any( PreparedStatement.class ), any( RowMetaInterface.class ),
+      any( Object[].class ), any( List.class ) );
+    doAnswer( new Answer<Object[]>() {
+      @Override public Object[] answer( InvocationOnMock invocation ) throws Throwable {
+        return new Object[] { "name" };
+      }
+    } ).when( db ).getLookup( anyBoolean() );
+
+    DatabaseLookup step = spy( new DatabaseLookup( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ) );
+    doReturn( db ).when( step ).getDatabase( any( DatabaseMeta.class ) );
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( ID_FIELD ) );
+    RowSet input = smh.getMockInputRowSet( new Object[] { "a" }, new Object[] { "b" }, new Object[] { "c" } );
+    when( input.getRowMeta() ).thenReturn( inputRowMeta );
+    step.addRowSetToInputRowSets( input );
+    step.setInputRowMeta( inputRowMeta );
+    RowSet output = new QueueRowSet();
+    step.addRowSetToOutputRowSets( output );
+    step.setVariable( Const.KETTLE_DATABASE_LOOKUP_BATCH_SIZE, "3" );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    assertTrue( step.init( meta, data ) );
+    while ( step.processRow( meta, data ) ) {
+      // keep going
+    }
+
+    // The batch failed and was looked up row by row, which stops batching
+    assertEquals( 1, data.batchSize );
+    verify( db, times( 3 ) ).getLookup( anyBoolean() );
+    assertEquals( 3, output.size() );
+    assertEquals( 3, step.getLinesInput() );
+    assertEquals( 0, data.cacheHits );
+    assertEquals( 3, data.cacheMisses );
+  }
+
   @Test
   public void testIncrementLinesNotClustered() {
 
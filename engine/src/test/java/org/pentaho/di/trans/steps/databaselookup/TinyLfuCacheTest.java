@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+public class TinyLfuCacheTest {
+
+  private final DatabaseLookupMeta meta = mock( DatabaseLookupMeta.class );
+
+  private static RowMetaInterface keyMeta() {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    return rowMeta;
+  }
+
+  private Object[] lookup( TinyLfuCache cache, RowMetaInterface keyMeta, long id ) throws Exception {
+    Object[] row = cache.getRowFromCache( keyMeta, new Object[] { id } );
+    if ( row == null ) {
+      row = new Object[] { id * 10 };
+      cache.storeRowInCache( meta, keyMeta, new Object[] { id }, row );
+    }
+    return row;
+  }
+
+  @Test
+  public void keepsTheFirstRowStored() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache( 10, 0, 0, 1 );
+    RowMetaInterface keyMeta = keyMeta();
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 1L }, new Object[] { 100L } );
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 1L }, new Object[] { 200L } );
+
+    assertEquals( 1, cache.size() );
+    assertArrayEquals( new Object[] { 100L }, cache.getRowFromCache( keyMeta, new Object[] { 1L } ) );
+    assertNull( cache.getRowFromCache( keyMeta, new Object[] { 2L } ) );
+    assertEquals( 1, cache.getHits() );
+    assertEquals( 1, cache.getMisses() );
+  }
+
+  @Test
+  public void frequentKeysSurviveAScan() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache( 100, 0, 0, 1 );
+    RowMetaInterface keyMeta = keyMeta();
+    for ( int round = 0; round < 10; round++ ) {
+      for ( long id = 0; id < 20; id++ ) {
+        lookup( cache, keyMeta, id );
+      }
+    }
+    // Keys looked up once only, a plain LRU cache would lose all the frequent keys
+    for ( long id = 1000; id < 3000; id++ ) {
+      lookup( cache, keyMeta, id );
+    }
+
+    assertTrue( cache.size() <= 100 );
+    assertTrue( cache.getEvictions() >= 1900 );
+    long hits = cache.getHits();
+    for ( long id = 0; id < 20; id++ ) {
+      lookup( cache, keyMeta, id );
+    }
+    assertEquals( hits + 20, cache.getHits() );
+  }
+
+  @Test
+  public void boundsTheMemoryUsed() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache( 0, 16 * 1024, 0, 1 );
+    RowMetaInterface keyMeta = keyMeta();
+    for ( long id = 0; id < 10000; id++ ) {
+      lookup( cache, keyMeta, id );
+    }
+    assertTrue( cache.size() > 0 );
+    assertTrue( cache.size() < 200 );
+  }
+
+  @Test
+  public void expiresRows() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache( 10, 0, 1, 1 );
+    RowMetaInterface keyMeta = keyMeta();
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 1L }, new Object[] { 100L } );
+    Thread.sleep( 20 );
+
+    assertNull( cache.getRowFromCache( keyMeta, new Object[] { 1L } ) );
+    assertEquals( 1, cache.getEvictions() );
+  }
+
+  @Test
+  public void sharesARegisteredCache() {
+    Map<String, Object> registry = new HashMap<>();
+    TinyLfuCache first = TinyLfuCache.acquire( registry, "key", () -> new TinyLfuCache( 10, 0, 0, 2 ) );
+    TinyLfuCache second = TinyLfuCache.acquire( registry, "key", () -> new TinyLfuCache( 10, 0, 0, 2 ) );
+    assertSame( first, second );
+
+    assertFalse( TinyLfuCache.release( registry, "key" ) );
+    assertTrue( registry.containsKey( "key" ) );
+    assertTrue( TinyLfuCache.release( registry, "key" ) );
+    assertTrue( registry.isEmpty() );
+  }
+}
@@ -0,0 +1,200 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.dimensionlookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.H2DatabaseMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransTestFactory;
+
+public class DimensionLookupBatchTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEPNAME = "dimension";
+  private static final String URL = "jdbc:h2:mem:dimensionbatch";
+
+  private static Connection connection;
+
+  /** The data of the step in the last transformation that ran */
+  private DimensionLookupData lastData;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws SQLException {
+    connection = DriverManager.getConnection( URL + ";DB_CLOSE_DELAY=-1" );
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws SQLException {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "SHUTDOWN" );
+    }
+    connection.close();
+  }
+
+  @Test
+  public void testBatchesUpdateTheDimensionLikeRowByRow() throws Exception {
+    createTable( "DIM_ROWS", "BIGINT" );
+    createTable( "DIM_BATCH", "BIGINT" );
+
+    List<RowMetaAndData> input = new ArrayList<>();
+    long[] keys = { 10, 20, 20, 20, 30, 10, 40, 20, 50, 60, 10 };
+    String[] attributes = { "b", "x", "x", "y", "z", "b", "w", "y", "v", "u", "c" };
+    for ( int i = 0; i < keys.length; i++ ) {
+      input.add( row( new ValueMetaInteger( "nk" ), keys[ i ], attributes[ i ] ) );
+    }
+
+    List<RowMetaAndData> rowByRow = run( "DIM_ROWS", 1, input );
+    assertNull( lastData.batch );
+
+    List<RowMetaAndData> batched = run( "DIM_BATCH", 3, input );
+    assertEquals( 3, lastData.batchSize );
+
+    // The same technical keys come out and the same versions end up in the table
+    assertEquals( technicalKeys( rowByRow ), technicalKeys( batched ) );
+    assertEquals( tableContents( "DIM_ROWS" ), tableContents( "DIM_BATCH" ) );
+  }
+
+  @Test
+  public void testStringKeysAreUpdatedRowByRow() throws Exception {
+    // The database finds the entry of "abc" for "ABC", which the key index in Java wouldn't
+    createTable( "DIM_STRING", "VARCHAR_IGNORECASE(20)" );
+
+    List<RowMetaAndData> input = new ArrayList<>();
+    input.add( row( new ValueMetaString( "nk" ), "abc", "x" ) );
+    input.add( row( new ValueMetaString( "nk" ), "ABC", "x" ) );
+    input.add( row( new ValueMetaString( "nk" ), "Abc", "x" ) );
+
+    run( "DIM_STRING", 3, input );
+    assertEquals( 1, tableContents( "DIM_STRING" ).size() );
+    assertEquals( 1, lastData.batchSize );
+  }
+
+  private void createTable( String table, String keyType ) throws SQLException {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE " + table + " ( ID BIGINT, VERSION INTEGER, DATE_FROM TIMESTAMP, "
+        + "DATE_TO TIMESTAMP, NK " + keyType + ", ATTR VARCHAR(20) )" );
+      statement.execute( "INSERT INTO " + table + " VALUES ( 1, 1, '1900-01-01 00:00:00', '2199-12-31 23:59:59', "
+        + ( keyType.startsWith( "BIGINT" ) ? "10" : "'other'" ) + ", 'a' )" );
+    }
+  }
+
+  private static RowMetaAndData row( ValueMetaInterface keyMeta, Object key, String attribute ) {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( keyMeta );
+    rowMeta.addValueMeta( new ValueMetaString( "attr" ) );
+    return new RowMetaAndData( rowMeta, key, attribute );
+  }
+
+  private List<RowMetaAndData> run( String table, int batchSize, List<RowMetaAndData> input ) throws Exception {
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    databaseMeta.setName( "h2" );
+    databaseMeta.setDBName( "mem:dimensionbatch" );
+
+    DimensionLookupMeta meta = new DimensionLookupMeta();
+    meta.setDefault();
+    meta.setDatabaseMeta( databaseMeta );
+    meta.setTableName( table );
+    meta.setKeyStream( new String[] { "nk" } );
+    meta.setKeyLookup( new String[] { "NK" } );
+    meta.setFieldStream( new String[] { "attr" } );
+    meta.setFieldLookup( new String[] { "ATTR" } );
+    meta.setFieldUpdate( new int[] { DimensionLookupMeta.TYPE_UPDATE_DIM_INSERT } );
+    meta.setReturnType( new int[] { 0 } );
+    meta.setKeyField( "ID" );
+    meta.setKeyRename( "tk" );
+    meta.setVersionField( "VERSION" );
+    meta.setDateFrom( "DATE_FROM" );
+    meta.setDateTo( "DATE_TO" );
+    meta.setTechKeyCreation( DimensionLookupMeta.CREATION_METHOD_TABLEMAX );
+
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, meta, STEPNAME );
+    Trans trans = new Trans( transMeta );
+    trans.setVariable( Const.KETTLE_DIMENSION_LOOKUP_BATCH_SIZE, Integer.toString( batchSize ) );
+    trans.prepareExecution( null );
+
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( TransTestFactory.DUMMY_STEPNAME, 0 ).addRowListener( collector );
+    RowProducer producer = trans.addRowProducer( TransTestFactory.INJECTOR_STEPNAME, 0 );
+    trans.startThreads();
+    for ( RowMetaAndData row : input ) {
+      producer.putRow( row.getRowMeta(), row.getData() );
+    }
+    producer.finished();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    lastData = (DimensionLookupData) trans.getStepDataInterface( STEPNAME, 0 );
+    return collector.getRowsWritten();
+  }
+
+  private static List<Long> technicalKeys( List<RowMetaAndData> rows ) throws Exception {
+    List<Long> keys = new ArrayList<>();
+    for ( RowMetaAndData row : rows ) {
+      keys.add( row.getInteger( "tk", -1L ) );
+    }
+    return keys;
+  }
+
+  /**
+   * @return the entries of the table, apart from the unknown entry and the dates of the versions
+   */
+  private static List<String> tableContents( String table ) throws SQLException {
+    List<String> contents = new ArrayList<>();
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery(
+            "SELECT ID, VERSION, NK, ATTR FROM " + table + " WHERE ID > 1 ORDER BY ID" ) ) {
+      while ( resultSet.next() ) {
+        contents.add( resultSet.getLong( 1 ) + "/" + resultSet.getInt( 2 ) + "/" + resultSet.getString( 3 ) + "/"
+          + resultSet.getString( 4 ) );
+      }
+    }
+    return contents;
+  }
+}
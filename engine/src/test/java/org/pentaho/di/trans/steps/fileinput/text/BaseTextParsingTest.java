@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Before;
 import org.junit.Ignore;
 import org.pentaho.di.core.row.RowMeta;
@@ -55,17 +57,31 @@ public abstract class BaseTextParsingTest extends BaseParsingTest<TextFileInputM
     initByURL( getFile( file ).getURL().getFile() );
   }
 
+  /**
+   * Initialize a step copy for processing specified file.
+   */
+  protected void initByFile( String file, int copyNr ) throws Exception {
+    initByURL( getFile( file ).getURL().getFile(), copyNr );
+  }
+
   /**
    * Initialize for processing specified file by URL.
    */
   protected void initByURL( String url ) throws Exception {
+    initByURL( url, 1 );
+  }
+
+  /**
+   * Initialize a step copy for processing specified file by URL.
+   */
+  protected void initByURL( String url, int copyNr ) throws Exception {
     meta.inputFiles.fileName = new String[] { url };
     meta.inputFiles.fileMask = new String[] { null };
     meta.inputFiles.excludeFileMask = new String[] { null };
     meta.inputFiles.fileRequired = new String[] { "Y" };
     meta.inputFiles.includeSubFolders = new String[] { "N" };
 
-    step = new TextFileInput( stepMeta, null, 1, transMeta, trans );
+    step = new TextFileInput( stepMeta, null, copyNr, transMeta, trans );
     step.init( meta, data );
     step.addRowListener( rowListener );
   }
@@ -80,4 +96,18 @@ public abstract class BaseTextParsingTest extends BaseParsingTest<TextFileInputM
     meta.getFields( data.outputRowMeta, meta.getName(), null, null, new Variables(), null, null );
     data.convertRowMeta = data.outputRowMeta.cloneToType( ValueMetaInterface.TYPE_STRING );
   }
+
+  /**
+   * Check result of parsing with lazy conversion: the fields are binary strings, they're converted before comparing.
+   */
+  protected void checkLazy( Object[][] expected ) throws Exception {
+    for ( Object[] row : rows ) {
+      for ( int i = 0; i < row.length; i++ ) {
+        ValueMetaInterface valueMeta = data.outputRowMeta.getValueMeta( i );
+        assertTrue( "Not a binary string: " + valueMeta, valueMeta.isStorageBinaryString() );
+        row[i] = valueMeta.getString( row[i] );
+      }
+    }
+    check( expected );
+  }
 }
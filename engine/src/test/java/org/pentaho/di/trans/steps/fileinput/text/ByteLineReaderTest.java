@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+public class ByteLineReaderTest {
+  private static final int[] FORMATS = { TextFileInputMeta.FILE_FORMAT_DOS, TextFileInputMeta.FILE_FORMAT_UNIX,
+    TextFileInputMeta.FILE_FORMAT_MIXED };
+
+  private static final String[] CONTENTS = {
+    "",
+    "a;b\r\nc;d\r\n",
+    "a;b\r\n\r\nc;d",
+    "a;b\nc;d\n\nlast",
+    "a;b\rc;d\r\n",
+    "\"multi\r\nline\";x\r\n\"more\nlines\nhere\";y\r\nz",
+    "\"esc\\\"aped\r\n\";x\r\n\"\\\\\";y\r\n",
+    "\"open\r\nnever closed",
+    "caf\u00e9;na\u00efve\r\n\u00e9t\u00e9;\"\u00fcber\r\n\"\r\n" };
+
+  @Test
+  public void testSameLinesAsGetLine() throws Exception {
+    for ( int format : FORMATS ) {
+      for ( String content : CONTENTS ) {
+        for ( String escape : new String[] { "", "\\" } ) {
+          assertEquals( "Format " + format + ", content [" + content + "]", readLines( content, format, escape ),
+            readBytes( content, format, escape ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParts() throws Exception {
+    Random random = new Random( 42 );
+    StringBuilder content = new StringBuilder();
+    for ( int i = 0; i < 1000; i++ ) {
+      content.append( i ).append( ";\"" );
+      for ( int j = random.nextInt( 50 ); j > 0; j-- ) {
+        content.append( (char) ( 'a' + random.nextInt( 26 ) ) );
+      }
+      content.append( "\"" ).append( i % 10 == 0 ? "\n" : "\r\n" );
+    }
+    byte[] bytes = content.toString().getBytes( StandardCharsets.UTF_8 );
+
+    for ( int format : new int[] { TextFileInputMeta.FILE_FORMAT_UNIX, TextFileInputMeta.FILE_FORMAT_MIXED } ) {
+      List<String> expected = new ArrayList<>();
+      for ( String line : readLines( content.toString(), format, "" ) ) {
+        expected.add( line.substring( line.indexOf( ':' ) + 1 ) );
+      }
+      for ( int nrParts : new int[] { 1, 2, 3, 7, 64, 5000, 100000 } ) {
+        List<String> lines = new ArrayList<>();
+        for ( int part = 0; part < nrParts; part++ ) {
+          long start = (long) bytes.length * part / nrParts;
+          long end = (long) bytes.length * ( part + 1 ) / nrParts;
+          if ( start == end ) {
+            continue;
+          }
+          ByteArrayInputStream in = new ByteArrayInputStream( bytes );
+          ByteLineReader reader;
+          if ( start > 0 ) {
+            in.skip( start - 1 );
+            reader = new ByteLineReader( in, StandardCharsets.UTF_8, format, "\"", "", start - 1, end );
+            reader.skipPartialLine();
+          } else {
+            reader = new ByteLineReader( in, StandardCharsets.UTF_8, format, "\"", "", 0, end );
+          }
+          for ( TextFileLine line = reader.readLine( 0, true, false ); line != null; line =
+            reader.readLine( 0, true, false ) ) {
+            lines.add( line.getLine() );
+          }
+        }
+        assertEquals( "Parts: " + nrParts, expected, lines );
+      }
+    }
+  }
+
+  @Test
+  public void testKeepBytes() throws Exception {
+    byte[] bytes = "caf\u00e9;1\r\n".getBytes( StandardCharsets.ISO_8859_1 );
+    ByteLineReader reader =
+      new ByteLineReader( new ByteArrayInputStream( bytes ), StandardCharsets.ISO_8859_1,
+        TextFileInputMeta.FILE_FORMAT_DOS, "\"", "", 0, Long.MAX_VALUE );
+    TextFileLine line = reader.readLine( 5, false, true );
+    assertNull( line.getLine() );
+    assertArrayEquals( "caf\u00e9;1".getBytes( StandardCharsets.ISO_8859_1 ), line.getBytes() );
+    assertEquals( 5, line.getLineNumber() );
+    assertNull( reader.readLine( 6, false, true ) );
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertEquals( true, ByteLineReader.isSupported( StandardCharsets.UTF_8 ) );
+    assertEquals( true, ByteLineReader.isSupported( StandardCharsets.ISO_8859_1 ) );
+    assertEquals( true, ByteLineReader.isSupported( Charset.forName( "windows-1252" ) ) );
+    assertEquals( false, ByteLineReader.isSupported( StandardCharsets.UTF_16 ) );
+    assertEquals( false, ByteLineReader.isSupported( StandardCharsets.UTF_16LE ) );
+  }
+
+  /**
+   * Reads the lines with {@link TextFileInputUtils#getLine}, the exception message ends the lines.
+   */
+  private static List<String> readLines( String content, int format, String escape ) throws Exception {
+    List<String> lines = new ArrayList<>();
+    BufferedInputStreamReader reader =
+      new BufferedInputStreamReader( new InputStreamReader( new ByteArrayInputStream( content.getBytes(
+        StandardCharsets.UTF_8 ) ), StandardCharsets.UTF_8 ) );
+    StringBuilder builder = new StringBuilder();
+    long lineNumber = 0;
+    try {
+      TextFileLine line = TextFileInputUtils.getLine( Mockito.mock( LogChannelInterface.class ), reader,
+        EncodingType.SINGLE, format, builder, "\"", escape, lineNumber );
+      while ( line.getLine() != null ) {
+        lines.add( line.getLineNumber() + ":" + line.getLine() );
+        lineNumber = line.getLineNumber() + 1;
+        line = TextFileInputUtils.getLine( Mockito.mock( LogChannelInterface.class ), reader, EncodingType.SINGLE,
+          format, builder, "\"", escape, lineNumber );
+      }
+    } catch ( KettleFileException e ) {
+      lines.add( e.getMessage() );
+    }
+    return lines;
+  }
+
+  private static List<String> readBytes( String content, int format, String escape ) throws Exception {
+    List<String> lines = new ArrayList<>();
+    ByteLineReader reader =
+      new ByteLineReader( new ByteArrayInputStream( content.getBytes( StandardCharsets.UTF_8 ) ),
+        StandardCharsets.UTF_8, format, "\"", escape, 0, Long.MAX_VALUE );
+    long lineNumber = 0;
+    try {
+      TextFileLine line = reader.readLine( lineNumber, true, false );
+      while ( line != null ) {
+        lines.add( line.getLineNumber() + ":" + line.getLine() );
+        lineNumber = line.getLineNumber() + 1;
+        line = reader.readLine( lineNumber, true, false );
+      }
+    } catch ( KettleFileException e ) {
+      lines.add( e.getMessage() );
+    }
+    return lines;
+  }
+}
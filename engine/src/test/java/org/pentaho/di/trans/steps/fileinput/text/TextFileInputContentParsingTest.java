@@ -250,4 +250,48 @@ public class TextFileInputContentParsingTest extends BaseTextParsingTest {
 
     check( new Object[][] { { "data", "1" } } );
   }
+
+  @Test
+  public void testLazyConversion() throws Exception {
+
+    meta.content.lazyConversion = true;
+    initByFile( "default.csv" );
+
+    setFields( new BaseFileField( "f1", -1, -1 ), new BaseFileField( "f2", -1, -1 ),
+      new BaseFileField( "f2", -1, -1 ) );
+
+    process();
+
+    checkLazy( new Object[][] { { "first", "1", "1.1" }, { "second", "2", "2.2" }, { "third", "3", "3.3" } } );
+  }
+
+  @Test
+  public void testLazyConversionWithFilter() throws Exception {
+
+    meta.content.lazyConversion = true;
+    meta.setFilter( new TextFileFilter[] { new TextFileFilter( 0, "second", false, false ) } );
+    initByFile( "default.csv" );
+
+    setFields( new BaseFileField( "f1", -1, -1 ), new BaseFileField( "f2", -1, -1 ),
+      new BaseFileField( "f2", -1, -1 ) );
+
+    process();
+
+    checkLazy( new Object[][] { { "first", "1", "1.1" }, { "third", "3", "3.3" } } );
+  }
+
+  @Test
+  public void testLazyConversionBOM_UTF8() throws Exception {
+
+    meta.content.encoding = "UTF-8";
+    meta.content.header = false;
+    meta.content.lazyConversion = true;
+    initByFile( "test-BOM-UTF-8.txt" );
+
+    setFields( new BaseFileField( "f1", -1, -1 ), new BaseFileField( "f2", -1, -1 ) );
+
+    process();
+
+    checkLazy( new Object[][] { { "data", "1" } } );
+  }
 }
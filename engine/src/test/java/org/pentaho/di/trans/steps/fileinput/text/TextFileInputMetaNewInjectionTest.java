@@ -185,6 +185,18 @@ public class TextFileInputMetaNewInjectionTest extends BaseMetadataInjectionTest
       }
     } );
 
+    check( "LAZY_CONVERSION", new BooleanGetter() {
+      public boolean get() {
+        return meta.content.lazyConversion;
+      }
+    } );
+
+    check( "RUNNING_IN_PARALLEL", new BooleanGetter() {
+      public boolean get() {
+        return meta.content.runningInParallel;
+      }
+    } );
+
     check( "ROW_LIMIT", new LongGetter() {
       public long get() {
         return meta.content.rowLimit;
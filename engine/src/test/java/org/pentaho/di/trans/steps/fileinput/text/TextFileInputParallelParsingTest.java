@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.file.BaseFileField;
+
+/**
+ * Every copy of the step reads its own byte range of the file when running in parallel. Taken together, the copies
+ * read every line once.
+ */
+public class TextFileInputParallelParsingTest extends BaseTextParsingTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testHeaderAndFooter() throws Exception {
+    for ( int copies = 1; copies <= 5; copies++ ) {
+      rows.clear();
+
+      processCopies( "parallel.csv", copies );
+
+      check( expectedRows( "" ) );
+    }
+  }
+
+  @Test
+  public void testBOM_UTF8() throws Exception {
+    meta.content.encoding = "UTF-8";
+    for ( int copies = 1; copies <= 5; copies++ ) {
+      rows.clear();
+
+      processCopies( "parallel-BOM-UTF-8.csv", copies );
+
+      check( expectedRows( "" ) );
+    }
+  }
+
+  @Test
+  public void testLazyConversion() throws Exception {
+    meta.content.lazyConversion = true;
+
+    processCopies( "parallel.csv", 3 );
+
+    checkLazy( expectedRows( "" ) );
+  }
+
+  @Test
+  public void testLazyConversionWithFilter() throws Exception {
+    meta.content.lazyConversion = true;
+    meta.setFilter( new TextFileFilter[] { new TextFileFilter( 0, "row1", false, false ) } );
+
+    processCopies( "parallel.csv", 3 );
+
+    checkLazy( expectedRows( "row1" ) );
+  }
+
+  @Test
+  public void testRowLimitPerCopy() throws Exception {
+    meta.content.rowLimit = 4;
+
+    processCopies( "parallel.csv", 3 );
+
+    // Every copy reads 4 lines, for the first copy one of them is the header
+    checkErrors();
+    assertEquals( 11, rows.size() );
+  }
+
+  /**
+   * Runs the copies of the step one after the other, the rows of the first copy come first.
+   */
+  private void processCopies( String file, int copies ) throws Exception {
+    meta.content.header = true;
+    meta.content.nrHeaderLines = 1;
+    meta.content.footer = true;
+    meta.content.nrFooterLines = 1;
+    meta.content.runningInParallel = true;
+    stepMeta.setCopies( copies );
+
+    for ( int copyNr = 0; copyNr < copies; copyNr++ ) {
+      data = new TextFileInputData();
+      data.outputRowMeta = new RowMeta();
+      initByFile( file, copyNr );
+      setFields( new BaseFileField( "Name", -1, -1 ), new BaseFileField( "Number", -1, -1 ) );
+
+      process();
+      checkErrors();
+    }
+  }
+
+  /**
+   * @return the data rows of parallel.csv, without the ones that start with the filtered string
+   */
+  private static Object[][] expectedRows( String filtered ) {
+    List<Object[]> expected = new ArrayList<>();
+    for ( int i = 1; i <= 30; i++ ) {
+      String name = String.format( "row%02d", i );
+      if ( filtered.isEmpty() || !name.startsWith( filtered ) ) {
+        expected.add( new Object[] { name, Integer.toString( i ) } );
+      }
+    }
+    return expected.toArray( new Object[ 0 ][] );
+  }
+}
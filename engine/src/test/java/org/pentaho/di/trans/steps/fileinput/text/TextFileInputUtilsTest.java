@@ -242,4 +242,27 @@ public class TextFileInputUtilsTest {
     Assert.assertNotNull(strings);
     Assert.assertEquals("{\"Example1\":\"\",\"Example\":\"Test\"}", strings[0]);//""""
   }
+
+  @Test
+  public void convertLineToBinaryStrings() throws Exception {
+    TextFileInputMeta inputMeta = Mockito.mock( TextFileInputMeta.class );
+    inputMeta.content = new TextFileInputMeta.Content();
+    inputMeta.content.fileType = "CSV";
+    inputMeta.inputFields = new BaseFileField[ 3 ];
+    LogChannelInterface log = Mockito.mock( LogChannelInterface.class );
+
+    String[] lines = { "a;b;c", "a;b", "a;b;", "", ";;", "\"a;1\";\"b\"\"2\";c", "\"\"\"\";x;\"\"", "\"unclosed;x",
+      "a;b;c;d;e", "\"a\"\"\"\"b\";\u00e9t\u00e9;c", "\"x\"y;z" };
+    for ( String line : lines ) {
+      // Lazy conversion splits the bytes of the line the same way as the characters
+      String[] strings = TextFileInputUtils.convertLineToStrings( log, line, inputMeta, ";", "\"", "" );
+      byte[][] binaryStrings = TextFileInputUtils
+        .convertLineToBinaryStrings( log, line.getBytes( StandardCharsets.UTF_8 ), 3, ";", "\"", "UTF-8" );
+      Assert.assertEquals( 3, binaryStrings.length );
+      for ( int i = 0; i < 3; i++ ) {
+        Assert.assertEquals( line, strings[ i ], binaryStrings[ i ] == null ? null
+          : new String( binaryStrings[ i ], StandardCharsets.UTF_8 ) );
+      }
+    }
+  }
 }
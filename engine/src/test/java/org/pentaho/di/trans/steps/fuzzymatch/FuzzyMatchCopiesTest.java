@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fuzzymatch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+
+/**
+ * Runs Fuzzy Match in several copies, which share the index of the lookup values.
+ */
+public class FuzzyMatchCopiesTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String[] NAMES = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel" };
+
+  @Test
+  public void testLookupStepWithOneCopyCopyingRows() throws Exception {
+    assertEveryNameMatches( 1, false );
+  }
+
+  @Test
+  public void testLookupStepWithOneCopyDistributingRows() throws Exception {
+    assertEveryNameMatches( 1, true );
+  }
+
+  @Test
+  public void testLookupStepWithAsManyCopies() throws Exception {
+    // Each copy of Fuzzy Match only gets the rows of one copy of the lookup step
+    assertEveryNameMatches( 2, false );
+  }
+
+  @Test
+  public void testLookupStepWithOtherNumberOfCopies() throws Exception {
+    // Each copy of Fuzzy Match gets the rows of all the copies of the lookup step
+    assertEveryNameMatches( 3, false );
+  }
+
+  private void assertEveryNameMatches( int lookupCopies, boolean lookupDistributes ) throws Exception {
+    TransMeta transMeta = new TransMeta();
+    StepMeta main = addStep( transMeta, new InjectorMeta(), "main", 1 );
+    StepMeta lookupInput = addStep( transMeta, new InjectorMeta(), "lookup input", 1 );
+    StepMeta lookup = addStep( transMeta, new DummyTransMeta(), "lookup", lookupCopies );
+    lookup.setDistributes( lookupDistributes );
+
+    FuzzyMatchMeta meta = new FuzzyMatchMeta();
+    meta.setDefault();
+    meta.setAlgorithmType( FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN );
+    meta.setMainStreamField( "name" );
+    meta.setLookupField( "name" );
+    meta.setOutputMatchField( "match" );
+    meta.setMaximalValue( "0" );
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( lookup );
+    StepMeta fuzzyMatch = addStep( transMeta, meta, "fuzzy match", 2 );
+    StepMeta output = addStep( transMeta, new DummyTransMeta(), "output", 1 );
+
+    transMeta.addTransHop( new TransHopMeta( lookupInput, lookup ) );
+    transMeta.addTransHop( new TransHopMeta( lookup, fuzzyMatch ) );
+    transMeta.addTransHop( new TransHopMeta( main, fuzzyMatch ) );
+    transMeta.addTransHop( new TransHopMeta( fuzzyMatch, output ) );
+
+    Trans trans = new Trans( transMeta );
+    trans.prepareExecution( null );
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( "output", 0 ).addRowListener( collector );
+    RowProducer lookupProducer = trans.addRowProducer( "lookup input", 0 );
+    RowProducer mainProducer = trans.addRowProducer( "main", 0 );
+    trans.startThreads();
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    for ( String name : NAMES ) {
+      lookupProducer.putRow( rowMeta, new Object[] { name } );
+    }
+    lookupProducer.finished();
+    for ( int i = 0; i < 4; i++ ) {
+      for ( String name : NAMES ) {
+        mainProducer.putRow( rowMeta, new Object[] { name } );
+      }
+    }
+    mainProducer.finished();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    List<RowMetaAndData> rows = collector.getRowsWritten();
+    assertEquals( 4 * NAMES.length, rows.size() );
+    List<String> unmatched = new ArrayList<>();
+    for ( RowMetaAndData row : rows ) {
+      if ( !row.getString( "name", null ).equals( row.getString( "match", null ) ) ) {
+        unmatched.add( row.getString( "name", null ) );
+      }
+    }
+    assertEquals( new ArrayList<String>(), unmatched );
+  }
+
+  private static StepMeta addStep( TransMeta transMeta, StepMetaInterface stepMetaInterface, String name,
+    int copies ) {
+    StepMeta stepMeta = new StepMeta(
+      PluginRegistry.getInstance().getPluginId( StepPluginType.class, stepMetaInterface ), name, stepMetaInterface );
+    stepMeta.setCopies( copies );
+    transMeta.addStep( stepMeta );
+    return stepMeta;
+  }
+}
@@ -0,0 +1,164 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fuzzymatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+import org.pentaho.di.core.util.Utils;
+
+import com.wcohen.ss.Jaro;
+import com.wcohen.ss.JaroWinkler;
+
+public class FuzzyMatchIndexTest {
+
+  private static final String[] WORDS = { "Catrine", "Catriny", "Katrina", "John", "Jon", "Johnny", "Smith",
+    "Smyth", "Schmidt", "", "Anne Marie", "Annemarie", "a", "CATRINE" };
+
+  private static List<String> values() {
+    List<String> values = new ArrayList<>( Arrays.asList( WORDS ) );
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 150; i++ ) {
+      char[] chars = new char[ random.nextInt( 8 ) ];
+      for ( int j = 0; j < chars.length; j++ ) {
+        chars[ j ] = "abcdeAB ".charAt( random.nextInt( 8 ) );
+      }
+      values.add( new String( chars ) );
+    }
+    return values;
+  }
+
+  private static FuzzyMatchIndex index( int algorithm, boolean caseSensitive, List<String> values ) {
+    FuzzyMatchIndex index = new FuzzyMatchIndex( algorithm, caseSensitive );
+    for ( String value : values ) {
+      index.add( new Object[] { value } );
+    }
+    index.doneAdding();
+    return index;
+  }
+
+  @Test
+  public void testCloseValues() throws Exception {
+    List<String> values = values();
+    for ( int algorithm : new int[] { FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN,
+      FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN } ) {
+      for ( boolean caseSensitive : new boolean[] { true, false } ) {
+        FuzzyMatchIndex index = index( algorithm, caseSensitive, values );
+        assertTrue( index.waitUntilBuilt( 0L ) );
+        FuzzyMatchIndex.Search search = index.newSearch();
+        for ( String value : values ) {
+          for ( int maximalDistance = 0; maximalDistance < 4; maximalDistance++ ) {
+            int[] candidates = search.getCloseValues( value, maximalDistance );
+            for ( int i = 1; i < candidates.length; i++ ) {
+              assertTrue( candidates[ i - 1 ] < candidates[ i ] );
+            }
+            // Every value within the distance is a candidate
+            for ( int i = 0; i < values.size(); i++ ) {
+              String a = caseSensitive ? value : value.toLowerCase();
+              String b = caseSensitive ? values.get( i ) : values.get( i ).toLowerCase();
+              int distance = algorithm == FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN
+                ? StringUtils.getLevenshteinDistance( b, a ) : Utils.getDamerauLevenshteinDistance( b, a );
+              if ( distance <= maximalDistance ) {
+                assertTrue( value + " ~ " + values.get( i ), Arrays.binarySearch( candidates, i ) >= 0 );
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSimilarValues() {
+    List<String> values = values();
+    for ( int algorithm : new int[] { FuzzyMatchMeta.OPERATION_TYPE_JARO, FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER,
+      FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY } ) {
+      FuzzyMatchIndex index = index( algorithm, true, values );
+      FuzzyMatchIndex.Search search = index.newSearch();
+      for ( String value : values ) {
+        for ( double minimalSimilarity : new double[] { 0.0, 0.5, 0.8, 1.0 } ) {
+          int[] candidates = search.getSimilarValues( value, minimalSimilarity, true );
+          double[] bounds = new double[ candidates.length ];
+          for ( int i = 0; i < candidates.length; i++ ) {
+            bounds[ i ] = search.getBound( i );
+            if ( i > 0 ) {
+              assertTrue( bounds[ i - 1 ] >= bounds[ i ] );
+            }
+          }
+          int[] sorted = candidates.clone();
+          Arrays.sort( sorted );
+          // Every value that is similar enough is a candidate, and no more similar than its bound
+          for ( int i = 0; i < values.size(); i++ ) {
+            double similarity = similarity( algorithm, values.get( i ), value );
+            int position = -1;
+            for ( int c = 0; c < candidates.length; c++ ) {
+              if ( candidates[ c ] == i ) {
+                position = c;
+              }
+            }
+            if ( similarity >= minimalSimilarity ) {
+              assertTrue( value + " ~ " + values.get( i ), position >= 0 );
+            }
+            // Values without letter pairs have no pair similarity (NaN), they never match
+            if ( position >= 0 && !Double.isNaN( similarity ) ) {
+              assertTrue( value + " ~ " + values.get( i ), similarity <= bounds[ position ] );
+            }
+          }
+          assertArrayEquals( sorted, search.getSimilarValues( value, minimalSimilarity, false ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSameCode() {
+    List<String> values = values();
+    FuzzyMatchIndex index = index( FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX, false, values );
+    int[] candidates = index.getSameCode( FuzzyMatchIndex.getEncodedMF( "Smith", FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX ) );
+    List<String> found = new ArrayList<>();
+    for ( int candidate : candidates ) {
+      found.add( (String) index.getRow( candidate )[ 0 ] );
+    }
+    assertEquals( Arrays.asList( "Smith", "Smyth", "Schmidt" ), found );
+    assertEquals( 0, index.getSameCode( null ).length );
+  }
+
+  private static double similarity( int algorithm, String cacheValue, String value ) {
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+        return new Jaro().score( cacheValue, value );
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+        return new JaroWinkler().score( cacheValue, value );
+      default:
+        return LetterPairSimilarity.getSimiliarity( cacheValue, value );
+    }
+  }
+}
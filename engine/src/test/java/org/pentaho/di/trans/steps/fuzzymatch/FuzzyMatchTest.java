@@ -29,7 +29,6 @@ import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 
 import org.junit.After;
@@ -122,7 +121,6 @@ public class FuzzyMatchTest {
     mockHelper.cleanUp();
   }
 
-  @SuppressWarnings( "unchecked" )
   @Test
   public void testProcessRow() throws Exception {
     fuzzyMatch =
@@ -133,8 +131,13 @@ public class FuzzyMatchTest {
     fuzzyMatch.addRowSetToInputRowSets( mockHelper.getMockInputRowSet( lookupRows ) );
 
     when( mockHelper.processRowsStepMetaInterface.getAlgorithmType() ).thenReturn( 8 );
-    mockHelper.processRowsStepDataInterface.look = mock( HashSet.class );
-    when( mockHelper.processRowsStepDataInterface.look.iterator() ).thenReturn( lookupRows.iterator() );
+    FuzzyMatchIndex index = new FuzzyMatchIndex( 8, false );
+    for ( Object[] lookupRow : lookupRows ) {
+      index.add( lookupRow );
+    }
+    index.doneAdding();
+    mockHelper.processRowsStepDataInterface.index = index;
+    mockHelper.processRowsStepDataInterface.search = index.newSearch();
 
     fuzzyMatch.processRow( mockHelper.processRowsStepMetaInterface, mockHelper.processRowsStepDataInterface );
     Assert.assertEquals( fuzzyMatch.resultRow[0], row3[0] );
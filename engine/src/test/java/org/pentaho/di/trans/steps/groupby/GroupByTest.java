@@ -26,6 +26,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.vfs2.FileSystemException;
@@ -36,6 +37,8 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettlePluginException;
@@ -44,6 +47,7 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaPluginType;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.Variables;
@@ -54,6 +58,7 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 import org.pentaho.metastore.api.IMetaStore;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -229,4 +234,217 @@ public class GroupByTest  {
     // since path started with "file:///"
     verify( groupBySpy, times( 1 ) ).retrieveVfsPath( anyString() );
   }
+
+  @Test
+  public void testVectorizedAggregatesMatchRowByRow() throws KettleException {
+    List<Object[]> expected = runGroupBy( "N" );
+    List<Object[]> actual = runGroupBy( "Y" );
+
+    assertEquals( 20, expected.size() );
+    assertEquals( expected.size(), actual.size() );
+    for ( int i = 0; i < expected.size(); i++ ) {
+      assertArrayEquals( expected.get( i ), actual.get( i ) );
+    }
+  }
+
+  private List<Object[]> runGroupBy( String vectorized ) throws KettleException {
+    RowMetaInterface inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "group" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "count" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+
+    RowSet input = new QueueRowSet();
+    for ( long i = 0; i < 1000; i++ ) {
+      input.putRow( inputRowMeta, new Object[] {
+        "g" + ( i / 50 ),
+        i % 13 == 0 ? null : i % 17,
+        i % 11 == 0 ? null : i / 3.0 } );
+    }
+    input.setDone();
+
+    GroupByMeta meta = new GroupByMeta();
+    meta.allocate( 1, 7 );
+    meta.setGroupField( new String[] { "group" } );
+    meta.setAggregateField( new String[] { "sum", "avg", "min", "max", "sum_amount", "count_all", "max_amount" } );
+    meta.setSubjectField( new String[] { "count", "count", "count", "count", "amount", "amount", "amount" } );
+    meta.setAggregateType( new int[] {
+      GroupByMeta.TYPE_GROUP_SUM,
+      GroupByMeta.TYPE_GROUP_AVERAGE,
+      GroupByMeta.TYPE_GROUP_MIN,
+      GroupByMeta.TYPE_GROUP_MAX,
+      GroupByMeta.TYPE_GROUP_SUM,
+      GroupByMeta.TYPE_GROUP_COUNT_ALL,
+      GroupByMeta.TYPE_GROUP_MAX } );
+
+    GroupByData data = new GroupByData();
+    GroupBy groupBy = new GroupBy( mockHelper.stepMeta, data, 0, mockHelper.transMeta, mockHelper.trans );
+    groupBy.setVariable( Const.KETTLE_VECTORIZED_STEPS, vectorized );
+    groupBy.addRowSetToInputRowSets( input );
+    RowSet output = new QueueRowSet();
+    List<RowSet> outputRowSets = new ArrayList<>();
+    outputRowSets.add( output );
+    groupBy.setOutputRowSets( outputRowSets );
+
+    while ( groupBy.processRow( meta, data ) ) {
+      // keep going until all the input is aggregated
+    }
+    assertEquals( "Y".equals( vectorized ), data.vectorized );
+
+    List<Object[]> rows = new ArrayList<>();
+    Object[] row = output.getRowImmediate();
+    while ( row != null ) {
+      rows.add( row );
+      row = output.getRowImmediate();
+    }
+    return rows;
+  }
+
+  @Test
+  public void testApproximateAggregates() throws KettleException {
+    RowMetaInterface inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "group" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 0; i < 1000; i++ ) {
+      // 200 distinct values, 5 times each, and some nulls that don't count
+      rows.add( new Object[] { "g", i % 200 + 1 } );
+      if ( i % 100 == 0 ) {
+        rows.add( new Object[] { "g", null } );
+      }
+    }
+
+    GroupByMeta meta = newGroupByMeta( new String[] { "distinct", "median", "p90" },
+      new String[] { "value", "value", "value" },
+      new int[] { GroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX, GroupByMeta.TYPE_GROUP_MEDIAN_APPROX,
+        GroupByMeta.TYPE_GROUP_PERCENTILE_APPROX } );
+    meta.setValueField( new String[] { null, null, "90" } );
+
+    List<Object[]> output = aggregate( meta, new GroupByData(), inputRowMeta, rows );
+
+    assertEquals( 1, output.size() );
+    assertEquals( 200.0, (Long) output.get( 0 )[ 1 ], 2.0 );
+    assertEquals( 100.5, (Double) output.get( 0 )[ 2 ], 2.0 );
+    assertEquals( 180.5, (Double) output.get( 0 )[ 3 ], 2.0 );
+  }
+
+  @Test
+  public void testPrimitiveAggregates() throws KettleException {
+    for ( String vectorized : new String[] { "N", "Y" } ) {
+      GroupByMeta meta = newGroupByMeta( new String[] { "sum", "avg", "min", "max", "max_str" },
+        new String[] { "intg", "intg", "num", "num", "str" },
+        new int[] { GroupByMeta.TYPE_GROUP_SUM, GroupByMeta.TYPE_GROUP_AVERAGE, GroupByMeta.TYPE_GROUP_MIN,
+          GroupByMeta.TYPE_GROUP_MAX, GroupByMeta.TYPE_GROUP_MAX } );
+      GroupByData data = new GroupByData();
+
+      List<Object[]> output = aggregate( meta, data, subjectRowMeta(), subjectRows(), Const.KETTLE_VECTORIZED_STEPS,
+        vectorized );
+
+      assertArrayEquals( new boolean[] { true, true, true, true, false }, data.primitiveAggregates );
+      assertEquals( 2, output.size() );
+      assertArrayEquals( new Object[] { "a", 60L, 20L, -1.5, 2.5, "z" }, output.get( 0 ) );
+      // Only nulls for the numbers in the second group
+      assertArrayEquals( new Object[] { "b", null, null, null, null, "y" }, output.get( 1 ) );
+    }
+  }
+
+  @Test
+  public void testNoPrimitiveAggregates() throws KettleException {
+    GroupByMeta meta = newGroupByMeta( new String[] { "min_str", "count" }, new String[] { "str", "intg" },
+      new int[] { GroupByMeta.TYPE_GROUP_MIN, GroupByMeta.TYPE_GROUP_COUNT_ALL } );
+    GroupByData data = new GroupByData();
+
+    aggregate( meta, data, subjectRowMeta(), subjectRows() );
+
+    assertEquals( null, data.primitiveAggregates );
+  }
+
+  @Test
+  public void testMinNullIsValuedIsNotPrimitive() throws KettleException {
+    GroupByMeta meta = newGroupByMeta( new String[] { "min", "max" }, new String[] { "intg", "intg" },
+      new int[] { GroupByMeta.TYPE_GROUP_MIN, GroupByMeta.TYPE_GROUP_MAX } );
+    GroupByData data = new GroupByData();
+    List<Object[]> rows = subjectRows();
+    rows.add( 1, new Object[] { "a", null, 1.0, "c" } );
+
+    List<Object[]> output = aggregate( meta, data, subjectRowMeta(), rows, Const.KETTLE_AGGREGATION_MIN_NULL_IS_VALUED,
+      "Y" );
+
+    assertArrayEquals( new boolean[] { false, true }, data.primitiveAggregates );
+    assertArrayEquals( new Object[] { "a", null, 30L }, output.get( 0 ) );
+  }
+
+  @Test
+  public void testDescendingSubjectIsNotPrimitive() throws KettleException {
+    GroupByMeta meta = newGroupByMeta( new String[] { "min", "max", "sum" }, new String[] { "intg", "intg", "intg" },
+      new int[] { GroupByMeta.TYPE_GROUP_MIN, GroupByMeta.TYPE_GROUP_MAX, GroupByMeta.TYPE_GROUP_SUM } );
+    GroupByData data = new GroupByData();
+    RowMetaInterface inputRowMeta = subjectRowMeta();
+    inputRowMeta.getValueMeta( 1 ).setSortedDescending( true );
+
+    List<Object[]> output = aggregate( meta, data, inputRowMeta, subjectRows() );
+
+    assertArrayEquals( new boolean[] { false, false, true }, data.primitiveAggregates );
+    // The row by row comparison accounts for the reversed sort order of the field
+    assertArrayEquals( new Object[] { "a", 10L, 30L, 60L }, output.get( 0 ) );
+  }
+
+  private static RowMetaInterface subjectRowMeta() {
+    RowMetaInterface inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "group" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "intg" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "num" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "str" ) );
+    return inputRowMeta;
+  }
+
+  private static List<Object[]> subjectRows() {
+    List<Object[]> rows = new ArrayList<>();
+    rows.add( new Object[] { "a", 10L, 2.5, "x" } );
+    rows.add( new Object[] { "a", 30L, -1.5, "z" } );
+    rows.add( new Object[] { "a", 20L, null, null } );
+    rows.add( new Object[] { "b", null, null, "y" } );
+    return rows;
+  }
+
+  private static GroupByMeta newGroupByMeta( String[] aggregateFields, String[] subjectFields, int[] aggregateTypes ) {
+    GroupByMeta meta = new GroupByMeta();
+    meta.allocate( 1, aggregateFields.length );
+    meta.setGroupField( new String[] { "group" } );
+    meta.setAggregateField( aggregateFields );
+    meta.setSubjectField( subjectFields );
+    meta.setAggregateType( aggregateTypes );
+    meta.setValueField( new String[ aggregateFields.length ] );
+    return meta;
+  }
+
+  private List<Object[]> aggregate( GroupByMeta meta, GroupByData data, RowMetaInterface inputRowMeta,
+    List<Object[]> rows, String... variables ) throws KettleException {
+    RowSet input = new QueueRowSet();
+    for ( Object[] row : rows ) {
+      input.putRow( inputRowMeta, row );
+    }
+    input.setDone();
+
+    GroupBy groupBy = new GroupBy( mockHelper.stepMeta, data, 0, mockHelper.transMeta, mockHelper.trans );
+    for ( int i = 0; i < variables.length; i += 2 ) {
+      groupBy.setVariable( variables[ i ], variables[ i + 1 ] );
+    }
+    groupBy.addRowSetToInputRowSets( input );
+    RowSet output = new QueueRowSet();
+    List<RowSet> outputRowSets = new ArrayList<>();
+    outputRowSets.add( output );
+    groupBy.setOutputRowSets( outputRowSets );
+
+    while ( groupBy.processRow( meta, data ) ) {
+      // keep going until all the input is aggregated
+    }
+
+    List<Object[]> result = new ArrayList<>();
+    Object[] row = output.getRowImmediate();
+    while ( row != null ) {
+      result.add( Arrays.copyOf( row, 1 + meta.getAggregateField().length ) );
+      row = output.getRowImmediate();
+    }
+    return result;
+  }
 }
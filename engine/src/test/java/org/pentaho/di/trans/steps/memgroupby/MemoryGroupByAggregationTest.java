@@ -323,6 +323,28 @@ public class MemoryGroupByAggregationTest {
     assertThat( output.getInteger( "value_count_distinct" ), is( 3L ) );
   }
 
+  @Test
+  public void testApproximate() throws Exception {
+    addColumn( new ValueMetaInteger( "intg" ), 0L, 1L, 1L, 10L );
+    addColumn( new ValueMetaInteger( "nul" ) );
+    addColumn( new ValueMetaNumber( "num" ), -1.0, null, 2.5, 2.5 );
+
+    aggregates = ImmutableMap.of(
+      "count_distinct_approx", MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX,
+      "median_approx", MemoryGroupByMeta.TYPE_GROUP_MEDIAN_APPROX );
+
+    RowMetaAndData output = runStep();
+
+    assertThat( output.getInteger( "intg_count_distinct_approx" ), is( 3L ) );
+    assertThat( output.getNumber( "intg_median_approx", Double.NaN ), is( 1.0 ) );
+
+    assertThat( output.getInteger( "nul_count_distinct_approx" ), is( 0L ) );
+    assertThat( output.getNumber( "nul_median_approx", Double.NaN ), is( Double.NaN ) );
+
+    assertThat( output.getInteger( "num_count_distinct_approx" ), is( 2L ) );
+    assertThat( output.getNumber( "num_median_approx", Double.NaN ), is( 2.5 ) );
+  }
+
   private RowMetaAndData runStep() throws KettleException {
     // Allocate meta
     List<String> aggKeys = ImmutableList.copyOf( aggregates.keySet() );
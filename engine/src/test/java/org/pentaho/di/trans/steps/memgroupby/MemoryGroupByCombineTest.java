@@ -0,0 +1,182 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+public class MemoryGroupByCombineTest {
+
+  private static final int[] TYPES = {
+    MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_AVERAGE,
+    MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION, MemoryGroupByMeta.TYPE_GROUP_MEDIAN,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, MemoryGroupByMeta.TYPE_GROUP_MIN, MemoryGroupByMeta.TYPE_GROUP_MAX,
+    MemoryGroupByMeta.TYPE_GROUP_FIRST, MemoryGroupByMeta.TYPE_GROUP_LAST,
+    MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA };
+
+  static StepMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
+
+  MemoryGroupBy step;
+  MemoryGroupByData data;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    mockHelper =
+        new StepMockHelper<MemoryGroupByMeta, MemoryGroupByData>( "Memory Group By", MemoryGroupByMeta.class,
+            MemoryGroupByData.class );
+    when( mockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+        mockHelper.logChannelInterface );
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, TYPES.length );
+    meta.getGroupField()[0] = "key";
+    for ( int i = 0; i < TYPES.length; i++ ) {
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateField()[i] = "agg" + i;
+      meta.getAggregateType()[i] = TYPES[i];
+    }
+    when( mockHelper.stepMeta.getStepMetaInterface() ).thenReturn( meta );
+
+    data = new MemoryGroupByData();
+    data.inputRowMeta = new RowMeta();
+    data.inputRowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    data.inputRowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    data.groupMeta = new RowMeta();
+    data.groupMeta.addValueMeta( new ValueMetaString( "key" ) );
+    data.groupnrs = new int[] { 0 };
+    data.subjectnrs = new int[TYPES.length];
+    Arrays.fill( data.subjectnrs, 1 );
+    data.map = new HashMap<>();
+
+    step = new MemoryGroupBy( mockHelper.stepMeta, data, 0, mockHelper.transMeta, mockHelper.trans );
+    step.newAggregate( null, null );
+  }
+
+  @Test
+  public void testMergedAggregatesEqualAggregatingAllRows() throws KettleException {
+    double[] values = { 4.0, -1.5, 7.25, 4.0, 10.0, 0.5, 3.0 };
+    for ( int split = 0; split <= values.length; split++ ) {
+      Aggregate first = aggregate( Arrays.copyOfRange( values, 0, split ) );
+      Aggregate second = aggregate( Arrays.copyOfRange( values, split, values.length ) );
+      Aggregate all = aggregate( values );
+
+      step.mergeAggregate( first, second );
+
+      Object[] expected = step.getAggregateResult( all );
+      Object[] actual = step.getAggregateResult( first );
+      for ( int i = 0; i < TYPES.length; i++ ) {
+        if ( TYPES[i] == MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION ) {
+          assertEquals( (Double) expected[i], (Double) actual[i], 1e-9 );
+        } else {
+          assertEquals( "aggregate type " + TYPES[i] + ", split at " + split, expected[i], actual[i] );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPartitionsAreAssignedToCopiesWithRows() throws KettleException {
+    CopyCombiner combiner = new CopyCombiner( 3, 8 );
+    Map<HashEntry, Aggregate> groups = new HashMap<>();
+    for ( int i = 0; i < 100; i++ ) {
+      groups.put( data.getHashEntry( new Object[] { "key" + i } ), new Aggregate() );
+    }
+    combiner.arrive( 0, groups, null );
+    combiner.arrive( 1, null, null );
+    combiner.arrive( 2, new HashMap<HashEntry, Aggregate>(), null );
+    assertTrue( combiner.await( () -> false ) );
+    assertFalse( combiner.isEmpty() );
+
+    assertTrue( combiner.getPartitionsOf( 1 ).isEmpty() );
+    List<Integer> partitionNrs = new ArrayList<>( combiner.getPartitionsOf( 0 ) );
+    partitionNrs.addAll( combiner.getPartitionsOf( 2 ) );
+    assertEquals( 8, partitionNrs.size() );
+    assertEquals( 4, combiner.getPartitionsOf( 0 ).size() );
+
+    int nrGroups = 0;
+    for ( int partitionNr : partitionNrs ) {
+      nrGroups += combiner.getGroups( 0, partitionNr ).size();
+      assertTrue( combiner.getGroups( 1, partitionNr ).isEmpty() );
+    }
+    assertEquals( 100, nrGroups );
+  }
+
+  @Test
+  public void testNoCopyWithRows() throws KettleException {
+    CopyCombiner combiner = new CopyCombiner( 2, 4 );
+    combiner.arrive( 0, null, null );
+    combiner.arrive( 1, null, null );
+    assertTrue( combiner.await( () -> false ) );
+    assertTrue( combiner.isEmpty() );
+  }
+
+  @Test
+  public void testStoppedWhileWaiting() throws KettleException {
+    CopyCombiner combiner = new CopyCombiner( 2, 4 );
+    combiner.arrive( 0, null, null );
+    assertFalse( combiner.await( () -> true ) );
+  }
+
+  private Aggregate aggregate( double[] values ) throws KettleException {
+    data.map.clear();
+    Object[] row = new Object[] { "group", null };
+    Aggregate aggregate = new Aggregate();
+    step.newAggregate( row, aggregate );
+    data.map.put( data.getHashEntry( new Object[] { "group" } ), aggregate );
+    for ( double value : values ) {
+      step.addToAggregate( new Object[] { "group", value } );
+    }
+    return aggregate;
+  }
+}
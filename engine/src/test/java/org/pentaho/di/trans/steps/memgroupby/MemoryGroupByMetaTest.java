@@ -71,7 +71,8 @@ public class MemoryGroupByMetaTest implements InitializerInterface<MemoryGroupBy
     KettleEnvironment.init();
     PluginRegistry.init( false );
     List<String> attributes =
-        Arrays.asList( "alwaysGivingBackOneRow", "groupField", "aggregateField", "subjectField", "aggregateType", "valueField" );
+        Arrays.asList( "alwaysGivingBackOneRow", "combiningCopies", "groupField", "aggregateField", "subjectField",
+          "aggregateType", "valueField" );
 
     FieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
         new ArrayLoadSaveValidator<String>( new StringLoadSaveValidator(), 5 );
@@ -0,0 +1,189 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+  private static final int NR_GROUPS = 20000;
+  private static final int NR_ROWS = 3 * NR_GROUPS;
+
+  private Variables variables;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    variables = new Variables();
+  }
+
+  @Test
+  public void testSpilledGroupsAreAggregatedCorrectly() throws Exception {
+    variables.setVariable( Const.KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET, "1" );
+    variables.setVariable( Const.KETTLE_MEMORY_GROUP_BY_SPILL_PARTITIONS, "4" );
+
+    MemoryGroupBy step = runStep();
+
+    assertTrue( step.getBytesSpilled() > 0 );
+    // Partitions of 5000 groups don't fit in 1 MB either and get split up again
+    assertTrue( step.getPartitionsSpilled() > 4 );
+  }
+
+  @Test
+  public void testNoSpillWithoutBudget() throws Exception {
+    variables.setVariable( Const.KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET, "0" );
+
+    MemoryGroupBy step = runStep();
+
+    assertEquals( 0, step.getBytesSpilled() );
+    assertEquals( 0, step.getPartitionsSpilled() );
+  }
+
+  @Test
+  public void testPartitionsOfNextLevelDiffer() {
+    // The rows of one partition must be spread over the partitions of the next level
+    boolean[] used = new boolean[16];
+    for ( int hashCode = 0; hashCode < 100000; hashCode++ ) {
+      if ( MemoryGroupBy.getPartitionNr( hashCode, 0, 16 ) == 3 ) {
+        used[MemoryGroupBy.getPartitionNr( hashCode, 1, 16 )] = true;
+      }
+    }
+    for ( boolean partitionUsed : used ) {
+      assertTrue( partitionUsed );
+    }
+  }
+
+  /**
+   * Aggregates NR_ROWS rows over NR_GROUPS groups and checks the result of every group.
+   */
+  private MemoryGroupBy runStep() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, 5 );
+    meta.getGroupField()[0] = "key";
+    String[] names = { "sum", "count", "first", "last", "concat" };
+    int[] types = { MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL,
+      MemoryGroupByMeta.TYPE_GROUP_FIRST, MemoryGroupByMeta.TYPE_GROUP_LAST,
+      MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA };
+    for ( int i = 0; i < names.length; i++ ) {
+      meta.getAggregateField()[i] = names[i];
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = types[i];
+    }
+
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.map = new HashMap<>();
+
+    TransMeta transMeta = mock( TransMeta.class );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    step.copyVariablesFrom( variables );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+
+    Iterator<Object[]> rows = new Iterator<Object[]>() {
+      private long rowNr;
+
+      @Override
+      public boolean hasNext() {
+        return rowNr < NR_ROWS;
+      }
+
+      @Override
+      public Object[] next() {
+        long value = rowNr++;
+        return new Object[] { "group-" + ( value % NR_GROUPS ), value };
+      }
+    };
+    doAnswer( invocation -> rows.hasNext() ? rows.next() : null ).when( step ).getRow();
+
+    Map<String, Object[]> output = new HashMap<>();
+    doAnswer( invocation -> {
+      Object[] row = (Object[]) invocation.getArguments()[1];
+      assertNull( "duplicate group " + row[0], output.put( (String) row[0], row ) );
+      return null;
+    } ).when( step ).putRow( (RowMetaInterface) any(), (Object[]) any() );
+
+    while ( step.processRow( meta, data ) ) {
+      // aggregate all rows
+    }
+    step.dispose( meta, data );
+
+    assertEquals( NR_GROUPS, output.size() );
+    for ( int group = 0; group < NR_GROUPS; group++ ) {
+      Object[] row = output.get( "group-" + group );
+      long first = group;
+      long second = group + NR_GROUPS;
+      long last = group + 2 * NR_GROUPS;
+      assertEquals( first + second + last, row[1] );
+      assertEquals( 3L, row[2] );
+      assertEquals( first, row[3] );
+      assertEquals( last, row[4] );
+      assertEquals( first + ", " + second + ", " + last, row[5] );
+    }
+    assertFalse( step.isStopped() );
+    return step;
+  }
+}
@@ -0,0 +1,223 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.parallelgzipcsv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class GzipIndexTest {
+
+  private static byte[] csv( int size, long seed ) {
+    Random random = new Random( seed );
+    StringBuilder builder = new StringBuilder();
+    while ( builder.length() < size ) {
+      builder.append( random.nextInt( 100000 ) ).append( ';' ).append( "name" ).append( random.nextInt( 50 ) );
+      for ( int i = random.nextInt( 10 ) == 0 ? random.nextInt( 200 ) : 0; i > 0; i-- ) {
+        builder.append( (char) ( 'a' + random.nextInt( 26 ) ) );
+      }
+      builder.append( ';' ).append( random.nextDouble() ).append( '\n' );
+    }
+    return builder.toString().getBytes();
+  }
+
+  private static byte[] gzip( byte[] data, final int level ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream( out ) {
+      {
+        def.setLevel( level );
+      }
+    };
+    gzip.write( data );
+    gzip.close();
+    return out.toByteArray();
+  }
+
+  /**
+   * Compress in block gzip format: members of at most 64KB with the block size in a BC extra field.
+   */
+  private static byte[] bgzf( byte[] data ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] compressed = new byte[70000];
+    for ( int offset = 0; offset <= data.length; offset += 60000 ) {
+      int length = Math.min( 60000, data.length - offset );
+      Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+      deflater.setInput( data, offset, length );
+      deflater.finish();
+      int compressedLength = deflater.deflate( compressed );
+      deflater.end();
+      CRC32 crc = new CRC32();
+      crc.update( data, offset, length );
+
+      int blockSize = 18 + compressedLength + 8 - 1;
+      out.write( new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+        (byte) blockSize, (byte) ( blockSize >> 8 ) } );
+      out.write( compressed, 0, compressedLength );
+      writeInt( out, (int) crc.getValue() );
+      writeInt( out, length );
+      if ( length == 0 ) {
+        break; // the empty end-of-file block
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static void writeInt( ByteArrayOutputStream out, int value ) {
+    for ( int i = 0; i < 4; i++ ) {
+      out.write( value >>> ( 8 * i ) );
+    }
+  }
+
+  private static void assertReadsFromAnyOffset( byte[] data, byte[] compressed, GzipIndex index ) throws IOException {
+    assertEquals( data.length, index.getUncompressedSize() );
+    Random random = new Random( 1 );
+    for ( int i = 0; i < 20; i++ ) {
+      int offset = i == 0 ? 0 : i == 1 ? data.length : random.nextInt( data.length );
+      GzipIndexInputStream in =
+        new GzipIndexInputStream( new ByteArrayInputStream( compressed ), index, offset, 1000 + random.nextInt( 9000 ) );
+      try {
+        assertArrayEquals( "offset " + offset, Arrays.copyOfRange( data, offset, data.length ),
+          IOUtils.toByteArray( in ) );
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+  @Test
+  public void testPlainGzip() throws IOException {
+    byte[] data = csv( 1000000, 1 );
+    for ( int level : new int[] { 0, 1, 6, 9 } ) {
+      byte[] compressed = gzip( data, level );
+      GzipIndex index = GzipIndex.build( new ByteArrayInputStream( compressed ), 50000 );
+      assertFalse( index.isBlockGzip() );
+      assertTrue( index.getAccessPoints().size() > 10 );
+      assertReadsFromAnyOffset( data, compressed, index );
+    }
+  }
+
+  @Test
+  public void testAccessPointsInEveryBlock() throws IOException {
+    byte[] data = csv( 300000, 2 );
+    byte[] compressed = gzip( data, 9 );
+    GzipIndex index = GzipIndex.build( new ByteArrayInputStream( compressed ), 1 );
+    boolean bitOffsets = false;
+    for ( GzipIndex.AccessPoint accessPoint : index.getAccessPoints() ) {
+      bitOffsets |= accessPoint.getBits() != 0;
+    }
+    assertTrue( bitOffsets );
+    assertReadsFromAnyOffset( data, compressed, index );
+  }
+
+  @Test
+  public void testMultipleMembers() throws IOException {
+    byte[] first = csv( 500000, 3 );
+    byte[] second = csv( 10, 4 );
+    byte[] third = csv( 300000, 5 );
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    for ( byte[] member : new byte[][] { first, second, new byte[0], third } ) {
+      data.write( member );
+      compressed.write( gzip( member, 6 ) );
+    }
+    // Trailing garbage is ignored
+    compressed.write( new byte[] { 0, 0, 0 } );
+
+    GzipIndex index = GzipIndex.build( new ByteArrayInputStream( compressed.toByteArray() ), 100000 );
+    assertReadsFromAnyOffset( data.toByteArray(), compressed.toByteArray(), index );
+  }
+
+  @Test
+  public void testBlockGzip() throws IOException {
+    byte[] data = csv( 1000000, 6 );
+    byte[] compressed = bgzf( data );
+    assertTrue( GzipIndex.isBlockGzip( new ByteArrayInputStream( compressed ) ) );
+    assertFalse( GzipIndex.isBlockGzip( new ByteArrayInputStream( gzip( data, 6 ) ) ) );
+
+    GzipIndex index = GzipIndex.build( new ByteArrayInputStream( compressed ), 200000 );
+    assertTrue( index.isBlockGzip() );
+    assertEquals( 5, index.getAccessPoints().size() );
+    for ( GzipIndex.AccessPoint accessPoint : index.getAccessPoints() ) {
+      assertTrue( accessPoint.isMemberStart() );
+    }
+    assertReadsFromAnyOffset( data, compressed, index );
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    byte[] data = csv( 500000, 7 );
+    byte[] compressed = gzip( data, 6 );
+    GzipIndex index = GzipIndex.build( new ByteArrayInputStream( compressed ), 100000 );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    index.write( out, compressed.length, 1234L );
+
+    assertNull( GzipIndex.read( new ByteArrayInputStream( out.toByteArray() ), compressed.length, 1235L ) );
+    assertNull( GzipIndex.read( new ByteArrayInputStream( out.toByteArray() ), compressed.length + 1, 1234L ) );
+    GzipIndex copy = GzipIndex.read( new ByteArrayInputStream( out.toByteArray() ), compressed.length, 1234L );
+    assertEquals( index.getAccessPoints().size(), copy.getAccessPoints().size() );
+    assertReadsFromAnyOffset( data, compressed, copy );
+  }
+
+  @Test( expected = IOException.class )
+  public void testNotGzip() throws IOException {
+    GzipIndex.build( new ByteArrayInputStream( csv( 1000, 8 ) ), 100000 );
+  }
+
+  @Test
+  public void testAcquire() throws Exception {
+    final byte[] compressed = gzip( csv( 100000, 9 ), 6 );
+    final AtomicInteger builds = new AtomicInteger();
+    Map<String, Object> registry = new HashMap<String, Object>();
+
+    GzipIndex first = GzipIndex.acquire( registry, "key", 2, () -> {
+      builds.incrementAndGet();
+      return GzipIndex.build( new ByteArrayInputStream( compressed ), 10000 );
+    } );
+    assertTrue( registry.containsKey( "key" ) );
+    GzipIndex second = GzipIndex.acquire( registry, "key", 2, () -> {
+      builds.incrementAndGet();
+      return null;
+    } );
+    assertSame( first, second );
+    assertEquals( 1, builds.get() );
+    assertTrue( registry.isEmpty() );
+  }
+}
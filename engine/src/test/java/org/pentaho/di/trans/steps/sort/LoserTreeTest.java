@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LoserTreeTest {
+
+  private static final Comparator<long[]> BY_KEY = ( a, b ) -> Long.compare( a[0], b[0] );
+
+  @Test
+  public void testMergesAnyNumberOfSources() throws Exception {
+    Random random = new Random( 5 );
+    for ( int k = 1; k <= 17; k++ ) {
+      List<List<long[]>> runs = new ArrayList<>();
+      List<long[]> expected = new ArrayList<>();
+      for ( int i = 0; i < k; i++ ) {
+        List<long[]> run = new ArrayList<>();
+        int size = random.nextInt( 50 );
+        for ( int r = 0; r < size; r++ ) {
+          // key, run, position in the run
+          run.add( new long[] { random.nextInt( 20 ), i, r } );
+        }
+        Collections.sort( run, BY_KEY );
+        runs.add( run );
+        expected.addAll( run );
+      }
+      // A stable sort of the concatenated runs is what a stable merge gives
+      Collections.sort( expected, BY_KEY );
+
+      LoserTree<long[]> tree = new LoserTree<>( sources( runs ), BY_KEY );
+      for ( long[] element : expected ) {
+        assertSame( "k=" + k, element, tree.next() );
+      }
+      assertNull( tree.next() );
+      assertNull( tree.next() );
+    }
+  }
+
+  @Test
+  public void testNoSources() throws Exception {
+    assertNull( new LoserTree<>( new ArrayList<SortedSource<long[]>>(), BY_KEY ).next() );
+  }
+
+  @Test
+  public void testEmptySources() throws Exception {
+    List<List<long[]>> runs = new ArrayList<>();
+    runs.add( new ArrayList<>() );
+    runs.add( Collections.singletonList( new long[] { 3 } ) );
+    runs.add( new ArrayList<>() );
+    LoserTree<long[]> tree = new LoserTree<>( sources( runs ), BY_KEY );
+    assertEquals( 3, tree.next()[0] );
+    assertNull( tree.next() );
+  }
+
+  @Test
+  public void testMergeOfMerges() throws Exception {
+    List<List<long[]>> left = new ArrayList<>();
+    left.add( keys( 1, 4, 7 ) );
+    left.add( keys( 2, 5, 8 ) );
+    List<List<long[]>> right = new ArrayList<>();
+    right.add( keys( 3, 6, 9 ) );
+
+    List<SortedSource<long[]>> merges = new ArrayList<>();
+    merges.add( new LoserTree<>( sources( left ), BY_KEY ) );
+    merges.add( new LoserTree<>( sources( right ), BY_KEY ) );
+    LoserTree<long[]> tree = new LoserTree<>( merges, BY_KEY );
+    for ( long key = 1; key <= 9; key++ ) {
+      assertEquals( key, tree.next()[0] );
+    }
+    assertNull( tree.next() );
+  }
+
+  private static List<long[]> keys( long... keys ) {
+    List<long[]> list = new ArrayList<>();
+    for ( long key : keys ) {
+      list.add( new long[] { key } );
+    }
+    return list;
+  }
+
+  private static List<SortedSource<long[]>> sources( List<List<long[]>> runs ) {
+    List<SortedSource<long[]>> sources = new ArrayList<>();
+    for ( List<long[]> run : runs ) {
+      Iterator<long[]> iterator = run.iterator();
+      sources.add( () -> iterator.hasNext() ? iterator.next() : null );
+    }
+    return sources;
+  }
+}
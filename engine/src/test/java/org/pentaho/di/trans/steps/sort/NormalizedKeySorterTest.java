@@ -0,0 +1,206 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class NormalizedKeySorterTest {
+
+  private static final String[] WORDS = { "apple", "Apple", "APPLE", "apples", "appl", "b", "B", "\u00e9t\u00e9",
+    "ete", "Ete", "zebra", "a\u0000b", "a", "a\u0001", "", "\ud83d\ude00", "\uffee", "stra\u00dfe", "STRASSE", };
+
+  @Test
+  public void testMixedTypesAscendingAndDescending() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.getValueMeta( 1 ).setSortedDescending( true );
+    rowMeta.getValueMeta( 3 ).setSortedDescending( true );
+
+    assertSortsLikeRowMeta( rowMeta, new int[] { 4, 0, 1, 2, 3 }, randomRows( 5000, 7 ), 1 );
+    assertSortsLikeRowMeta( rowMeta, new int[] { 2, 3, 1 }, randomRows( 5000, 11 ), 1 );
+  }
+
+  @Test
+  public void testCaseInsensitiveStrings() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.getValueMeta( 0 ).setCaseInsensitive( true );
+
+    assertSortsLikeRowMeta( rowMeta, new int[] { 0 }, randomRows( 2000, 13 ), 1 );
+
+    rowMeta.getValueMeta( 0 ).setSortedDescending( true );
+    assertSortsLikeRowMeta( rowMeta, new int[] { 0, 1 }, randomRows( 2000, 17 ), 1 );
+  }
+
+  @Test
+  public void testCollatedStrings() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    ValueMetaInterface valueMeta = rowMeta.getValueMeta( 0 );
+    valueMeta.setCollatorDisabled( false );
+    valueMeta.setCollatorLocale( Locale.FRENCH );
+    valueMeta.setCollatorStrength( Collator.PRIMARY );
+
+    assertSortsLikeRowMeta( rowMeta, new int[] { 0, 1 }, randomRows( 2000, 19 ), 1 );
+  }
+
+  @Test
+  public void testLongKeysAndParallelSort() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+
+    int nrRows = NormalizedKeySorter.PARALLEL_THRESHOLD * 3;
+    Random random = new Random( 23 );
+    List<Object[]> rows = new ArrayList<>( nrRows );
+    for ( int i = 0; i < nrRows; i++ ) {
+      // long shared prefixes make the sort go many chunks deep
+      String prefix = random.nextBoolean() ? "a rather long common prefix of the key " : "another prefix ";
+      rows.add( new Object[] { prefix + WORDS[random.nextInt( WORDS.length )], (long) random.nextInt( 50 ) } );
+    }
+    assertSortsLikeRowMeta( rowMeta, new int[] { 0, 1 }, rows, 4 );
+  }
+
+  @Test
+  public void testIsSupported() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    ValueMetaInterface binaryString = new ValueMetaString( "binary" );
+    binaryString.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    rowMeta.addValueMeta( binaryString );
+    rowMeta.addValueMeta( new ValueMetaString( "comparator", ( o1, o2 ) -> o2.toString().compareTo( o1.toString() ) ) );
+
+    assertTrue( NormalizedKeySorter.isSupported( rowMeta, new int[] { 0 } ) );
+    assertFalse( NormalizedKeySorter.isSupported( rowMeta, new int[] { 0, 1 } ) );
+    assertFalse( NormalizedKeySorter.isSupported( rowMeta, new int[] { 2 } ) );
+    assertFalse( NormalizedKeySorter.isSupported( rowMeta, new int[] { 0, 3 } ) );
+    assertFalse( NormalizedKeySorter.isSupported( rowMeta, new int[] {} ) );
+  }
+
+  @Test
+  public void testNothingToSort() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    List<Object[]> rows = new ArrayList<>();
+    new NormalizedKeySorter( rowMeta, new int[] { 0 } ).sort( rows );
+    assertTrue( rows.isEmpty() );
+
+    Object[] row = new Object[] { 1L };
+    rows.add( row );
+    new NormalizedKeySorter( rowMeta, new int[] { 0 } ).sort( rows );
+    assertSame( row, rows.get( 0 ) );
+  }
+
+  @Test
+  public void testEstimateMemory() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < 1000; i++ ) {
+      rows.add( new Object[] { (long) i, "abc" } );
+    }
+
+    // An integer takes a null flag and 8 bytes
+    NormalizedKeySorter sorter = new NormalizedKeySorter( rowMeta, new int[] { 0 }, 2 );
+    assertEquals( 1000L * ( NormalizedKeySorter.BYTES_PER_ROW + 9 ) + 2L * NormalizedKeySorter.PAGE_SIZE,
+      sorter.estimateMemory( rows ) );
+
+    // An ASCII character takes 2 bytes and an escape, a string ends with 2 zero bytes
+    sorter = new NormalizedKeySorter( rowMeta, new int[] { 1 }, 1 );
+    assertEquals( 1000L * ( NormalizedKeySorter.BYTES_PER_ROW + 1 + 3 * 3 + 2 ) + NormalizedKeySorter.PAGE_SIZE,
+      sorter.estimateMemory( rows ) );
+
+    assertEquals( 0L, sorter.estimateMemory( rows.subList( 0, 1 ) ) );
+  }
+
+  private static List<Object[]> randomRows( int nrRows, long seed ) {
+    Random random = new Random( seed );
+    double[] numbers = { 0.0, -0.0, 1.5, -1.5, Double.NaN, Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_VALUE,
+      Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, };
+    List<Object[]> rows = new ArrayList<>( nrRows );
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.add( new Object[] {
+        random.nextInt( 10 ) == 0 ? null : WORDS[random.nextInt( WORDS.length )],
+        random.nextInt( 10 ) == 0 ? null : random.nextBoolean() ? (long) random.nextInt( 5 ) - 2 : random.nextLong(),
+        random.nextInt( 10 ) == 0 ? null : random.nextBoolean() ? numbers[random.nextInt( numbers.length )]
+          : random.nextGaussian(),
+        random.nextInt( 10 ) == 0 ? null : new Date( random.nextInt( 5 ) * 1000L - 2000L ),
+        random.nextInt( 10 ) == 0 ? null : random.nextBoolean(), } );
+    }
+    return rows;
+  }
+
+  private static void assertSortsLikeRowMeta( RowMetaInterface rowMeta, int[] fieldNrs, List<Object[]> rows,
+                                              int parallelism ) throws KettleValueException {
+    assertTrue( NormalizedKeySorter.isSupported( rowMeta, fieldNrs ) );
+
+    List<Object[]> expected = new ArrayList<>( rows );
+    Collections.sort( expected, ( o1, o2 ) -> {
+      try {
+        return rowMeta.compare( o1, o2, fieldNrs );
+      } catch ( KettleValueException e ) {
+        throw new IllegalStateException( e );
+      }
+    } );
+
+    List<Object[]> actual = new ArrayList<>( rows );
+    new NormalizedKeySorter( rowMeta, fieldNrs, parallelism ).sort( actual );
+
+    assertEquals( expected.size(), actual.size() );
+    for ( int i = 0; i < expected.size(); i++ ) {
+      // Same rows in the same order: the sort is stable
+      assertSame( "row " + i, expected.get( i ), actual.get( i ) );
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.compress.CompressionPluginType;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransTestFactory;
+import org.pentaho.di.trans.step.RowAdapter;
+
+public class SortRowsTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final String STEPNAME = "sort";
+
+  private SortRowsMeta meta;
+  private Trans trans;
+
+  /** The number of temp files that are merged for the output */
+  private int mergedFiles;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    PluginRegistry.addPluginType( CompressionPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Before
+  public void setUp() {
+    meta = new SortRowsMeta();
+    meta.setDefault();
+    meta.allocate( 1 );
+    meta.setFieldName( new String[] { "key" } );
+    meta.setAscending( new boolean[] { true } );
+    meta.setCaseSensitive( new boolean[] { true } );
+    meta.setCollatorEnabled( new boolean[] { false } );
+    meta.setCollatorStrength( new int[] { 0 } );
+    meta.setPreSortedField( new boolean[] { false } );
+    meta.setDirectory( tempFolder.getRoot().getAbsolutePath() );
+    meta.setPrefix( "sort" );
+  }
+
+  @Test
+  public void testSpillsSortedRunsToDisk() throws Exception {
+    meta.setSortSize( "10" );
+
+    List<RowMetaAndData> output = run( randomRows( 95, 1000 ) );
+
+    assertEquals( 10, mergedFiles );
+    assertSorted( output, 95 );
+    assertNoTempFiles();
+  }
+
+  @Test
+  public void testMergesMoreFilesThanMaxMergeFilesInPasses() throws Exception {
+    meta.setSortSize( "4" );
+
+    // Few distinct keys, so the intermediate merges have to keep the rows of equal keys in input order
+    List<RowMetaAndData> output = run( randomRows( 150, 7 ), Const.KETTLE_SORT_MAX_MERGE_FILES, "3" );
+
+    assertEquals( 3, mergedFiles );
+    assertSorted( output, 150 );
+    assertNoTempFiles();
+  }
+
+  @Test
+  public void testReadsBackCompressedSpillFiles() throws Exception {
+    meta.setSortSize( "8" );
+    meta.setCompressFiles( true );
+    List<RowMetaAndData> input = randomRows( 60, 100 );
+
+    // The default compression
+    List<RowMetaAndData> output = run( input );
+    assertEquals( 8, mergedFiles );
+    assertSorted( output, 60 );
+
+    assertEquals( output.toString(), run( input, Const.KETTLE_SORT_SPILL_COMPRESSION, "GZip" ).toString() );
+    assertEquals( output.toString(), run( input, Const.KETTLE_SORT_SPILL_COMPRESSION, "none-such" ).toString() );
+    assertNoTempFiles();
+  }
+
+  @Test
+  public void testPassesUniqueRowsAcrossRuns() throws Exception {
+    meta.setSortSize( "5" );
+    meta.setOnlyPassingUniqueRows( true );
+
+    // Every key shows up in several runs, and more than once in some
+    List<RowMetaAndData> input = new ArrayList<>();
+    for ( int i = 0; i < 40; i++ ) {
+      input.add( row( ( i * 7 ) % 6, i ) );
+    }
+
+    List<RowMetaAndData> output = run( input );
+
+    assertEquals( 8, mergedFiles );
+    assertEquals( 6, output.size() );
+    for ( int i = 0; i < output.size(); i++ ) {
+      assertEquals( i, output.get( i ).getInteger( "key", -1L ) );
+    }
+    assertNoTempFiles();
+  }
+
+  private List<RowMetaAndData> run( List<RowMetaAndData> input, String... variables ) throws Exception {
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, meta, STEPNAME );
+    trans = new Trans( transMeta );
+    for ( int i = 0; i < variables.length; i += 2 ) {
+      trans.setVariable( variables[ i ], variables[ i + 1 ] );
+    }
+    trans.prepareExecution( null );
+
+    final SortRowsData data = (SortRowsData) trans.getStepDataInterface( STEPNAME, 0 );
+    mergedFiles = 0;
+    trans.getStepInterface( STEPNAME, 0 ).addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+        if ( mergedFiles == 0 ) {
+          mergedFiles = data.spillFiles.size();
+        }
+      }
+    } );
+
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( TransTestFactory.DUMMY_STEPNAME, 0 ).addRowListener( collector );
+    RowProducer producer = trans.addRowProducer( TransTestFactory.INJECTOR_STEPNAME, 0 );
+    trans.startThreads();
+    for ( RowMetaAndData row : input ) {
+      producer.putRow( row.getRowMeta(), row.getData() );
+    }
+    producer.finished();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    return collector.getRowsWritten();
+  }
+
+  private static List<RowMetaAndData> randomRows( int nrRows, int nrKeys ) {
+    Random random = new Random( nrRows );
+    List<RowMetaAndData> rows = new ArrayList<>();
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.add( row( random.nextInt( nrKeys ), i ) );
+    }
+    return rows;
+  }
+
+  private static RowMetaAndData row( long key, long sequence ) {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "seq" ) );
+    return new RowMetaAndData( rowMeta, key, sequence );
+  }
+
+  /**
+   * The rows have to come out by key, and in input order for equal keys.
+   */
+  private static void assertSorted( List<RowMetaAndData> output, int nrRows ) throws Exception {
+    assertEquals( nrRows, output.size() );
+    for ( int i = 1; i < output.size(); i++ ) {
+      long previousKey = output.get( i - 1 ).getInteger( "key", -1L );
+      long key = output.get( i ).getInteger( "key", -1L );
+      assertTrue( "Row " + i + " is out of order", previousKey <= key );
+      if ( previousKey == key ) {
+        assertTrue( "Row " + i + " isn't stable",
+          output.get( i - 1 ).getInteger( "seq", -1L ) < output.get( i ).getInteger( "seq", -1L ) );
+      }
+    }
+  }
+
+  private void assertNoTempFiles() {
+    File[] files = tempFolder.getRoot().listFiles();
+    assertEquals( 0, files.length );
+  }
+}
@@ -0,0 +1,219 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class AsyncBufferedOutputStreamTest {
+
+  private static final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterClass
+  public static void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Writes slowly so the step thread has to wait for free buffers.
+   */
+  private static class SlowOutputStream extends ByteArrayOutputStream {
+    private int flushes;
+
+    @Override
+    public synchronized void write( byte[] b, int off, int len ) {
+      try {
+        Thread.sleep( 1 );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      super.write( b, off, len );
+    }
+
+    @Override
+    public void flush() {
+      flushes++;
+    }
+  }
+
+  @Test
+  public void testWritesInOrder() throws IOException {
+    Random random = new Random( 42 );
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    SlowOutputStream target = new SlowOutputStream();
+
+    AsyncBufferedOutputStream out = new AsyncBufferedOutputStream( target, 13, 2, executor );
+    for ( int i = 0; i < 2000; i++ ) {
+      if ( random.nextInt( 4 ) == 0 ) {
+        int b = random.nextInt( 256 );
+        out.write( b );
+        expected.write( b );
+      } else {
+        byte[] data = new byte[ random.nextInt( 40 ) ];
+        random.nextBytes( data );
+        int off = data.length == 0 ? 0 : random.nextInt( data.length );
+        out.write( data, off, data.length - off );
+        expected.write( data, off, data.length - off );
+      }
+      if ( i % 500 == 0 ) {
+        out.flush();
+        assertEquals( expected.size(), target.size() );
+      }
+    }
+    out.close();
+
+    assertArrayEquals( expected.toByteArray(), target.toByteArray() );
+    assertTrue( target.flushes > 0 );
+  }
+
+  @Test
+  public void testNothingWrittenBeforeHandOff() throws IOException {
+    List<Runnable> tasks = new ArrayList<>();
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+    AsyncBufferedOutputStream out = new AsyncBufferedOutputStream( target, 4, 1, tasks::add );
+    out.write( new byte[] { 1, 2, 3 } );
+    assertEquals( 0, tasks.size() );
+
+    // Filling the buffer hands it to the background writer
+    out.write( new byte[] { 4, 5 } );
+    assertEquals( 1, tasks.size() );
+    assertEquals( 0, target.size() );
+
+    tasks.get( 0 ).run();
+    assertArrayEquals( new byte[] { 1, 2, 3, 4 }, target.toByteArray() );
+  }
+
+  @Test
+  public void testFlushReleasesBuffers() throws IOException {
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+    AsyncBufferedOutputStream out = new AsyncBufferedOutputStream( target, 8, 2, executor );
+    out.write( new byte[ 100 ] );
+    assertTrue( out.getAllocatedBuffers() > 0 );
+    out.flush();
+    assertEquals( 0, out.getAllocatedBuffers() );
+    assertEquals( 100, target.size() );
+
+    // The next write allocates a buffer again
+    out.write( new byte[] { 1, 2, 3 } );
+    assertEquals( 1, out.getAllocatedBuffers() );
+    out.close();
+    assertEquals( 103, target.size() );
+  }
+
+  @Test
+  public void testInterruptedCloseWaitsForBackgroundWrite() throws Exception {
+    CountDownLatch writing = new CountDownLatch( 1 );
+    CountDownLatch release = new CountDownLatch( 1 );
+    AtomicBoolean closedWhileWriting = new AtomicBoolean();
+    AtomicBoolean inWrite = new AtomicBoolean();
+    ByteArrayOutputStream target = new ByteArrayOutputStream() {
+      @Override
+      public synchronized void write( byte[] b, int off, int len ) {
+        inWrite.set( true );
+        writing.countDown();
+        try {
+          release.await();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+        super.write( b, off, len );
+        inWrite.set( false );
+      }
+
+      @Override
+      public void close() {
+        closedWhileWriting.set( inWrite.get() );
+      }
+    };
+
+    AsyncBufferedOutputStream out = new AsyncBufferedOutputStream( target, 4, 1, executor );
+    out.write( new byte[] { 1, 2, 3, 4 } );
+    assertTrue( writing.await( 10, TimeUnit.SECONDS ) );
+
+    Thread.currentThread().interrupt();
+    executor.execute( () -> {
+      try {
+        Thread.sleep( 100 );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      release.countDown();
+    } );
+    try {
+      out.close();
+      fail( "The interrupted flush should be thrown" );
+    } catch ( InterruptedIOException e ) {
+      // expected
+    }
+
+    assertTrue( Thread.interrupted() );
+    assertFalse( closedWhileWriting.get() );
+    assertEquals( 4, target.size() );
+  }
+
+  @Test
+  public void testWriteErrorIsThrown() throws IOException {
+    OutputStream failing = new OutputStream() {
+      @Override
+      public void write( int b ) throws IOException {
+        throw new IOException( "Disk full" );
+      }
+    };
+
+    AsyncBufferedOutputStream out = new AsyncBufferedOutputStream( failing, 8, 1, executor );
+    out.write( new byte[] { 1, 2, 3 } );
+    try {
+      out.flush();
+      fail( "The error of the background write should be thrown" );
+    } catch ( IOException e ) {
+      assertTrue( e.getMessage().contains( "Disk full" ) );
+    }
+    try {
+      out.write( new byte[ 100 ] );
+      fail( "The stream should keep failing after a background error" );
+    } catch ( IOException e ) {
+      assertTrue( e.getMessage().contains( "Disk full" ) );
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.util.VirtualThreadUtil;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.rowgenerator.RowGeneratorMeta;
+
+/**
+ * Runs the same transformation with the step threads on platform threads (Normal) and on virtual threads
+ * ({@link Const#KETTLE_VIRTUAL_THREADS}) and logs the throughput, the peak number of platform threads and the heap
+ * used by both.
+ * <p>
+ * The transformation is a row generator followed by a chain of dummy steps that each run in many copies, which is
+ * the shape of a heavily partitioned or mapped transformation: lots of step threads that mostly wait on their row sets.
+ */
+public class VirtualThreadExecutionIT extends TestCase {
+
+  private static final int NR_ROWS = 200000;
+  private static final int NR_STEPS = 10;
+  private static final int NR_COPIES = 50;
+  private static final int ITERATIONS = 3;
+
+  private boolean initCalled = false;
+
+  protected synchronized void setUp() throws Exception {
+    if ( initCalled ) {
+      return;
+    }
+    KettleEnvironment.init( false );
+    initCalled = true;
+  }
+
+  public void testNormalAgainstVirtualThreads() throws Exception {
+    TransMeta transMeta = createTransMeta();
+
+    // Warm up both modes first so that class loading and JIT don't count against the first one measured
+    //
+    run( transMeta, false );
+    run( transMeta, true );
+
+    Result normal = new Result();
+    Result virtual = new Result();
+    for ( int i = 0; i < ITERATIONS; i++ ) {
+      normal.add( run( transMeta, false ) );
+      virtual.add( run( transMeta, true ) );
+    }
+
+    LogChannelInterface log = new LogChannel( "VirtualThreadExecutionIT" );
+    log.logBasic( "Steps: " + NR_STEPS + " x " + NR_COPIES + " copies, rows: " + NR_ROWS
+      + ", virtual threads supported: " + VirtualThreadUtil.isSupported() );
+    log.logBasic( "Normal          : " + normal );
+    log.logBasic( "Virtual threads : " + virtual );
+
+    // Every step copy needs its own platform thread in the normal mode. On virtual threads they share a few carriers.
+    //
+    assertTrue( normal.peakThreads > NR_STEPS * NR_COPIES );
+    if ( VirtualThreadUtil.isSupported() ) {
+      assertTrue( "Peak platform threads on virtual threads (" + virtual.peakThreads + ") should be below the "
+        + NR_STEPS * NR_COPIES + " step copies", virtual.peakThreads < NR_STEPS * NR_COPIES );
+    }
+  }
+
+  private Result run( TransMeta transMeta, boolean virtualThreads ) throws Exception {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+    threadMXBean.resetPeakThreadCount();
+
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.NOTHING );
+    trans.setVariable( Const.KETTLE_VIRTUAL_THREADS, virtualThreads ? "Y" : "N" );
+    trans.setVariable( Const.KETTLE_LOCK_FREE_ROWSET, "Y" );
+
+    long start = System.nanoTime();
+    trans.prepareExecution( null );
+
+    // Sample the heap while all the step threads are alive
+    //
+    long heapPeak = 0L;
+    trans.startThreads();
+    while ( !trans.isFinished() ) {
+      heapPeak = Math.max( heapPeak, runtime.totalMemory() - runtime.freeMemory() );
+      Thread.sleep( 10 );
+    }
+    trans.waitUntilFinished();
+    long elapsed = System.nanoTime() - start;
+
+    assertEquals( 0, trans.getErrors() );
+    long written = 0L;
+    for ( StepInterface step : trans.findStepInterfaces( "Dummy " + ( NR_STEPS - 1 ) ) ) {
+      written += step.getLinesWritten();
+    }
+    assertEquals( NR_ROWS, written );
+
+    Result result = new Result();
+    result.nanos = elapsed;
+    result.peakThreads = threadMXBean.getPeakThreadCount();
+    result.heapBytes = Math.max( 0L, heapPeak - heapBefore );
+    result.runs = 1;
+    return result;
+  }
+
+  private TransMeta createTransMeta() {
+    TransMeta transMeta = new TransMeta();
+    transMeta.setName( "virtual thread execution" );
+    PluginRegistry registry = PluginRegistry.getInstance();
+
+    RowGeneratorMeta generatorMeta = new RowGeneratorMeta();
+    generatorMeta.setDefault();
+    generatorMeta.setRowLimit( Integer.toString( NR_ROWS ) );
+    String generatorPid = registry.getPluginId( StepPluginType.class, generatorMeta );
+    StepMeta previous = new StepMeta( generatorPid, "Generate rows", generatorMeta );
+    transMeta.addStep( previous );
+
+    for ( int i = 0; i < NR_STEPS; i++ ) {
+      DummyTransMeta dummyMeta = new DummyTransMeta();
+      String dummyPid = registry.getPluginId( StepPluginType.class, dummyMeta );
+      StepMeta dummyStep = new StepMeta( dummyPid, "Dummy " + i, dummyMeta );
+      dummyStep.setCopies( NR_COPIES );
+      transMeta.addStep( dummyStep );
+      transMeta.addTransHop( new TransHopMeta( previous, dummyStep ) );
+      previous = dummyStep;
+    }
+    return transMeta;
+  }
+
+  private static class Result {
+    long nanos;
+    long peakThreads;
+    long heapBytes;
+    int runs;
+
+    void add( Result result ) {
+      nanos += result.nanos;
+      peakThreads = Math.max( peakThreads, result.peakThreads );
+      heapBytes = Math.max( heapBytes, result.heapBytes );
+      runs += result.runs;
+    }
+
+    @Override
+    public String toString() {
+      double seconds = nanos / 1e9 / runs;
+      return String.format( Locale.ROOT,
+        "%,.0f rows/s, %.3f s/run, peak platform threads: %d, peak heap growth: %,d KB", NR_ROWS / seconds,
+        seconds, peakThreads, heapBytes / 1024 );
+    }
+  }
+}
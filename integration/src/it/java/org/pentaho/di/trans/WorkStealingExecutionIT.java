@@ -0,0 +1,142 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import junit.framework.TestCase;
+
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+import org.pentaho.di.trans.steps.rowgenerator.RowGeneratorMeta;
+
+/**
+ * Runs transformations with the work stealing transformation type, where many more steps than there are worker threads
+ * have to share the pool.
+ */
+public class WorkStealingExecutionIT extends TestCase {
+
+  private boolean initCalled = false;
+
+  protected synchronized void setUp() throws Exception {
+    if ( initCalled ) {
+      return;
+    }
+    KettleEnvironment.init( false );
+    initCalled = true;
+  }
+
+  public void testGeneratedRowsPassAllSteps() throws Exception {
+    final int nrRows = 100000;
+    final int nrSteps = 20;
+    TransMeta transMeta = new TransMeta();
+    transMeta.setName( "work stealing" );
+    transMeta.setTransformationType( TransformationType.WorkStealing );
+    transMeta.setSizeRowset( 100 );
+    PluginRegistry registry = PluginRegistry.getInstance();
+
+    RowGeneratorMeta generatorMeta = new RowGeneratorMeta();
+    generatorMeta.setDefault();
+    generatorMeta.setRowLimit( Integer.toString( nrRows ) );
+    StepMeta previous =
+      new StepMeta( registry.getPluginId( StepPluginType.class, generatorMeta ), "Generate rows", generatorMeta );
+    transMeta.addStep( previous );
+
+    for ( int i = 0; i < nrSteps; i++ ) {
+      DummyTransMeta dummyMeta = new DummyTransMeta();
+      StepMeta dummyStep =
+        new StepMeta( registry.getPluginId( StepPluginType.class, dummyMeta ), "Dummy " + i, dummyMeta );
+      // Mix single and multi-copy steps to get 1:N, N:N and N:1 hops
+      //
+      dummyStep.setCopies( i % 3 == 1 ? 4 : 1 );
+      transMeta.addStep( dummyStep );
+      transMeta.addTransHop( new TransHopMeta( previous, dummyStep ) );
+      previous = dummyStep;
+    }
+
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.NOTHING );
+    trans.execute( null );
+    trans.waitUntilFinished();
+
+    assertTrue( trans.isFinished() );
+    assertEquals( 0, trans.getErrors() );
+    assertEquals( nrRows, sumLinesWritten( trans, "Dummy " + ( nrSteps - 1 ) ) );
+    assertEquals( nrRows, sumLinesWritten( trans, "Dummy 1" ) );
+  }
+
+  /**
+   * Rows put by a row producer from outside of the pool have to reach the steps too.
+   */
+  public void testRowProducer() throws Exception {
+    final int nrRows = 1000;
+    TransMeta transMeta = new TransMeta();
+    transMeta.setName( "work stealing row producer" );
+    transMeta.setTransformationType( TransformationType.WorkStealing );
+    transMeta.setSizeRowset( 10 );
+    PluginRegistry registry = PluginRegistry.getInstance();
+
+    InjectorMeta injectorMeta = new InjectorMeta();
+    StepMeta injectorStep =
+      new StepMeta( registry.getPluginId( StepPluginType.class, injectorMeta ), "Injector", injectorMeta );
+    transMeta.addStep( injectorStep );
+
+    DummyTransMeta dummyMeta = new DummyTransMeta();
+    StepMeta dummyStep = new StepMeta( registry.getPluginId( StepPluginType.class, dummyMeta ), "Output", dummyMeta );
+    transMeta.addStep( dummyStep );
+    transMeta.addTransHop( new TransHopMeta( injectorStep, dummyStep ) );
+
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.NOTHING );
+    trans.prepareExecution( null );
+    RowProducer producer = trans.addRowProducer( "Injector", 0 );
+    trans.startThreads();
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "a" ) );
+    for ( long i = 0; i < nrRows; i++ ) {
+      producer.putRow( rowMeta, new Object[] { i } );
+    }
+    producer.finished();
+    trans.waitUntilFinished();
+
+    assertEquals( 0, trans.getErrors() );
+    assertEquals( nrRows, sumLinesWritten( trans, "Output" ) );
+  }
+
+  private static long sumLinesWritten( Trans trans, String stepname ) {
+    long written = 0L;
+    for ( StepInterface step : trans.findStepInterfaces( stepname ) ) {
+      written += step.getLinesWritten();
+    }
+    return written;
+  }
+}
@@ -35,11 +35,13 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.StatementBatch;
 import org.pentaho.di.core.exception.KettleConfigException;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.hash.CompactRowHashIndex;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -108,7 +110,13 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
     }
   }
 
-  private Long lookupInCache( RowMetaInterface rowMeta, Object[] row ) {
+  private Long lookupInCache( RowMetaInterface rowMeta, Object[] row ) throws KettleValueException {
+    // When inserting in batches all the keys of the table are in the index
+    if ( data.keyIndex != null ) {
+      Object[] value = data.keyIndex.get( row );
+      return value == null ? null : (Long) value[ 0 ];
+    }
+
     // Short circuit if cache is disabled.
     if ( meta.getCacheSize() == -1 ) {
       return null;
@@ -132,6 +140,11 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
    * @throws KettleValueException
    */
   private void addToCache( RowMetaInterface rowMeta, Object[] row, Long tk ) throws KettleValueException {
+    if ( data.keyIndex != null ) {
+      data.keyIndex.put( row, new Object[] { tk } );
+      return;
+    }
+
     // Short circuit if cache is disabled.
     if ( meta.getCacheSize() == -1 ) {
       return;
@@ -219,7 +232,7 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
     Object[] lookupRow = new Object[ data.lookupRowMeta.size() ];
     int lookupIndex = 0;
 
-    if ( meta.useHash() || meta.getCacheSize() >= 0 ) {
+    if ( meta.useHash() || meta.getCacheSize() >= 0 || data.keyIndex != null ) {
       hashRow = new Object[ data.hashRowMeta.size() ];
       for ( int i = 0; i < meta.getKeyField().length; i++ ) {
         hashRow[ i ] = row[ data.keynrs[ i ] ];
@@ -254,18 +267,20 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
     // Before doing the actual lookup in the database, see if it's not in the cache...
     val_key = lookupInCache( data.hashRowMeta, hashRow );
     if ( val_key == null ) {
-      data.db.setValues( data.lookupRowMeta, lookupRow, data.prepStatementLookup );
-      Object[] add = data.db.getLookup( data.prepStatementLookup );
-      incrementLinesInput();
+      // The keys that aren't in the index of all the keys are new, no need to look them up
+      Object[] add = null;
+      if ( data.keyIndex == null ) {
+        data.db.setValues( data.lookupRowMeta, lookupRow, data.prepStatementLookup );
+        add = data.db.getLookup( data.prepStatementLookup );
+        incrementLinesInput();
+      }
 
       if ( add == null ) { // The dimension entry was not found, we need to add it!
         // First try to use an AUTOINCREMENT field
         switch ( getTechKeyCreation() ) {
           case CREATION_METHOD_TABLEMAX:
             // Use our own counter: what's the next value for the technical key?
-            val_key =
-              data.db.getNextValue( getTransMeta().getCounters(), data.realSchemaName, data.realTableName, meta
-                .getTechnicalKeyField() );
+            val_key = getNextTableMaxValue();
             break;
           case CREATION_METHOD_AUTOINC:
             val_key = new Long( 0 ); // value to accept new key...
@@ -328,6 +343,9 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     // if no more input to be expected set done
     if ( r == null ) {
+      if ( data.batch != null ) {
+        data.batch.execute( true );
+      }
       setOutputDone();
       return false;
     }
@@ -377,7 +395,20 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
       }
 
       setCombiLookup( getInputRowMeta() );
-      preloadCache( data.hashRowMeta );
+
+      data.batchSize = getBatchSize();
+      if ( data.batchSize > 1 ) {
+        loadKeyIndex();
+        data.batch = new StatementBatch( data.db, data.batchSize, meta.getCommitSize() );
+        data.nextKey = 1L;
+        data.lastKey = 0L;
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "CombinationLookup.Log.InsertingInBatches", data.batchSize,
+            data.keyIndex.size() ) );
+        }
+      } else {
+        preloadCache( data.hashRowMeta );
+      }
     }
 
     try {
@@ -624,7 +655,11 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
       data.db.setValues( data.insertRowMeta, insertRow, data.prepStatementInsert );
 
       debug = "Insert row";
-      data.db.insertRow( data.prepStatementInsert );
+      if ( data.batch != null ) {
+        data.batch.add( data.prepStatementInsert );
+      } else {
+        data.db.insertRow( data.prepStatementInsert );
+      }
 
       debug = "Retrieve key";
       if ( isAutoIncrement() && databaseMeta.supportsAutoGeneratedKeys() ) {
@@ -687,6 +722,20 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
     data = (CombinationLookupData) sdi;
 
     if ( data.db != null ) {
+      try {
+        // Send the inserts that are left when the step was stopped before the end of its input
+        //
+        if ( data.batch != null && data.batch.size() > 0 ) {
+          if ( getErrors() == 0 ) {
+            data.batch.execute( false );
+          } else {
+            data.batch.clear();
+          }
+        }
+      } catch ( KettleDatabaseException e ) {
+        logError( BaseMessages.getString( PKG, "CombinationLookup.Log.UnexpectedError" ) + " : " + e.toString() );
+        setErrors( 1 );
+      }
       try {
         if ( !data.db.isAutoCommit() ) {
           if ( getErrors() == 0 ) {
@@ -703,6 +752,49 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
     super.dispose( smi, sdi );
   }
 
+  /**
+   * @return the statement that reads the (lowest) technical key of every combination of keys in the table
+   */
+  private String getPreloadSQL( DatabaseMeta databaseMeta ) {
+    String lookupKeys = "";
+    String sql = "";
+
+    /* build SQl Statement to preload cache
+     *
+         * SELECT
+         * min(<retval>) as <retval>,
+         * key1,
+         * key2,
+         * key3
+         * FROM   <table>
+         *
+         * GROUP BY key1,
+         * key2,
+         * key3;
+         *
+         */
+
+    // Build a string representation of the lookupKeys
+    for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+      lookupKeys += databaseMeta.quoteField( meta.getKeyLookup()[ i ] );
+
+      // No comma after last field
+      if ( i < meta.getKeyLookup().length - 1 ) {
+        lookupKeys += "," + Const.CR;
+      }
+    }
+
+    // Use min in case of disambiguation
+    sql += "SELECT " + Const.CR;
+    sql += "MIN(" + databaseMeta.quoteField( meta.getTechnicalKeyField() ) + ") as "
+      + databaseMeta.quoteField( meta.getTechnicalKeyField() ) + "," + Const.CR;
+    sql += lookupKeys + Const.CR;
+    sql += "FROM " + data.schemaTable + Const.CR;
+    sql += "GROUP BY" + Const.CR;
+    sql += lookupKeys + Const.CR;
+    return sql;
+  }
+
   /**
    * Preload the cache
    *
@@ -723,44 +815,9 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
       if ( databaseMeta == null ) {
         throw new KettleConfigException( BaseMessages.getString( PKG, "CombinationLookup.Log.UnexpectedError" ) );
       }
-      String lookupKeys = "";
-      String sql = "";
+      String sql = getPreloadSQL( databaseMeta );
       List<Object[]> cacheValues;
 
-      /* build SQl Statement to preload cache
-       *
-           * SELECT
-           * min(<retval>) as <retval>,
-           * key1,
-           * key2,
-           * key3
-           * FROM   <table>
-           *
-           * GROUP BY key1,
-           * key2,
-           * key3;
-           *
-           */
-
-      // Build a string representation of the lookupKeys
-      for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
-        lookupKeys += databaseMeta.quoteField( meta.getKeyLookup()[ i ] );
-
-        // No comma after last field
-        if ( i < meta.getKeyLookup().length - 1 ) {
-          lookupKeys += "," + Const.CR;
-        }
-      }
-
-      // Use min in case of disambiguation
-      sql += "SELECT " + Const.CR;
-      sql += "MIN(" + databaseMeta.quoteField( meta.getTechnicalKeyField() ) + ") as "
-        + databaseMeta.quoteField( meta.getTechnicalKeyField() ) + "," + Const.CR;
-      sql += lookupKeys + Const.CR;
-      sql += "FROM " + data.schemaTable + Const.CR;
-      sql += "GROUP BY" + Const.CR;
-      sql += lookupKeys + Const.CR;
-
       if ( log.isDebug() ) {
         logDebug( "Using preload cache statement:" + Const.CR + sql );
       }
@@ -779,5 +836,75 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
 
   }
 
+  /**
+   * New entries can be inserted in batches when the step numbers them itself and is the only copy writing the table:
+   * it then knows all the keys of the table without looking them up, and doesn't need to read back the generated key
+   * or pass the rows that fail on to the error handling.
+   *
+   * @return the number of new entries to insert with a single batch, 1 to look up and insert rows one by one
+   */
+  private int getBatchSize() throws KettleDatabaseException {
+    int batchSize = Const.toInt( getVariable( Const.KETTLE_COMBINATION_LOOKUP_BATCH_SIZE ), 1 );
+    if ( batchSize <= 1 || isAutoIncrement() || getStepMeta().isDoingErrorHandling()
+      || getTrans().findStepInterfaces( getStepname() ).size() > 1
+      || !CompactRowHashIndex.isSupported( data.hashRowMeta ) || !data.db.getUseBatchInsert( true ) ) {
+      return 1;
+    }
+    RowMetaInterface tableRowMeta =
+      data.db.getQueryFields( meta.getDatabaseMeta().stripCR( getPreloadSQL( meta.getDatabaseMeta() ) ), false );
+    if ( !CompactRowHashIndex.isWholeNumberKey( data.hashRowMeta, 0 ) || tableRowMeta == null
+      || !CompactRowHashIndex.isWholeNumberKey( tableRowMeta, 1 ) ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "CombinationLookup.Log.KeysNotBatched" ) );
+      }
+      return 1;
+    }
+    return batchSize;
+  }
+
+  /**
+   * Load the technical key of every combination of keys in the table into the key index. The keys are converted to
+   * the data types of the input fields, so they compare the same as the keys of the input rows.
+   */
+  private void loadKeyIndex() throws KettleException {
+    data.keyIndexValueMeta = new RowMeta();
+    data.keyIndexValueMeta.addValueMeta( new ValueMetaInteger( meta.getTechnicalKeyField() ) );
+    data.keyIndex = new CompactRowHashIndex( data.hashRowMeta, data.keyIndexValueMeta );
+
+    String sql = getPreloadSQL( meta.getDatabaseMeta() );
+    if ( log.isDebug() ) {
+      logDebug( "Using key index statement:" + Const.CR + sql );
+    }
+    List<Object[]> rows = data.db.getRows( meta.getDatabaseMeta().stripCR( sql ), -1 );
+    RowMetaInterface rowMeta = data.db.getReturnRowMeta();
+    for ( int i = 0; i < rows.size(); i++ ) {
+      Object[] row = rows.get( i );
+      rows.set( i, null ); // the index is a lot smaller than the rows
+
+      // The technical key is at position 0
+      Object[] hashRow = new Object[ data.hashRowMeta.size() ];
+      for ( int k = 0; k < hashRow.length; k++ ) {
+        hashRow[ k ] = data.hashRowMeta.getValueMeta( k ).convertData( rowMeta.getValueMeta( k + 1 ), row[ k + 1 ] );
+      }
+      data.keyIndex.put( hashRow, new Object[] { rowMeta.getInteger( row, 0 ) } );
+      incrementLinesInput();
+    }
+  }
 
+  /**
+   * @return the next technical key of the table maximum counter, out of a reserved block when inserting in batches
+   */
+  private Long getNextTableMaxValue() throws KettleDatabaseException {
+    if ( data.batch == null ) {
+      return data.db.getNextValue( getTransMeta().getCounters(), data.realSchemaName, data.realTableName, meta
+        .getTechnicalKeyField() );
+    }
+    if ( data.nextKey > data.lastKey ) {
+      data.nextKey =
+        data.db.getNextValueBlock( getTransMeta().getCounters(), data.realSchemaName, data.realTableName, meta
+          .getTechnicalKeyField(), data.batchSize );
+      data.lastKey = data.nextKey + data.batchSize - 1;
+    }
+    return data.nextKey++;
+  }
 }
@@ -27,6 +27,8 @@ import java.util.Map;
 
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.StatementBatch;
+import org.pentaho.di.core.hash.CompactRowHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -55,6 +57,18 @@ public class CombinationLookupData extends BaseDatabaseStepData implements StepD
   public PreparedStatement prepStatementInsert;
   public long smallestCacheKey;
 
+  /** The inserts that weren't sent to the database yet, null when inserting row by row */
+  public StatementBatch batch;
+  public int batchSize;
+
+  /** All the natural keys of the table and their technical key, used instead of the cache when inserting in batches */
+  public CompactRowHashIndex keyIndex;
+  public RowMetaInterface keyIndexValueMeta;
+
+  /** The next technical key of the reserved block and the last one */
+  public long nextKey;
+  public long lastKey;
+
   /**
    * Default Constructor
    */
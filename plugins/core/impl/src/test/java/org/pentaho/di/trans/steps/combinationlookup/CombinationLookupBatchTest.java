@@ -0,0 +1,189 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.combinationlookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.H2DatabaseMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransTestFactory;
+
+public class CombinationLookupBatchTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEPNAME = "combination";
+  private static final String URL = "jdbc:h2:mem:combinationbatch";
+
+  private static Connection connection;
+
+  /** The data of the step in the last transformation that ran */
+  private CombinationLookupData lastData;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws SQLException {
+    connection = DriverManager.getConnection( URL + ";DB_CLOSE_DELAY=-1" );
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws SQLException {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "SHUTDOWN" );
+    }
+    connection.close();
+  }
+
+  @Test
+  public void testBatchesInsertLikeRowByRow() throws Exception {
+    createTable( "COMBI_ROWS", "BIGINT" );
+    createTable( "COMBI_BATCH", "BIGINT" );
+
+    List<RowMetaAndData> input = new ArrayList<>();
+    long[][] keys = { { 1, 1 }, { 1, 2 }, { 2, 1 }, { 1, 2 }, { 3, 3 }, { 1, 1 }, { 4, 4 }, { 2, 1 }, { 5, 5 } };
+    for ( long[] key : keys ) {
+      input.add( row( new ValueMetaInteger( "k1" ), key[ 0 ], key[ 1 ] ) );
+    }
+
+    List<RowMetaAndData> rowByRow = run( "COMBI_ROWS", 1, input );
+    assertNull( lastData.batch );
+
+    List<RowMetaAndData> batched = run( "COMBI_BATCH", 2, input );
+    assertEquals( 2, lastData.batchSize );
+
+    // The existing combination keeps its technical key, the new ones get the same keys as row by row
+    assertEquals( Long.valueOf( 7L ), batched.get( 0 ).getInteger( "ID" ) );
+    assertEquals( technicalKeys( rowByRow ), technicalKeys( batched ) );
+    assertEquals( tableContents( "COMBI_ROWS" ), tableContents( "COMBI_BATCH" ) );
+    assertEquals( 6, tableContents( "COMBI_BATCH" ).size() );
+  }
+
+  @Test
+  public void testStringKeysAreInsertedRowByRow() throws Exception {
+    // The database finds the combination of "abc" for "ABC", which the key index in Java wouldn't
+    createTable( "COMBI_STRING", "VARCHAR_IGNORECASE(20)" );
+
+    List<RowMetaAndData> input = new ArrayList<>();
+    input.add( row( new ValueMetaString( "k1" ), "abc", 1L ) );
+    input.add( row( new ValueMetaString( "k1" ), "ABC", 1L ) );
+    input.add( row( new ValueMetaString( "k1" ), "Abc", 1L ) );
+
+    List<RowMetaAndData> output = run( "COMBI_STRING", 2, input );
+    assertEquals( 2, tableContents( "COMBI_STRING" ).size() );
+    assertEquals( 1, lastData.batchSize );
+    assertEquals( technicalKeys( output ).get( 0 ), technicalKeys( output ).get( 2 ) );
+  }
+
+  private void createTable( String table, String keyType ) throws SQLException {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE " + table + " ( ID BIGINT, K1 " + keyType + ", K2 BIGINT )" );
+      statement.execute( "INSERT INTO " + table + " VALUES ( 7, " + ( keyType.equals( "BIGINT" ) ? "1" : "'other'" )
+        + ", 1 )" );
+    }
+  }
+
+  private static RowMetaAndData row( ValueMetaInterface firstKeyMeta, Object firstKey, Long secondKey ) {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( firstKeyMeta );
+    rowMeta.addValueMeta( new ValueMetaInteger( "k2" ) );
+    return new RowMetaAndData( rowMeta, firstKey, secondKey );
+  }
+
+  private List<RowMetaAndData> run( String table, int batchSize, List<RowMetaAndData> input ) throws Exception {
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    databaseMeta.setName( "h2" );
+    databaseMeta.setDBName( "mem:combinationbatch" );
+
+    CombinationLookupMeta meta = new CombinationLookupMeta();
+    meta.setDefault();
+    meta.setDatabaseMeta( databaseMeta );
+    meta.setTablename( table );
+    meta.setKeyField( new String[] { "k1", "k2" } );
+    meta.setKeyLookup( new String[] { "K1", "K2" } );
+    meta.setTechnicalKeyField( "ID" );
+    meta.setTechKeyCreation( CombinationLookupMeta.CREATION_METHOD_TABLEMAX );
+    meta.setCommitSize( 3 );
+
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, meta, STEPNAME );
+    Trans trans = new Trans( transMeta );
+    trans.setVariable( Const.KETTLE_COMBINATION_LOOKUP_BATCH_SIZE, Integer.toString( batchSize ) );
+    trans.prepareExecution( null );
+
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( TransTestFactory.DUMMY_STEPNAME, 0 ).addRowListener( collector );
+    RowProducer producer = trans.addRowProducer( TransTestFactory.INJECTOR_STEPNAME, 0 );
+    trans.startThreads();
+    for ( RowMetaAndData row : input ) {
+      producer.putRow( row.getRowMeta(), row.getData() );
+    }
+    producer.finished();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    lastData = (CombinationLookupData) trans.getStepDataInterface( STEPNAME, 0 );
+    return collector.getRowsWritten();
+  }
+
+  private static List<Long> technicalKeys( List<RowMetaAndData> rows ) throws Exception {
+    List<Long> keys = new ArrayList<>();
+    for ( RowMetaAndData row : rows ) {
+      keys.add( row.getInteger( "ID" ) );
+    }
+    return keys;
+  }
+
+  private static List<String> tableContents( String table ) throws SQLException {
+    List<String> contents = new ArrayList<>();
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery( "SELECT ID, K1, K2 FROM " + table + " ORDER BY ID" ) ) {
+      while ( resultSet.next() ) {
+        contents.add( resultSet.getLong( 1 ) + "/" + resultSet.getString( 2 ) + "/" + resultSet.getLong( 3 ) );
+      }
+    }
+    return contents;
+  }
+}